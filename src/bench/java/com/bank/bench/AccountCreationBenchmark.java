@@ -0,0 +1,101 @@
+// File: src/bench/java/com/bank/bench/AccountCreationBenchmark.java
+package com.bank.bench;
+
+import com.bank.server.AccountNumberAllocator;
+import com.bank.server.DBManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczba kont zakładanych na sekundę przez DBManager.addAccountToClient dla różnych rozmiarów bloku alokatora
+ * numerów kont. Dwie instancje DBManager (symulacja dwóch serwerów) korzystają z tej samej bazy; na końcu
+ * sprawdzane jest, że wszystkie numery są unikalne i mają poprawne cyfry kontrolne IBAN.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.AccountCreationBenchmark
+ *               -Dexec.args="[wątki] [sekundy] [rozmiaryBloku...]"
+ */
+public class AccountCreationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] blockSizes = args.length > 2 ? new int[args.length - 2] : new int[]{1, 10, 100, 1000};
+        for (int i = 2; i < args.length; i++) blockSizes[i - 2] = Integer.parseInt(args[i]);
+
+        for (int blockSize : blockSizes) {
+            String url = BenchDatabase.memoryUrl("account_creation_" + blockSize);
+            BenchDatabase.createSchema(url);
+            run(url, threads, seconds, blockSize);
+        }
+    }
+
+    private static void run(String url, int threads, int seconds, int blockSize) throws Exception {
+        DBManager[] servers = {new DBManager(BenchDatabase.pool(url, threads)), new DBManager(BenchDatabase.pool(url, threads))};
+        for (DBManager db : servers) db.getAccountNumberAllocator().configure(AccountNumberAllocator.DEFAULT_BANK_CODE, blockSize);
+        int clientId = servers[0].addClient("Bench", "Accounts", "00000000001", "bench");
+
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        LongAdder created = new LongAdder();
+        LongAdder invalid = new LongAdder();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int t = 0; t < threads; t++) {
+            DBManager db = servers[t % servers.length];
+            new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        String number = db.addAccountToClient(clientId, BigDecimal.ZERO).getAccountNumber();
+                        if (!AccountNumberAllocator.isValid(number)) invalid.increment();
+                        issued.add(number);
+                        created.increment();
+                    }
+                } catch (Throwable e) {
+                    firstFailure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "accounts-" + t).start();
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long rows = countAccounts(url);
+        System.out.printf("blockSize=%d threads=%d created=%d (%.0f accounts/s) distinctNumbers=%d rows=%d invalidCheckDigits=%d%n",
+                blockSize, threads, created.sum(), created.sum() / elapsed, issued.size(), rows, invalid.sum());
+        System.out.println("  " + servers[0].getAccountNumberAllocator().statsSummary() + " " +
+                servers[1].getAccountNumberAllocator().statsSummary());
+        for (DBManager db : servers) db.close();
+
+        if (firstFailure.get() != null) {
+            System.out.println("FAILED: " + firstFailure.get());
+            System.exit(1);
+        }
+        if (issued.size() != created.sum() || rows != created.sum() || invalid.sum() > 0) {
+            System.out.println("FAILED: duplicate or invalid account numbers.");
+            System.exit(1);
+        }
+    }
+
+    private static long countAccounts(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, BenchDatabase.USER, BenchDatabase.PASSWORD);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM accounts")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+// File: src/bench/java/com/bank/bench/BatchTransferBenchmark.java
+package com.bank.bench;
+
+import com.bank.client.PipelinedSender;
+import com.bank.client.ServerConnection;
+import com.bank.common.Account;
+import com.bank.common.Protocol;
+import com.bank.server.DBManager;
+import com.bank.server.SessionExecutors;
+import com.bank.server.Storage;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Paczka przelewów (BATCH_TRANSFER) w porównaniu z tą samą liczbą pojedynczych poleceń TRANSFER, przez protokół
+ * do serwera wbudowanego ({@link EmbeddedBankServer}). Scenariusz "lista płac": jedno konto płatnika i wiele kont
+ * odbiorców. Mierzone warianty, każdy na tych samych N przelewach w każdej rundzie:
+ * <ul>
+ *   <li>TRANSFER kolejno - żądanie, odpowiedź, następne żądanie,</li>
+ *   <li>TRANSFER w potoku ({@link PipelinedSender}) - bez czekania na odpowiedzi, ale nadal N transakcji,</li>
+ *   <li>BATCH_TRANSFER BEST_EFFORT i ATOMIC - jedno żądanie i jedna transakcja na N przelewów.</li>
+ * </ul>
+ * Na końcu sprawdzane jest, że suma pieniędzy się nie zmieniła, a saldo płatnika spadło dokładnie o wykonane przelewy.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.BatchTransferBenchmark
+ *               -Dexec.args="[przelewyWPaczce] [rundy] [storage] [odbiorcy]"
+ */
+public class BatchTransferBenchmark {
+    private static final BigDecimal PAYER_BALANCE = new BigDecimal("1000000000.00");
+    private static final String AMOUNT = "1.25";
+    private static final String PASSWORD = "bench";
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        String storageEngine = args.length > 2 ? args[2] : EmbeddedBankServer.STORAGE_JDBC;
+        int payees = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        if (batchSize < 1 || batchSize > Protocol.BATCH_TRANSFER_MAX_ENTRIES) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + Protocol.BATCH_TRANSFER_MAX_ENTRIES);
+        }
+        Logger serverLogger = Logger.getLogger(BatchTransferBenchmark.class.getName() + ".server");
+        serverLogger.setLevel(Level.WARNING);
+
+        try (EmbeddedBankServer server = EmbeddedBankServer.start(storageEngine, EmbeddedBankServer.FRONTEND_BLOCKING,
+                SessionExecutors.MODE_PLATFORM, 8, 8, true, 0, 0, EmbeddedBankServer.STORAGE_JDBC.equals(storageEngine), serverLogger)) {
+            Storage storage = server.getStorage();
+            int payerId = storage.addClient("Payroll", "Payer", "90000000001", PASSWORD);
+            String payer = storage.addAccountToClient(payerId, PAYER_BALANCE).getAccountNumber();
+            int payeeClientId = storage.addClient("Payroll", "Payees", "90000000002", PASSWORD);
+            List<String> payeeAccounts = new ArrayList<>(payees);
+            for (int i = 0; i < payees; i++) {
+                payeeAccounts.add(storage.addAccountToClient(payeeClientId, BigDecimal.ZERO).getAccountNumber());
+            }
+            BigDecimal totalBefore = total(storage, payerId, payeeClientId);
+
+            System.out.printf("storage=%s batchSize=%d rounds=%d payees=%d%n", storageEngine, batchSize, rounds, payees);
+            long applied = 0;
+            try (ServerConnection conn = ServerConnection.open("localhost", server.getPort())) {
+                String[] login = Protocol.parseMessage(conn.exchange(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(payerId), PASSWORD)));
+                if (login.length < 2 || !Protocol.OK_LOGIN_SUCCESSFUL.equals(login[1])) {
+                    throw new IOException("LOGIN failed: " + Protocol.buildMessage(login));
+                }
+                // Rozgrzewka JIT i puli połączeń - jedna runda każdego wariantu poza pomiarem
+                for (Variant variant : Variant.values()) applied += variant.run(conn, payer, payeeAccounts, batchSize, 0);
+                for (Variant variant : Variant.values()) {
+                    long start = System.nanoTime();
+                    long variantApplied = 0;
+                    for (int round = 1; round <= rounds; round++) {
+                        variantApplied += variant.run(conn, payer, payeeAccounts, batchSize, round);
+                    }
+                    double elapsed = (System.nanoTime() - start) / 1e9;
+                    applied += variantApplied;
+                    System.out.printf("  %-26s %8d transfers %9.0f transfers/s %9.3f ms per %d%n", variant.label, variantApplied,
+                            variantApplied / elapsed, elapsed * 1000 / rounds, batchSize);
+                    if (variantApplied != (long) rounds * batchSize) {
+                        System.out.println("FAILED: " + variant.label + " applied " + variantApplied + " of " + (long) rounds * batchSize + " transfers.");
+                        System.exit(1);
+                    }
+                }
+            }
+
+            System.out.println(storage.getMetrics().statsSummary());
+            if (storage instanceof DBManager) System.out.println(((DBManager) storage).getTransferEngine().statsSummary());
+            BigDecimal totalAfter = total(storage, payerId, payeeClientId);
+            BigDecimal expectedPayer = PAYER_BALANCE.subtract(new BigDecimal(AMOUNT).multiply(BigDecimal.valueOf(applied)));
+            BigDecimal payerAfter = storage.findAccountByNumber(payer).map(Account::getBalance).orElse(null);
+            System.out.println("total before=" + totalBefore.toPlainString() + " after=" + totalAfter.toPlainString() +
+                    ", payer balance=" + payerAfter + " (expected " + expectedPayer.toPlainString() + ")");
+            if (totalBefore.compareTo(totalAfter) != 0 || payerAfter == null || payerAfter.compareTo(expectedPayer) != 0) {
+                System.out.println("FAILED: money was not conserved.");
+                System.exit(1);
+            }
+            System.out.println("PASSED: total money conserved.");
+        }
+    }
+
+    private enum Variant {
+        SEQUENTIAL("TRANSFER sequential"),
+        PIPELINED("TRANSFER pipelined"),
+        BATCH_BEST_EFFORT("BATCH_TRANSFER best-effort"),
+        BATCH_ATOMIC("BATCH_TRANSFER atomic");
+
+        final String label;
+
+        Variant(String label) {
+            this.label = label;
+        }
+
+        /** @return Liczba wykonanych przelewów rundy. */
+        long run(ServerConnection conn, String payer, List<String> payees, int batchSize, int round) throws IOException {
+            List<String> targets = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                targets.add(payees.get((round * batchSize + i) % payees.size()));
+            }
+            switch (this) {
+                case SEQUENTIAL: {
+                    long ok = 0;
+                    for (String to : targets) {
+                        if (isTransferOk(conn.exchange(Protocol.buildMessage(Protocol.CMD_TRANSFER, payer, to, AMOUNT)))) ok++;
+                    }
+                    return ok;
+                }
+                case PIPELINED: {
+                    List<String> requests = new ArrayList<>(batchSize);
+                    for (String to : targets) requests.add(Protocol.buildMessage(Protocol.CMD_TRANSFER, payer, to, AMOUNT));
+                    long ok = 0;
+                    for (String response : PipelinedSender.sendAll(conn, requests)) {
+                        if (isTransferOk(response)) ok++;
+                    }
+                    return ok;
+                }
+                default: {
+                    StringBuilder request = new StringBuilder(Protocol.CMD_BATCH_TRANSFER).append(Protocol.SEPARATOR)
+                            .append(this == BATCH_ATOMIC ? Protocol.BATCH_MODE_ATOMIC : Protocol.BATCH_MODE_BEST_EFFORT);
+                    for (String to : targets) {
+                        request.append(Protocol.SEPARATOR).append(payer).append(Protocol.BATCH_ENTRY_SEPARATOR)
+                                .append(to).append(Protocol.BATCH_ENTRY_SEPARATOR).append(AMOUNT);
+                    }
+                    String[] parts = Protocol.parseMessage(conn.exchange(request.toString()));
+                    if (parts.length < 5 || !Protocol.RES_BATCH_TRANSFER.equals(parts[0])) {
+                        throw new IOException("BATCH_TRANSFER failed: " + Protocol.buildMessage(parts));
+                    }
+                    return Long.parseLong(parts[2]);
+                }
+            }
+        }
+
+        private static boolean isTransferOk(String response) {
+            String[] parts = Protocol.parseMessage(response);
+            return parts.length > 1 && Protocol.RES_OK.equals(parts[0]) && Protocol.OK_TRANSFER_SUCCESSFUL.equals(parts[1]);
+        }
+    }
+
+    private static BigDecimal total(Storage storage, int... clientIds) throws SQLException {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int clientId : clientIds) {
+            for (Account account : storage.findAllAccountsByClientId(clientId)) sum = sum.add(account.getBalance());
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,67 @@
+// File: src/bench/java/com/bank/bench/BenchDatabase.java
+package com.bank.bench;
+
+import com.bank.server.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wbudowana baza H2 ze schematem odpowiadającym setup_bankdb.sql.
+ * Używana przez benchmarki, aby nie wymagały działającego serwera MySQL.
+ */
+public final class BenchDatabase {
+    public static final String USER = "sa";
+    public static final String PASSWORD = "";
+
+    private BenchDatabase() {
+        throw new UnsupportedOperationException("Ta klasa jest klasą narzędziową i nie można tworzyć jej instancji.");
+    }
+
+    /**
+     * URL nowej bazy w pamięci o podanej nazwie (żyje do końca procesu).
+     * Bez MODE=MySQL: w trybie MySQL H2 2.2 potrafi przydzielić ten sam AUTO_INCREMENT dwóm równoległym INSERT-om.
+     */
+    public static String memoryUrl(String name) {
+        return "jdbc:h2:mem:" + name + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=2000";
+    }
+
+    /** Tworzy tabele clients, accounts, account_number_sequence i account_ledger (jeśli nie istnieją). */
+    public static void createSchema(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS clients (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "first_name VARCHAR(100) NOT NULL, " +
+                    "last_name VARCHAR(100) NOT NULL, " +
+                    "pesel CHAR(11) UNIQUE NOT NULL, " +
+                    "password VARCHAR(255) NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS accounts (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "client_id INT NOT NULL, " +
+                    "account_number VARCHAR(28) UNIQUE NOT NULL, " +
+                    "balance DECIMAL(19,2) NOT NULL DEFAULT 0.00, " +
+                    "FOREIGN KEY (client_id) REFERENCES clients(id) ON DELETE CASCADE)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_client_id ON accounts (client_id, id)");
+            st.execute("CREATE TABLE IF NOT EXISTS account_number_sequence (" +
+                    "name VARCHAR(32) PRIMARY KEY, " +
+                    "next_value BIGINT NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS account_ledger (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "account_number VARCHAR(28) NOT NULL, " +
+                    "entry_type VARCHAR(16) NOT NULL, " +
+                    "amount DECIMAL(19,2) NOT NULL, " +
+                    "balance_after DECIMAL(19,2) NOT NULL, " +
+                    "counterparty VARCHAR(28), " +
+                    "created_at TIMESTAMP(3) NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_account_id ON account_ledger (account_number, id)");
+        }
+    }
+
+    /** Pula połączeń do bazy benchmarkowej. */
+    public static ConnectionPool pool(String url, int maxSize) throws SQLException {
+        return new ConnectionPool(url, USER, PASSWORD, Math.min(2, maxSize), maxSize, 10_000, 2);
+    }
+}
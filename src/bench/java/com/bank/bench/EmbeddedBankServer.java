@@ -0,0 +1,173 @@
+// File: src/bench/java/com/bank/bench/EmbeddedBankServer.java
+package com.bank.bench;
+
+import com.bank.server.AccountLedger;
+import com.bank.server.AccountLockTable;
+import com.bank.server.AccountNumberAllocator;
+import com.bank.server.ClientHandler;
+import com.bank.server.DBManager;
+import com.bank.server.InMemoryStorage;
+import com.bank.server.LedgerJournal;
+import com.bank.server.NioServer;
+import com.bank.server.SessionExecutors;
+import com.bank.server.Storage;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serwer banku uruchomiony w tym samym procesie - te same front-endy co BankServer (blokujący ClientHandler
+ * na wykonawcy sesji albo NioServer), ale bez MySQL i pliku konfiguracyjnego. Magazynem jest DBManager
+ * na bazie H2 w pamięci albo {@link InMemoryStorage} (bez trwałości lub z dziennikiem w katalogu tymczasowym). Nasłuchuje na porcie pętli zwrotnej wybranym przez system.
+ */
+public final class EmbeddedBankServer implements AutoCloseable {
+    public static final String FRONTEND_BLOCKING = "blocking";
+    public static final String FRONTEND_NIO = "nio";
+    public static final String STORAGE_JDBC = "jdbc";
+    public static final String STORAGE_MEMORY = "memory";
+    public static final String STORAGE_JOURNAL = "journal";
+
+    private final Storage storage;
+    private final ExecutorService executor;
+    private final int port;
+    private final ServerSocket serverSocket; // Tylko front-end blokujący
+    private final NioServer nioServer;       // Tylko front-end NIO
+    private final Thread acceptor;
+
+    private EmbeddedBankServer(Storage storage, ExecutorService executor, int port, ServerSocket serverSocket,
+                               NioServer nioServer, Thread acceptor) {
+        this.storage = storage;
+        this.executor = executor;
+        this.port = port;
+        this.serverSocket = serverSocket;
+        this.nioServer = nioServer;
+        this.acceptor = acceptor;
+    }
+
+    /**
+     * Tworzy magazyn danych i front-end, po czym zaczyna przyjmować połączenia.
+     *
+     * @param storageEngine {@link #STORAGE_JDBC} (H2 w pamięci przez DBManager), {@link #STORAGE_MEMORY}
+     *                      lub {@link #STORAGE_JOURNAL} (dziennik z fsync w nowym katalogu tymczasowym)
+     * @param frontend      {@link #FRONTEND_BLOCKING} lub {@link #FRONTEND_NIO}
+     * @param executorMode  tryb wykonawcy sesji (front-end blokujący) lub puli roboczej (NIO), jak server.executor
+     * @param threads       liczba wątków w trybie bounded i liczba wątków roboczych NIO
+     * @param poolSize      maksymalny rozmiar puli połączeń JDBC (tylko jdbc)
+     * @param cache         czy włączyć cache kont i klientów (tylko jdbc)
+     * @param writeBatch    maksymalne okno grupowania wpłat i wypłat, 0 - bez grupowania (tylko jdbc)
+     * @param lockStripes   liczba pasków blokad kont przed bazą, 0 - bez blokad (tylko jdbc)
+     * @param ledger        czy zapisywać historię operacji (tylko jdbc)
+     * @param logger        logger serwera (sesje)
+     */
+    public static EmbeddedBankServer start(String storageEngine, String frontend, String executorMode, int threads,
+                                           int poolSize, boolean cache, int writeBatch, int lockStripes,
+                                           boolean ledger, Logger logger) throws Exception {
+        Storage storage = createStorage(storageEngine, poolSize, cache, writeBatch, lockStripes, ledger, logger);
+
+        if (FRONTEND_NIO.equals(frontend)) {
+            ExecutorService workers = SessionExecutors.MODE_VIRTUAL.equals(executorMode)
+                    ? SessionExecutors.create(executorMode, threads, logger)
+                    : Executors.newFixedThreadPool(threads);
+            int port = freePort(); // NioServer sam wiąże gniazdo, więc port wybieramy wcześniej
+            NioServer nio = new NioServer(port, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), workers, storage, logger, null);
+            Thread acceptor = new Thread(() -> {
+                try {
+                    nio.serve();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Embedded NIO server failed: " + e.getMessage(), e);
+                }
+            }, "embedded-nio-acceptor");
+            acceptor.start();
+            awaitListening(port);
+            return new EmbeddedBankServer(storage, workers, port, null, nio, acceptor);
+        }
+        if (!FRONTEND_BLOCKING.equals(frontend)) {
+            storage.close();
+            throw new IllegalArgumentException("Unknown frontend: " + frontend);
+        }
+        ExecutorService sessions = SessionExecutors.create(executorMode, threads, logger);
+        ServerSocket serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> acceptLoop(serverSocket, sessions, storage, logger), "embedded-acceptor");
+        acceptor.start();
+        return new EmbeddedBankServer(storage, sessions, serverSocket.getLocalPort(), serverSocket, null, acceptor);
+    }
+
+    private static Storage createStorage(String engine, int poolSize, boolean cache, int writeBatch, int lockStripes,
+                                         boolean ledger, Logger logger) throws Exception {
+        if (STORAGE_MEMORY.equals(engine)) return new InMemoryStorage();
+        if (STORAGE_JOURNAL.equals(engine)) {
+            LedgerJournal journal = new LedgerJournal(Files.createTempDirectory("bank-journal"), true, 0, logger);
+            return InMemoryStorage.openJournaled(AccountNumberAllocator.DEFAULT_BANK_CODE, AccountLockTable.DEFAULT_STRIPES, journal, 100_000, logger);
+        }
+        if (!STORAGE_JDBC.equals(engine)) throw new IllegalArgumentException("Unknown storage engine: " + engine);
+        String url = BenchDatabase.memoryUrl("embedded-" + System.nanoTime());
+        BenchDatabase.createSchema(url);
+        DBManager db = new DBManager(BenchDatabase.pool(url, poolSize));
+        db.enableStatementCache(); // Jak domyślna konfiguracja serwera (db.statements.cache=true)
+        if (cache) {
+            db.enableAccountCache(100_000, 100_000);
+            db.enableClientCache(100_000, 300_000);
+        }
+        if (ledger) db.enableLedger(AccountLedger.DEFAULT_FETCH_SIZE);
+        if (lockStripes > 0) db.enableAccountLocks(lockStripes);
+        if (writeBatch > 0) db.enableWriteBatching(writeBatch, 200, logger);
+        return db;
+    }
+
+    // Odpowiednik BankServer.runBlockingFrontEnd bez limitu sesji
+    private static void acceptLoop(ServerSocket serverSocket, ExecutorService sessions, Storage storage, Logger logger) {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.submit(new ClientHandler(socket, storage, logger));
+            } catch (IOException e) {
+                return; // Gniazdo serwera zamknięte
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    // serve() wiąże gniazdo w wątku akceptora - czekamy, aż port zacznie przyjmować połączenia
+    private static void awaitListening(int port) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try (Socket probe = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (nioServer != null) nioServer.close();
+        if (serverSocket != null) serverSocket.close();
+        acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        storage.close();
+    }
+}
@@ -0,0 +1,190 @@
+// File: src/bench/java/com/bank/bench/ExecutorModeBenchmark.java
+package com.bank.bench;
+
+import com.bank.server.SessionExecutors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Porównanie trybów wykonawcy sesji (platform / bounded / virtual).
+ * Dla każdego trybu otwiera N bezczynnych połączeń do serwera linii (ta sama pętla readLine/println co ClientHandler,
+ * bez bazy danych) i mierzy pamięć na bezczynne połączenie, a następnie przepustowość żądanie-odpowiedź.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.ExecutorModeBenchmark
+ *               -Dexec.args="[połączenia] [wątkiBounded] [sekundyPomiaru] [tryby...]"
+ *
+ * Pamięć liczona jest jako przyrost RSS procesu (Linux) oraz sterty; obejmuje też gniazda klienckie,
+ * które są takie same dla każdego trybu, więc różnice między trybami pochodzą z wątków sesji.
+ */
+public class ExecutorModeBenchmark {
+    private static final Logger logger = Logger.getLogger(ExecutorModeBenchmark.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int boundedThreads = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        List<String> modes = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) modes.add(args[i]);
+        if (modes.isEmpty()) {
+            modes.add(SessionExecutors.MODE_PLATFORM);
+            modes.add(SessionExecutors.MODE_BOUNDED);
+            modes.add(SessionExecutors.MODE_VIRTUAL);
+        }
+
+        System.out.printf("Java %d, virtual threads available: %b%n", Runtime.version().feature(), SessionExecutors.virtualThreadsAvailable());
+        System.out.printf("%-10s %8s %8s %14s %14s %14s%n", "mode", "conns", "threads", "rss/conn [KB]", "heap/conn [KB]", "req/s");
+        for (String mode : modes) {
+            // W trybie bounded połączenia ponad liczbę wątków czekałyby w kolejce bez obsługi (serwer odrzuca je limitem sesji)
+            int conns = SessionExecutors.MODE_BOUNDED.equals(mode) ? Math.min(connections, boundedThreads) : connections;
+            Result r = runMode(mode, conns, boundedThreads, seconds);
+            System.out.printf("%-10s %8d %8d %14.1f %14.1f %14.0f%n", mode, conns, r.threads, r.rssPerConnKb, r.heapPerConnKb, r.requestsPerSecond);
+        }
+    }
+
+    private static Result runMode(String mode, int connections, int boundedThreads, int seconds) throws Exception {
+        ExecutorService executor = SessionExecutors.create(mode, boundedThreads, logger);
+        AtomicInteger activeSessions = new AtomicInteger();
+        ServerSocket serverSocket = new ServerSocket(0, connections, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> acceptLoop(serverSocket, executor, activeSessions), "bench-acceptor");
+        acceptor.start();
+
+        settle();
+        long rssBefore = readRssKb();
+        long heapBefore = usedHeapKb();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<Socket> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            clients.add(new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (activeSessions.get() < connections && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        settle();
+        Result result = new Result();
+        result.rssPerConnKb = (readRssKb() - rssBefore) / (double) connections;
+        result.heapPerConnKb = (usedHeapKb() - heapBefore) / (double) connections;
+        result.threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+        result.requestsPerSecond = measureThroughput(clients, seconds);
+
+        for (Socket s : clients) s.close();
+        serverSocket.close();
+        acceptor.join();
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private static void acceptLoop(ServerSocket serverSocket, ExecutorService executor, AtomicInteger activeSessions) {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> serveLines(socket, activeSessions));
+            } catch (IOException e) {
+                return; // Gniazdo serwera zamknięte - koniec pomiaru tego trybu
+            }
+        }
+    }
+
+    // Odpowiednik pętli ClientHandler.run(): blokujące readLine, jedna odpowiedź na linię
+    private static void serveLines(Socket socket, AtomicInteger activeSessions) {
+        activeSessions.incrementAndGet();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.println("BALANCE_IS;" + line.length());
+            }
+        } catch (IOException e) {
+            // Połączenie zamknięte przez klienta
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private static double measureThroughput(List<Socket> clients, int seconds) throws Exception {
+        int workers = Math.min(64, clients.size());
+        LongAdder completed = new LongAdder();
+        CountDownLatch done = new CountDownLatch(workers);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int w = 0; w < workers; w++) {
+            final int offset = w;
+            new Thread(() -> {
+                try {
+                    // Każdy wątek obsługuje co workers-te połączenie, rotując po nich (symulacja wielu terminali)
+                    List<PrintWriter> outs = new ArrayList<>();
+                    List<BufferedReader> ins = new ArrayList<>();
+                    for (int i = offset; i < clients.size(); i += workers) {
+                        outs.add(new PrintWriter(clients.get(i).getOutputStream(), true));
+                        ins.add(new BufferedReader(new InputStreamReader(clients.get(i).getInputStream())));
+                    }
+                    int idx = 0;
+                    while (System.nanoTime() < end) {
+                        outs.get(idx).println("BALANCE;PL00000000000000000000000000");
+                        ins.get(idx).readLine();
+                        completed.increment();
+                        idx = (idx + 1) % outs.size();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Throughput worker failed: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-client-" + w).start();
+        }
+        done.await();
+        return completed.sum() / (double) seconds;
+    }
+
+    private static void settle() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+    }
+
+    private static long usedHeapKb() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024;
+    }
+
+    // VmRSS z /proc (Linux); na innych systemach zwraca 0 i kolumna RSS nie jest miarodajna
+    private static long readRssKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D+", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Brak /proc - pomijamy pomiar RSS
+        }
+        return 0;
+    }
+
+    private static final class Result {
+        double rssPerConnKb;
+        double heapPerConnKb;
+        int threads;
+        double requestsPerSecond;
+    }
+}
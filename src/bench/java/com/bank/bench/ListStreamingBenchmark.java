@@ -0,0 +1,146 @@
+// File: src/bench/java/com/bank/bench/ListStreamingBenchmark.java
+package com.bank.bench;
+
+import com.bank.client.ServerConnection;
+import com.bank.common.Protocol;
+import com.bank.server.SessionExecutors;
+import com.bank.server.Storage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lista kont klienta z wieloma kontami: jednoliniowa odpowiedź LIST_MY_ACCOUNTS kontra odpowiedź strumieniowa
+ * (LIST_MY_ACCOUNTS;STREAM), przez protokół tekstowy do serwera wbudowanego ({@link EmbeddedBankServer}).
+ * Klient w obu wariantach sumuje salda, jak robiłby to terminal. Dla każdego wariantu mierzone są:
+ * <ul>
+ *   <li>czas jednej listy,</li>
+ *   <li>największa pojedyncza wiadomość (linia) - to ona wyznacza chwilowy bufor po obu stronach,</li>
+ *   <li>bajty zaalokowane na listę: przez wątek klienta i łącznie przez wszystkie wątki JVM (klient + serwer).</li>
+ * </ul>
+ * Łączna liczba zaalokowanych bajtów jest w obu wariantach podobna - różnica jest w tym, ile z nich żyje naraz:
+ * przy jednej linii cała lista (bufor kodera, linia, tablice po split), przy strumieniu jedna pozycja.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.ListStreamingBenchmark
+ *               -Dexec.args="[konta] [rundy] [storage] [frontend]"
+ */
+public class ListStreamingBenchmark {
+    private static final String PASSWORD = "bench";
+
+    private static long sink; // Zapobiega eliminacji martwego kodu
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String storageEngine = args.length > 2 ? args[2] : EmbeddedBankServer.STORAGE_JDBC;
+        String frontend = args.length > 3 ? args[3] : EmbeddedBankServer.FRONTEND_BLOCKING;
+        Logger serverLogger = Logger.getLogger(ListStreamingBenchmark.class.getName() + ".server");
+        serverLogger.setLevel(Level.WARNING);
+
+        // Bez cache kont - wariant strumieniowy czyta wtedy prosto z ResultSet
+        try (EmbeddedBankServer server = EmbeddedBankServer.start(storageEngine, frontend, SessionExecutors.MODE_PLATFORM,
+                8, 8, false, 0, 0, false, serverLogger)) {
+            Storage storage = server.getStorage();
+            int clientId = storage.addClient("Corporate", "Client", "90000000003", PASSWORD);
+            BigDecimal expected = BigDecimal.ZERO;
+            for (int i = 0; i < accounts; i++) {
+                BigDecimal balance = BigDecimal.valueOf(i % 100_000, 2);
+                storage.addAccountToClient(clientId, balance);
+                expected = expected.add(balance);
+            }
+
+            System.out.printf("storage=%s frontend=%s accounts=%d rounds=%d%n", storageEngine, frontend, accounts, rounds);
+            try (ServerConnection conn = ServerConnection.open("localhost", server.getPort(), false)) {
+                String[] login = Protocol.parseMessage(conn.exchange(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(clientId), PASSWORD)));
+                if (login.length < 2 || !Protocol.OK_LOGIN_SUCCESSFUL.equals(login[1])) {
+                    throw new IOException("LOGIN failed: " + Protocol.buildMessage(login));
+                }
+                for (Variant variant : Variant.values()) {
+                    Result warmup = variant.run(conn); // Rozgrzewka JIT poza pomiarem
+                    if (warmup.accounts != accounts || warmup.total.compareTo(expected) != 0) {
+                        System.out.println("FAILED: " + variant.label + " returned " + warmup.accounts + " accounts, total " + warmup.total.toPlainString());
+                        System.exit(1);
+                    }
+                    long clientBytes = clientAllocatedBytes();
+                    long allBytes = allThreadsAllocatedBytes();
+                    long start = System.nanoTime();
+                    int largest = 0;
+                    for (int round = 0; round < rounds; round++) {
+                        largest = Math.max(largest, variant.run(conn).largestMessage);
+                    }
+                    double elapsedMs = (System.nanoTime() - start) / 1e6;
+                    System.out.printf("  %-22s %9.2f ms/list  largest message %9d B  allocated/list: client %10.0f B, all threads %11.0f B%n",
+                            variant.label, elapsedMs / rounds, largest,
+                            (clientAllocatedBytes() - clientBytes) / (double) rounds,
+                            (allThreadsAllocatedBytes() - allBytes) / (double) rounds);
+                }
+            }
+            System.out.println(storage.getMetrics().statsSummary());
+            System.out.println("PASSED: both variants returned all " + accounts + " accounts.");
+        }
+    }
+
+    private static final class Result {
+        int accounts;
+        BigDecimal total = BigDecimal.ZERO;
+        int largestMessage;
+    }
+
+    private enum Variant {
+        SINGLE_LINE("LIST_MY_ACCOUNTS"),
+        STREAM("LIST_MY_ACCOUNTS;STREAM");
+
+        final String label;
+
+        Variant(String label) {
+            this.label = label;
+        }
+
+        Result run(ServerConnection conn) throws IOException {
+            Result result = new Result();
+            if (this == SINGLE_LINE) {
+                String response = conn.exchange(Protocol.CMD_LIST_MY_ACCOUNTS);
+                String[] parts = Protocol.parseMessage(response);
+                if (parts.length < 2 || !Protocol.RES_MY_ACCOUNTS.equals(parts[0])) throw new IOException("LIST_MY_ACCOUNTS failed: " + response);
+                result.largestMessage = response.length() + 1;
+                for (String account : parts[1].split(",")) { // numer:saldo, jak w ClientApp
+                    result.total = result.total.add(new BigDecimal(account.substring(account.indexOf(':') + 1)));
+                    result.accounts++;
+                }
+            } else {
+                String end = conn.exchangeStream(Protocol.buildMessage(Protocol.CMD_LIST_MY_ACCOUNTS, Protocol.STREAM_MARKER),
+                        header -> sink += header.length,
+                        item -> {
+                            result.total = result.total.add(new BigDecimal(item[2]));
+                            result.accounts++;
+                            // Linia pozycji: ITEM;numer;saldo + '\n'
+                            result.largestMessage = Math.max(result.largestMessage, item[0].length() + item[1].length() + item[2].length() + 3);
+                        });
+                if (!end.startsWith(Protocol.RES_STREAM_END)) throw new IOException("Stream failed: " + end);
+            }
+            return result;
+        }
+    }
+
+    private static long clientAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // Suma po żywych wątkach - wątki sesji serwera żyją przez cały pomiar (jedno połączenie)
+    private static long allThreadsAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+}
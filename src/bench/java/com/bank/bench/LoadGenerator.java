@@ -0,0 +1,459 @@
+// File: src/bench/java/com/bank/bench/LoadGenerator.java
+package com.bank.bench;
+
+import com.bank.client.ServerConnection;
+import com.bank.common.Protocol;
+import com.bank.server.DBManager;
+import com.bank.server.InMemoryStorage;
+import com.bank.server.LatencyHistogram;
+import com.bank.server.SessionExecutors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generator obciążenia: otwiera N równoległych połączeń do serwera banku (tekstowo lub binarnie, przez
+ * {@link ServerConnection}), loguje się na wygenerowanych klientów i wysyła mieszankę poleceń
+ * BALANCE / DEPOSIT / WITHDRAW / TRANSFER / LIST_MY_ACCOUNTS. Na koniec wypisuje przepustowość, liczbę błędów
+ * i percentyle opóźnień osobno dla każdego polecenia.
+ * <p>
+ * Tryby:
+ * <ul>
+ *   <li>closed - każde połączenie wysyła kolejne żądanie zaraz po odpowiedzi (opcjonalnie po czasie namysłu);
+ *       przepustowość wynika z szybkości serwera, opóźnienie to czas żądanie-odpowiedź.</li>
+ *   <li>open - żądania wysyłane są ze stałą łączną częstotliwością (rate), rozłożoną równo na połączenia.
+ *       Opóźnienie liczone jest od zaplanowanej chwili wysłania, a nie od faktycznej, więc gdy serwer nie
+ *       nadąża, czas oczekiwania w "kolejce" klienta jest wliczany (korekta coordinated omission).
+ *       Osobny wiersz pokazuje sam czas obsługi, bez tej korekty.</li>
+ * </ul>
+ * Bez host/port generator uruchamia w tym samym procesie {@link EmbeddedBankServer} (storage=jdbc - H2 w pamięci,
+ * storage=memory - InMemoryStorage, storage=journal - InMemoryStorage z dziennikiem i fsync).
+ * Klienci i konta tworzeni są przez polecenia ADMIN protokołu, więc to samo działa wobec zewnętrznego BankServer.
+ * Argumenty mają postać klucz=wartość; domyślne wartości w {@link Options}.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.LoadGenerator
+ *               -Dexec.args="mode=open rate=2000 connections=32 duration=20 warmup=5 mix=BALANCE:50,TRANSFER:20,DEPOSIT:10,WITHDRAW:10,LIST_MY_ACCOUNTS:10"
+ */
+public class LoadGenerator {
+    private static final String[] COMMANDS = {Protocol.CMD_BALANCE, Protocol.CMD_DEPOSIT, Protocol.CMD_WITHDRAW,
+            Protocol.CMD_TRANSFER, Protocol.CMD_LIST_MY_ACCOUNTS, Protocol.CMD_HISTORY};
+    private static final String INITIAL_BALANCE = "1000000000.00";
+    private static final String AMOUNT = "1.00";
+    private static final double[] QUANTILES = {0.50, 0.90, 0.99, 0.999};
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Logger serverLogger = Logger.getLogger(LoadGenerator.class.getName() + ".server");
+        serverLogger.setLevel(Level.WARNING); // Logi sesji na poziomie INFO zagłuszyłyby raport
+
+        EmbeddedBankServer embedded = null;
+        String host = options.host;
+        int port = options.port;
+        if (host == null) {
+            embedded = EmbeddedBankServer.start(options.storage, options.frontend, options.executor, options.threads,
+                    options.poolSize, options.cache, options.writeBatch, options.lockStripes, options.ledger, serverLogger);
+            host = "localhost";
+            port = embedded.getPort();
+            System.out.printf("Embedded server: storage=%s frontend=%s executor=%s cache=%b pool=%d batch=%d locks=%d port=%d%n",
+                    options.storage, options.frontend, options.executor, options.cache, options.poolSize, options.writeBatch,
+                    options.lockStripes, port);
+        }
+        try {
+            LoadClient[] clients = createClients(host, port, options);
+            Result result = run(host, port, options, clients);
+            report(options, result);
+            if (embedded != null) {
+                System.out.println();
+                System.out.println("Server-side metrics:");
+                System.out.println(embedded.getStorage().getMetrics().statsSummary());
+                if (embedded.getStorage() instanceof DBManager) {
+                    DBManager db = (DBManager) embedded.getStorage();
+                    if (db.getAccountLocks() != null) System.out.println(db.getAccountLocks().statsSummary());
+                    if (db.getLedger() != null) System.out.println(db.getLedger().statsSummary());
+                    if (db.getWriteBatcher() != null) System.out.println(db.getWriteBatcher().statsSummary());
+                }
+                if (embedded.getStorage() instanceof InMemoryStorage) {
+                    System.out.println(((InMemoryStorage) embedded.getStorage()).statsSummary());
+                }
+            }
+        } finally {
+            if (embedded != null) embedded.close();
+        }
+    }
+
+    /** Wygenerowany klient: konto z saldem (źródło wypłat i przelewów) i konto startowe z ADD_CLIENT. */
+    private static final class LoadClient {
+        final int id;
+        final String password;
+        final String fundedAccount;
+        final String firstAccount;
+
+        LoadClient(int id, String password, String fundedAccount, String firstAccount) {
+            this.id = id;
+            this.password = password;
+            this.fundedAccount = fundedAccount;
+            this.firstAccount = firstAccount;
+        }
+    }
+
+    private static LoadClient[] createClients(String host, int port, Options options) throws IOException {
+        long start = System.nanoTime();
+        // PESEL musi być unikalny także między kolejnymi uruchomieniami wobec tego samego serwera
+        long peselBase = 70_000_000_000L + (System.currentTimeMillis() / 1000 % 100_000) * 100_000L;
+        LoadClient[] clients = new LoadClient[options.clients];
+        try (ServerConnection admin = ServerConnection.open(host, port, options.binary)) {
+            for (int i = 0; i < clients.length; i++) {
+                String password = "load" + i;
+                String[] added = Protocol.parseMessage(admin.exchange(Protocol.buildMessage(Protocol.CMD_ADMIN,
+                        Protocol.SUB_CMD_ADD_CLIENT, "Load", "Client" + i, String.valueOf(peselBase + i), password)));
+                expect(added, Protocol.OK_CLIENT_ADDED, "ADD_CLIENT");
+                int clientId = Integer.parseInt(added[2]);
+                String[] funded = Protocol.parseMessage(admin.exchange(Protocol.buildMessage(Protocol.CMD_ADMIN,
+                        Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT, String.valueOf(clientId), INITIAL_BALANCE)));
+                expect(funded, Protocol.OK_ACCOUNT_ADDED_TO_CLIENT, "ADD_ACCOUNT_TO_CLIENT");
+                clients[i] = new LoadClient(clientId, password, funded[2], added[3]);
+            }
+        }
+        System.out.printf("Created %d clients in %d ms%n", clients.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return clients;
+    }
+
+    private static void expect(String[] response, String okStatus, String what) throws IOException {
+        if (response.length < 3 || !Protocol.RES_OK.equals(response[0]) || !okStatus.equals(response[1])) {
+            throw new IOException(what + " failed: " + Protocol.buildMessage(response));
+        }
+    }
+
+    /** Histogramy i liczniki współdzielone przez wszystkie połączenia (zapis bez blokad). */
+    private static final class Result {
+        final LatencyHistogram[] latency = new LatencyHistogram[COMMANDS.length];
+        final LatencyHistogram latencyAll = new LatencyHistogram();
+        final LatencyHistogram serviceAll = new LatencyHistogram();
+        final LongAdder[] errors = new LongAdder[COMMANDS.length];
+        final AtomicInteger failedConnections = new AtomicInteger();
+        long measuredNanos;
+
+        Result() {
+            for (int i = 0; i < COMMANDS.length; i++) {
+                latency[i] = new LatencyHistogram();
+                errors[i] = new LongAdder();
+            }
+        }
+    }
+
+    private static Result run(String host, int port, Options options, LoadClient[] clients) throws Exception {
+        List<ServerConnection> connections = new ArrayList<>(options.connections);
+        for (int i = 0; i < options.connections; i++) {
+            LoadClient client = clients[i % clients.length];
+            ServerConnection conn = ServerConnection.open(host, port, options.binary);
+            String[] login = Protocol.parseMessage(conn.exchange(Protocol.buildMessage(Protocol.CMD_LOGIN,
+                    String.valueOf(client.id), client.password)));
+            expect(login, Protocol.OK_LOGIN_SUCCESSFUL, "LOGIN");
+            connections.add(conn);
+        }
+
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(connections.size());
+        long begin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // Wspólny start wszystkich wątków
+        long measureStart = begin + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        System.out.printf("Running %s loop: %d connection(s), warmup %d s, measurement %d s%n",
+                options.mode, connections.size(), options.warmupSeconds, options.durationSeconds);
+
+        for (int i = 0; i < connections.size(); i++) {
+            Worker worker = new Worker(i, connections.get(i), clients[i % clients.length], clients, options, result,
+                    begin, measureStart, end);
+            Thread t = new Thread(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i);
+            t.start();
+        }
+        done.await();
+        result.measuredNanos = end - measureStart;
+        for (ServerConnection conn : connections) conn.close();
+        return result;
+    }
+
+    /** Pętla jednego połączenia - jedno żądanie w locie, jak terminal klienta. */
+    private static final class Worker {
+        private final int index;
+        private final ServerConnection conn;
+        private final LoadClient self;
+        private final LoadClient[] all;
+        private final Options options;
+        private final Result result;
+        private final long begin;
+        private final long measureStart;
+        private final long end;
+        private final SplittableRandom random;
+
+        Worker(int index, ServerConnection conn, LoadClient self, LoadClient[] all, Options options, Result result,
+               long begin, long measureStart, long end) {
+            this.index = index;
+            this.conn = conn;
+            this.self = self;
+            this.all = all;
+            this.options = options;
+            this.result = result;
+            this.begin = begin;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.random = new SplittableRandom(options.seed + index);
+        }
+
+        void run() {
+            try {
+                if (options.open) runOpen();
+                else runClosed();
+            } catch (IOException e) {
+                result.failedConnections.incrementAndGet();
+                System.err.println("Connection " + index + " failed: " + e.getMessage());
+            }
+        }
+
+        private void runClosed() throws IOException {
+            parkUntil(begin);
+            long thinkNanos = TimeUnit.MILLISECONDS.toNanos(options.thinkMillis);
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                int command = options.mix.pick(random);
+                boolean ok = execute(command);
+                long latency = System.nanoTime() - now;
+                if (now >= measureStart) record(command, latency, latency, ok);
+                if (thinkNanos > 0) LockSupport.parkNanos(thinkNanos);
+            }
+        }
+
+        private void runOpen() throws IOException {
+            // Każde połączenie dostaje równą część łącznej częstotliwości; starty są rozłożone w pierwszym odstępie
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) * (double) options.connections / options.rate);
+            long intended = begin + interval * index / options.connections;
+            // Koniec pomiaru przerywa też zaległe żądania - inaczej przeciążony serwer "osiągnąłby" zadaną częstotliwość
+            while (intended < end && System.nanoTime() < end) {
+                parkUntil(intended);
+                long sent = System.nanoTime();
+                int command = options.mix.pick(random);
+                boolean ok = execute(command);
+                long received = System.nanoTime();
+                // Gdy serwer nie nadąża, sent > intended i czas oczekiwania na wysłanie też jest opóźnieniem
+                if (sent >= measureStart) record(command, received - intended, received - sent, ok);
+                intended += interval;
+            }
+        }
+
+        private boolean execute(int command) throws IOException {
+            String response = conn.exchange(request(command));
+            if (response == null) throw new IOException("server closed the connection");
+            return !isError(response);
+        }
+
+        private String request(int command) {
+            switch (COMMANDS[command]) {
+                case Protocol.CMD_BALANCE:
+                    return Protocol.buildMessage(Protocol.CMD_BALANCE, random.nextBoolean() ? self.fundedAccount : self.firstAccount);
+                case Protocol.CMD_DEPOSIT:
+                    return Protocol.buildMessage(Protocol.CMD_DEPOSIT, self.firstAccount, AMOUNT);
+                case Protocol.CMD_WITHDRAW:
+                    return Protocol.buildMessage(Protocol.CMD_WITHDRAW, self.fundedAccount, AMOUNT);
+                case Protocol.CMD_TRANSFER:
+                    // Przelew do losowego klienta - konkurencja o te same wiersze jak przy realnym ruchu
+                    LoadClient to = all[random.nextInt(all.length)];
+                    return Protocol.buildMessage(Protocol.CMD_TRANSFER, self.fundedAccount, to.firstAccount, AMOUNT);
+                case Protocol.CMD_HISTORY:
+                    return Protocol.buildMessage(Protocol.CMD_HISTORY, self.fundedAccount);
+                default:
+                    return Protocol.buildMessage(Protocol.CMD_LIST_MY_ACCOUNTS);
+            }
+        }
+
+        private void record(int command, long latencyNanos, long serviceNanos, boolean ok) {
+            result.latency[command].record(latencyNanos);
+            result.latencyAll.record(latencyNanos);
+            result.serviceAll.record(serviceNanos);
+            if (!ok) result.errors[command].increment();
+        }
+    }
+
+    private static boolean isError(String response) {
+        int end = response.indexOf(Protocol.SEPARATOR);
+        String status = end < 0 ? response : response.substring(0, end);
+        return Protocol.RES_ERROR.equals(status) || Protocol.ERR_ACCOUNT_NOT_FOUND.equals(status)
+                || Protocol.ERR_CLIENT_NOT_FOUND.equals(status) || Protocol.ERR_INSUFFICIENT_FUNDS.equals(status);
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void report(Options options, Result result) {
+        double seconds = result.measuredNanos / 1e9;
+        System.out.println();
+        System.out.printf("%-18s %10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "command", "count", "req/s", "errors", "mean[us]", "p50[us]", "p90[us]", "p99[us]", "p99.9[us]", "max[us]");
+        long totalErrors = 0;
+        for (int i = 0; i < COMMANDS.length; i++) {
+            LatencyHistogram.Snapshot s = result.latency[i].snapshot();
+            if (s.getCount() == 0) continue;
+            long errors = result.errors[i].sum();
+            totalErrors += errors;
+            printRow(COMMANDS[i], s, errors, seconds);
+        }
+        LatencyHistogram.Snapshot total = result.latencyAll.snapshot();
+        printRow("ALL", total, totalErrors, seconds);
+        if (options.open) {
+            printRow("ALL (service)", result.serviceAll.snapshot(), totalErrors, seconds);
+            double achieved = total.getCount() / seconds;
+            System.out.printf("%nTarget rate %d req/s, achieved %.0f req/s. Latency is measured from the intended send time " +
+                    "(coordinated omission corrected); 'service' is send-to-response time only.%n", options.rate, achieved);
+            if (achieved < options.rate * 0.95) {
+                System.out.println("WARNING: the server did not keep up with the target rate - latencies include queueing on the client side.");
+            }
+        }
+        if (result.failedConnections.get() > 0) {
+            System.out.println("WARNING: " + result.failedConnections.get() + " connection(s) failed during the run.");
+        }
+    }
+
+    private static void printRow(String name, LatencyHistogram.Snapshot s, long errors, double seconds) {
+        System.out.printf("%-18s %10d %10.0f %8d %10.1f", name, s.getCount(), s.getCount() / seconds, errors, s.getMeanNanos() / 1000.0);
+        for (double q : QUANTILES) {
+            System.out.printf(" %10.1f", s.valueAt(q) / 1000.0);
+        }
+        System.out.printf(" %10.1f%n", s.getMaxNanos() / 1000.0);
+    }
+
+    /** Opcje z argumentów klucz=wartość. */
+    private static final class Options {
+        String mode = "closed";
+        boolean open;
+        int connections = 32;
+        int clients;                 // Domyślnie tyle, ile połączeń
+        int rate = 2000;             // Łączna liczba żądań na sekundę w trybie open
+        int durationSeconds = 20;
+        int warmupSeconds = 5;
+        long thinkMillis = 0;        // Tylko tryb closed
+        CommandMix mix = CommandMix.parse("BALANCE:40,DEPOSIT:15,WITHDRAW:15,TRANSFER:20,LIST_MY_ACCOUNTS:10");
+        boolean binary;
+        String host;                 // Brak = serwer wbudowany
+        int port = 12345;
+        String storage = EmbeddedBankServer.STORAGE_JDBC;
+        String frontend = EmbeddedBankServer.FRONTEND_BLOCKING;
+        String executor = SessionExecutors.MODE_PLATFORM;
+        int threads = 64;
+        int poolSize = 16;
+        boolean cache = true;
+        int writeBatch;              // 0 = wpłaty i wypłaty bez grupowania (tylko jdbc)
+        int lockStripes;             // 0 = bez blokad kont przed bazą (tylko jdbc)
+        boolean ledger = true;       // Historia operacji w tabeli account_ledger (tylko jdbc)
+        long seed = 42;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("Expected key=value argument, got: " + arg);
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                String v = e.getValue();
+                switch (e.getKey()) {
+                    case "mode":        o.mode = v; break;
+                    case "connections": o.connections = Integer.parseInt(v); break;
+                    case "clients":     o.clients = Integer.parseInt(v); break;
+                    case "rate":        o.rate = Integer.parseInt(v); break;
+                    case "duration":    o.durationSeconds = Integer.parseInt(v); break;
+                    case "warmup":      o.warmupSeconds = Integer.parseInt(v); break;
+                    case "think":       o.thinkMillis = Long.parseLong(v); break;
+                    case "mix":         o.mix = CommandMix.parse(v); break;
+                    case "protocol":    o.binary = ServerConnection.PROTOCOL_BINARY.equalsIgnoreCase(v); break;
+                    case "host":        o.host = v; break;
+                    case "port":        o.port = Integer.parseInt(v); break;
+                    case "storage":     o.storage = v; break;
+                    case "frontend":    o.frontend = v; break;
+                    case "executor":    o.executor = v; break;
+                    case "threads":     o.threads = Integer.parseInt(v); break;
+                    case "pool":        o.poolSize = Integer.parseInt(v); break;
+                    case "cache":       o.cache = Boolean.parseBoolean(v); break;
+                    case "batch":       o.writeBatch = Integer.parseInt(v); break;
+                    case "locks":       o.lockStripes = Integer.parseInt(v); break;
+                    case "ledger":      o.ledger = Boolean.parseBoolean(v); break;
+                    case "seed":        o.seed = Long.parseLong(v); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + e.getKey());
+                }
+            }
+            if (!"closed".equals(o.mode) && !"open".equals(o.mode)) {
+                throw new IllegalArgumentException("mode must be 'closed' or 'open': " + o.mode);
+            }
+            o.open = "open".equals(o.mode);
+            if (o.connections < 1 || o.rate < 1 || o.durationSeconds < 1 || o.warmupSeconds < 0) {
+                throw new IllegalArgumentException("connections, rate and duration must be positive, warmup non-negative");
+            }
+            if (o.clients <= 0) o.clients = o.connections;
+            if (o.clients > 100_000) throw new IllegalArgumentException("At most 100000 clients per run (PESEL range)");
+            return o;
+        }
+    }
+
+    /** Ważona mieszanka poleceń, np. "BALANCE:40,TRANSFER:20". */
+    private static final class CommandMix {
+        private final int[] cumulative = new int[COMMANDS.length];
+        private final int total;
+
+        private CommandMix(int[] weights) {
+            int sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            this.total = sum;
+        }
+
+        static CommandMix parse(String spec) {
+            int[] weights = new int[COMMANDS.length];
+            for (String entry : spec.split(",")) {
+                String[] kv = entry.trim().split(":");
+                int index = indexOf(kv[0].trim().toUpperCase());
+                if (index < 0 || kv.length != 2) throw new IllegalArgumentException("Invalid mix entry: " + entry);
+                weights[index] = Integer.parseInt(kv[1].trim());
+                if (weights[index] < 0) throw new IllegalArgumentException("Negative weight: " + entry);
+            }
+            CommandMix mix = new CommandMix(weights);
+            if (mix.total == 0) throw new IllegalArgumentException("Command mix is empty: " + spec);
+            return mix;
+        }
+
+        private static int indexOf(String command) {
+            for (int i = 0; i < COMMANDS.length; i++) {
+                if (COMMANDS[i].equals(command)) return i;
+            }
+            return -1;
+        }
+
+        int pick(SplittableRandom random) {
+            int r = random.nextInt(total);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (r < cumulative[i]) return i;
+            }
+            return cumulative.length - 1;
+        }
+    }
+}
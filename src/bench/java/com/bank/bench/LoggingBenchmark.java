@@ -0,0 +1,108 @@
+// File: src/bench/java/com/bank/bench/LoggingBenchmark.java
+package com.bank.bench;
+
+import com.bank.server.AsyncLogHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Koszt logowania widziany z wątku żądania: synchroniczny FileHandler kontra AsyncLogHandler
+ * (polityki DROP i BLOCK) przed tym samym FileHandlerem z rotacją.
+ * Każdy wątek zapisuje rekordy podobne do logów ClientSession i mierzy czas pojedynczego wywołania logger.info.
+ * Raportowane są percentyle czasu wywołania, przepustowość i liczba porzuconych rekordów.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.LoggingBenchmark
+ *               -Dexec.args="[wątki] [rekordy na wątek] [rozmiar bufora]"
+ */
+public class LoggingBenchmark {
+    private static final String ACCOUNT = "PL61109010140000071219812874";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int bufferSize = args.length > 2 ? Integer.parseInt(args[2]) : 8192;
+        Path dir = Files.createTempDirectory("bank-log-bench");
+
+        System.out.printf("threads=%d records/thread=%d buffer=%d dir=%s%n", threads, perThread, bufferSize, dir);
+        System.out.printf("%-12s %10s %10s %10s %10s %12s %10s%n", "mode", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "records/s", "dropped");
+        for (int round = 0; round < 2; round++) { // Pierwsza runda to rozgrzewka JIT
+            boolean report = round == 1;
+            run("sync", dir, threads, perThread, report, file -> file);
+            run("async-drop", dir, threads, perThread, report,
+                    file -> new AsyncLogHandler("bench", bufferSize, AsyncLogHandler.OverflowPolicy.DROP, file));
+            run("async-block", dir, threads, perThread, report,
+                    file -> new AsyncLogHandler("bench", bufferSize, AsyncLogHandler.OverflowPolicy.BLOCK, file));
+        }
+    }
+
+    private interface HandlerFactory {
+        Handler wrap(FileHandler file);
+    }
+
+    private static void run(String mode, Path dir, int threads, int perThread, boolean report, HandlerFactory factory)
+            throws IOException, InterruptedException {
+        // Rotacja co 16 MB, 3 pliki - test obejmuje też przełączanie plików
+        FileHandler file = new FileHandler(dir.resolve(mode + ".%g.log").toString(), 16 * 1024 * 1024, 3, false);
+        file.setFormatter(new SimpleFormatter());
+        Handler handler = factory.wrap(file);
+        Logger logger = Logger.getLogger("bench.logging." + mode + "." + System.nanoTime());
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.INFO);
+        logger.addHandler(handler);
+
+        long[][] samples = new long[threads][perThread];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    long[] mine = samples[id];
+                    for (int i = 0; i < perThread; i++) {
+                        long start = System.nanoTime();
+                        logger.info("User " + id + " deposited 250.00 to " + ACCOUNT);
+                        mine[i] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "log-bench-" + t).start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        double producerSeconds = (System.nanoTime() - start) / 1e9;
+        long dropped = handler instanceof AsyncLogHandler ? ((AsyncLogHandler) handler).getDropped() : 0;
+        handler.close(); // Dla async - czeka na zapis bufora
+
+        if (report) {
+            long[] all = new long[threads * perThread];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(samples[t], 0, all, t * perThread, perThread);
+            }
+            Arrays.sort(all);
+            System.out.printf("%-12s %10.2f %10.2f %10.2f %10.1f %12.0f %10d%n", mode,
+                    percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e3,
+                    all.length / producerSeconds, dropped);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e3;
+    }
+}
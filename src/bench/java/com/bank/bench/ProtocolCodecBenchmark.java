@@ -0,0 +1,107 @@
+// File: src/bench/java/com/bank/bench/ProtocolCodecBenchmark.java
+package com.bank.bench;
+
+import com.bank.common.BinaryProtocol;
+import com.bank.common.Protocol;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Porównanie protokołu tekstowego i binarnego dla typowych żądań i odpowiedzi:
+ * liczba bajtów na wiadomość oraz czas CPU (i alokacja, jeśli JVM ją raportuje) na kodowanie + dekodowanie.
+ * Kodowanie tekstowe odpowiada temu, co robią serwer i klienci: Protocol.buildMessage + UTF-8,
+ * dekodowanie - new String + Protocol.parseMessage.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.ProtocolCodecBenchmark
+ *               -Dexec.args="[iteracje]"
+ */
+public class ProtocolCodecBenchmark {
+    private static final String ACC_A = "PL61109010140000071219812874";
+    private static final String ACC_B = "PL27114020040000300201355387";
+
+    private static final String[][] MESSAGES = {
+            {Protocol.CMD_LOGIN, "1042", "secret-password"},
+            {Protocol.CMD_BALANCE, ACC_A},
+            {Protocol.CMD_DEPOSIT, ACC_A, "250.00"},
+            {Protocol.CMD_WITHDRAW, ACC_A, "19.99"},
+            {Protocol.CMD_TRANSFER, ACC_A, ACC_B, "1200.50"},
+            {Protocol.CMD_ADMIN, Protocol.SUB_CMD_ADD_CLIENT, "Jan", "Kowalski", "90010112345", "pass", "100.00"},
+            {Protocol.RES_OK, Protocol.OK_LOGIN_SUCCESSFUL, "Jan", "1042"},
+            {Protocol.RES_BALANCE_IS, "15234.75"},
+            {Protocol.RES_OK, Protocol.OK_DEPOSIT_SUCCESSFUL, "15484.75"},
+            {Protocol.RES_OK, Protocol.OK_TRANSFER_SUCCESSFUL},
+            {Protocol.RES_ERROR, Protocol.ERR_INSUFFICIENT_FUNDS, "Insufficient funds."},
+            {Protocol.RES_MY_ACCOUNTS, ACC_A + ":15484.75," + ACC_B + ":20.00"},
+    };
+
+    private static volatile Object sink; // Zapobiega eliminacji martwego kodu
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        System.out.printf("%-40s %10s %10s%n", "message", "textBytes", "binBytes");
+        long textTotal = 0, binTotal = 0;
+        for (String[] parts : MESSAGES) {
+            int text = textEncode(parts).length;
+            int bin = BinaryProtocol.encodeFrame(parts).length;
+            if (!Arrays.equals(parts, BinaryProtocol.decodePayload(BinaryProtocol.encodeFrame(parts), 2, bin - 2))) {
+                throw new IllegalStateException("Binary round trip changed message: " + String.join(";", parts));
+            }
+            textTotal += text;
+            binTotal += bin;
+            String label = String.join(";", parts);
+            System.out.printf("%-40s %10d %10d%n", label.length() > 40 ? label.substring(0, 37) + "..." : label, text, bin);
+        }
+        System.out.printf("%-40s %10d %10d  (binary = %.0f%% of text)%n%n", "TOTAL", textTotal, binTotal, 100.0 * binTotal / textTotal);
+
+        // Rozgrzewka JIT, potem pomiar
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            measure("text  ", iterations, report, ProtocolCodecBenchmark::textRoundTrip);
+            measure("binary", iterations, report, ProtocolCodecBenchmark::binaryRoundTrip);
+        }
+    }
+
+    private interface Codec {
+        Object roundTrip(String[] parts);
+    }
+
+    private static void measure(String name, int iterations, boolean report, Codec codec) {
+        long allocBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = codec.roundTrip(MESSAGES[i % MESSAGES.length]);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocBefore;
+        if (report) {
+            System.out.printf("%s encode+decode: %6.1f ns/msg, %s%n", name, (double) elapsed / iterations,
+                    allocBefore < 0 ? "allocation n/a" : String.format("%.0f B allocated/msg", (double) allocated / iterations));
+        }
+    }
+
+    private static byte[] textEncode(String[] parts) {
+        return (Protocol.buildMessage(parts) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Object textRoundTrip(String[] parts) {
+        byte[] wire = textEncode(parts);
+        return Protocol.parseMessage(new String(wire, 0, wire.length - 1, StandardCharsets.UTF_8));
+    }
+
+    private static Object binaryRoundTrip(String[] parts) {
+        byte[] wire = BinaryProtocol.encodeFrame(parts);
+        return BinaryProtocol.decodePayload(wire, 2, wire.length - 2);
+    }
+
+    // Licznik alokacji bieżącego wątku (HotSpot); -1, gdy niedostępny
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,210 @@
+// File: src/bench/java/com/bank/bench/ReadReplicaBenchmark.java
+package com.bank.bench;
+
+import com.bank.common.Protocol;
+import com.bank.server.ClientSession;
+import com.bank.server.ConnectionPool;
+import com.bank.server.DBManager;
+import com.bank.server.ReadReplicaRouter;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Odczyty z repliki z "czytaj własne zapisy" na dwóch wbudowanych bazach H2: główna i replika, którą wątek
+ * replikacji ({@link Replicator}) uzupełnia kopią tabel clients i accounts co [opóźnienie] ms. Sesje
+ * ({@link ClientSession}, bez sieci) wykonują DEPOSIT i zaraz po nim BALANCE tego samego konta; osobna sesja
+ * tylko czyta (BALANCE, LIST_MY_ACCOUNTS). Warianty:
+ * <ul>
+ *   <li>okno readYourWritesMs = 0 - odczyt po zapisie idzie do repliki i może zwrócić saldo sprzed wpłaty,</li>
+ *   <li>okno większe niż opóźnienie replikacji - odczyty sesji po zapisie idą do bazy głównej, saldo zawsze aktualne,</li>
+ *   <li>jak wyżej, z dodatkową nieosiągalną repliką na liście - odczyty ją omijają.</li>
+ * </ul>
+ * Dla każdego wariantu wypisywane są liczby odczytów z repliki / bazy głównej i nieaktualnych sald. Benchmark
+ * kończy się błędem, jeśli przy oknie ponad opóźnienie replikacji sesja zobaczy saldo sprzed własnej wpłaty
+ * albo jeśli sesja tylko czytająca nie trafi do repliki.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.ReadReplicaBenchmark
+ *               -Dexec.args="[klienci] [wpłatyNaKlienta] [opóźnienieReplikacjiMs] [oknoMs]"
+ */
+public class ReadReplicaBenchmark {
+    private static final String PASSWORD = "bench";
+    private static final String UNREACHABLE_REPLICA = "jdbc:h2:tcp://127.0.0.1:1/unreachable";
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int deposits = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long lagMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        long windowMillis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        if (windowMillis <= lagMillis) throw new IllegalArgumentException("Window must exceed replication lag.");
+        Logger sessionLogger = Logger.getLogger(ReadReplicaBenchmark.class.getName() + ".session");
+        sessionLogger.setLevel(Level.WARNING);
+        Logger.getLogger(ReadReplicaRouter.class.getName()).setLevel(Level.SEVERE); // Nieosiągalna replika jest zamierzona
+
+        String primaryUrl = BenchDatabase.memoryUrl("replica_primary");
+        String replicaUrl = BenchDatabase.memoryUrl("replica_copy");
+        BenchDatabase.createSchema(primaryUrl);
+        BenchDatabase.createSchema(replicaUrl);
+
+        List<Integer> clientIds = new ArrayList<>(clients);
+        List<String> accounts = new ArrayList<>(clients);
+        try (DBManager setup = new DBManager(BenchDatabase.pool(primaryUrl, 2))) {
+            for (int i = 0; i < clients; i++) {
+                int clientId = setup.addClient("Replica", "Client" + i, String.format("9100000%04d", i), PASSWORD);
+                clientIds.add(clientId);
+                accounts.add(setup.addAccountToClient(clientId, new BigDecimal("100.00")).getAccountNumber());
+            }
+        }
+
+        System.out.printf("clients=%d deposits/client=%d replicationLag=%dms readYourWritesWindow=%dms%n",
+                clients, deposits, lagMillis, windowMillis);
+        boolean failed = false;
+        try (Replicator replicator = new Replicator(primaryUrl, replicaUrl, lagMillis)) {
+            replicator.syncNow();
+            replicator.start();
+            failed |= run("window 0 ms", primaryUrl, List.of(replicaUrl), 0, clientIds, accounts, deposits, sessionLogger, false);
+            failed |= run("window " + windowMillis + " ms", primaryUrl, List.of(replicaUrl), windowMillis, clientIds, accounts, deposits,
+                    sessionLogger, true);
+            failed |= run("window " + windowMillis + " ms + down", primaryUrl, List.of(UNREACHABLE_REPLICA, replicaUrl), windowMillis,
+                    clientIds, accounts, deposits, sessionLogger, true);
+        }
+        if (failed) {
+            System.out.println("FAILED: see above.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: sessions read their own writes; read-only sessions were served by the replica.");
+    }
+
+    /** @return true, jeśli wariant nie spełnił oczekiwań. */
+    private static boolean run(String label, String primaryUrl, List<String> replicaUrls, long windowMillis, List<Integer> clientIds,
+                               List<String> accounts, int deposits, Logger logger, boolean mustBeConsistent) throws Exception {
+        List<ConnectionPool> replicas = new ArrayList<>();
+        for (String url : replicaUrls) replicas.add(new ConnectionPool(url, BenchDatabase.USER, BenchDatabase.PASSWORD, 0, 4, 2000, 2));
+        try (DBManager db = new DBManager(BenchDatabase.pool(primaryUrl, 4))) {
+            db.enableStatementCache();
+            db.enableReadReplicas(replicas, windowMillis);
+            ReadReplicaRouter router = db.getReadReplicas();
+
+            List<ClientSession> writers = new ArrayList<>(clientIds.size());
+            for (int i = 0; i < clientIds.size(); i++) {
+                ClientSession session = new ClientSession(db, logger, "writer-" + i);
+                expect(session.handleLine(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(clientIds.get(i)), PASSWORD)), Protocol.RES_OK);
+                writers.add(session);
+            }
+            // Sesja tylko czytająca: loguje się jako ostatni klient i nie zmienia danych
+            int readerIndex = clientIds.size() - 1;
+            ClientSession reader = new ClientSession(db, logger, "reader");
+            expect(reader.handleLine(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(clientIds.get(readerIndex)), PASSWORD)), Protocol.RES_OK);
+
+            long stale = 0;
+            long reads = 0;
+            long start = System.nanoTime();
+            for (int round = 0; round < deposits; round++) {
+                for (int i = 0; i < readerIndex; i++) {
+                    ClientSession session = writers.get(i);
+                    String[] deposit = Protocol.parseMessage(session.handleLine(Protocol.buildMessage(Protocol.CMD_DEPOSIT, accounts.get(i), "1.00")));
+                    if (deposit.length < 3 || !Protocol.OK_DEPOSIT_SUCCESSFUL.equals(deposit[1])) {
+                        throw new IllegalStateException("DEPOSIT failed: " + Protocol.buildMessage(deposit));
+                    }
+                    String[] balance = Protocol.parseMessage(session.handleLine(Protocol.buildMessage(Protocol.CMD_BALANCE, accounts.get(i))));
+                    reads++;
+                    if (new BigDecimal(balance[1]).compareTo(new BigDecimal(deposit[2])) != 0) stale++;
+                }
+                expect(reader.handleLine(Protocol.buildMessage(Protocol.CMD_BALANCE, accounts.get(readerIndex))), Protocol.RES_BALANCE_IS);
+                expect(reader.handleLine(Protocol.CMD_LIST_MY_ACCOUNTS), Protocol.RES_MY_ACCOUNTS);
+            }
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            for (ClientSession session : writers) session.close();
+            reader.close();
+
+            System.out.printf("  %-26s own reads %6d  stale %5d  replicaReads %6d  pinnedReads %6d  failoverReads %4d  %8.1f ms%n",
+                    label, reads, stale, router.getReplicaReads(), router.getPinnedReads(), router.getFailoverReads(), elapsedMs);
+            boolean failed = false;
+            if (mustBeConsistent && stale > 0) {
+                System.out.println("  -> session saw a balance older than its own deposit");
+                failed = true;
+            }
+            if (router.getReplicaReads() < 2L * deposits) { // Sesja tylko czytająca: dwa odczyty na rundę
+                System.out.println("  -> read-only session was not served by a replica");
+                failed = true;
+            }
+            return failed;
+        }
+    }
+
+    private static void expect(String response, String status) {
+        if (!response.startsWith(status)) throw new IllegalStateException("Unexpected response: " + response);
+    }
+
+    /**
+     * Replikacja asynchroniczna na potrzeby benchmarku: co lagMillis kopiuje wiersze clients i accounts z bazy głównej
+     * do repliki (MERGE po kluczu). Usunięć nie przenosi - benchmark nic nie usuwa.
+     */
+    private static final class Replicator implements AutoCloseable {
+        private final Connection primary;
+        private final Connection replica;
+        private final long lagMillis;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        Replicator(String primaryUrl, String replicaUrl, long lagMillis) throws SQLException {
+            this.primary = DriverManager.getConnection(primaryUrl, BenchDatabase.USER, BenchDatabase.PASSWORD);
+            this.replica = DriverManager.getConnection(replicaUrl, BenchDatabase.USER, BenchDatabase.PASSWORD);
+            this.lagMillis = lagMillis;
+            this.thread = new Thread(this::loop, "bench-replicator");
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        private void loop() {
+            while (running) {
+                try {
+                    Thread.sleep(lagMillis);
+                    syncNow();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (SQLException e) {
+                    System.out.println("Replication error: " + e.getMessage());
+                }
+            }
+        }
+
+        synchronized void syncNow() throws SQLException {
+            copy("SELECT id, first_name, last_name, pesel, password FROM clients",
+                    "MERGE INTO clients(id, first_name, last_name, pesel, password) KEY(id) VALUES (?, ?, ?, ?, ?)", 5);
+            copy("SELECT id, client_id, account_number, balance FROM accounts",
+                    "MERGE INTO accounts(id, client_id, account_number, balance) KEY(id) VALUES (?, ?, ?, ?)", 4);
+        }
+
+        private void copy(String select, String merge, int columns) throws SQLException {
+            try (PreparedStatement read = primary.prepareStatement(select);
+                 ResultSet rs = read.executeQuery();
+                 PreparedStatement write = replica.prepareStatement(merge)) {
+                while (rs.next()) {
+                    for (int c = 1; c <= columns; c++) write.setObject(c, rs.getObject(c));
+                    write.addBatch();
+                }
+                write.executeBatch();
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            running = false;
+            thread.join(lagMillis + 5000); // Bez przerywania - kopia w toku kończy się normalnie
+            primary.close();
+            replica.close();
+        }
+    }
+}
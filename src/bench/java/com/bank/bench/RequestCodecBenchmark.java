@@ -0,0 +1,243 @@
+// File: src/bench/java/com/bank/bench/RequestCodecBenchmark.java
+package com.bank.bench;
+
+import com.bank.common.Protocol;
+import com.bank.server.ClientSession;
+import com.bank.server.DBManager;
+import com.bank.server.RequestDecoder;
+import com.bank.server.ResponseEncoder;
+
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pomiar śmieci (bajty zaalokowane na żądanie, liczba i czas zbiórek GC) na gorącej ścieżce protokołu tekstowego.
+ * <ol>
+ *     <li>Kodek: dotychczasowa ścieżka (new String, Protocol.parseMessage, trim/toUpperCase/matches,
+ *     Protocol.buildMessage + getBytes) kontra RequestDecoder/ResponseEncoder - bez bazy danych.</li>
+ *     <li>Sesja: pełne ClientSession.handleLine na bajtach dla BALANCE/DEPOSIT z włączonym cache kont (H2),
+ *     kontra handleLine(String) z konwersjami String po obu stronach.</li>
+ * </ol>
+ * Logi ruchu (poziom INFO) są wyłączone - mierzymy samo przetwarzanie żądań.
+ * Szczegóły pracy GC: MAVEN_OPTS="-Xlog:gc" przed uruchomieniem.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.RequestCodecBenchmark
+ *               -Dexec.args="[iteracje kodeka] [iteracje sesji]"
+ */
+public class RequestCodecBenchmark {
+    private static final String ACC_A = "PL61109010140000071219812874";
+    private static final String ACC_B = "pl27114020040000300201355387"; // Małe litery - ścieżka toUpperCase
+
+    private static final byte[][] REQUESTS = {
+            line(Protocol.CMD_BALANCE, ACC_A),
+            line(Protocol.CMD_DEPOSIT, ACC_A, "250.00"),
+            line(Protocol.CMD_WITHDRAW, " " + ACC_B + " ", "19.99"),
+            line(Protocol.CMD_TRANSFER, ACC_A, ACC_B, "1200.50"),
+    };
+    private static final BigDecimal BALANCE = new BigDecimal("15234.75");
+
+    private static volatile Object sink; // Zapobiega eliminacji martwego kodu
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    public static void main(String[] args) throws Exception {
+        int codecIterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int sessionIterations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        RequestDecoder decoder = new RequestDecoder();
+        ResponseEncoder encoder = new ResponseEncoder();
+        for (byte[] request : REQUESTS) {
+            String legacy = new String(legacyRoundTrip(request), StandardCharsets.UTF_8);
+            String current = new String(decoderRoundTrip(decoder, encoder, request), StandardCharsets.UTF_8);
+            if (!legacy.equals(current)) {
+                throw new IllegalStateException("Codec output differs: " + legacy.trim() + " vs " + current.trim());
+            }
+        }
+
+        System.out.println("== Codec only (decode + validate + encode) ==");
+        for (int round = 0; round < 2; round++) { // Pierwsza runda to rozgrzewka JIT
+            boolean report = round == 1;
+            measure("legacy  split/regex/join", codecIterations, report, i -> sink = legacyRoundTrip(REQUESTS[i % REQUESTS.length]));
+            measure("decoder/encoder         ", codecIterations, report, i -> decoderRoundTripToStream(decoder, encoder, REQUESTS[i % REQUESTS.length]));
+        }
+
+        System.out.println();
+        System.out.println("== ClientSession with account cache (H2, INFO logging off) ==");
+        measureSession(sessionIterations);
+    }
+
+    // --- Dotychczasowa ścieżka: odpowiednik ClientSession sprzed wprowadzenia dekodera ---
+    private static byte[] legacyRoundTrip(byte[] request) {
+        String[] parts = Protocol.parseMessage(new String(request, 0, request.length - 1, StandardCharsets.UTF_8));
+        String response;
+        switch (parts[0]) {
+            case Protocol.CMD_BALANCE:
+                legacyAccount(parts[1]);
+                response = Protocol.buildMessage(Protocol.RES_BALANCE_IS, BALANCE.toPlainString());
+                break;
+            case Protocol.CMD_DEPOSIT:
+                legacyAccount(parts[1]);
+                sink = new BigDecimal(parts[2].trim());
+                response = Protocol.buildMessage(Protocol.RES_OK, Protocol.OK_DEPOSIT_SUCCESSFUL, BALANCE.toPlainString());
+                break;
+            case Protocol.CMD_WITHDRAW:
+                legacyAccount(parts[1]);
+                sink = new BigDecimal(parts[2].trim());
+                response = Protocol.buildMessage(Protocol.RES_OK, Protocol.OK_WITHDRAWAL_SUCCESSFUL, BALANCE.toPlainString());
+                break;
+            default:
+                legacyAccount(parts[1]);
+                legacyAccount(parts[2]);
+                sink = new BigDecimal(parts[3].trim());
+                response = Protocol.buildMessage(Protocol.RES_OK, Protocol.OK_TRANSFER_SUCCESSFUL);
+        }
+        return (response + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void legacyAccount(String part) {
+        String accNum = part.trim().toUpperCase();
+        if (!accNum.matches("^PL\\d{26}$")) throw new IllegalArgumentException(accNum);
+        sink = accNum;
+    }
+
+    // --- Nowa ścieżka: te same operacje na dekoderze i koderze ---
+    private static void decoderRoundTripToStream(RequestDecoder decoder, ResponseEncoder encoder, byte[] request) {
+        try {
+            decodeAndEncode(decoder, encoder, request).writeLineTo(DISCARD);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] decoderRoundTrip(RequestDecoder decoder, ResponseEncoder encoder, byte[] request) {
+        return decodeAndEncode(decoder, encoder, request).toLineBytes();
+    }
+
+    private static final String[] COMMANDS = {Protocol.CMD_BALANCE, Protocol.CMD_DEPOSIT, Protocol.CMD_WITHDRAW, Protocol.CMD_TRANSFER};
+
+    private static ResponseEncoder decodeAndEncode(RequestDecoder decoder, ResponseEncoder encoder, byte[] request) {
+        decoder.decode(request, 0, request.length - 1); // Bez '\n', jak w ClientHandler
+        switch (decoder.match(0, COMMANDS)) {
+            case Protocol.CMD_BALANCE:
+                sink = account(decoder, 1);
+                return encoder.message(Protocol.RES_BALANCE_IS).field(BALANCE);
+            case Protocol.CMD_DEPOSIT:
+                sink = account(decoder, 1);
+                sink = decoder.parseDecimal(2);
+                return encoder.message(Protocol.RES_OK).field(Protocol.OK_DEPOSIT_SUCCESSFUL).field(BALANCE);
+            case Protocol.CMD_WITHDRAW:
+                sink = account(decoder, 1);
+                sink = decoder.parseDecimal(2);
+                return encoder.message(Protocol.RES_OK).field(Protocol.OK_WITHDRAWAL_SUCCESSFUL).field(BALANCE);
+            default:
+                sink = account(decoder, 1);
+                sink = account(decoder, 2);
+                sink = decoder.parseDecimal(3);
+                return encoder.message(Protocol.RES_OK).field(Protocol.OK_TRANSFER_SUCCESSFUL);
+        }
+    }
+
+    private static String account(RequestDecoder decoder, int index) {
+        if (!decoder.isAccountNumber(index)) throw new IllegalArgumentException(decoder.field(index));
+        return decoder.accountNumber(index);
+    }
+
+    // --- Pełna sesja na wbudowanej bazie ---
+    private static void measureSession(int iterations) throws Exception {
+        String url = BenchDatabase.memoryUrl("request_codec");
+        BenchDatabase.createSchema(url);
+        DBManager db = new DBManager(BenchDatabase.pool(url, 4));
+        db.enableAccountCache(1_000, 1_000);
+        int clientId = db.addClient("Jan", "Kowalski", String.format("%011d", ThreadLocalRandom.current().nextLong(100_000_000_000L)), "secret");
+        String account = db.addAccountToClient(clientId, new BigDecimal("1000000.00")).getAccountNumber();
+
+        Logger quiet = Logger.getLogger(RequestCodecBenchmark.class.getName() + ".session");
+        quiet.setLevel(Level.WARNING);
+        ClientSession session = new ClientSession(db, quiet, "bench");
+        String login = session.handleLine(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(clientId), "secret"));
+        if (!login.startsWith(Protocol.RES_OK)) throw new IllegalStateException("Login failed: " + login);
+
+        // Odczyt salda trafia w cache; wpłata przechodzi przez bazę i write-through do cache
+        byte[] balance = line(Protocol.CMD_BALANCE, account);
+        byte[] deposit = line(Protocol.CMD_DEPOSIT, account, "0.01");
+        String balanceLine = new String(balance, 0, balance.length - 1, StandardCharsets.UTF_8);
+        System.out.println("BALANCE response: " + session.handleLine(balanceLine));
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            measure("BALANCE  handleLine(String)", iterations, report,
+                    i -> sink = (session.handleLine(balanceLine) + "\n").getBytes(StandardCharsets.UTF_8));
+            measure("BALANCE  handleLine(bytes) ", iterations, report, i -> {
+                try {
+                    session.handleLine(balance, 0, balance.length - 1).writeLineTo(DISCARD);
+                } catch (java.io.IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        int depositIterations = Math.max(1, iterations / 20);
+        for (int round = 0; round < 2; round++) {
+            measure("DEPOSIT  handleLine(bytes) ", depositIterations, round == 1, i -> {
+                try {
+                    session.handleLine(deposit, 0, deposit.length - 1).writeLineTo(DISCARD);
+                } catch (java.io.IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        System.out.println(db.getAccountCache().statsSummary());
+        db.close();
+    }
+
+    // --- Pomiar ---
+    private interface Step {
+        void run(int i);
+    }
+
+    private static void measure(String name, int iterations, boolean report, Step step) {
+        long allocBefore = allocatedBytes();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            step.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocBefore;
+        if (report) {
+            System.out.printf("%s %8.1f ns/req  %s  GC: %d collections, %d ms%n", name, (double) elapsed / iterations,
+                    allocBefore < 0 ? "allocation n/a" : String.format("%7.1f B/req", (double) allocated / iterations),
+                    gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore);
+        }
+    }
+
+    private static byte[] line(String... parts) {
+        return (Protocol.buildMessage(parts) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Licznik alokacji bieżącego wątku (HotSpot); -1, gdy niedostępny
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private static long gcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+}
@@ -0,0 +1,105 @@
+// File: src/bench/java/com/bank/bench/StatementCacheBenchmark.java
+package com.bank.bench;
+
+import com.bank.common.Account;
+import com.bank.server.ConnectionPool;
+import com.bank.server.DBManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Koszt jednego wywołania DBManager.findAccountByNumber i DBManager.updateAccountBalance bez cache przygotowanych
+ * poleceń (prepareStatement + close przy każdym wywołaniu) i z cache (polecenie z katalogu przygotowane raz na
+ * połączenie). Cache kont jest wyłączony, więc każde wywołanie idzie do bazy (wbudowane H2, jedno połączenie w puli
+ * - wszystkie wywołania trafiają na to samo fizyczne połączenie). Warianty mierzone są naprzemiennie w kilku
+ * rundach; wynik to mediana rund. Na końcu sprawdzane są salda zapisane przez updateAccountBalance.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.StatementCacheBenchmark
+ *               -Dexec.args="[wywołaniaNaRundę] [rundy] [konta]"
+ */
+public class StatementCacheBenchmark {
+
+    private static long sink; // Zapobiega eliminacji martwego kodu
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        if (accounts < 1 || accounts > calls) throw new IllegalArgumentException("Accounts must be between 1 and calls per round.");
+
+        String url = BenchDatabase.memoryUrl("statement_cache");
+        BenchDatabase.createSchema(url);
+        try (DBManager db = new DBManager(BenchDatabase.pool(url, 1))) {
+            int clientId = db.addClient("Bench", "Statements", "00000000007", "bench");
+            List<String> numbers = new ArrayList<>(accounts);
+            for (int i = 0; i < accounts; i++) numbers.add(db.addAccountToClient(clientId, BigDecimal.ZERO).getAccountNumber());
+            ConnectionPool pool = db.getPool();
+
+            System.out.printf("calls/round=%d rounds=%d accounts=%d (H2 in-memory, pool of 1)%n", calls, rounds, accounts);
+            for (Operation op : Operation.values()) {
+                double[][] micros = new double[2][rounds];
+                for (int mode = 0; mode < 2; mode++) { // Rozgrzewka JIT obu wariantów poza pomiarem
+                    pool.setStatementCaching(mode == 1);
+                    op.run(db, numbers, calls, 0);
+                }
+                for (int round = 0; round < rounds; round++) {
+                    for (int mode = 0; mode < 2; mode++) {
+                        pool.setStatementCaching(mode == 1);
+                        long start = System.nanoTime();
+                        op.run(db, numbers, calls, round + 1);
+                        micros[mode][round] = (System.nanoTime() - start) / 1e3 / calls;
+                    }
+                }
+                double off = median(micros[0]);
+                double on = median(micros[1]);
+                System.out.printf("  %-22s cache off %7.2f us/call   cache on %7.2f us/call   saving %6.2f us/call (%4.1f%%)%n",
+                        op.label, off, on, off - on, (off - on) * 100 / off);
+            }
+            System.out.println(pool.statsSummary());
+
+            // Ostatnia runda updateAccountBalance (cache włączony) zapisała saldo równe numerowi rundy na każdym koncie
+            BigDecimal expected = BigDecimal.valueOf(rounds);
+            for (String number : numbers) {
+                BigDecimal balance = db.findAccountByNumber(number).map(Account::getBalance).orElse(null);
+                if (balance == null || balance.compareTo(expected) != 0) {
+                    System.out.println("FAILED: account " + number + " has balance " + balance + ", expected " + expected);
+                    System.exit(1);
+                }
+            }
+            System.out.println("PASSED: all balances written by updateAccountBalance are visible (sink=" + sink + ").");
+        }
+    }
+
+    private enum Operation {
+        FIND_ACCOUNT("findAccountByNumber"),
+        UPDATE_BALANCE("updateAccountBalance");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        void run(DBManager db, List<String> numbers, int calls, int round) throws Exception {
+            BigDecimal balance = BigDecimal.valueOf(round);
+            for (int i = 0; i < calls; i++) {
+                String number = numbers.get(i % numbers.size());
+                if (this == FIND_ACCOUNT) {
+                    sink += db.findAccountByNumber(number).map(Account::getId).orElse(-1);
+                } else {
+                    db.updateAccountBalance(number, balance);
+                }
+            }
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+}
@@ -0,0 +1,133 @@
+// File: src/bench/java/com/bank/bench/TransferStressBenchmark.java
+package com.bank.bench;
+
+import com.bank.common.Account;
+import com.bank.server.DBManager;
+import com.bank.server.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Wielowątkowy test obciążeniowy TransferEngine na "gorącej" parze kont (lub kilku kontach).
+ * Wątki wykonują przelewy w losowych kierunkach; na końcu sprawdzane jest, że suma pieniędzy
+ * w systemie się nie zmieniła i żadne saldo nie jest ujemne. Raportuje przelewy na sekundę i liczbę ponowień.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.TransferStressBenchmark
+ *               -Dexec.args="[wątki] [sekundy] [konta] [jdbcUrl]"
+ * Bez jdbcUrl używana jest wbudowana baza H2; dla MySQL podaj URL bazy z wykonanym setup_bankdb.sql
+ * (użytkownik/hasło z -Dbench.user / -Dbench.password). -Dbench.cache=true włącza cache kont w DBManager.
+ *
+ * Jako sprawdzenie poprawności (repozytorium nie ma testów jednostkowych), np. przed scaleniem zmian w TransferEngine:
+ *   mvn -B -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.TransferStressBenchmark -Dexec.args="16 5 2"
+ * Każdy naruszony niezmiennik (suma pieniędzy, ujemne saldo, saldo z cache różne od bazy, przelew zakończony
+ * wyjątkiem SQL) wypisywany jest na stderr jako FAILED, a proces kończy się kodem 1 - exec:java działa w JVM Mavena,
+ * więc niezerowy kod zwraca także mvn. Kod 0 tylko po PASSED.
+ */
+public class TransferStressBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        String url = args.length > 3 ? args[3] : BenchDatabase.memoryUrl("transfer_stress");
+
+        if (args.length <= 3) BenchDatabase.createSchema(url);
+        DBManager db = new DBManager(new com.bank.server.ConnectionPool(url,
+                System.getProperty("bench.user", BenchDatabase.USER), System.getProperty("bench.password", BenchDatabase.PASSWORD),
+                2, threads, 10_000, 2));
+        boolean cacheEnabled = Boolean.getBoolean("bench.cache");
+        if (cacheEnabled) db.enableAccountCache(10_000, 10_000);
+
+        int clientId = db.addClient("Stress", "Test", String.format("%011d", ThreadLocalRandom.current().nextLong(100_000_000_000L)), "stress");
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(db.addAccountToClient(clientId, INITIAL_BALANCE).getAccountNumber());
+        }
+        BigDecimal totalBefore = total(db, clientId);
+
+        LongAdder ok = new LongAdder();
+        LongAdder insufficient = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder retriedTransfers = new LongAdder();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                try {
+                    while (System.nanoTime() < end) {
+                        int from = rnd.nextInt(accounts.size());
+                        int to = (from + 1 + rnd.nextInt(accounts.size() - 1)) % accounts.size();
+                        BigDecimal amount = BigDecimal.valueOf(rnd.nextInt(1, 50_000), 2);
+                        try {
+                            TransferResult r = db.transfer(accounts.get(from), accounts.get(to), clientId, amount);
+                            if (r.isOk()) ok.increment();
+                            else if (r.getStatus() == TransferResult.Status.INSUFFICIENT_FUNDS) insufficient.increment();
+                            if (r.getRetries() > 0) retriedTransfers.increment();
+                        } catch (SQLException e) {
+                            failed.increment();
+                            firstFailure.compareAndSet(null, e);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-" + t).start();
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        BigDecimal totalAfter = total(db, clientId);
+        List<String> violations = new ArrayList<>();
+        if (cacheEnabled) {
+            // Saldo z cache musi zgadzać się z bazą - porównanie z odczytem przez nowy DBManager bez cache
+            DBManager direct = new DBManager(db.getPool());
+            for (Account acc : direct.findAllAccountsByClientId(clientId)) {
+                Account cached = db.findAccountByNumber(acc.getAccountNumber()).orElse(null);
+                if (cached == null || cached.getBalance().compareTo(acc.getBalance()) != 0) {
+                    violations.add("cached balance " + (cached == null ? "missing" : cached.getBalance().toPlainString()) +
+                            " differs from database " + acc.getBalance().toPlainString() + " for " + acc.getAccountNumber());
+                }
+            }
+            System.out.println(db.getAccountCache().statsSummary());
+        }
+        if (totalBefore.compareTo(totalAfter) != 0) {
+            violations.add("money was not conserved: total before=" + totalBefore.toPlainString() + " after=" + totalAfter.toPlainString());
+        }
+        List<String> negative = db.findAllAccountsByClientId(clientId).stream().filter(a -> a.getBalance().signum() < 0)
+                .map(a -> a.getAccountNumber() + "=" + a.getBalance().toPlainString()).collect(Collectors.toList());
+        if (!negative.isEmpty()) violations.add("negative balances: " + String.join(", ", negative));
+        if (failed.sum() > 0) violations.add(failed.sum() + " transfer(s) threw SQLException, first: " + firstFailure.get());
+
+        System.out.printf("threads=%d accounts=%d duration=%.1fs%n", threads, accountCount, elapsed);
+        System.out.printf("committed=%d (%.0f transfers/s), insufficientFunds=%d, failed=%d, transfersThatRetried=%d%n",
+                ok.sum(), ok.sum() / elapsed, insufficient.sum(), failed.sum(), retriedTransfers.sum());
+        System.out.println(db.getTransferEngine().statsSummary());
+        System.out.println(db.getPool().statsSummary());
+        System.out.println("total before=" + totalBefore.toPlainString() + " after=" + totalAfter.toPlainString());
+        db.close();
+
+        if (!violations.isEmpty()) {
+            for (String violation : violations) System.err.println("FAILED: " + violation);
+            System.exit(1);
+        }
+        System.out.println("PASSED: total money conserved, no negative balances.");
+    }
+
+    private static BigDecimal total(DBManager db, int clientId) throws SQLException {
+        return db.findAllAccountsByClientId(clientId).stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
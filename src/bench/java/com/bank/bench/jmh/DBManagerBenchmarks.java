@@ -0,0 +1,115 @@
+// File: src/bench/java/com/bank/bench/jmh/DBManagerBenchmarks.java
+package com.bank.bench.jmh;
+
+import com.bank.bench.BenchDatabase;
+import com.bank.common.Account;
+import com.bank.common.Client;
+import com.bank.server.BalanceUpdateResult;
+import com.bank.server.DBManager;
+import com.bank.server.TransferResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operacje DBManager na wbudowanej bazie H2 (pula połączeń, zapytania JDBC, opcjonalnie cache).
+ * Wiersze wybierane są z ustalonego ziarna, więc kolejne uruchomienia wykonują te same operacje.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class DBManagerBenchmarks {
+    private static final int CLIENTS = 1000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private DBManager db;
+    private final int[] clientIds = new int[CLIENTS];
+    private final String[] accounts = new String[CLIENTS * 2];
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String url = BenchDatabase.memoryUrl("jmh-db-" + System.nanoTime());
+        BenchDatabase.createSchema(url);
+        db = new DBManager(BenchDatabase.pool(url, 16));
+        if (cache) {
+            db.enableAccountCache(10_000, 10_000);
+            db.enableClientCache(10_000, 300_000);
+        }
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIds[i] = db.addClient("Jan", "Bench" + i, String.format("%011d", 80_000_000_000L + i), "pw");
+            accounts[2 * i] = db.addAccountToClient(clientIds[i], INITIAL_BALANCE).getAccountNumber();
+            accounts[2 * i + 1] = db.addAccountToClient(clientIds[i], INITIAL_BALANCE).getAccountNumber();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    /** Losowanie klienta per wątek - stałe ziarno, każdy wątek ma własny generator. */
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next() {
+            return random.nextInt(CLIENTS);
+        }
+    }
+
+    @Benchmark
+    public Optional<Account> findAccountByNumber(Picker p) throws SQLException {
+        return db.findAccountByNumber(accounts[2 * p.next()]);
+    }
+
+    @Benchmark
+    public List<Account> findAllAccountsByClientId(Picker p) throws SQLException {
+        return db.findAllAccountsByClientId(clientIds[p.next()]);
+    }
+
+    @Benchmark
+    public Optional<Client> authenticateClient(Picker p) throws SQLException {
+        return db.authenticateClient(clientIds[p.next()], "pw");
+    }
+
+    @Benchmark
+    public BalanceUpdateResult deposit(Picker p) throws SQLException {
+        return db.deposit(accounts[2 * p.next()], AMOUNT);
+    }
+
+    @Benchmark
+    public BalanceUpdateResult withdraw(Picker p) throws SQLException {
+        int i = p.next();
+        return db.withdraw(accounts[2 * i], clientIds[i], AMOUNT);
+    }
+
+    @Benchmark
+    public TransferResult transfer(Picker p) throws SQLException {
+        int i = p.next();
+        return db.transfer(accounts[2 * i], accounts[2 * i + 1], clientIds[i], AMOUNT);
+    }
+}
@@ -0,0 +1,197 @@
+// File: src/bench/java/com/bank/bench/jmh/JmhCompare.java
+package com.bank.bench.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Porównuje dwa pliki wyników JMH (JSON z {@link JmhRunner}): dla każdego benchmarku i zestawu parametrów
+ * wypisuje wynik bazowy, bieżący, zmianę procentową i ocenę. Zmiana jest oznaczana jako istotna tylko wtedy,
+ * gdy przedziały ufności (wynik +- błąd 99.9%) obu pomiarów się nie nakładają.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.jmh.JmhCompare
+ *               -Dexec.args="target/jmh-baseline.json target/jmh-result.json"
+ */
+public class JmhCompare {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: JmhCompare <baseline.json> <current.json>");
+            System.exit(2);
+            return;
+        }
+        Map<String, Score> baseline = load(args[0]);
+        Map<String, Score> current = load(args[1]);
+
+        System.out.printf("%-70s %22s %22s %9s  %s%n", "benchmark", "baseline", "current", "change", "verdict");
+        Set<String> keys = new TreeSet<>(baseline.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            Score b = baseline.get(key);
+            Score c = current.get(key);
+            if (b == null || c == null) {
+                System.out.printf("%-70s %22s %22s %9s  %s%n", key, b != null ? b : "-", c != null ? c : "-", "", "only in one run");
+                continue;
+            }
+            double change = (c.score - b.score) / b.score * 100.0;
+            boolean overlap = c.score - c.error <= b.score + b.error && b.score - b.error <= c.score + c.error;
+            // Dla trybów czasu (avgt, sample, ss) mniejszy wynik jest lepszy, dla thrpt - większy
+            boolean lowerIsBetter = !"thrpt".equals(c.mode);
+            String verdict = overlap ? "within noise"
+                    : (c.score < b.score) == lowerIsBetter ? "FASTER" : "SLOWER";
+            System.out.printf("%-70s %22s %22s %+8.1f%%  %s%n", key, b, c, change, verdict);
+        }
+    }
+
+    private static final class Score {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Score(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.unit = unit;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f+-%.3f %s", score, error, unit);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> load(String file) throws IOException {
+        Object root = new JsonReader(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8)).readValue();
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (Object item : (List<Object>) root) {
+            Map<String, Object> run = (Map<String, Object>) item;
+            StringBuilder key = new StringBuilder(((String) run.get("benchmark")).replace("com.bank.bench.jmh.", ""));
+            Object params = run.get("params");
+            if (params instanceof Map) {
+                ((Map<String, Object>) params).forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            Object error = metric.get("scoreError");
+            scores.put(key.toString(), new Score((String) run.get("mode"), ((Number) metric.get("score")).doubleValue(),
+                    error instanceof Number ? ((Number) error).doubleValue() : 0, (String) metric.get("scoreUnit")));
+        }
+        return scores;
+    }
+
+    // Minimalny parser JSON - wystarczający dla plików wyników JMH (obiekty, tablice, napisy, liczby, literały)
+    private static final class JsonReader {
+        private final String text;
+        private int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': return readObject();
+                case '[': return readArray();
+                case '"': return readString();
+                case 't': pos += 4; return Boolean.TRUE;
+                case 'f': pos += 5; return Boolean.FALSE;
+                case 'n': pos += 4; return null;
+                default: return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++; // '{'
+            skipWhitespace();
+            if (text.charAt(pos) == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                map.put(name, readValue());
+                skipWhitespace();
+                if (text.charAt(pos++) == '}') return map; // W przeciwnym razie ','
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> list = new ArrayList<>();
+            pos++; // '['
+            skipWhitespace();
+            if (text.charAt(pos) == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                if (text.charAt(pos++) == ']') return list; // W przeciwnym razie ','
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(escaped); // " \ /
+                }
+            }
+        }
+
+        private Object readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+            String number = text.substring(start, pos);
+            if (number.isEmpty()) {
+                // JMH zapisuje brak wartości jako "NaN" w cudzysłowie; tu trafia tylko nieoczekiwany znak
+                throw new IllegalArgumentException("Unexpected character '" + text.charAt(pos) + "' at position " + pos);
+            }
+            return Double.parseDouble(number);
+        }
+
+        private void expect(char c) {
+            if (text.charAt(pos) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos + " but found '" + text.charAt(pos) + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+    }
+}
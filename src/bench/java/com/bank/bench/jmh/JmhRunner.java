@@ -0,0 +1,65 @@
+// File: src/bench/java/com/bank/bench/jmh/JmhRunner.java
+package com.bank.bench.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Uruchamia benchmarki JMH z pakietu com.bank.bench.jmh i zapisuje wyniki w formacie JSON
+ * (domyślnie target/jmh-result.json), do porównania między wersjami przez {@link JmhCompare}.
+ * Przyjmuje standardowe argumenty JMH, np. wyrażenie wybierające benchmarki, -p cache=true, -prof gc, -t 4.
+ * Liczba iteracji, czas i liczba forków są ustalone w adnotacjach klas, a dane testowe - generowane
+ * deterministycznie, więc wyniki kolejnych uruchomień na tej samej maszynie są porównywalne.
+ *
+ * Uruchomienie: mvn -Pbench compile exec:java -Dexec.mainClass=com.bank.bench.jmh.JmhRunner
+ *               -Dexec.args="[argumenty JMH, np. Protocol -rff target/jmh-baseline.json]"
+ */
+public class JmhRunner {
+    private static final String DEFAULT_INCLUDE = "com\\.bank\\.bench\\.jmh\\..*";
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (cmd.getIncludes().isEmpty()) options.include(DEFAULT_INCLUDE);
+        if (!cmd.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        String result = cmd.getResult().orElse(DEFAULT_RESULT);
+        options.result(result);
+        Path parent = Paths.get(result).toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        exposeClassPathToForks();
+        new Runner(options.build()).run();
+        System.out.println("JMH results written to " + result);
+    }
+
+    // exec:java uruchamia kod w JVM Mavena, gdzie java.class.path nie zawiera klas projektu;
+    // JMH buduje classpath forków właśnie z tej właściwości, więc uzupełniamy ją o URL-e loadera projektu
+    private static void exposeClassPathToForks() {
+        Set<String> entries = new LinkedHashSet<>();
+        for (ClassLoader cl = Thread.currentThread().getContextClassLoader(); cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if ("file".equals(url.getProtocol())) entries.add(new File(url.getPath()).getAbsolutePath());
+                }
+            }
+        }
+        if (entries.isEmpty()) return; // Zwykłe uruchomienie "java -cp ..." - classpath jest już poprawny
+        for (String existing : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!existing.isEmpty()) entries.add(existing);
+        }
+        System.setProperty("java.class.path", String.join(File.pathSeparator, entries));
+    }
+}
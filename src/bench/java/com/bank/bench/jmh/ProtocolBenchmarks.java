@@ -0,0 +1,87 @@
+// File: src/bench/java/com/bank/bench/jmh/ProtocolBenchmarks.java
+package com.bank.bench.jmh;
+
+import com.bank.common.Protocol;
+import com.bank.server.RequestDecoder;
+import com.bank.server.ResponseEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kodowanie i dekodowanie wiadomości protokołu tekstowego: Protocol.parseMessage/buildMessage
+ * oraz RequestDecoder/ResponseEncoder używane przez ClientSession.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ProtocolBenchmarks {
+    private static final String ACC_A = "PL61109010140000071219812874";
+    private static final String ACC_B = "PL27114020040000300201355387";
+
+    @Param({"BALANCE", "TRANSFER", "ADD_CLIENT"})
+    public String message;
+
+    private String line;
+    private String[] parts;
+    private byte[] lineBytes;
+    private final RequestDecoder decoder = new RequestDecoder();
+    private final ResponseEncoder encoder = new ResponseEncoder();
+
+    @Setup
+    public void setup() {
+        switch (message) {
+            case "BALANCE":
+                parts = new String[]{Protocol.CMD_BALANCE, ACC_A};
+                break;
+            case "TRANSFER":
+                parts = new String[]{Protocol.CMD_TRANSFER, ACC_A, ACC_B, "1200.50"};
+                break;
+            default:
+                parts = new String[]{Protocol.CMD_ADMIN, Protocol.SUB_CMD_ADD_CLIENT, "Jan", "Kowalski", "90010112345", "pass"};
+        }
+        line = Protocol.buildMessage(parts);
+        lineBytes = line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String[] parseMessage() {
+        return Protocol.parseMessage(line);
+    }
+
+    @Benchmark
+    public String buildMessage() {
+        return Protocol.buildMessage(parts);
+    }
+
+    /** Dekodowanie linii z bufora bajtów i odczyt polecenia - jak na początku ClientSession.handleLine. */
+    @Benchmark
+    public int decodeRequest() {
+        decoder.decode(lineBytes, 0, lineBytes.length);
+        return decoder.fieldCount() + (decoder.fieldEquals(0, Protocol.CMD_BALANCE) ? 1 : 0);
+    }
+
+    /** Te same pola co w buildMessage, zakodowane od razu do bufora bajtów UTF-8 (jak odpowiedzi ClientSession). */
+    @Benchmark
+    public ResponseEncoder encodeMessage() {
+        encoder.message(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            encoder.field(parts[i]);
+        }
+        return encoder;
+    }
+}
@@ -0,0 +1,139 @@
+// File: src/bench/java/com/bank/bench/jmh/SessionBenchmarks.java
+package com.bank.bench.jmh;
+
+import com.bank.bench.BenchDatabase;
+import com.bank.common.Protocol;
+import com.bank.server.ClientSession;
+import com.bank.server.DBManager;
+import com.bank.server.InMemoryStorage;
+import com.bank.server.ResponseEncoder;
+import com.bank.server.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Pełne przetwarzanie żądania w ClientSession (dekodowanie, logika polecenia, DBManager, kodowanie odpowiedzi) -
+ * to samo, co robią ClientHandler i NioServer dla każdej linii, bez gniazda. Magazynem jest baza H2 w pamięci
+ * (jdbc-cache: z cache kont i klientów, jdbc: bez cache) albo InMemoryStorage (memory).
+ * Każdy wątek benchmarku ma własną, zalogowaną sesję i własnego klienta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SessionBenchmarks {
+    private static final int CLIENTS = 64;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+    /** Magazyn danych współdzielony przez wszystkie wątki. */
+    @State(Scope.Benchmark)
+    public static class Bank {
+        @Param({"jdbc-cache", "jdbc", "memory"})
+        public String storage;
+
+        Storage db;
+        final String[][] accounts = new String[CLIENTS][2];
+        final int[] clientIds = new int[CLIENTS];
+        final AtomicInteger nextClient = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            if ("memory".equals(storage)) {
+                db = new InMemoryStorage();
+            } else {
+                String url = BenchDatabase.memoryUrl("jmh-session-" + System.nanoTime());
+                BenchDatabase.createSchema(url);
+                DBManager jdbc = new DBManager(BenchDatabase.pool(url, 16));
+                if ("jdbc-cache".equals(storage)) {
+                    jdbc.enableAccountCache(10_000, 10_000);
+                    jdbc.enableClientCache(10_000, 300_000);
+                }
+                db = jdbc;
+            }
+            for (int i = 0; i < CLIENTS; i++) {
+                clientIds[i] = db.addClient("Jan", "Bench" + i, String.format("%011d", 90_000_000_000L + i), "pw" + i);
+                accounts[i][0] = db.addAccountToClient(clientIds[i], INITIAL_BALANCE).getAccountNumber();
+                accounts[i][1] = db.addAccountToClient(clientIds[i], INITIAL_BALANCE).getAccountNumber();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            db.close();
+        }
+    }
+
+    /** Zalogowana sesja jednego wątku i gotowe linie żądań. */
+    @State(Scope.Thread)
+    public static class Session {
+        ClientSession session;
+        byte[] balance;
+        byte[] deposit;
+        byte[] transfer;
+        byte[] listMyAccounts;
+
+        @Setup(Level.Trial)
+        public void setup(Bank bank) {
+            int i = bank.nextClient.getAndIncrement() % CLIENTS;
+            Logger quiet = Logger.getLogger(SessionBenchmarks.class.getName() + ".quiet");
+            quiet.setUseParentHandlers(false);
+            quiet.setLevel(java.util.logging.Level.OFF); // Mierzymy przetwarzanie, nie logowanie
+            session = new ClientSession(bank.db, quiet, "jmh-" + i);
+            String login = session.handleLine(Protocol.buildMessage(Protocol.CMD_LOGIN, String.valueOf(bank.clientIds[i]), "pw" + i));
+            if (!login.startsWith(Protocol.RES_OK)) throw new IllegalStateException("Login failed: " + login);
+            String a = bank.accounts[i][0];
+            String b = bank.accounts[i][1];
+            balance = line(Protocol.CMD_BALANCE, a);
+            deposit = line(Protocol.CMD_DEPOSIT, a, "1.00");
+            transfer = line(Protocol.CMD_TRANSFER, a, b, "0.01");
+            listMyAccounts = line(Protocol.CMD_LIST_MY_ACCOUNTS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.close();
+        }
+
+        private static byte[] line(String... parts) {
+            return Protocol.buildMessage(parts).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public ResponseEncoder balance(Session s) {
+        return s.session.handleLine(s.balance, 0, s.balance.length);
+    }
+
+    @Benchmark
+    public ResponseEncoder deposit(Session s) {
+        return s.session.handleLine(s.deposit, 0, s.deposit.length);
+    }
+
+    @Benchmark
+    public ResponseEncoder transfer(Session s) {
+        return s.session.handleLine(s.transfer, 0, s.transfer.length);
+    }
+
+    @Benchmark
+    public ResponseEncoder listMyAccounts(Session s) {
+        return s.session.handleLine(s.listMyAccounts, 0, s.listMyAccounts.length);
+    }
+}
@@ -0,0 +1,62 @@
+// File: src/bench/java/com/bank/bench/jmh/ValidatorBenchmarks.java
+package com.bank.bench.jmh;
+
+import com.bank.common.Protocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walidatory PESEL i numeru konta z Protocol kontra dawne wyrażenia regularne (String.matches),
+ * dla wartości poprawnych i odrzucanych.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ValidatorBenchmarks {
+    @Param({"valid", "invalid"})
+    public String input;
+
+    private String pesel;
+    private String accountNumber;
+
+    @Setup
+    public void setup() {
+        boolean valid = "valid".equals(input);
+        pesel = valid ? "90010112345" : "9001011234X";
+        accountNumber = valid ? "PL61109010140000071219812874" : "PL6110901014000007121981287A";
+    }
+
+    @Benchmark
+    public boolean peselValidator() {
+        return Protocol.isValidPesel(pesel);
+    }
+
+    @Benchmark
+    public boolean peselRegex() {
+        return pesel.matches("\\d{11}");
+    }
+
+    @Benchmark
+    public boolean accountNumberValidator() {
+        return Protocol.isValidAccountNumber(accountNumber);
+    }
+
+    @Benchmark
+    public boolean accountNumberRegex() {
+        return accountNumber.toUpperCase().matches("^PL\\d{26}$");
+    }
+}
@@ -5,26 +5,38 @@ import com.bank.common.Protocol; // Używamy naszej nowej klasy Protocol
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class BankerApp {
     private static final String SERVER_ADDRESS = "localhost";
     private static final int SERVER_PORT = 5000;
+    // Import zbiorczy: znaki wierszy jednego żądania (UTF-8 do 3 bajtów na znak - poniżej limitu linii i ramki serwera)
+    // oraz liczba żądań importu w jednym oknie potoku
+    private static final int BULK_IMPORT_MAX_REQUEST_CHARS = 16_000;
+    private static final int BULK_IMPORT_WINDOW = 8;
+    private static final int BULK_IMPORT_MAX_REPORTED_FAILURES = 20;
     private static Scanner consoleIn; // Scanner do odczytu danych od użytkownika
+    // Poprzedni odczyt statystyk - przepustowość liczona jest między kolejnymi odczytami
+    private static long lastStatsUptimeMs = -1;
+    private static long lastStatsRequests;
 
     public static void main(String[] args) {
         System.out.println("Banker Terminal (TB) - Initializing...");
         consoleIn = new Scanner(System.in);
 
-        try (Socket socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-             PrintWriter serverOut = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader serverIn = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+        try (ServerConnection server = ServerConnection.open(SERVER_ADDRESS, SERVER_PORT)) {
 
-            System.out.println("Successfully connected to Bank Server at " + SERVER_ADDRESS + ":" + SERVER_PORT);
+            System.out.println("Successfully connected to Bank Server at " + SERVER_ADDRESS + ":" + SERVER_PORT +
+                    (server.isBinary() ? " (binary protocol)" : " (text protocol)"));
 
             String userInput;
             boolean running = true;
@@ -34,6 +46,22 @@ public class BankerApp {
                 String request = null;
                 String serverResponse;
 
+                if ("B".equals(userInput)) { // Wsadowe wysłanie żądań z pliku w potoku
+                    runBatchFile(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+                if ("3".equals(userInput)) { // Dane klienta - odpowiedź strumieniowa, konto po koncie
+                    showClientInfo(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+                if ("I".equals(userInput)) { // Import zbiorczy klientów z pliku CSV
+                    runBulkImport(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+
                 switch (userInput) {
                     case "1": // Add new client
                         request = handleAddClient();
@@ -41,9 +69,6 @@ public class BankerApp {
                     case "2": // Add new account to existing client
                         request = handleAddAccountToClient();
                         break;
-                    case "3": // View Client Information & Accounts (by Client ID)
-                        request = handleGetClientInfoById();
-                        break;
                     case "4": // View Specific Account Details (by Account Number)
                         request = handleGetAccountDetails();
                         break;
@@ -56,6 +81,9 @@ public class BankerApp {
                     case "7": // Delete Specific Account
                         request = handleDeleteAccount();
                         break;
+                    case "S": // Server statistics
+                        request = Protocol.buildMessage(Protocol.CMD_ADMIN, Protocol.SUB_CMD_STATS);
+                        break;
                     case "X":
                         System.out.println("Exiting Banker Terminal...");
                         running = false; // Zakończ pętlę
@@ -68,8 +96,7 @@ public class BankerApp {
 
                 if (request != null) {
                     System.out.println("Sending to server: " + request);
-                    serverOut.println(request);
-                    serverResponse = serverIn.readLine(); // Czekaj na odpowiedź serwera
+                    serverResponse = server.exchange(request); // Czekaj na odpowiedź serwera
                     System.out.println("Server response: " + formatAdminServerResponse(serverResponse));
                 } else if (running) { // Jeśli request jest null, ale nie wychodzimy (np. anulowano akcję)
                     System.out.println("Operation cancelled or no request generated.");
@@ -115,7 +142,7 @@ public class BankerApp {
         String pesel;
         while (true) {
             pesel = promptString(message);
-            if (pesel.matches("\\d{11}")) {
+            if (Protocol.isValidPesel(pesel)) {
                 return pesel;
             }
             System.out.println("Invalid PESEL format. Must be 11 digits. Please try again.");
@@ -137,7 +164,7 @@ public class BankerApp {
         String accNum;
         while (true) {
             accNum = promptString(message).toUpperCase();
-            if (accNum.matches("^PL\\d{26}$")) {
+            if (Protocol.isValidAccountNumber(accNum)) {
                 return accNum;
             }
             System.out.println("Invalid Account Number format. Must be PL followed by 26 digits. Please try again.");
@@ -174,6 +201,9 @@ public class BankerApp {
         System.out.println("5. Update Client's Personal Information (by Client ID)");
         System.out.println("6. Delete Client (and all associated accounts)");
         System.out.println("7. Delete Specific Account");
+        System.out.println("S. View Server Statistics");
+        System.out.println("B. Run Batch File (pipelined)");
+        System.out.println("I. Bulk Import Clients from CSV");
         System.out.println("X. Exit");
         System.out.print("Enter your choice: ");
     }
@@ -193,9 +223,29 @@ public class BankerApp {
         return Protocol.buildMessage(Protocol.CMD_ADMIN, Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT, clientId, balance);
     }
 
-    private static String handleGetClientInfoById() {
+    // Dane klienta i jego konta wypisywane w trakcie odczytu odpowiedzi strumieniowej - bez jednej ogromnej linii
+    private static void showClientInfo(ServerConnection server) throws IOException {
         String clientId = promptClientId("Enter Client ID to view details: ");
-        return Protocol.buildMessage(Protocol.CMD_ADMIN, Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID, clientId);
+        String request = Protocol.buildMessage(Protocol.CMD_ADMIN, Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID, clientId, Protocol.STREAM_MARKER);
+        System.out.println("Sending to server: " + request);
+        String end = server.exchangeStream(request, header -> { // CLIENT_INFO;STREAM;liczba;id;imię;nazwisko;pesel
+            if (header.length < 7) {
+                System.out.println("Error: Malformed client info response.");
+                return;
+            }
+            System.out.println("Client Details:");
+            System.out.println("  Client ID: " + header[3]);
+            System.out.println("  First Name: " + header[4]);
+            System.out.println("  Last Name: " + header[5]);
+            System.out.println("  PESEL: " + header[6]);
+            System.out.println("  Accounts (" + header[2] + "):");
+        }, item -> System.out.println("    - " + item[1] + " (Balance: " + item[2] + ")"));
+        String[] parts = Protocol.parseMessage(end);
+        if (parts.length > 1 && Protocol.RES_STREAM_END.equals(parts[0])) {
+            if ("0".equals(parts[1])) System.out.println("    No accounts found for this client.");
+            return;
+        }
+        System.out.println("Server response: " + formatAdminServerResponse(end));
     }
 
     private static String handleGetAccountDetails() {
@@ -228,6 +278,126 @@ public class BankerApp {
         return null; // Anulowano
     }
 
+    // Wsadowe wykonanie poleceń z pliku: wszystkie żądania idą w potoku, odpowiedzi są wyświetlane w kolejności
+    private static void runBatchFile(ServerConnection server) throws IOException {
+        String path = promptString("Enter path to batch file (one protocol request per line): ");
+        List<String> requests;
+        try {
+            requests = PipelinedSender.readBatchFile(path);
+        } catch (IOException e) {
+            System.out.println("Could not read batch file: " + e.getMessage());
+            return;
+        }
+        if (requests.isEmpty()) {
+            System.out.println("Batch file contains no requests.");
+            return;
+        }
+        System.out.println("Sending " + requests.size() + " request(s) pipelined...");
+        long start = System.nanoTime();
+        List<String> responses = PipelinedSender.sendAll(server, requests);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        for (int i = 0; i < requests.size(); i++) {
+            System.out.println("[" + (i + 1) + "] " + requests.get(i));
+            System.out.println("    -> " + formatAdminServerResponse(responses.get(i)));
+        }
+        System.out.println("Batch completed: " + responses.size() + " response(s) in " + elapsedMs + " ms.");
+    }
+
+    /**
+     * Import zbiorczy z pliku CSV (imię,nazwisko,pesel,saldoPoczątkowe,hasło; puste wiersze i komentarze # są pomijane).
+     * Plik czytany jest strumieniowo: wiersze łączone są w żądania ADMIN;BULK_IMPORT po co najwyżej
+     * Protocol.BULK_IMPORT_MAX_ROWS wierszy, a żądania wysyłane w potoku oknami - w pamięci jest tylko jedno okno.
+     */
+    private static void runBulkImport(ServerConnection server) throws IOException {
+        String path = promptString("Enter path to CSV file (firstName,lastName,pesel,initialBalance,password per line): ");
+        BufferedReader csv;
+        try {
+            csv = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Could not open CSV file: " + e.getMessage());
+            return;
+        }
+        BulkImportProgress progress = new BulkImportProgress();
+        long start = System.nanoTime();
+        try (BufferedReader reader = csv) {
+            List<String> window = new ArrayList<>(BULK_IMPORT_WINDOW);
+            List<int[]> windowLines = new ArrayList<>(BULK_IMPORT_WINDOW); // Numery linii pliku dla wierszy każdego żądania
+            StringBuilder request = new StringBuilder();
+            int[] lines = new int[Protocol.BULK_IMPORT_MAX_ROWS];
+            int rows = 0;
+            int lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                String record = line.trim();
+                if (record.isEmpty() || record.startsWith("#")) continue;
+                if (record.contains(Protocol.SEPARATOR)) { // Separator protokołu rozdzieliłby wiersz na dwa pola
+                    progress.failure(lineNo, Protocol.ERR_INVALID_ROW);
+                    continue;
+                }
+                if (rows == Protocol.BULK_IMPORT_MAX_ROWS || (rows > 0 && request.length() + record.length() >= BULK_IMPORT_MAX_REQUEST_CHARS)) {
+                    window.add(request.toString());
+                    windowLines.add(Arrays.copyOf(lines, rows));
+                    if (window.size() == BULK_IMPORT_WINDOW) sendBulkImportWindow(server, window, windowLines, progress);
+                    request.setLength(0);
+                    rows = 0;
+                }
+                if (rows == 0) request.append(Protocol.CMD_ADMIN).append(Protocol.SEPARATOR).append(Protocol.SUB_CMD_BULK_IMPORT);
+                request.append(Protocol.SEPARATOR).append(record);
+                lines[rows++] = lineNo;
+            }
+            if (rows > 0) {
+                window.add(request.toString());
+                windowLines.add(Arrays.copyOf(lines, rows));
+            }
+            if (!window.isEmpty()) sendBulkImportWindow(server, window, windowLines, progress);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (progress.failed > BULK_IMPORT_MAX_REPORTED_FAILURES) {
+            System.out.println("  ... and " + (progress.failed - BULK_IMPORT_MAX_REPORTED_FAILURES) + " more failed row(s).");
+        }
+        System.out.println("Bulk import completed: " + progress.imported + " imported, " + progress.failed + " failed, " +
+                progress.requests + " request(s) in " + elapsedMs + " ms" +
+                (elapsedMs > 0 ? String.format(" (%.0f rows/s).", progress.imported * 1000.0 / elapsedMs) : "."));
+    }
+
+    private static void sendBulkImportWindow(ServerConnection server, List<String> window, List<int[]> windowLines,
+                                             BulkImportProgress progress) throws IOException {
+        List<String> responses = PipelinedSender.sendAll(server, window, window.size());
+        for (int i = 0; i < responses.size(); i++) {
+            int[] lines = windowLines.get(i);
+            String[] parts = Protocol.parseMessage(responses.get(i));
+            progress.requests++;
+            if (parts.length < 5 || !Protocol.RES_OK.equals(parts[0]) || !Protocol.OK_BULK_IMPORTED.equals(parts[1])) {
+                // Całe żądanie odrzucone (np. błąd bazy) - żaden z jego wierszy nie został zaimportowany
+                System.out.println("Lines " + lines[0] + "-" + lines[lines.length - 1] + " rejected: " + formatAdminServerResponse(responses.get(i)));
+                progress.failed += lines.length;
+                continue;
+            }
+            String[] results = parts[4].split(Protocol.BULK_IMPORT_FIELD_SEPARATOR, -1);
+            for (int row = 0; row < lines.length; row++) {
+                String result = row < results.length ? results[row] : Protocol.ERR_INVALID_ROW;
+                if (result.indexOf(':') > 0) progress.imported++;
+                else progress.failure(lines[row], result);
+            }
+        }
+        window.clear();
+        windowLines.clear();
+    }
+
+    // Liczniki importu zbiorczego; wypisuje pierwsze odrzucone wiersze
+    private static final class BulkImportProgress {
+        long imported;
+        long failed;
+        long requests;
+
+        void failure(int lineNo, String reason) {
+            if (++failed <= BULK_IMPORT_MAX_REPORTED_FAILURES) {
+                System.out.println("  Line " + lineNo + ": " + reason.replace("_", " "));
+            }
+        }
+    }
+
     // Parsowanie odpowiedzi serwera
     private static String formatAdminServerResponse(String response) {
         if (response == null || response.trim().isEmpty()) return "Error: No response from server.";
@@ -249,6 +419,8 @@ public class BankerApp {
                     return "Success: Client information updated.";
                 if (Protocol.OK_CLIENT_DELETED.equals(subStatus) && parts.length > 2)
                     return "Success: Client ID " + parts[2] + " and accounts deleted.";
+                if (Protocol.OK_BULK_IMPORTED.equals(subStatus) && parts.length > 3)
+                    return "Success: Bulk import - " + parts[2] + " imported, " + parts[3] + " failed.";
                 if (Protocol.OK_ACCOUNT_DELETED.equals(subStatus) && parts.length > 2)
                     return "Success: Account " + parts[2] + " deleted.";
                 return "Success: " + subStatus.replace("_", " ");
@@ -275,6 +447,9 @@ public class BankerApp {
                 return String.format("Account Details:\n  DB ID: %s\n  Number: %s\n  Balance: %s\n  Owner (Client ID: %s):\n    Name: %s %s\n    PESEL: %s",
                         parts[1], parts[2], parts[3], parts[4], parts[5], parts[6], parts[7]);
 
+            case Protocol.RES_STATS:
+                return formatStats(parts);
+
             case Protocol.RES_ERROR:
                 if (parts.length < 2) return "Server Error: Unknown error.";
                 String errorType = parts[1].replace("_", " ");
@@ -294,4 +469,66 @@ public class BankerApp {
                 return "Raw/Unknown Server Response: " + response;
         }
     }
+
+    // Odpowiedź RES_STATS: pola nazwa=wartość; polecenia i wywołania bazy jako tabele czasów w mikrosekundach
+    private static String formatStats(String[] parts) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            if (eq > 0) values.put(parts[i].substring(0, eq), parts[i].substring(eq + 1));
+        }
+        long uptimeMs = parseLongOrZero(values.get("uptimeMs"));
+        long requests = parseLongOrZero(values.get("requests"));
+        StringBuilder sb = new StringBuilder("Server Statistics:\n");
+        sb.append(String.format("  Uptime: %ds, requests: %d (avg %.1f req/s", uptimeMs / 1000, requests,
+                uptimeMs > 0 ? requests * 1000.0 / uptimeMs : 0.0));
+        if (lastStatsUptimeMs >= 0 && uptimeMs > lastStatsUptimeMs && requests >= lastStatsRequests) {
+            sb.append(String.format(", %.1f req/s since last view", (requests - lastStatsRequests) * 1000.0 / (uptimeMs - lastStatsUptimeMs)));
+        }
+        sb.append(")\n");
+        lastStatsUptimeMs = uptimeMs;
+        lastStatsRequests = requests;
+        sb.append("  Sessions: active ").append(values.get("sessions.active"))
+                .append(", logged in ").append(values.get("sessions.loggedIn"))
+                .append(", total ").append(values.get("sessions.total")).append("\n");
+        sb.append("  Errors by type:");
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            if (e.getKey().startsWith(Protocol.STATS_ERROR_PREFIX)) {
+                sb.append(' ').append(e.getKey().substring(Protocol.STATS_ERROR_PREFIX.length())).append('=').append(e.getValue());
+            }
+        }
+        sb.append("\n  Commands (times in microseconds):\n");
+        appendStatsTable(sb, values, Protocol.STATS_COMMAND_PREFIX, true);
+        sb.append("  Database calls (times in microseconds):\n");
+        appendStatsTable(sb, values, Protocol.STATS_DB_PREFIX, false);
+        String[] locks = values.containsKey(Protocol.STATS_LOCKS) ? values.get(Protocol.STATS_LOCKS).split(",") : new String[0];
+        if (locks.length >= 6) {
+            sb.append(String.format("  Account locks: %s stripes, %s acquisitions, %s waited (mean %s, p99 %s, max %s us)%n",
+                    locks[0], locks[1], locks[2], locks[3], locks[4], locks[5]));
+        }
+        return sb.toString();
+    }
+
+    private static void appendStatsTable(StringBuilder sb, Map<String, String> values, String prefix, boolean withDbTime) {
+        sb.append(String.format("    %-34s %9s %7s %9s %9s %9s %9s %10s%s%n", "name", "count", "errors", "mean", "p50", "p99", "p99.9", "max",
+                withDbTime ? String.format(" %9s", "db mean") : ""));
+        boolean any = false;
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            if (!e.getKey().startsWith(prefix)) continue;
+            String[] v = e.getValue().split(",");
+            if (v.length < (withDbTime ? 8 : 7)) continue;
+            sb.append(String.format("    %-34s %9s %7s %9s %9s %9s %9s %10s%s%n", e.getKey().substring(prefix.length()),
+                    v[0], v[1], v[2], v[3], v[4], v[5], v[6], withDbTime ? String.format(" %9s", v[7]) : ""));
+            any = true;
+        }
+        if (!any) sb.append("    (no data yet)\n");
+    }
+
+    private static long parseLongOrZero(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 }
\ No newline at end of file
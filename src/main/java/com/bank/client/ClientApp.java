@@ -3,17 +3,22 @@ package com.bank.client; // Zgodnie z uproszczoną strukturą
 
 import com.bank.common.Protocol; // Używamy naszej nowej klasy Protocol
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class ClientApp {
     private static final String SERVER_ADDRESS = "localhost";
     private static final int SERVER_PORT = 5000;
+    private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
     private static Scanner consoleIn; // Scanner do odczytu danych od użytkownika
     private static String loggedInUserFirstName = null;
     private static int loggedInUserId = -1;
@@ -22,14 +27,13 @@ public class ClientApp {
         System.out.println("Client Terminal (TK) - Initializing...");
         consoleIn = new Scanner(System.in);
 
-        try (Socket socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-             PrintWriter serverOut = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader serverIn = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+        try (ServerConnection server = ServerConnection.open(SERVER_ADDRESS, SERVER_PORT)) {
 
-            System.out.println("Successfully connected to Bank Server at " + SERVER_ADDRESS + ":" + SERVER_PORT);
+            System.out.println("Successfully connected to Bank Server at " + SERVER_ADDRESS + ":" + SERVER_PORT +
+                    (server.isBinary() ? " (binary protocol)" : " (text protocol)"));
 
             // --- Krok Logowania ---
-            if (!performLogin(serverOut, serverIn)) {
+            if (!performLogin(server)) {
                 System.out.println("Login failed. Exiting application.");
                 return; // Zakończ, jeśli logowanie nie powiodło się
             }
@@ -48,14 +52,37 @@ public class ClientApp {
                 if ("X".equals(userInput)) { // Obsługa wyjścia/wylogowania
                     request = Protocol.buildMessage(Protocol.CMD_LOGOUT);
                     System.out.println("Sending to server: " + request);
-                    serverOut.println(request);
-                    serverResponse = serverIn.readLine();
+                    serverResponse = server.exchange(request);
                     System.out.println("Server response: " + formatUserServerResponse(serverResponse));
                     System.out.println("Exiting Client Terminal...");
                     running = false;
                     continue;
                 }
 
+                if ("5".equals(userInput)) { // Lista kont - odpowiedź strumieniowa, konto po koncie
+                    listMyAccounts(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+
+                if ("6".equals(userInput)) { // Historia konta - kolejne strony na żądanie
+                    showAccountHistory(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+
+                if ("7".equals(userInput)) { // Paczka przelewów z pliku CSV
+                    runBatchPayment(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+
+                if ("B".equals(userInput)) { // Wsadowe wysłanie żądań z pliku w potoku
+                    runBatchFile(server);
+                    System.out.println("--------------------------------------------------");
+                    continue;
+                }
+
                 switch (userInput) {
                     case "1": // Check Balance
                         request = handleCheckBalance();
@@ -69,9 +96,6 @@ public class ClientApp {
                     case "4": // Transfer Funds
                         request = handleTransfer();
                         break;
-                    case "5": // List My Accounts
-                        request = Protocol.buildMessage(Protocol.CMD_LIST_MY_ACCOUNTS); // Bez dodatkowych parametrów
-                        break;
                     default:
                         System.out.println("Invalid option. Please try again.");
                         continue;
@@ -79,8 +103,7 @@ public class ClientApp {
 
                 if (request != null) {
                     System.out.println("Sending to server: " + request);
-                    serverOut.println(request);
-                    serverResponse = serverIn.readLine();
+                    serverResponse = server.exchange(request);
                     System.out.println("Server response: " + formatUserServerResponse(serverResponse));
                 } else if (running) {
                     System.out.println("Operation cancelled or no request generated.");
@@ -133,7 +156,7 @@ public class ClientApp {
         String accNum;
         while (true) {
             accNum = promptString(message).toUpperCase();
-            if (accNum.matches("^PL\\d{26}$")) return accNum;
+            if (Protocol.isValidAccountNumber(accNum)) return accNum;
             System.out.println("Invalid Account Number format (e.g., PL01234567890123456789012345).");
         }
     }
@@ -154,7 +177,7 @@ public class ClientApp {
     }
 
     // --- Logika Logowania ---
-    private static boolean performLogin(PrintWriter serverOut, BufferedReader serverIn) throws IOException {
+    private static boolean performLogin(ServerConnection server) throws IOException {
         System.out.println("\n--- Login Required ---");
         int attempts = 0;
         while (attempts < 3) { // 3 próby logowania
@@ -163,8 +186,7 @@ public class ClientApp {
 
             String loginRequest = Protocol.buildMessage(Protocol.CMD_LOGIN, clientIdStr, password);
             // System.out.println("Sending to server: " + loginRequest); // Opcjonalny log
-            serverOut.println(loginRequest);
-            String response = serverIn.readLine();
+            String response = server.exchange(loginRequest);
             // System.out.println("Raw login response: " + response); // Opcjonalny log
 
             if (response != null) {
@@ -198,6 +220,9 @@ public class ClientApp {
         System.out.println("3. Withdraw Funds");
         System.out.println("4. Transfer Funds to Another Account");
         System.out.println("5. List My Accounts");
+        System.out.println("6. Show Account History");
+        System.out.println("7. Batch Payment from CSV File");
+        System.out.println("B. Run Batch File (pipelined)");
         System.out.println("X. Logout and Exit");
         System.out.print("Enter your choice: ");
     }
@@ -231,6 +256,137 @@ public class ClientApp {
         return Protocol.buildMessage(Protocol.CMD_TRANSFER, fromAccount, toAccount, amount);
     }
 
+    // Konta wypisywane w trakcie odczytu odpowiedzi strumieniowej - pamięć terminala nie zależy od ich liczby
+    private static void listMyAccounts(ServerConnection server) throws IOException {
+        String request = Protocol.buildMessage(Protocol.CMD_LIST_MY_ACCOUNTS, Protocol.STREAM_MARKER);
+        System.out.println("Sending to server: " + request);
+        String end = server.exchangeStream(request,
+                header -> System.out.println("Your Accounts (" + header[2] + "):"),
+                item -> System.out.println("  - " + item[1] + " (Balance: " + item[2] + ")"));
+        String[] parts = Protocol.parseMessage(end);
+        if (parts.length > 1 && Protocol.RES_STREAM_END.equals(parts[0])) {
+            if ("0".equals(parts[1])) System.out.println("Info: You have no active accounts.");
+            return;
+        }
+        System.out.println("Server response: " + formatUserServerResponse(end));
+    }
+
+    // Historia konta od najnowszych wpisów; starsze strony pobierane dopiero na żądanie użytkownika
+    private static void showAccountHistory(ServerConnection server) throws IOException {
+        String accountNumber = promptAccountNumber("Enter Account Number to show history: ");
+        String before = null;
+        while (true) {
+            String request = (before == null)
+                    ? Protocol.buildMessage(Protocol.CMD_HISTORY, accountNumber)
+                    : Protocol.buildMessage(Protocol.CMD_HISTORY, accountNumber, before);
+            String response = server.exchange(request);
+            System.out.println(formatUserServerResponse(response));
+            String[] parts = Protocol.parseMessage(response);
+            if (parts.length < 4 || !Protocol.RES_HISTORY.equals(parts[0]) || "0".equals(parts[3])) return;
+            if (!"Y".equalsIgnoreCase(promptString("Show older entries? (y/n): "))) return;
+            before = parts[3];
+        }
+    }
+
+    /**
+     * Paczka przelewów z pliku CSV (kontoŹródłowe,kontoDocelowe,kwota; puste wiersze i komentarze # są pomijane).
+     * Plik dzielony jest na żądania BATCH_TRANSFER po Protocol.BATCH_TRANSFER_MAX_ENTRIES przelewów, wysyłane w potoku;
+     * tryb "wszystko albo nic" obowiązuje w obrębie jednego żądania.
+     */
+    private static void runBatchPayment(ServerConnection server) throws IOException {
+        String path = promptString("Enter path to payment file (fromAccount,toAccount,amount per line): ");
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Path.of(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Could not read payment file: " + e.getMessage());
+            return;
+        }
+        String mode = "Y".equalsIgnoreCase(promptString("All-or-nothing (reject the whole batch if any transfer fails)? (y/n): "))
+                ? Protocol.BATCH_MODE_ATOMIC : Protocol.BATCH_MODE_BEST_EFFORT;
+        List<String> requests = new ArrayList<>();
+        List<List<Integer>> requestLines = new ArrayList<>(); // Numery linii pliku dla przelewów każdego żądania
+        StringBuilder request = new StringBuilder();
+        List<Integer> current = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String entry = lines.get(i).trim();
+            if (entry.isEmpty() || entry.startsWith("#")) continue;
+            if (entry.contains(Protocol.SEPARATOR)) {
+                System.out.println("  Line " + (i + 1) + ": skipped (contains '" + Protocol.SEPARATOR + "').");
+                continue;
+            }
+            if (current.isEmpty()) request.append(Protocol.CMD_BATCH_TRANSFER).append(Protocol.SEPARATOR).append(mode);
+            request.append(Protocol.SEPARATOR).append(entry);
+            current.add(i + 1);
+            if (current.size() == Protocol.BATCH_TRANSFER_MAX_ENTRIES) {
+                requests.add(request.toString());
+                requestLines.add(current);
+                request.setLength(0);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            requests.add(request.toString());
+            requestLines.add(current);
+        }
+        if (requests.isEmpty()) {
+            System.out.println("Payment file contains no transfers.");
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> responses = PipelinedSender.sendAll(server, requests);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int applied = 0;
+        int failed = 0;
+        for (int r = 0; r < responses.size(); r++) {
+            List<Integer> entryLines = requestLines.get(r);
+            String[] parts = Protocol.parseMessage(responses.get(r));
+            if (parts.length < 5 || !Protocol.RES_BATCH_TRANSFER.equals(parts[0])) {
+                System.out.println("Lines " + entryLines.get(0) + "-" + entryLines.get(entryLines.size() - 1) + ": " +
+                        formatUserServerResponse(responses.get(r)));
+                failed += entryLines.size();
+                continue;
+            }
+            String[] outcomes = parts[4].split(Protocol.BATCH_ENTRY_SEPARATOR, -1);
+            for (int e = 0; e < entryLines.size(); e++) {
+                String outcome = e < outcomes.length ? outcomes[e] : Protocol.ERR_INVALID_ENTRY;
+                if (Protocol.RES_OK.equals(outcome)) {
+                    applied++;
+                } else {
+                    failed++;
+                    System.out.println("  Line " + entryLines.get(e) + ": " + outcome.replace("_", " "));
+                }
+            }
+        }
+        System.out.println("Batch payment (" + mode + ") completed: " + applied + " transfer(s) applied, " + failed +
+                " not applied, " + requests.size() + " request(s) in " + elapsedMs + " ms.");
+    }
+
+    // Wsadowe wykonanie poleceń z pliku: wszystkie żądania idą w potoku, odpowiedzi są wyświetlane w kolejności
+    private static void runBatchFile(ServerConnection server) throws IOException {
+        String path = promptString("Enter path to batch file (one protocol request per line): ");
+        List<String> requests;
+        try {
+            requests = PipelinedSender.readBatchFile(path);
+        } catch (IOException e) {
+            System.out.println("Could not read batch file: " + e.getMessage());
+            return;
+        }
+        if (requests.isEmpty()) {
+            System.out.println("Batch file contains no requests.");
+            return;
+        }
+        System.out.println("Sending " + requests.size() + " request(s) pipelined...");
+        long start = System.nanoTime();
+        List<String> responses = PipelinedSender.sendAll(server, requests);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        for (int i = 0; i < requests.size(); i++) {
+            System.out.println("[" + (i + 1) + "] " + requests.get(i));
+            System.out.println("    -> " + formatUserServerResponse(responses.get(i)));
+        }
+        System.out.println("Batch completed: " + responses.size() + " response(s) in " + elapsedMs + " ms.");
+    }
+
     // Parsowanie odpowiedzi serwera
     private static String formatUserServerResponse(String response) {
         if (response == null || response.trim().isEmpty()) return "Error: No response from server.";
@@ -265,6 +421,27 @@ public class ClientApp {
                 }
                 return "Info: No accounts listed by server or malformed response.";
 
+            case Protocol.RES_HISTORY:
+                if (parts.length < 4) return "Malformed history response.";
+                if (Protocol.NO_HISTORY_MARKER.equals(parts[2])) return "Info: No history entries for account " + parts[1] + ".";
+                StringBuilder history = new StringBuilder("History of account " + parts[1] + " (newest first):\n");
+                for (String entry : parts[2].split(",")) {
+                    String[] f = entry.split(":", -1); // id:TYP:kwota:saldoPo:drugieKonto:czasMs
+                    if (f.length < 6) {
+                        history.append("  ").append(entry).append("\n");
+                        continue;
+                    }
+                    history.append(String.format("  %s  %-12s %14s  balance %14s%s%n",
+                            HISTORY_TIME.format(Instant.ofEpochMilli(Long.parseLong(f[5]))), f[1], f[2], f[3],
+                            f[4].isEmpty() ? "" : "  (" + f[4] + ")"));
+                }
+                if (!"0".equals(parts[3])) history.append("  ... older entries available");
+                return history.toString();
+
+            case Protocol.RES_BATCH_TRANSFER:
+                return parts.length > 3 ? "Batch " + parts[1] + ": " + parts[2] + " transfer(s) applied, " + parts[3] + " not applied."
+                        : "Malformed batch transfer response.";
+
             case Protocol.RES_INFO:
                 return parts.length > 2 ? "Info: " + parts[2].replace("_"," ") : (parts.length > 1 ? "Info: " + parts[1].replace("_"," ") : "Info from server.");
 
@@ -0,0 +1,87 @@
+// File: src/main/java/com/bank/client/PipelinedSender.java
+package com.bank.client; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Protocol;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wysyłanie wielu żądań w potoku (pipelining): seria linii idzie jednym zapisem, a odpowiedzi
+ * są odczytywane w tej samej kolejności. Zamiast jednego round-tripu na polecenie płacimy jeden
+ * round-trip na okno żądań - istotne dla zadań wsadowych po łączach o dużym opóźnieniu.
+ * Parowanie zakłada jedną linię odpowiedzi na żądanie, więc żądania strumieniowe (zakończone polem
+ * {@link Protocol#STREAM_MARKER}, odpowiedź wieloliniowa) nie mogą być wysyłane w potoku.
+ */
+public final class PipelinedSender {
+    // Rozmiar okna ogranicza liczbę niepotwierdzonych żądań, aby bufory gniazd po obu stronach się nie zapełniły
+    public static final int DEFAULT_WINDOW = 64;
+
+    private PipelinedSender() {
+        throw new UnsupportedOperationException("Ta klasa jest klasą narzędziową i nie można tworzyć jej instancji.");
+    }
+
+    /**
+     * Wysyła żądania w oknach po {@code window} linii i zwraca odpowiedzi w kolejności żądań.
+     * @throws IllegalArgumentException gdy któreś żądanie jest strumieniowe ({@link #isStreamRequest}).
+     * @throws IOException gdy serwer zamknie połączenie przed wysłaniem wszystkich odpowiedzi.
+     */
+    public static List<String> sendAll(ServerConnection connection, List<String> requests, int window) throws IOException {
+        if (window < 1) throw new IllegalArgumentException("Rozmiar okna musi być dodatni: " + window);
+        for (String request : requests) {
+            if (isStreamRequest(request)) throw new IllegalArgumentException("Żądanie strumieniowe nie może być wysłane w potoku: " + request);
+        }
+        List<String> responses = new ArrayList<>(requests.size());
+        int sent = 0;
+        while (sent < requests.size()) {
+            int end = Math.min(sent + window, requests.size());
+            for (int i = sent; i < end; i++) {
+                connection.send(requests.get(i));
+            }
+            connection.flush();
+            for (int i = sent; i < end; i++) {
+                String response = connection.receive();
+                if (response == null) {
+                    throw new IOException("Serwer zamknął połączenie po " + responses.size() + " z " + requests.size() + " odpowiedzi.");
+                }
+                responses.add(response);
+            }
+            sent = end;
+        }
+        return responses;
+    }
+
+    public static List<String> sendAll(ServerConnection connection, List<String> requests) throws IOException {
+        return sendAll(connection, requests, DEFAULT_WINDOW);
+    }
+
+    /** true, jeśli serwer odpowie na żądanie wieloma liniami (ostatnie pole to {@link Protocol#STREAM_MARKER}). */
+    public static boolean isStreamRequest(String request) {
+        return request.endsWith(Protocol.SEPARATOR + Protocol.STREAM_MARKER);
+    }
+
+    /**
+     * Wczytuje plik wsadowy: jedna linia protokołu na wiersz, puste wiersze i komentarze (#) są pomijane.
+     * @throws IOException także gdy plik zawiera żądanie strumieniowe - jego odpowiedź rozbiłaby parowanie potoku.
+     */
+    public static List<String> readBatchFile(String path) throws IOException {
+        List<String> requests = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(Path.of(path), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                if (isStreamRequest(trimmed)) {
+                    throw new IOException("Line " + lineNumber + ": streamed requests (" + Protocol.SEPARATOR + Protocol.STREAM_MARKER +
+                            ") cannot be sent in a batch - remove the " + Protocol.STREAM_MARKER + " field.");
+                }
+                requests.add(trimmed);
+            }
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,158 @@
+// File: src/main/java/com/bank/client/ServerConnection.java
+package com.bank.client; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.BinaryProtocol;
+import com.bank.common.Protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.function.Consumer;
+
+/**
+ * Połączenie terminala z serwerem banku, wspólne dla ClientApp i BankerApp.
+ * Aplikacje zawsze operują na liniach protokołu tekstowego; w trybie binarnym połączenie koduje je
+ * do ramek {@link BinaryProtocol} i dekoduje odpowiedzi z powrotem do linii.
+ * <p>
+ * Protokół wybiera właściwość systemowa {@code bank.protocol} ({@code text} - domyślnie, lub {@code binary}).
+ * Jeśli serwer nie potwierdzi protokołu binarnego, połączenie jest nawiązywane ponownie w trybie tekstowym.
+ */
+public class ServerConnection implements AutoCloseable {
+    public static final String PROTOCOL_PROPERTY = "bank.protocol";
+    public static final String PROTOCOL_TEXT = "text";
+    public static final String PROTOCOL_BINARY = "binary";
+    private static final int HANDSHAKE_TIMEOUT_MS = 3000;
+
+    private final Socket socket;
+    private final boolean binary;
+    // Tryb tekstowy
+    private final PrintWriter textOut;
+    private final BufferedReader textIn;
+    // Tryb binarny
+    private final BufferedOutputStream binaryOut;
+    private final DataInputStream binaryIn;
+
+    private ServerConnection(Socket socket, boolean binary) throws IOException {
+        this.socket = socket;
+        this.binary = binary;
+        if (binary) {
+            this.binaryOut = new BufferedOutputStream(socket.getOutputStream());
+            this.binaryIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.textOut = null;
+            this.textIn = null;
+        } else {
+            this.textOut = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), false);
+            this.textIn = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            this.binaryOut = null;
+            this.binaryIn = null;
+        }
+    }
+
+    /** Łączy się z serwerem protokołem wskazanym przez właściwość {@value #PROTOCOL_PROPERTY}. */
+    public static ServerConnection open(String host, int port) throws IOException {
+        return open(host, port, PROTOCOL_BINARY.equalsIgnoreCase(System.getProperty(PROTOCOL_PROPERTY, PROTOCOL_TEXT)));
+    }
+
+    public static ServerConnection open(String host, int port, boolean preferBinary) throws IOException {
+        if (preferBinary) {
+            Socket socket = new Socket(host, port);
+            try {
+                if (negotiateBinary(socket)) {
+                    return new ServerConnection(socket, true);
+                }
+            } catch (IOException e) {
+                // Serwer zamknął połączenie zamiast potwierdzić - spróbujemy protokołu tekstowego
+            }
+            socket.close();
+            System.out.println("Server did not accept the binary protocol, falling back to text protocol.");
+        }
+        return new ServerConnection(new Socket(host, port), false);
+    }
+
+    private static boolean negotiateBinary(Socket socket) throws IOException {
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS); // Serwer bez obsługi ramek czekałby na koniec linii
+        socket.getOutputStream().write(BinaryProtocol.HANDSHAKE);
+        socket.getOutputStream().flush();
+        byte[] ack = new byte[BinaryProtocol.HANDSHAKE.length];
+        new DataInputStream(socket.getInputStream()).readFully(ack);
+        socket.setSoTimeout(0);
+        return BinaryProtocol.isHandshake(ack);
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /** Buforuje żądanie bez wysyłania (do potoku); wysyłka następuje przy {@link #flush()}. */
+    public void send(String requestLine) throws IOException {
+        if (binary) {
+            binaryOut.write(BinaryProtocol.encodeFrame(Protocol.parseMessage(requestLine)));
+        } else {
+            textOut.print(requestLine);
+            textOut.print('\n'); // print zamiast println - bez autoflush po każdej linii
+        }
+    }
+
+    public void flush() throws IOException {
+        if (binary) binaryOut.flush();
+        else textOut.flush();
+    }
+
+    /** Odczytuje kolejną odpowiedź jako linię protokołu tekstowego; null, gdy serwer zamknął połączenie. */
+    public String receive() throws IOException {
+        if (!binary) return textIn.readLine();
+        String[] parts = BinaryProtocol.readFrame(binaryIn);
+        return parts == null ? null : Protocol.buildMessage(parts);
+    }
+
+    /** Wysyła jedno żądanie i czeka na odpowiedź. */
+    public String exchange(String requestLine) throws IOException {
+        send(requestLine);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Wysyła żądanie listy zakończone {@link Protocol#STREAM_MARKER} i czyta odpowiedź strumieniową linia po linii:
+     * nagłówek trafia do onHeader, każda pozycja do onItem (jako pola linii), bez składania całej listy w pamięci.
+     * @return Linia kończąca odpowiedź: znacznik końca, błąd przerywający strumień albo zwykła odpowiedź,
+     *         gdy serwer odpowiedział bez nagłówka (np. ERR_CLIENT_NOT_FOUND).
+     */
+    public String exchangeStream(String requestLine, Consumer<String[]> onHeader, Consumer<String[]> onItem) throws IOException {
+        send(requestLine);
+        flush();
+        String[] parts = receiveParts();
+        if (parts.length < 3 || !Protocol.STREAM_MARKER.equals(parts[1])) {
+            return Protocol.buildMessage(parts);
+        }
+        onHeader.accept(parts);
+        while (true) {
+            parts = receiveParts();
+            if (parts.length == 0 || !Protocol.RES_STREAM_ITEM.equals(parts[0])) {
+                return Protocol.buildMessage(parts);
+            }
+            onItem.accept(parts);
+        }
+    }
+
+    // Kolejna odpowiedź jako pola - ramka binarna bez składania linii tekstowej
+    private String[] receiveParts() throws IOException {
+        String[] parts = binary ? BinaryProtocol.readFrame(binaryIn) : Protocol.parseMessage(textIn.readLine());
+        if (parts == null || (!binary && parts.length == 0)) {
+            throw new EOFException("Server closed the connection during a streamed response.");
+        }
+        return parts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
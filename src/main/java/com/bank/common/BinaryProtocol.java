@@ -0,0 +1,365 @@
+// File: src/main/java/com/bank/common/BinaryProtocol.java
+package com.bank.common; // Zgodnie z uproszczoną strukturą
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binarna, zwarta postać wiadomości protokołu {@link Protocol}, wybierana przez klienta przy połączeniu.
+ * <p>
+ * Negocjacja: klient binarny zaraz po połączeniu wysyła {@link #HANDSHAKE}, a serwer odsyła te same bajty.
+ * Linia protokołu tekstowego nigdy nie zaczyna się bajtem 0x00, więc klienci tekstowi działają bez zmian.
+ * <p>
+ * Ramka: [u16 długość reszty ramki][u8 kod polecenia][u8 liczba pól][pola]. Kod polecenia to numer stałej
+ * protokołu z pierwszego tokenu (CMD_* lub RES_*); 0 oznacza token spoza słownika, przesłany jako pierwsze pole.
+ * Każde pole zaczyna się znacznikiem typu:
+ * <ul>
+ *   <li>CONST - 1 bajt: numer stałej protokołu (SUB_CMD_*, OK_*, ERR_* ...),</li>
+ *   <li>ACCOUNT - 13 bajtów: 26 cyfr numeru konta PL w kodzie BCD,</li>
+ *   <li>INT - 4 bajty, AMOUNT - 8 bajtów: kwota w groszach (dokładnie dwie cyfry po przecinku),</li>
+ *   <li>STRING - u16 długość + UTF-8 dla wszystkich pozostałych wartości.</li>
+ * </ul>
+ * Typy liczbowe są wybierane tylko dla kanonicznego zapisu, więc dekodowanie odtwarza dokładnie te same tokeny
+ * co {@link Protocol#parseMessage} dla odpowiadającej linii tekstowej - logika serwera jest wspólna dla obu postaci.
+ */
+public final class BinaryProtocol {
+
+    private BinaryProtocol() {
+        throw new UnsupportedOperationException("Ta klasa jest klasą narzędziową i nie można tworzyć jej instancji.");
+    }
+
+    public static final int VERSION = 1;
+    public static final byte[] HANDSHAKE = {0x00, 'B', 'K', VERSION};
+    public static final int MAX_FRAME_LENGTH = 0xFFFF; // Długość zapisana na 2 bajtach
+
+    private static final int TAG_STRING = 1;
+    private static final int TAG_CONST = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_AMOUNT = 4;
+    private static final int TAG_ACCOUNT = 5;
+
+    private static final int OPCODE_RAW = 0;
+    private static final int ACCOUNT_DIGITS = 26;
+    private static final int ACCOUNT_BYTES = ACCOUNT_DIGITS / 2;
+    private static final int MAX_FIELDS = 0xFF;
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    // Słownik stałych: numer = indeks + 1. Tylko dopisywanie na końcu - numery są częścią formatu ramki.
+    private static final String[] DICTIONARY = {
+            Protocol.CMD_LOGIN, Protocol.CMD_LOGOUT, Protocol.CMD_ADMIN, Protocol.CMD_BALANCE, Protocol.CMD_DEPOSIT,
+            Protocol.CMD_WITHDRAW, Protocol.CMD_TRANSFER, Protocol.CMD_LIST_MY_ACCOUNTS,
+            Protocol.SUB_CMD_ADD_CLIENT, Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT, Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID,
+            Protocol.SUB_CMD_GET_ACCOUNT_DETAILS, Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID, Protocol.SUB_CMD_DELETE_CLIENT,
+            Protocol.SUB_CMD_DELETE_ACCOUNT,
+            Protocol.RES_OK, Protocol.RES_ERROR, Protocol.RES_CLIENT_INFO, Protocol.RES_ACCOUNT_DETAILS,
+            Protocol.RES_BALANCE_IS, Protocol.RES_MY_ACCOUNTS, Protocol.RES_INFO,
+            Protocol.OK_LOGIN_SUCCESSFUL, Protocol.OK_LOGOUT_SUCCESSFUL, Protocol.OK_CLIENT_ADDED,
+            Protocol.OK_ACCOUNT_ADDED_TO_CLIENT, Protocol.OK_CLIENT_INFO_UPDATED, Protocol.OK_CLIENT_DELETED,
+            Protocol.OK_ACCOUNT_DELETED, Protocol.OK_DEPOSIT_SUCCESSFUL, Protocol.OK_WITHDRAWAL_SUCCESSFUL,
+            Protocol.OK_TRANSFER_SUCCESSFUL,
+            Protocol.ERR_CLIENT_NOT_FOUND, Protocol.ERR_ACCOUNT_NOT_FOUND, Protocol.ERR_UNKNOWN_COMMAND,
+            Protocol.ERR_UNKNOWN_ADMIN_SUBCOMMAND, Protocol.ERR_INSUFFICIENT_FUNDS, Protocol.ERR_AUTH_REQUIRED,
+            Protocol.ERR_SERVER_BUSY, Protocol.ERR_LOGIN_FAILED, Protocol.ERR_ALREADY_LOGGED_IN, Protocol.ERR_NOT_LOGGED_IN,
+            Protocol.ERR_PESEL_EXISTS, Protocol.ERR_PESEL_EXISTS_OTHER, Protocol.ERR_UPDATE_FAILED_GENERIC,
+            Protocol.ERR_CLIENT_DELETION_FAILED, Protocol.ERR_ACCOUNT_DELETION_FAILED, Protocol.ERR_ACCESS_DENIED,
+            Protocol.ERR_SOURCE_ACCOUNT_NOT_FOUND, Protocol.ERR_DESTINATION_ACCOUNT_NOT_FOUND,
+            Protocol.ERR_TYPE_PARAM, Protocol.ERR_TYPE_DB, Protocol.ERR_TYPE_FORMAT, Protocol.ERR_TYPE_ARG,
+            Protocol.ERR_TYPE_UNEXPECTED,
+            Protocol.INFO_NO_ACCOUNTS_FOUND, Protocol.NO_ACCOUNTS_MARKER,
+            Protocol.CMD_HISTORY, Protocol.NO_HISTORY_MARKER,
+            Protocol.SUB_CMD_BULK_IMPORT, Protocol.OK_BULK_IMPORTED, Protocol.ERR_INVALID_ROW,
+            Protocol.CMD_BATCH_TRANSFER, Protocol.BATCH_MODE_ATOMIC, Protocol.BATCH_MODE_BEST_EFFORT,
+            Protocol.ERR_INVALID_ENTRY, Protocol.BATCH_SKIPPED_MARKER,
+            Protocol.STREAM_MARKER, Protocol.RES_STREAM_ITEM, Protocol.RES_STREAM_END
+    };
+    private static final Map<String, Integer> CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < DICTIONARY.length; i++) {
+            if (CODES.put(DICTIONARY[i], i + 1) != null) {
+                throw new IllegalStateException("Powtórzona stała w słowniku protokołu binarnego: " + DICTIONARY[i]);
+            }
+        }
+    }
+
+    /** Sprawdza, czy bajty są poprawnym powitaniem klienta binarnego w obsługiwanej wersji. */
+    public static boolean isHandshake(byte[] bytes) {
+        return Arrays.equals(bytes, HANDSHAKE);
+    }
+
+    // --- Kodowanie ---
+
+    /**
+     * Koduje tokeny wiadomości (jak z {@link Protocol#parseMessage}) do pełnej ramki z prefiksem długości.
+     * @throws IllegalArgumentException gdy wiadomość nie mieści się w ramce.
+     */
+    public static byte[] encodeFrame(String... parts) {
+        if (parts.length == 0) throw new IllegalArgumentException("Pusta wiadomość nie może być zakodowana.");
+        Integer opcode = CODES.get(parts[0]);
+        int firstField = (opcode != null) ? 1 : 0;
+        int fieldCount = parts.length - firstField;
+        if (fieldCount > MAX_FIELDS) throw new IllegalArgumentException("Zbyt wiele pól w wiadomości: " + fieldCount);
+
+        FrameWriter w = new FrameWriter(64);
+        w.skip(2); // Miejsce na długość
+        w.u8(opcode != null ? opcode : OPCODE_RAW);
+        w.u8(fieldCount);
+        for (int i = firstField; i < parts.length; i++) {
+            writeField(w, parts[i]);
+        }
+        int length = w.size - 2;
+        if (length > MAX_FRAME_LENGTH) throw new IllegalArgumentException("Wiadomość przekracza maksymalny rozmiar ramki: " + length);
+        w.buf[0] = (byte) (length >>> 8);
+        w.buf[1] = (byte) length;
+        return w.size == w.buf.length ? w.buf : Arrays.copyOf(w.buf, w.size);
+    }
+
+    private static void writeField(FrameWriter w, String value) {
+        Integer code = mayBeConstant(value) ? CODES.get(value) : null;
+        if (code != null) {
+            w.u8(TAG_CONST);
+            w.u8(code);
+        } else if (isPackableAccount(value)) {
+            w.u8(TAG_ACCOUNT);
+            for (int i = 0; i < ACCOUNT_DIGITS; i += 2) {
+                w.u8(((value.charAt(2 + i) - '0') << 4) | (value.charAt(3 + i) - '0'));
+            }
+        } else {
+            long number = parseCanonicalInt(value);
+            if (number != NOT_A_NUMBER) {
+                w.u8(TAG_INT);
+                w.i32((int) number);
+                return;
+            }
+            number = parseCanonicalAmount(value);
+            if (number != NOT_A_NUMBER) {
+                w.u8(TAG_AMOUNT);
+                w.i64(number);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            if (utf8.length > MAX_FRAME_LENGTH) throw new IllegalArgumentException("Pole przekracza maksymalny rozmiar ramki.");
+            w.u8(TAG_STRING);
+            w.u16(utf8.length);
+            w.bytes(utf8);
+        }
+    }
+
+    // Stałe protokołu to wielkie litery i '_' - tańszy test przed wyszukaniem w słowniku
+    private static boolean mayBeConstant(String s) {
+        return s.length() >= 2 && s.charAt(0) >= 'A' && s.charAt(0) <= 'Z';
+    }
+
+    private static boolean isPackableAccount(String s) {
+        if (s.length() != 2 + ACCOUNT_DIGITS || s.charAt(0) != 'P' || s.charAt(1) != 'L') return false;
+        for (int i = 2; i < s.length(); i++) {
+            if (!isDigit(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // Wartość int, jeśli Integer.toString odtworzy zapis bez zmian (bez zer wiodących, "+" i "-0"); inaczej NOT_A_NUMBER
+    private static long parseCanonicalInt(String s) {
+        int start = (!s.isEmpty() && s.charAt(0) == '-') ? 1 : 0;
+        int digits = s.length() - start;
+        if (digits < 1 || digits > 10 || (s.charAt(start) == '0' && (digits > 1 || start == 1))) return NOT_A_NUMBER;
+        long v = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return NOT_A_NUMBER;
+            v = v * 10 + (c - '0');
+        }
+        if (start == 1) v = -v;
+        return (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) ? v : NOT_A_NUMBER;
+    }
+
+    // Kwota w groszach dla zapisu z dokładnie dwiema cyframi po kropce, np. 0.50, 1234.00, -12.34 (bez "-0.00")
+    private static long parseCanonicalAmount(String s) {
+        int start = (!s.isEmpty() && s.charAt(0) == '-') ? 1 : 0;
+        int dot = s.length() - 3;
+        if (dot <= start || s.charAt(dot) != '.' || dot - start > 16) return NOT_A_NUMBER;
+        if (s.charAt(start) == '0' && dot - start > 1) return NOT_A_NUMBER;
+        long v = 0;
+        for (int i = start; i < s.length(); i++) {
+            if (i == dot) continue;
+            char c = s.charAt(i);
+            if (!isDigit(c)) return NOT_A_NUMBER;
+            v = v * 10 + (c - '0');
+        }
+        if (start == 1) {
+            if (v == 0) return NOT_A_NUMBER;
+            v = -v;
+        }
+        return v;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // --- Dekodowanie ---
+
+    /**
+     * Odczytuje jedną ramkę ze strumienia i zwraca jej tokeny.
+     * @return Tokeny wiadomości lub null, gdy strumień zakończył się przed początkiem ramki.
+     * @throws IOException przy błędzie odczytu lub strumieniu urwanym w środku ramki.
+     */
+    public static String[] readFrame(DataInputStream in) throws IOException {
+        int hi = in.read();
+        if (hi < 0) return null;
+        int lo = in.read();
+        if (lo < 0) throw new EOFException("Połączenie zamknięte w środku ramki.");
+        byte[] payload = new byte[(hi << 8) | lo];
+        in.readFully(payload);
+        return decodePayload(payload, 0, payload.length);
+    }
+
+    /**
+     * Dekoduje zawartość ramki (bez 2-bajtowego prefiksu długości) do tokenów wiadomości.
+     * @throws IllegalArgumentException gdy ramka jest uszkodzona.
+     */
+    public static String[] decodePayload(byte[] buf, int offset, int length) {
+        int end = offset + length;
+        int pos = offset;
+        if (length < 2) throw new IllegalArgumentException("Ramka jest zbyt krótka.");
+        int opcode = buf[pos++] & 0xFF;
+        int fieldCount = buf[pos++] & 0xFF;
+        int firstField = (opcode == OPCODE_RAW) ? 0 : 1;
+        String[] parts = new String[firstField + fieldCount];
+        if (firstField == 1) parts[0] = constant(opcode);
+        for (int i = firstField; i < parts.length; i++) {
+            if (pos >= end) throw new IllegalArgumentException("Ramka zawiera mniej pól niż zadeklarowano.");
+            int tag = buf[pos++] & 0xFF;
+            switch (tag) {
+                case TAG_CONST:
+                    require(pos + 1, end);
+                    parts[i] = constant(buf[pos++] & 0xFF);
+                    break;
+                case TAG_ACCOUNT: {
+                    require(pos + ACCOUNT_BYTES, end);
+                    byte[] ascii = new byte[2 + ACCOUNT_DIGITS];
+                    ascii[0] = 'P';
+                    ascii[1] = 'L';
+                    for (int d = 0; d < ACCOUNT_BYTES; d++) {
+                        int b = buf[pos++] & 0xFF;
+                        int high = b >>> 4, low = b & 0x0F;
+                        if (high > 9 || low > 9) throw new IllegalArgumentException("Nieprawidłowa cyfra BCD w numerze konta.");
+                        ascii[2 + 2 * d] = (byte) ('0' + high);
+                        ascii[3 + 2 * d] = (byte) ('0' + low);
+                    }
+                    parts[i] = new String(ascii, StandardCharsets.ISO_8859_1);
+                    break;
+                }
+                case TAG_INT:
+                    require(pos + 4, end);
+                    parts[i] = Integer.toString(readInt(buf, pos));
+                    pos += 4;
+                    break;
+                case TAG_AMOUNT:
+                    require(pos + 8, end);
+                    long units = ((long) readInt(buf, pos) << 32) | (readInt(buf, pos + 4) & 0xFFFFFFFFL);
+                    if (units == Long.MIN_VALUE) throw new IllegalArgumentException("Kwota poza zakresem.");
+                    parts[i] = formatAmount(units);
+                    pos += 8;
+                    break;
+                case TAG_STRING: {
+                    require(pos + 2, end);
+                    int len = ((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF);
+                    pos += 2;
+                    require(pos + len, end);
+                    parts[i] = new String(buf, pos, len, StandardCharsets.UTF_8);
+                    pos += len;
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Nieznany typ pola w ramce: " + tag);
+            }
+        }
+        if (pos != end) throw new IllegalArgumentException("Nadmiarowe bajty na końcu ramki.");
+        return parts;
+    }
+
+    private static String constant(int code) {
+        if (code < 1 || code > DICTIONARY.length) throw new IllegalArgumentException("Nieznany kod stałej protokołu: " + code);
+        return DICTIONARY[code - 1];
+    }
+
+    private static void require(int needed, int end) {
+        if (needed > end) throw new IllegalArgumentException("Ramka jest ucięta.");
+    }
+
+    private static int readInt(byte[] buf, int pos) {
+        return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+    }
+
+    private static String formatAmount(long units) {
+        byte[] ascii = new byte[21]; // Znak + 19 cyfr + kropka
+        int pos = ascii.length;
+        long abs = Math.abs(units); // Long.MIN_VALUE odrzucany przy dekodowaniu
+        for (int d = 0; d < 2; d++) {
+            ascii[--pos] = (byte) ('0' + abs % 10);
+            abs /= 10;
+        }
+        ascii[--pos] = '.';
+        do {
+            ascii[--pos] = (byte) ('0' + abs % 10);
+            abs /= 10;
+        } while (abs > 0);
+        if (units < 0) ascii[--pos] = '-';
+        return new String(ascii, pos, ascii.length - pos, StandardCharsets.ISO_8859_1);
+    }
+
+    // Prosty, rosnący bufor bajtów dla jednej ramki
+    private static final class FrameWriter {
+        byte[] buf;
+        int size;
+
+        FrameWriter(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+
+        void skip(int n) {
+            ensure(n);
+            size += n;
+        }
+
+        void u8(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+        }
+
+        void u16(int v) {
+            ensure(2);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void i32(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void i64(long v) {
+            i32((int) (v >>> 32));
+            i32((int) v);
+        }
+
+        void bytes(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+    }
+}
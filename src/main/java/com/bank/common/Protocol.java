@@ -4,6 +4,10 @@ package com.bank.common; // Zgodnie z uproszczoną strukturą
 /**
  * Klasa przechowująca stałe związane z protokołem komunikacyjnym
  * klient-serwer oraz potencjalnie proste metody pomocnicze.
+ * <p>
+ * Protokół jest liniowy: jedna linia żądania, jedna linia odpowiedzi. Obsługiwany jest pipelining -
+ * klient może wysłać wiele linii żądań bez czekania na odpowiedzi, a serwer odpowiada na nie
+ * ściśle w kolejności nadejścia w ramach jednego połączenia.
  */
 public final class Protocol {
 
@@ -23,16 +27,34 @@ public final class Protocol {
     public static final String CMD_DEPOSIT = "DEPOSIT";
     public static final String CMD_WITHDRAW = "WITHDRAW";
     public static final String CMD_TRANSFER = "TRANSFER";
+    /** LIST_MY_ACCOUNTS[;STREAM] - lista kont zalogowanego klienta; z STREAM_MARKER odpowiedź strumieniowa (patrz RES_STREAM_ITEM). */
     public static final String CMD_LIST_MY_ACCOUNTS = "LIST_MY_ACCOUNTS";
+    /** HISTORY;numerKonta[;przedWpisem[;rozmiarStrony]] - strona historii konta od najnowszych wpisów (odpowiedź RES_HISTORY). */
+    public static final String CMD_HISTORY = "HISTORY";
+    /**
+     * BATCH_TRANSFER;tryb;przelew;przelew;... - paczka przelewów z kont zalogowanego klienta. tryb to
+     * BATCH_MODE_ATOMIC (wszystko albo nic) lub BATCH_MODE_BEST_EFFORT (nieudane przelewy są pomijane),
+     * każdy przelew to kontoŹródłowe,kontoDocelowe,kwota. Odpowiedź RES_BATCH_TRANSFER.
+     */
+    public static final String CMD_BATCH_TRANSFER = "BATCH_TRANSFER";
 
     // --- Podpolecenia Administracyjne (używane jako drugi token po CMD_ADMIN) ---
     public static final String SUB_CMD_ADD_CLIENT = "ADD_CLIENT";
     public static final String SUB_CMD_ADD_ACCOUNT_TO_CLIENT = "ADD_ACCOUNT_TO_CLIENT";
+    /** ADMIN;GET_CLIENT_INFO_BY_ID;clientId[;STREAM] - dane klienta z kontami; z STREAM_MARKER odpowiedź strumieniowa. */
     public static final String SUB_CMD_GET_CLIENT_INFO_BY_ID = "GET_CLIENT_INFO_BY_ID";
     public static final String SUB_CMD_GET_ACCOUNT_DETAILS = "GET_ACCOUNT_DETAILS";
     public static final String SUB_CMD_UPDATE_CLIENT_INFO_BY_ID = "UPDATE_CLIENT_INFO_BY_ID";
     public static final String SUB_CMD_DELETE_CLIENT = "DELETE_CLIENT";
     public static final String SUB_CMD_DELETE_ACCOUNT = "DELETE_ACCOUNT";
+    public static final String SUB_CMD_STATS = "STATS"; // Metryki serwera (odpowiedź RES_STATS)
+    /**
+     * Import zbiorczy: ADMIN;BULK_IMPORT;wiersz;wiersz;... - każde pole to jeden rekord CSV
+     * imię,nazwisko,pesel,saldoPoczątkowe,hasło (hasło to reszta rekordu, może zawierać przecinki).
+     * Odpowiedź: OK;BULK_IMPORTED;zaimportowane;odrzucone;wyniki - wyniki w kolejności wierszy, rozdzielone
+     * przecinkami, każdy w postaci idKlienta:numerKonta albo kod błędu (ERR_PESEL_EXISTS, ERR_INVALID_ROW).
+     */
+    public static final String SUB_CMD_BULK_IMPORT = "BULK_IMPORT";
 
     // --- Prefiksy / Statusy Odpowiedzi Serwera ---
     public static final String RES_OK = "OK";                       // Ogólny wskaźnik sukcesu
@@ -42,6 +64,42 @@ public final class Protocol {
     public static final String RES_BALANCE_IS = "BALANCE_IS";       // Klient: Odpowiedź z saldem konta
     public static final String RES_MY_ACCOUNTS = "MY_ACCOUNTS";     // Klient: Odpowiedź listująca konta klienta
     public static final String RES_INFO = "INFO";                   // Generyczna wiadomość informacyjna od serwera
+    /**
+     * Klient: strona historii konta - HISTORY;numerKonta;wpisy;następnaStrona. Wpisy od najnowszego, rozdzielone
+     * przecinkami, każdy w postaci id:TYP:kwota:saldoPo:drugieKonto:czasMs (kwota ze znakiem, drugie konto puste
+     * poza przelewami) albo NO_HISTORY_MARKER. następnaStrona to wartość przedWpisem dla kolejnego żądania,
+     * 0 - brak starszych wpisów.
+     */
+    public static final String RES_HISTORY = CMD_HISTORY;
+    /**
+     * Klient: wynik paczki przelewów - BATCH_TRANSFER;tryb;wykonane;nieudane;wyniki. Wyniki w kolejności przelewów,
+     * rozdzielone przecinkami: RES_OK, kod błędu przelewu (ERR_SOURCE_ACCOUNT_NOT_FOUND, ERR_DESTINATION_ACCOUNT_NOT_FOUND,
+     * ERR_ACCESS_DENIED, ERR_INSUFFICIENT_FUNDS), ERR_INVALID_ENTRY albo BATCH_SKIPPED_MARKER (poprawny przelew
+     * paczki ATOMIC wycofanej przez inny).
+     */
+    public static final String RES_BATCH_TRANSFER = CMD_BATCH_TRANSFER;
+    /**
+     * Odpowiedź strumieniowa listy kont (żądanie zakończone polem STREAM_MARKER) - wiele linii (ramek) zamiast jednej:
+     * <ul>
+     *   <li>nagłówek: MY_ACCOUNTS;STREAM;liczba albo CLIENT_INFO;STREAM;liczba;id;imię;nazwisko;pesel,</li>
+     *   <li>po jednej linii na konto: ITEM;numerKonta;saldo,</li>
+     *   <li>znacznik końca RES_STREAM_END;wysłane - liczba faktycznie wysłanych pozycji (liczba z nagłówka to stan
+     *       z chwili rozpoczęcia odczytu i może się od niej różnić, gdy konta zmieniają się w trakcie).</li>
+     * </ul>
+     * Błąd w trakcie strumienia kończy go linią RES_ERROR zamiast znacznika końca. Błąd przed nagłówkiem
+     * (np. ERR_CLIENT_NOT_FOUND) to zwykła jednoliniowa odpowiedź. Żądań strumieniowych nie należy wysyłać w potoku
+     * razem z innymi - liczba linii odpowiedzi nie jest znana z góry.
+     */
+    public static final String RES_STREAM_ITEM = "ITEM";
+    public static final String RES_STREAM_END = "END";
+    /**
+     * Admin: metryki serwera. Każde pole po statusie ma postać nazwa=wartość:
+     * uptimeMs, requests, sessions.active, sessions.loggedIn, sessions.total, error.TYP (dla każdego ERR_TYPE_*),
+     * cmd.POLECENIE=liczba,błędy,średnia,p50,p99,p99.9,max,średni czas bazy oraz
+     * db.OPERACJA=liczba,błędy,średnia,p50,p99,p99.9,max, a gdy magazyn używa blokad kont także
+     * locks=paski,pobrania,oczekiwania,średnie oczekiwanie,p99,max. Czasy w mikrosekundach.
+     */
+    public static final String RES_STATS = "STATS";
 
     // --- Szczegółowe Pod-Statusy OK (zazwyczaj parts[1] po RES_OK) ---
     public static final String OK_LOGIN_SUCCESSFUL = "LOGIN_SUCCESSFUL";
@@ -54,6 +112,7 @@ public final class Protocol {
     public static final String OK_DEPOSIT_SUCCESSFUL = "DEPOSIT_SUCCESSFUL";
     public static final String OK_WITHDRAWAL_SUCCESSFUL = "WITHDRAWAL_SUCCESSFUL";
     public static final String OK_TRANSFER_SUCCESSFUL = "TRANSFER_SUCCESSFUL";
+    public static final String OK_BULK_IMPORTED = "BULK_IMPORTED";
 
     // --- Statusy Błędów Najwyższego Poziomu lub Pod-Statusy ---
     public static final String ERR_CLIENT_NOT_FOUND = "CLIENT_NOT_FOUND";
@@ -62,6 +121,8 @@ public final class Protocol {
     public static final String ERR_UNKNOWN_ADMIN_SUBCOMMAND = "UNKNOWN_ADMIN_SUBCOMMAND";
     public static final String ERR_INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
     public static final String ERR_AUTH_REQUIRED = "AUTH_REQUIRED"; // Klient musi się najpierw zalogować
+    public static final String ERR_SERVER_BUSY = "SERVER_BUSY"; // Osiągnięto limit jednoczesnych sesji serwera
+    public static final String ERR_RESPONSE_TOO_LARGE = "RESPONSE_TOO_LARGE"; // Odpowiedź nie mieści się w ramce binarnej - użyj formy STREAM
 
     // --- Szczegółowe Pod-Statusy Błędów (zazwyczaj parts[1] po RES_ERROR lub jako część szczegółów) ---
     public static final String ERR_LOGIN_FAILED = "LOGIN_FAILED";
@@ -75,6 +136,8 @@ public final class Protocol {
     public static final String ERR_ACCESS_DENIED = "ACCESS_DENIED";
     public static final String ERR_SOURCE_ACCOUNT_NOT_FOUND = "SOURCE_ACCOUNT_NOT_FOUND";
     public static final String ERR_DESTINATION_ACCOUNT_NOT_FOUND = "DESTINATION_ACCOUNT_NOT_FOUND";
+    public static final String ERR_INVALID_ROW = "INVALID_ROW"; // Wynik wiersza importu zbiorczego z błędnym formatem pól
+    public static final String ERR_INVALID_ENTRY = "INVALID_ENTRY"; // Wynik przelewu paczki z błędnym formatem pól
 
     // --- Wewnętrzne Typy Błędów Po Stronie Serwera (używane ze strukturą RES_ERROR;TYP;wiadomość) ---
     // Te mogą być mniej istotne dla klas klienckich, ale ClientHandler ich używa.
@@ -84,9 +147,32 @@ public final class Protocol {
     public static final String ERR_TYPE_ARG = "ARG";             // Nielegalny argument przekazany do metody
     public static final String ERR_TYPE_UNEXPECTED = "UNEXPECTED"; // Ogólny, nieoczekiwany błąd serwera
 
+    // --- Prefiksy nazw pól odpowiedzi RES_STATS ---
+    public static final String STATS_ERROR_PREFIX = "error.";
+    public static final String STATS_COMMAND_PREFIX = "cmd.";
+    public static final String STATS_DB_PREFIX = "db.";
+    public static final String STATS_LOCKS = "locks";
+
     // --- Markery i Pod-statusy Informacyjne ---
     public static final String INFO_NO_ACCOUNTS_FOUND = "NO_ACCOUNTS_FOUND";
     public static final String NO_ACCOUNTS_MARKER = "NO_ACCOUNTS"; // Marker w odpowiedzi adminGetClientInfoById
+    public static final String NO_HISTORY_MARKER = "NO_ENTRIES";   // Marker pustej strony w odpowiedzi RES_HISTORY
+    public static final String BATCH_SKIPPED_MARKER = "SKIPPED";   // Przelew niewykonany, bo paczka ATOMIC została wycofana
+    public static final String STREAM_MARKER = "STREAM";           // Ostatnie pole żądania listy / drugie pole nagłówka strumienia
+
+    // --- Stronicowanie historii (CMD_HISTORY) ---
+    public static final int HISTORY_DEFAULT_PAGE_SIZE = 50;
+    public static final int HISTORY_MAX_PAGE_SIZE = 200; // Pełna strona mieści się w jednej ramce protokołu binarnego
+
+    // --- Import zbiorczy (SUB_CMD_BULK_IMPORT) ---
+    public static final String BULK_IMPORT_FIELD_SEPARATOR = ",";
+    public static final int BULK_IMPORT_MAX_ROWS = 200; // Wiersze jednego żądania: mieści się w limicie pól ramki binarnej
+
+    // --- Paczki przelewów (CMD_BATCH_TRANSFER) ---
+    public static final String BATCH_MODE_ATOMIC = "ATOMIC";
+    public static final String BATCH_MODE_BEST_EFFORT = "BEST_EFFORT";
+    public static final String BATCH_ENTRY_SEPARATOR = ",";
+    public static final int BATCH_TRANSFER_MAX_ENTRIES = 200; // Jak BULK_IMPORT_MAX_ROWS - limit pól ramki binarnej
 
     // --- Metody Pomocnicze (Opcjonalne - można je dodać, jeśli chcemy unikać String.join/split w wielu miejscach) ---
 
@@ -110,4 +196,50 @@ public final class Protocol {
         }
         return message.split(SEPARATOR, -1); // -1 aby uwzględnić puste tokeny na końcu
     }
+
+    // --- Walidatory (ręczne odpowiedniki wyrażeń regularnych, bez alokacji) ---
+
+    public static final int PESEL_LENGTH = 11;
+    public static final int ACCOUNT_NUMBER_LENGTH = 28; // "PL" + 26 cyfr
+
+    /** Odpowiednik {@code value.matches("\\d{11}")}. */
+    public static boolean isValidPesel(CharSequence value) {
+        return value != null && value.length() == PESEL_LENGTH && allDigits(value, 0, PESEL_LENGTH);
+    }
+
+    /** Odpowiednik {@code value.toUpperCase().matches("^PL\\d{26}$")} - prefiks kraju bez względu na wielkość liter. */
+    public static boolean isValidAccountNumber(CharSequence value) {
+        return value != null && value.length() == ACCOUNT_NUMBER_LENGTH
+                && (value.charAt(0) | 0x20) == 'p' && (value.charAt(1) | 0x20) == 'l'
+                && allDigits(value, 2, ACCOUNT_NUMBER_LENGTH);
+    }
+
+    /** Wariant dla fragmentu bufora znaków [from, to). */
+    public static boolean isValidPesel(char[] buf, int from, int to) {
+        if (to - from != PESEL_LENGTH) return false;
+        for (int i = from; i < to; i++) {
+            if (buf[i] < '0' || buf[i] > '9') return false;
+        }
+        return true;
+    }
+
+    /** Wariant dla fragmentu bufora znaków [from, to). */
+    public static boolean isValidAccountNumber(char[] buf, int from, int to) {
+        if (to - from != ACCOUNT_NUMBER_LENGTH
+                || (buf[from] | 0x20) != 'p' || (buf[from + 1] | 0x20) != 'l') {
+            return false;
+        }
+        for (int i = from + 2; i < to; i++) {
+            if (buf[i] < '0' || buf[i] > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean allDigits(CharSequence value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
 }
\ No newline at end of file
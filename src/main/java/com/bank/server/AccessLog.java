@@ -0,0 +1,87 @@
+// File: src/main/java/com/bank/server/AccessLog.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.time.Instant;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Dziennik dostępu: jedna zwięzła linia na obsłużone żądanie, oddzielnie od logu diagnostycznego serwera.
+ * <pre>
+ * 2026-01-15T10:32:07.118Z /127.0.0.1:51234 user=17 TRANSFER OK:TRANSFER_SUCCESSFUL 3.412ms
+ * </pre>
+ * Linia zawiera adres klienta, zalogowanego użytkownika (lub "-"), polecenie (dla ADMIN także podpolecenie),
+ * status odpowiedzi i czas przetwarzania żądania w sesji. Parametry żądania (hasła, kwoty) nie są zapisywane.
+ * Dopóki {@link #install(Handler)} nie zostanie wywołane, dziennik jest wyłączony i rekordy nie są tworzone.
+ */
+public final class AccessLog {
+    public static final String LOGGER_NAME = "com.bank.server.access";
+
+    private static final Logger logger = Logger.getLogger(LOGGER_NAME);
+
+    static {
+        logger.setUseParentHandlers(false); // Linie dostępu nie trafiają do logu diagnostycznego
+        logger.setLevel(Level.OFF);
+    }
+
+    private AccessLog() {
+        throw new UnsupportedOperationException("Ta klasa jest klasą narzędziową i nie można tworzyć jej instancji.");
+    }
+
+    /** Format linii dziennika dostępu - do ustawienia na handlerze zapisującym (np. FileHandler). */
+    public static Formatter formatter() {
+        return new LineFormatter();
+    }
+
+    /** Włącza dziennik dostępu z podanym handlerem. */
+    public static void install(Handler handler) {
+        logger.addHandler(handler);
+        logger.setLevel(Level.INFO);
+    }
+
+    public static boolean isEnabled() {
+        return logger.isLoggable(Level.INFO);
+    }
+
+    /**
+     * Zapisuje linię dziennika. Formatowanie następuje dopiero w handlerze (przy AsyncLogHandler - w wątku w tle).
+     * @param subCommand Podpolecenie ADMIN lub null.
+     * @param detail     Pod-status odpowiedzi (drugie pole po OK/ERROR/INFO) lub null.
+     */
+    public static void record(String clientAddress, int userId, String command, String subCommand,
+                              String status, String detail, long latencyNanos) {
+        LogRecord record = new LogRecord(Level.INFO, null);
+        record.setLoggerName(LOGGER_NAME);
+        record.setSourceClassName(AccessLog.class.getName()); // Bez kosztownego ustalania miejsca wywołania
+        record.setSourceMethodName("record");
+        record.setParameters(new Object[]{clientAddress, userId, command, subCommand, status, detail, latencyNanos});
+        logger.log(record);
+    }
+
+    /** Format linii dziennika dostępu. */
+    static final class LineFormatter extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            Object[] p = record.getParameters();
+            StringBuilder sb = new StringBuilder(128);
+            sb.append(Instant.ofEpochMilli(record.getMillis())).append(' ').append(p[0]).append(' ');
+            int userId = (Integer) p[1];
+            sb.append("user=");
+            if (userId > 0) sb.append(userId);
+            else sb.append('-');
+            sb.append(' ').append(p[2]);
+            if (p[3] != null) sb.append(' ').append(p[3]);
+            sb.append(' ').append(p[4]);
+            if (p[5] != null) sb.append(':').append(p[5]);
+            long nanos = (Long) p[6];
+            sb.append(' ').append(nanos / 1_000_000).append('.');
+            String micros = String.valueOf((nanos / 1_000) % 1_000);
+            for (int i = micros.length(); i < 3; i++) sb.append('0');
+            sb.append(micros).append("ms").append(System.lineSeparator());
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// File: src/main/java/com/bank/server/AccountCache.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pamięć podręczna kont w procesie serwera: konta według numeru oraz indeks numerów kont według klienta.
+ * Każda zmiana salda przechodzi przez cache (write-through), a dodanie/usunięcie konta unieważnia indeks klienta.
+ * Zwracane obiekty Account są kopiami - modyfikacja ich nie wpływa na zawartość cache.
+ */
+public class AccountCache {
+    private final BoundedCache<String, Account> accounts;
+    private final BoundedCache<Integer, List<String>> clientIndex;
+
+    public AccountCache(int maxAccounts, int maxClients) {
+        this.accounts = new BoundedCache<>("accountCache", maxAccounts);
+        this.clientIndex = new BoundedCache<>("clientAccountIndex", maxClients);
+    }
+
+    // --- Odczyt ---
+
+    public Account getAccount(String accountNumber) {
+        Account cached = accounts.get(accountNumber);
+        return cached == null ? null : copy(cached);
+    }
+
+    /** Konto z cache bez liczenia trafień - stan sprzed zmiany potrzebny do write-through. */
+    public Account peekAccount(String accountNumber) {
+        return accounts.peek(accountNumber);
+    }
+
+    /** Lista kont klienta z cache lub null, jeśli indeks lub któreś z kont nie jest w cache. */
+    public List<Account> getClientAccounts(int clientId) {
+        List<String> numbers = clientIndex.get(clientId);
+        if (numbers == null) return null;
+        List<Account> result = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            Account acc = accounts.get(number);
+            if (acc == null) return null; // Niepełne dane - odczyt z bazy uzupełni cache
+            result.add(copy(acc));
+        }
+        return result;
+    }
+
+    public long readEpoch() {
+        return accounts.readEpoch();
+    }
+
+    public long indexReadEpoch() {
+        return clientIndex.readEpoch();
+    }
+
+    /** Zapamiętuje konto odczytane z bazy (o ile nie zmieniło się od epoki odczytu). */
+    public void putAccount(Account account, long epoch) {
+        accounts.putIfUnchanged(account.getAccountNumber(), copy(account), epoch);
+    }
+
+    /** Zapamiętuje pełną listę kont klienta odczytaną z bazy. */
+    public void putClientAccounts(int clientId, List<Account> clientAccounts, long accountEpoch, long indexEpoch) {
+        List<String> numbers = new ArrayList<>(clientAccounts.size());
+        for (Account acc : clientAccounts) {
+            numbers.add(acc.getAccountNumber());
+            accounts.putIfUnchanged(acc.getAccountNumber(), copy(acc), accountEpoch);
+        }
+        clientIndex.putIfUnchanged(clientId, Collections.unmodifiableList(numbers), indexEpoch);
+    }
+
+    // --- Zapis (write-through) ---
+
+    /** Rozpoczyna zmianę salda konta. Token należy przekazać do endBalanceWrite. */
+    public long beginBalanceWrite(String accountNumber) {
+        // Stan sprzed zmiany (peekAccount) trzeba pobrać przed beginWrite - w trakcie zapisu wpis jest pusty
+        return accounts.beginWrite(accountNumber);
+    }
+
+    /**
+     * Kończy zmianę salda. Jeśli znamy konto (id i właściciela), nowy stan trafia do cache;
+     * w przeciwnym razie lub przy niepowodzeniu wpis jest unieważniany.
+     * @param known Stan konta sprzed zmiany (może być null).
+     * @param newBalance Nowe saldo lub null, jeśli zmiana się nie powiodła albo saldo jest nieznane.
+     */
+    public void endBalanceWrite(String accountNumber, long token, Account known, BigDecimal newBalance) {
+        Account updated = (known != null && newBalance != null)
+                ? new Account(known.getId(), known.getClientId(), accountNumber, newBalance)
+                : null;
+        accounts.endWrite(accountNumber, token, updated);
+    }
+
+    /** Nowe konto klienta: zapamiętuje je i unieważnia indeks klienta (lista się zmieniła). */
+    public void accountAdded(Account account) {
+        clientIndex.invalidate(account.getClientId());
+        long token = accounts.beginWrite(account.getAccountNumber());
+        accounts.endWrite(account.getAccountNumber(), token, copy(account));
+    }
+
+    /** Usunięte konto: usuwa je z cache i unieważnia indeksy, które je zawierały. */
+    public void accountDeleted(String accountNumber, Integer ownerClientIdOrNull) {
+        accounts.invalidate(accountNumber);
+        if (ownerClientIdOrNull != null) {
+            clientIndex.invalidate(ownerClientIdOrNull);
+        } else {
+            clientIndex.invalidateIf(numbers -> numbers.contains(accountNumber));
+        }
+    }
+
+    /** Usunięty klient (kaskadowo z kontami): czyści indeks i wszystkie jego konta. */
+    public void clientDeleted(int clientId) {
+        clientIndex.invalidate(clientId);
+        accounts.invalidateIf(acc -> acc.getClientId() == clientId);
+    }
+
+    public BoundedCache<String, Account> getAccountsCache() {
+        return accounts;
+    }
+
+    public BoundedCache<Integer, List<String>> getClientIndexCache() {
+        return clientIndex;
+    }
+
+    public String statsSummary() {
+        return accounts.statsSummary() + " " + clientIndex.statsSummary();
+    }
+
+    private static Account copy(Account a) {
+        return new Account(a.getId(), a.getClientId(), a.getAccountNumber(), a.getBalance());
+    }
+}
@@ -0,0 +1,110 @@
+// File: src/main/java/com/bank/server/AccountLedger.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Historia operacji kont w tabeli account_ledger (schemat: setup_bankdb.sql).
+ * <ul>
+ *   <li>wpisy dopisywane są na połączeniu i w transakcji operacji, która zmienia saldo (DBManager,
+ *       {@link TransferEngine}, {@link BalanceWriteBatcher}) - wpis istnieje wtedy i tylko wtedy, gdy zmiana
+ *       salda została zatwierdzona,</li>
+ *   <li>odczyt idzie stronami po kluczu: WHERE id &lt; ? ORDER BY id DESC LIMIT ? na indeksie
+ *       (account_number, id), więc koszt strony nie zależy od tego, jak daleko w historii leży - w przeciwieństwie
+ *       do OFFSET, który musi przejść wszystkie pominięte wiersze,</li>
+ *   <li>wiersze strony pobierane są z bazy porcjami fetchSize i przekazywane do odbiorcy w trakcie odczytu -
+ *       serwer nigdy nie trzyma w pamięci więcej niż jedną stronę.</li>
+ * </ul>
+ * Uwaga: sterownik MySQL domyślnie wczytuje cały wynik zapytania naraz; porcje fetchSize wymagają
+ * useCursorFetch=true w db.url. Rozmiar strony i tak ogranicza wynik, więc bez tej opcji rośnie tylko
+ * chwilowe zużycie pamięci na jedną stronę.
+ */
+public class AccountLedger {
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
+    private final ConnectionPool pool;
+    private final int fetchSize;
+
+    // --- Statystyki ---
+    private final LongAdder entriesWritten = new LongAdder();
+    private final LongAdder pagesRead = new LongAdder();
+    private final LongAdder entriesRead = new LongAdder();
+
+    /** @param fetchSize Liczba wierszy pobieranych z bazy naraz przy odczycie strony. */
+    public AccountLedger(ConnectionPool pool, int fetchSize) {
+        if (fetchSize < 1) throw new IllegalArgumentException("Rozmiar porcji odczytu musi być dodatni: " + fetchSize);
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+    }
+
+    /** Dopisuje wpis na połączeniu wywołującego - w jego bieżącej transakcji. */
+    public void append(ConnectionPool.Lease lease, LedgerEntry entry) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.LEDGER_INSERT);
+        bind(st, entry);
+        st.executeUpdate();
+        entriesWritten.increment();
+    }
+
+    /** Dopisuje wpisy jednym batchem JDBC na połączeniu wywołującego (przelew, okno grupowania zapisów). */
+    public void append(ConnectionPool.Lease lease, List<LedgerEntry> entries) throws SQLException {
+        if (entries.isEmpty()) return;
+        PreparedStatement st = lease.prepare(SqlCatalog.LEDGER_INSERT);
+        for (LedgerEntry entry : entries) {
+            bind(st, entry);
+            st.addBatch();
+        }
+        st.executeBatch();
+        entriesWritten.add(entries.size());
+    }
+
+    private static void bind(PreparedStatement st, LedgerEntry entry) throws SQLException {
+        st.setString(1, entry.getAccountNumber());
+        st.setString(2, entry.getType().name());
+        st.setBigDecimal(3, entry.getAmount());
+        st.setBigDecimal(4, entry.getBalanceAfter());
+        st.setString(5, entry.getCounterparty());
+        st.setTimestamp(6, new Timestamp(entry.getTimestampMillis()));
+    }
+
+    /**
+     * Czyta stronę historii konta od najnowszych wpisów i przekazuje wpisy do odbiorcy w trakcie odczytu.
+     * @param beforeEntryId Tylko wpisy o ID mniejszym (Long.MAX_VALUE - od najnowszego).
+     * @param limit         Maksymalna liczba wpisów strony.
+     * @return true, jeśli za stroną są jeszcze starsze wpisy.
+     */
+    public boolean readPage(String accountNumber, long beforeEntryId, int limit, LedgerEntry.Sink sink) throws SQLException {
+        pagesRead.increment();
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.LEDGER_PAGE);
+            st.setFetchSize(Math.min(limit + 1, fetchSize));
+            st.setString(1, accountNumber);
+            st.setLong(2, beforeEntryId);
+            st.setInt(3, limit + 1); // Jeden wiersz ponad stronę mówi, czy jest następna
+            try (ResultSet rs = st.executeQuery()) {
+                int delivered = 0;
+                while (rs.next()) {
+                    if (delivered == limit) return true;
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    sink.accept(new LedgerEntry(rs.getLong("id"), accountNumber, LedgerEntry.Type.valueOf(rs.getString("entry_type")),
+                            rs.getBigDecimal("amount"), rs.getBigDecimal("balance_after"), rs.getString("counterparty"),
+                            createdAt != null ? createdAt.getTime() : 0));
+                    delivered++;
+                    entriesRead.increment();
+                }
+            }
+        }
+        return false;
+    }
+
+    // --- Statystyki ---
+
+    public String statsSummary() {
+        return "ledger[entriesWritten=" + entriesWritten.sum() + ", pagesRead=" + pagesRead.sum() +
+                ", entriesRead=" + entriesRead.sum() + ", fetchSize=" + fetchSize + "]";
+    }
+}
@@ -0,0 +1,190 @@
+// File: src/main/java/com/bank/server/AccountLockTable.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tablica blokad paskowych (lock striping) według numeru konta: konto trafia do jednego z N pasków według
+ * skrótu numeru. Operacja na jednym koncie bierze jeden pasek, przelew - dwa paski w kolejności indeksów,
+ * więc dwa przeciwne przelewy nie mogą się zakleszczyć. Operacje na kontach z różnych pasków wykonują się
+ * równolegle, a operacje na tym samym koncie czekają w kolejce w pamięci zamiast walczyć o blokady wierszy w bazie.
+ * <p>
+ * Statystyki: liczba pobrań, pobrania, przy których pasek był zajęty, oraz czas oczekiwania na zajęty pasek
+ * (łącznie i per pasek - najbardziej obciążone paski wskazują gorące konta). Pobranie wolnego paska
+ * (tryLock) nie mierzy czasu.
+ */
+public class AccountLockTable {
+    public static final int DEFAULT_STRIPES = 256;
+    private static final int HOTTEST_STRIPES_REPORTED = 3;
+
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+
+    // --- Statystyki ---
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LatencyHistogram waitLatency = new LatencyHistogram(); // Tylko pobrania zajętego paska
+    private final AtomicLongArray contendedByStripe;
+    private final AtomicLongArray waitNanosByStripe;
+
+    /** @param stripeCount Liczba pasków; zaokrąglana w górę do potęgi dwójki. */
+    public AccountLockTable(int stripeCount) {
+        if (stripeCount < 1) throw new IllegalArgumentException("Liczba pasków blokad musi być dodatnia: " + stripeCount);
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) size <<= 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = size - 1;
+        this.contendedByStripe = new AtomicLongArray(size);
+        this.waitNanosByStripe = new AtomicLongArray(size);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private int stripeIndex(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & stripeMask; // Rozproszenie starszych bitów jak w HashMap
+    }
+
+    /** Blokuje pasek konta. @return Zablokowany pasek - do zwolnienia przez unlock() w bloku finally. */
+    public ReentrantLock lock(String accountNumber) {
+        return lockStripe(stripeIndex(accountNumber));
+    }
+
+    /** Blokuje paski dwóch kont w kolejności indeksów (jeden pasek, gdy konta na niego trafiają). */
+    public void lockPair(String first, String second) {
+        int a = stripeIndex(first);
+        int b = stripeIndex(second);
+        lockStripe(Math.min(a, b));
+        if (a != b) lockStripe(Math.max(a, b));
+    }
+
+    public void unlockPair(String first, String second) {
+        int a = stripeIndex(first);
+        int b = stripeIndex(second);
+        if (a != b) stripes[Math.max(a, b)].unlock();
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * Blokuje paski wielu kont (paczka przelewów) rosnąco po indeksach, każdy pasek raz - ta sama kolejność
+     * co w {@link #lockPair}, więc paczki i pojedyncze przelewy nie mogą się wzajemnie zakleszczyć.
+     * @return Zablokowane indeksy pasków - do zwolnienia przez {@link #unlockStripes} w bloku finally.
+     */
+    public int[] lockAccounts(Collection<String> accountNumbers) {
+        int[] indexes = accountNumbers.stream().mapToInt(this::stripeIndex).sorted().distinct().toArray();
+        for (int index : indexes) {
+            lockStripe(index);
+        }
+        return indexes;
+    }
+
+    public void unlockStripes(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    /** Blokuje wszystkie paski rosnąco - wstrzymuje każdą operację na kontach (np. migawka stanu). */
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private ReentrantLock lockStripe(int index) {
+        ReentrantLock lock = stripes[index];
+        acquisitions.increment();
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            long waited = System.nanoTime() - start;
+            contended.increment();
+            waitLatency.record(waited);
+            contendedByStripe.incrementAndGet(index);
+            waitNanosByStripe.addAndGet(index, waited);
+        }
+        return lock;
+    }
+
+    // --- Statystyki ---
+
+    /** Migawka statystyk blokad (JMX: {@link ServerMetricsMXBean#getAccountLockStats()}). Czasy w mikrosekundach. */
+    public static final class Snapshot {
+        private final int stripes;
+        private final long acquisitions;
+        private final long contended;
+        private final double waitMeanMicros;
+        private final double waitP99Micros;
+        private final double waitMaxMicros;
+        private final List<String> hottestStripes;
+
+        Snapshot(int stripes, long acquisitions, long contended, LatencyHistogram.Snapshot wait, List<String> hottestStripes) {
+            this.stripes = stripes;
+            this.acquisitions = acquisitions;
+            this.contended = contended;
+            this.waitMeanMicros = wait.getMeanNanos() / 1e3;
+            this.waitP99Micros = wait.valueAt(0.99) / 1e3;
+            this.waitMaxMicros = wait.getMaxNanos() / 1e3;
+            this.hottestStripes = hottestStripes;
+        }
+
+        public int getStripes() { return stripes; }
+        public long getAcquisitions() { return acquisitions; }
+        /** Pobrania, przy których pasek był zajęty przez inną operację. */
+        public long getContended() { return contended; }
+        public double getWaitMeanMicros() { return waitMeanMicros; }
+        public double getWaitP99Micros() { return waitP99Micros; }
+        public double getWaitMaxMicros() { return waitMaxMicros; }
+        /** Paski z największą liczbą oczekiwań: "indeks:oczekiwania:łączny czas oczekiwania w µs". */
+        public List<String> getHottestStripes() { return hottestStripes; }
+    }
+
+    public Snapshot snapshot() {
+        // Kilka największych wartości bez sortowania całej tablicy
+        int[] hottest = new int[HOTTEST_STRIPES_REPORTED];
+        Arrays.fill(hottest, -1);
+        for (int i = 0; i < stripes.length; i++) {
+            long c = contendedByStripe.get(i);
+            if (c == 0) continue;
+            for (int slot = 0; slot < hottest.length; slot++) {
+                if (hottest[slot] < 0 || c > contendedByStripe.get(hottest[slot])) {
+                    System.arraycopy(hottest, slot, hottest, slot + 1, hottest.length - slot - 1);
+                    hottest[slot] = i;
+                    break;
+                }
+            }
+        }
+        List<String> hot = new ArrayList<>(HOTTEST_STRIPES_REPORTED);
+        for (int index : hottest) {
+            if (index < 0) break;
+            hot.add(index + ":" + contendedByStripe.get(index) + ":" + waitNanosByStripe.get(index) / 1000);
+        }
+        return new Snapshot(stripes.length, acquisitions.sum(), contended.sum(), waitLatency.snapshot(), hot);
+    }
+
+    public String statsSummary() {
+        Snapshot s = snapshot();
+        return "accountLocks[stripes=" + s.getStripes() + ", acquisitions=" + s.getAcquisitions() + ", contended=" + s.getContended() +
+                String.format(" (%.2f%%), waitMean=%.1fus, waitP99=%.1fus, waitMax=%.1fus",
+                        s.getAcquisitions() == 0 ? 0.0 : s.getContended() * 100.0 / s.getAcquisitions(),
+                        s.getWaitMeanMicros(), s.getWaitP99Micros(), s.getWaitMaxMicros()) +
+                ", hottestStripes=" + s.getHottestStripes() + "]";
+    }
+}
@@ -0,0 +1,163 @@
+// File: src/main/java/com/bank/server/AccountNumberAllocator.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Przydziela numery kont w formacie IBAN (PL + 2 cyfry kontrolne + 8 cyfr numeru rozliczeniowego banku
+ * + 16 cyfr numeru rachunku) bez sprawdzania w bazie każdego kandydata.
+ * <p>
+ * Numery rachunków pochodzą z sekwencji w tabeli 'account_number_sequence' (setup_bankdb.sql). Serwer rezerwuje w jednej
+ * krótkiej transakcji (SELECT ... FOR UPDATE + UPDATE) cały blok kolejnych wartości i wydaje je z pamięci,
+ * więc kilka instancji serwera na tej samej bazie nigdy nie dostanie tego samego bloku. Cyfry kontrolne
+ * liczone są algorytmem mod 97 (ISO 13616).
+ */
+public class AccountNumberAllocator {
+    public static final String DEFAULT_BANK_CODE = "10100000";
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private static final String COUNTRY_CODE = "PL";
+    private static final String COUNTRY_DIGITS = "2521"; // P = 25, L = 21
+    private static final long MAX_ACCOUNT_SEQUENCE = 10_000_000_000_000_000L; // 16 cyfr
+
+    private final ConnectionPool pool;
+    private String bankCode = DEFAULT_BANK_CODE;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    // Bieżący zarezerwowany blok [next, limit) - chroniony monitorem obiektu
+    private long next = 0;
+    private long limit = 0;
+    private long reservedBlocks = 0;
+
+    public AccountNumberAllocator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Ustawia numer rozliczeniowy banku i rozmiar rezerwowanego bloku. Niewydane numery bieżącego bloku
+     * są porzucane (w numeracji powstaje luka, ale unikalność jest zachowana).
+     * @param bankCode 8 cyfr numeru rozliczeniowego; każdy numer ma w tabeli własną sekwencję.
+     * @param blockSize Liczba numerów rezerwowanych w bazie jedną transakcją.
+     */
+    public synchronized void configure(String bankCode, int blockSize) {
+        if (bankCode == null || !bankCode.matches("\\d{8}")) {
+            throw new IllegalArgumentException("Numer rozliczeniowy banku musi mieć 8 cyfr: " + bankCode);
+        }
+        if (blockSize < 1) throw new IllegalArgumentException("Rozmiar bloku musi być dodatni: " + blockSize);
+        this.bankCode = bankCode;
+        this.blockSize = blockSize;
+        this.next = 0;
+        this.limit = 0;
+    }
+
+    /** Zwraca kolejny unikalny numer konta. Do bazy odwołuje się tylko po wyczerpaniu bloku. */
+    public synchronized String nextAccountNumber() throws SQLException {
+        if (next >= limit) reserveBlock();
+        return format(bankCode, next++);
+    }
+
+    /**
+     * Zwraca count kolejnych unikalnych numerów kont (w razie potrzeby rezerwuje kilka bloków). Wywołujący, który
+     * sam trzyma otwartą transakcję, powinien pobrać numery przed jej rozpoczęciem - rezerwacja bloku wypożycza
+     * z puli osobne połączenie.
+     */
+    public synchronized List<String> nextAccountNumbers(int count) throws SQLException {
+        List<String> numbers = new ArrayList<>(count);
+        while (numbers.size() < count) {
+            if (next >= limit) reserveBlock();
+            numbers.add(format(bankCode, next++));
+        }
+        return numbers;
+    }
+
+    private void reserveBlock() throws SQLException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+            try {
+                long start = lockSequence(lease);
+                if (start < 0) {
+                    start = 1;
+                    insertSequence(lease, start + blockSize); // Równoległe utworzenie wiersza kończy się błędem klucza
+                } else {
+                    advanceSequence(lease, start + blockSize);
+                }
+                if (start + blockSize > MAX_ACCOUNT_SEQUENCE) {
+                    throw new SQLException("Wyczerpano numery rachunków dla numeru rozliczeniowego " + bankCode + ".");
+                }
+                conn.commit();
+                next = start;
+                limit = start + blockSize;
+                reservedBlocks++;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException exRollback) {
+                    e.addSuppressed(exRollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private long lockSequence(ConnectionPool.Lease lease) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.SEQUENCE_LOCK);
+        st.setString(1, bankCode);
+        try (ResultSet rs = st.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    private void advanceSequence(ConnectionPool.Lease lease, long newNext) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.SEQUENCE_ADVANCE);
+        st.setLong(1, newNext);
+        st.setString(2, bankCode);
+        st.executeUpdate();
+    }
+
+    private void insertSequence(ConnectionPool.Lease lease, long newNext) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.SEQUENCE_INIT);
+        st.setString(1, bankCode);
+        st.setLong(2, newNext);
+        st.executeUpdate();
+    }
+
+    /** Buduje numer IBAN z numeru rozliczeniowego i numeru rachunku (dopełnionego zerami do 16 cyfr). */
+    static String format(String bankCode, long accountSequence) {
+        String bban = bankCode + String.format("%016d", accountSequence);
+        int check = 98 - mod97(bban + COUNTRY_DIGITS + "00");
+        return COUNTRY_CODE + (check < 10 ? "0" : "") + check + bban;
+    }
+
+    /** Sprawdza format i cyfry kontrolne numeru konta (PL + 26 cyfr). */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != 28 || !accountNumber.startsWith(COUNTRY_CODE)) return false;
+        for (int i = 2; i < 28; i++) {
+            if (!Character.isDigit(accountNumber.charAt(i))) return false;
+        }
+        // Przeniesienie kodu kraju i cyfr kontrolnych na koniec - reszta z dzielenia przez 97 musi wynosić 1
+        return mod97(accountNumber.substring(4) + COUNTRY_DIGITS + accountNumber.substring(2, 4)) == 1;
+    }
+
+    private static int mod97(String digits) {
+        int remainder = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            remainder = (remainder * 10 + (digits.charAt(i) - '0')) % 97;
+        }
+        return remainder;
+    }
+
+    public synchronized long getReservedBlocks() {
+        return reservedBlocks;
+    }
+
+    public synchronized String statsSummary() {
+        return "accountNumbers[bankCode=" + bankCode + ", blockSize=" + blockSize + ", reservedBlocks=" + reservedBlocks +
+                ", remainingInBlock=" + (limit - next) + "]";
+    }
+}
@@ -0,0 +1,16 @@
+// File: src/main/java/com/bank/server/AccountSink.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+
+/**
+ * Odbiorca kont czytanych strumieniowo ({@link Storage#streamAccountsByClientId}) - konta trafiają do niego
+ * w trakcie odczytu, bez budowania listy. Najpierw jedno wywołanie {@link #begin}, potem kolejne konta.
+ */
+public interface AccountSink {
+
+    /** @param count Liczba kont w chwili rozpoczęcia odczytu. */
+    void begin(int count);
+
+    void accept(Account account);
+}
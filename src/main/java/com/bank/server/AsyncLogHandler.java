@@ -0,0 +1,220 @@
+// File: src/main/java/com/bank/server/AsyncLogHandler.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Asynchroniczny handler java.util.logging: wątek zgłaszający rekord tylko wstawia go do ograniczonego
+ * bufora cyklicznego (ArrayBlockingQueue), a formatowanie i zapis przez docelowe handlery (konsola, plik)
+ * wykonuje osobny wątek w tle. Blokada handlera i operacje dyskowe nie są więc częścią czasu obsługi żądania.
+ * <p>
+ * Gdy bufor jest pełny, zachowanie wybiera {@link OverflowPolicy}: DROP porzuca rekord (liczba porzuconych
+ * rekordów jest raportowana w logu, gdy bufor się opróżni), BLOCK czeka na miejsce w buforze.
+ * Miejsce wywołania (klasa/metoda źródłowa) trzeba ustalić jeszcze na wątku zgłaszającym, bo wątek w tle
+ * nie ma już stosu wywołań loggera. Przejście po stosie kosztuje kilka mikrosekund - więcej niż samo wstawienie
+ * rekordu - więc robimy to tylko dla rekordów od poziomu {@code inferCallerLevel} (domyślnie WARNING);
+ * pozostałe rekordy zamiast klasy i metody źródłowej pokazują nazwę loggera.
+ */
+public class AsyncLogHandler extends Handler {
+    private static final int BATCH_SIZE = 256;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    /** Zachowanie przy pełnym buforze. */
+    public enum OverflowPolicy {
+        DROP, BLOCK;
+
+        public static OverflowPolicy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final String name;
+    private final Handler[] targets;
+    private final ArrayBlockingQueue<LogRecord> buffer;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int inferCallerLevel;
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    // --- Liczniki statystyk ---
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong droppedUnreported = new AtomicLong();
+    private final LongAdder blockedPublishes = new LongAdder();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+
+    public AsyncLogHandler(String name, int capacity, OverflowPolicy policy, Handler... targets) {
+        this(name, capacity, policy, Level.WARNING, targets);
+    }
+
+    /**
+     * @param name             Nazwa (w nazwie wątku i statystykach).
+     * @param capacity         Pojemność bufora rekordów.
+     * @param policy           Zachowanie przy pełnym buforze.
+     * @param inferCallerLevel Od tego poziomu rekordy dostają klasę i metodę źródłową (Level.OFF - nigdy).
+     * @param targets          Handlery docelowe, wywoływane wyłącznie z wątku w tle.
+     */
+    public AsyncLogHandler(String name, int capacity, OverflowPolicy policy, Level inferCallerLevel, Handler... targets) {
+        if (capacity < 1) throw new IllegalArgumentException("Pojemność bufora logów musi być dodatnia: " + capacity);
+        if (targets.length == 0) throw new IllegalArgumentException("Brak handlerów docelowych dla " + name);
+        this.name = name;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.inferCallerLevel = inferCallerLevel.intValue();
+        this.targets = targets.clone();
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drainLoop, "BankServer-AsyncLog-" + name);
+        this.writer.setDaemon(true); // Nie blokuje zakończenia JVM, close() opróżnia bufor
+        this.writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        if (record.getLevel().intValue() >= inferCallerLevel) {
+            record.getSourceClassName(); // Ustalenie miejsca wywołania na bieżącym wątku (patrz opis klasy)
+        } else {
+            // Każdy getter źródła uruchomiłby przejście po stosie; ustawienie wartości je wyłącza - formatter użyje nazwy loggera
+            record.setSourceClassName(null);
+        }
+        if (policy == OverflowPolicy.BLOCK) {
+            if (!buffer.offer(record)) {
+                blockedPublishes.increment();
+                try {
+                    buffer.put(record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Przerwany wątek żądania nie czeka dalej na log
+                    recordDrop();
+                    return;
+                }
+            }
+        } else if (!buffer.offer(record)) {
+            recordDrop();
+            return;
+        }
+        enqueued.increment();
+        int queued = buffer.size();
+        int peak;
+        while (queued > (peak = peakQueued.get()) && !peakQueued.compareAndSet(peak, queued)) {
+            // Ponów, jeśli inny wątek zaktualizował maksimum
+        }
+    }
+
+    private void recordDrop() {
+        dropped.increment();
+        droppedUnreported.incrementAndGet();
+    }
+
+    // Wątek w tle: zapis partiami, flush handlerów docelowych dopiero po opróżnieniu bufora
+    private void drainLoop() {
+        List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                LogRecord first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // close() czeka na opróżnienie bufora - przerwanie tylko przyspiesza sprawdzenie warunku pętli
+                continue;
+            }
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+            for (LogRecord record : batch) {
+                writeToTargets(record);
+            }
+            batch.clear();
+            if (buffer.isEmpty()) {
+                reportDrops();
+                for (Handler target : targets) {
+                    target.flush();
+                }
+            }
+        }
+    }
+
+    private void reportDrops() {
+        long count = droppedUnreported.getAndSet(0);
+        if (count > 0) {
+            LogRecord warning = new LogRecord(Level.WARNING,
+                    "Async log buffer '" + name + "' was full: " + count + " log record(s) dropped.");
+            warning.setLoggerName(AsyncLogHandler.class.getName());
+            warning.setSourceClassName(AsyncLogHandler.class.getName());
+            warning.setSourceMethodName("publish");
+            writeToTargets(warning);
+        }
+    }
+
+    private void writeToTargets(LogRecord record) {
+        for (Handler target : targets) {
+            try {
+                target.publish(record);
+            } catch (RuntimeException e) {
+                reportError("Log target failed", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    /** Zapis wykonuje wątek w tle; flush jest po każdym opróżnieniu bufora. */
+    @Override
+    public void flush() {
+        // Celowo pusty - wymuszenie zapisu z wątku żądania przeczyłoby celowi tej klasy
+    }
+
+    /** Opróżnia bufor (czeka maksymalnie kilka sekund) i zamyka handlery docelowe. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler target : targets) {
+            target.close();
+        }
+    }
+
+    // --- Statystyki ---
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getQueued() {
+        return buffer.size();
+    }
+
+    public int getPeakQueued() {
+        return peakQueued.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getBlockedPublishes() {
+        return blockedPublishes.sum();
+    }
+
+    public String statsSummary() {
+        return String.format("asyncLog-%s[policy=%s, capacity=%d, queued=%d, peakQueued=%d, enqueued=%d, dropped=%d, blockedPublishes=%d]",
+                name, policy, capacity, getQueued(), getPeakQueued(), getEnqueued(), getDropped(), getBlockedPublishes());
+    }
+}
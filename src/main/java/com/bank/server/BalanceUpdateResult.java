@@ -0,0 +1,59 @@
+// File: src/main/java/com/bank/server/BalanceUpdateResult.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+
+/**
+ * Wynik atomowej operacji na saldzie (wpłata/wypłata): status oraz nowe saldo w przypadku powodzenia.
+ */
+public final class BalanceUpdateResult {
+
+    public enum Status {
+        OK,
+        ACCOUNT_NOT_FOUND,
+        ACCESS_DENIED,      // Konto nie należy do klienta wykonującego operację
+        INSUFFICIENT_FUNDS
+    }
+
+    private static final BalanceUpdateResult NOT_FOUND = new BalanceUpdateResult(Status.ACCOUNT_NOT_FOUND, null);
+    private static final BalanceUpdateResult DENIED = new BalanceUpdateResult(Status.ACCESS_DENIED, null);
+    private static final BalanceUpdateResult NO_FUNDS = new BalanceUpdateResult(Status.INSUFFICIENT_FUNDS, null);
+
+    private final Status status;
+    private final BigDecimal newBalance; // null, jeśli operacja się nie powiodła
+
+    private BalanceUpdateResult(Status status, BigDecimal newBalance) {
+        this.status = status;
+        this.newBalance = newBalance;
+    }
+
+    public static BalanceUpdateResult ok(BigDecimal newBalance) {
+        return new BalanceUpdateResult(Status.OK, newBalance);
+    }
+
+    public static BalanceUpdateResult failure(Status status) {
+        switch (status) {
+            case ACCOUNT_NOT_FOUND: return NOT_FOUND;
+            case ACCESS_DENIED: return DENIED;
+            case INSUFFICIENT_FUNDS: return NO_FUNDS;
+            default: throw new IllegalArgumentException("Status OK wymaga nowego salda.");
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public BigDecimal getNewBalance() {
+        return newBalance;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceUpdateResult{status=" + status + (newBalance != null ? ", newBalance=" + newBalance.toPlainString() : "") + '}';
+    }
+}
@@ -0,0 +1,331 @@
+// File: src/main/java/com/bank/server/BalanceWriteBatcher.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Grupowanie wpłat i wypłat z wielu sesji w jedną transakcję bazy (DEPOSIT / WITHDRAW przez {@link DBManager}).
+ * <ul>
+ *   <li>sesja odkłada operację do kolejki i czeka na swój wynik; wątek zapisu zbiera operacje w okno
+ *       ograniczone liczbą (maxBatch) i czasem od pierwszej operacji (maxDelay),</li>
+ *   <li>okno wykonywane jest jako jeden batch JDBC tego samego warunkowego UPDATE w jednej transakcji
+ *       - jeden commit zamiast jednego na operację; każda operacja dostaje własny wynik z liczby
+ *       zmienionych wierszy,</li>
+ *   <li>operacje sortowane są według numeru konta (kolejność operacji jednego konta zostaje zachowana), więc
+ *       wiersze blokowane są w tym samym porządku co w {@link TransferEngine} i okno nie zakleszcza się z przelewami.
+ *       Żadna operacja okna nie została jeszcze potwierdzona, więc każda ich kolejność jest poprawna,</li>
+ *   <li>nowe salda wyliczane są wstecz od sald odczytanych w tej samej transakcji (wiersze są zablokowane);
+ *       przy włączonej historii ({@link AccountLedger}) wpisy wykonanych operacji dopisywane są jednym batchem
+ *       w tej samej transakcji,</li>
+ *   <li>gdy okno się nie powiedzie (zakleszczenie, brak liczników wierszy w sterowniku), transakcja jest
+ *       wycofywana, a operacje wykonywane pojedynczo - każda sesja dostaje własny wynik lub błąd.</li>
+ * </ul>
+ * Uwaga: sterownik MySQL z rewriteBatchedStatements=true nie zwraca liczników wierszy dla batcha - okna
+ * wykonywane są wtedy zawsze pojedynczo. Do grupowania wystarczy domyślne ustawienie sterownika.
+ */
+public class BalanceWriteBatcher implements AutoCloseable {
+    /** Wykonanie pojedynczej operacji poza oknem (ścieżka zapasowa). */
+    @FunctionalInterface
+    public interface DirectWriter {
+        BalanceUpdateResult apply(String accountNumber, int clientId, BigDecimal amount, boolean deposit) throws SQLException;
+    }
+
+    private final ConnectionPool pool;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final DirectWriter direct;
+    private final Logger logger;
+    private volatile AccountLedger ledger; // null = bez historii operacji
+
+    private final Object queueLock = new Object();
+    private final ArrayDeque<Request> queue = new ArrayDeque<>();
+    private volatile boolean closed;
+    private final Thread writer;
+
+    // --- Statystyki ---
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fallbackBatches = new LongAdder(); // Okna wykonane pojedynczo po błędzie
+    private volatile int largestBatch;
+
+    /**
+     * @param maxBatch       Maksymalna liczba operacji w jednej transakcji.
+     * @param maxDelayMicros Jak długo okno czeka na kolejne operacje od pierwszej (0 - zabiera tylko to, co już czeka).
+     * @param direct         Wykonanie pojedynczej operacji, gdy okno się nie powiedzie.
+     */
+    public BalanceWriteBatcher(ConnectionPool pool, int maxBatch, long maxDelayMicros, DirectWriter direct, Logger logger) {
+        if (maxBatch < 1) throw new IllegalArgumentException("Rozmiar okna musi być dodatni: " + maxBatch);
+        if (maxDelayMicros < 0) throw new IllegalArgumentException("Czas okna nie może być ujemny: " + maxDelayMicros);
+        this.pool = pool;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.direct = direct;
+        this.logger = logger;
+        this.writer = new Thread(this::writeLoop, "BankServer-BalanceBatcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Okna dopisują wpisy historii wykonanych operacji w swojej transakcji (null - wyłącza). */
+    public void setLedger(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    // Operacja czekająca w oknie; wynik ustawiany przez wątek zapisu
+    private static final class Request {
+        final String accountNumber;
+        final int clientId;
+        final BigDecimal amount;
+        final boolean deposit;
+        boolean applied;           // Wiersz zmieniony w oknie
+        BigDecimal balance;        // Saldo po tej operacji (tylko applied)
+        BalanceUpdateResult result;
+        SQLException error;
+        boolean done;
+
+        Request(String accountNumber, int clientId, BigDecimal amount, boolean deposit) {
+            this.accountNumber = accountNumber;
+            this.clientId = clientId;
+            this.amount = amount;
+            this.deposit = deposit;
+        }
+
+        BigDecimal delta() {
+            // Kolumna DECIMAL(19,2) zaokrągla wynik tak samo - saldo wyliczone wstecz zgadza się z zapisanym
+            BigDecimal money = amount.setScale(2, RoundingMode.HALF_UP);
+            return deposit ? money : money.negate();
+        }
+
+        synchronized void complete(BalanceUpdateResult result, SQLException error) {
+            this.result = result;
+            this.error = error;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void completeIfPending(SQLException error) {
+            if (!done) complete(null, error);
+        }
+    }
+
+    public BalanceUpdateResult deposit(String accountNumber, BigDecimal amount) throws SQLException {
+        return submit(new Request(accountNumber, 0, amount, true));
+    }
+
+    public BalanceUpdateResult withdraw(String accountNumber, int clientId, BigDecimal amount) throws SQLException {
+        return submit(new Request(accountNumber, clientId, amount, false));
+    }
+
+    private BalanceUpdateResult submit(Request request) throws SQLException {
+        synchronized (queueLock) {
+            if (closed) throw new SQLException("Grupowanie zapisów sald zostało zamknięte.");
+            queue.add(request);
+            if (queue.size() == 1 || queue.size() >= maxBatch) queueLock.notifyAll();
+        }
+        boolean interrupted = false;
+        synchronized (request) {
+            // Operacja mogła już trafić do bazy - czekamy na wynik także po przerwaniu wątku
+            while (!request.done) {
+                try {
+                    request.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (request.error != null) throw request.error;
+        return request.result;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<Request> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == null) return;
+            try {
+                execute(batch);
+            } catch (Throwable e) {
+                // Np. OutOfMemoryError: wątek zapisu działa dalej, a operacje okna bez wyniku dostają błąd zamiast czekać bez końca
+                for (Request r : batch) {
+                    r.completeIfPending(new SQLException("Nieoczekiwany błąd operacji na saldzie: " + e, e));
+                }
+                logger.log(Level.SEVERE, "Balance batch of " + batch.size() + " failed unexpectedly", e);
+            }
+        }
+    }
+
+    // Czeka na pierwszą operację, potem dobiera kolejne do maxBatch lub upływu maxDelay
+    private List<Request> nextBatch() throws InterruptedException {
+        synchronized (queueLock) {
+            while (queue.isEmpty() && !closed) {
+                queueLock.wait();
+            }
+            if (queue.isEmpty()) return null;
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (queue.size() < maxBatch && !closed) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) break;
+                TimeUnit.NANOSECONDS.timedWait(queueLock, left);
+            }
+            List<Request> batch = new ArrayList<>(Math.min(queue.size(), maxBatch));
+            while (!queue.isEmpty() && batch.size() < maxBatch) {
+                batch.add(queue.poll());
+            }
+            return batch;
+        }
+    }
+
+    private void execute(List<Request> batch) {
+        operations.add(batch.size());
+        batches.increment();
+        if (batch.size() > largestBatch) largestBatch = batch.size();
+        try {
+            executeInTransaction(batch);
+            for (Request r : batch) {
+                r.complete(r.result, null);
+            }
+        } catch (SQLException | RuntimeException e) {
+            fallbackBatches.increment();
+            logger.log(Level.FINE, "Balance batch of " + batch.size() + " failed, executing operations individually: " + e.getMessage(), e);
+            for (Request r : batch) {
+                try {
+                    r.complete(direct.apply(r.accountNumber, r.clientId, r.amount, r.deposit), null);
+                } catch (SQLException ex) {
+                    r.complete(null, ex);
+                } catch (RuntimeException ex) {
+                    r.complete(null, new SQLException("Nieoczekiwany błąd operacji na saldzie: " + ex.getMessage(), ex));
+                }
+            }
+        }
+    }
+
+    private void executeInTransaction(List<Request> batch) throws SQLException {
+        List<Request> ordered = new ArrayList<>(batch);
+        ordered.sort(Comparator.comparing(r -> r.accountNumber)); // Sortowanie stabilne - kolejność w koncie zachowana
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+            try {
+                PreparedStatement st = lease.prepare(SqlCatalog.BATCH_BALANCE_UPDATE);
+                for (Request r : ordered) {
+                    st.setBigDecimal(1, r.delta());
+                    st.setString(2, r.accountNumber);
+                    st.setInt(3, r.deposit ? 1 : 0);
+                    st.setInt(4, r.clientId);
+                    st.setBigDecimal(5, r.amount);
+                    st.addBatch();
+                }
+                int[] counts = st.executeBatch();
+                if (counts.length != ordered.size()) {
+                    throw new SQLException("Sterownik zwrócił " + counts.length + " liczników dla " + ordered.size() + " operacji.");
+                }
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == Statement.SUCCESS_NO_INFO || counts[i] < 0) {
+                        throw new SQLException("Sterownik nie zwrócił liczby zmienionych wierszy dla operacji w batchu.");
+                    }
+                    ordered.get(i).applied = counts[i] > 0;
+                }
+                assignBalances(conn, ordered);
+                AccountLedger currentLedger = ledger;
+                List<LedgerEntry> entries = currentLedger != null ? new ArrayList<>(ordered.size()) : null;
+                for (Request r : ordered) {
+                    if (r.applied) r.result = BalanceUpdateResult.ok(r.balance);
+                    else if (r.deposit) r.result = BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+                    else r.result = BalanceUpdateResult.failure(DBManager.diagnoseWithdrawFailure(lease, r.accountNumber, r.clientId));
+                    if (r.applied && entries != null) {
+                        entries.add(LedgerEntry.of(r.accountNumber, r.deposit ? LedgerEntry.Type.DEPOSIT : LedgerEntry.Type.WITHDRAW,
+                                r.delta(), r.balance, null));
+                    }
+                }
+                if (entries != null) currentLedger.append(lease, entries);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException exRollback) {
+                    e.addSuppressed(exRollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Salda końcowe zmienionych kont odczytane w transakcji; saldo po każdej operacji wyliczane wstecz
+    private static void assignBalances(Connection conn, List<Request> ordered) throws SQLException {
+        Map<String, BigDecimal> running = new HashMap<>();
+        for (Request r : ordered) {
+            if (r.applied) running.put(r.accountNumber, null);
+        }
+        if (running.isEmpty()) return;
+        StringBuilder sql = new StringBuilder("SELECT account_number, balance FROM accounts WHERE account_number IN (");
+        for (int i = 0; i < running.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        try (PreparedStatement st = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (String accountNumber : running.keySet()) {
+                st.setString(i++, accountNumber);
+            }
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    running.put(rs.getString("account_number"), rs.getBigDecimal("balance"));
+                }
+            }
+        }
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            Request r = ordered.get(i);
+            if (!r.applied) continue;
+            BigDecimal after = running.get(r.accountNumber);
+            if (after == null) throw new SQLException("Konto " + r.accountNumber + " zniknęło w trakcie operacji na saldzie.");
+            r.balance = after;
+            running.put(r.accountNumber, after.subtract(r.delta()));
+        }
+    }
+
+    // --- Statystyki ---
+
+    public String statsSummary() {
+        long ops = operations.sum();
+        long count = batches.sum();
+        return "balanceBatcher[maxBatch=" + maxBatch + ", maxDelayUs=" + TimeUnit.NANOSECONDS.toMicros(maxDelayNanos) +
+                ", operations=" + ops + ", batches=" + count +
+                String.format(", avgBatch=%.1f", count == 0 ? 0.0 : (double) ops / count) +
+                ", largestBatch=" + largestBatch + ", fallbackBatches=" + fallbackBatches.sum() + "]";
+    }
+
+    /** Wykonuje operacje, które już czekają, i zatrzymuje wątek zapisu; nowe operacje są odrzucane. */
+    @Override
+    public void close() {
+        synchronized (queueLock) {
+            closed = true;
+            queueLock.notifyAll();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,42 +3,97 @@ package com.bank.server; // Zgodnie z uproszczoną strukturą
 
 // Nie importujemy już com.bank.server.commands, bo logika jest w ClientHandler
 
+import com.bank.common.Protocol;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
+import javax.management.ObjectName;
 
 public class BankServer {
     private static final Logger logger = Logger.getLogger(BankServer.class.getName());
-    private static DBManager dbManager;
+    private static Storage storage;     // Magazyn danych sesji (storage.engine)
+    private static DBManager dbManager; // Ustawiony tylko dla storage.engine=jdbc
     private static ExecutorService clientExecutor;
+    private static Semaphore sessionPermits; // null = brak limitu jednoczesnych sesji
+    private static NioServer nioServer; // Ustawiony tylko w trybie server.frontend=nio
+    private static AsyncLogHandler serverLogHandler; // null = logowanie synchroniczne (logging.async=false)
+    private static AsyncLogHandler accessLogHandler;
 
-    public static void main(String[] args) {
-        setupLogger(); // Ustaw logowanie jako pierwsze
-
-        logger.info("BankServer application starting...");
+    private static final String FRONTEND_BLOCKING = "blocking";
+    private static final String FRONTEND_NIO = "nio";
+    private static final String STORAGE_JDBC = "jdbc";
+    private static final String STORAGE_MEMORY = "memory";
+    private static final String STORAGE_JOURNAL = "journal";
 
+    public static void main(String[] args) {
         Properties config = loadConfiguration();
         if (config == null) return; // loadConfiguration loguje i kończy w razie krytycznego błędu
 
-        if (!initializeDBManager(config)) return; // initializeDBManager loguje i kończy
+        setupLogger(config); // Ustaw logowanie przed uruchomieniem pozostałych komponentów
+        logger.info("BankServer application starting...");
+
+        if (!initializeStorage(config)) return; // initializeStorage loguje i kończy
 
         addShutdownHook(); // Ustaw hook do czyszczenia zasobów
+        if (Boolean.parseBoolean(config.getProperty("metrics.jmx.enabled", "true"))) {
+            registerMetricsMBean();
+        }
 
         int port = Integer.parseInt(config.getProperty("server.port", "5000"));
-        // Używamy puli wątków, która dynamicznie dostosowuje liczbę wątków
-        clientExecutor = Executors.newCachedThreadPool();
+        // Tryb wykonania sesji: platform (wątek na połączenie), bounded (stała pula) lub virtual (wątki wirtualne)
+        String executorMode = config.getProperty("server.executor", SessionExecutors.MODE_PLATFORM);
+        int boundedThreads = Integer.parseInt(config.getProperty("server.executor.threads", "200"));
+        clientExecutor = SessionExecutors.create(executorMode, boundedThreads, logger);
+
+        // Front-end: blocking (wątek sesji na połączenie) lub nio (pętle zdarzeń + wykonawca jako pula robocza)
+        String frontEnd = config.getProperty("server.frontend", FRONTEND_BLOCKING).trim().toLowerCase();
+        boolean nio = FRONTEND_NIO.equals(frontEnd);
+        if (!nio && !FRONTEND_BLOCKING.equals(frontEnd)) {
+            logger.severe("FATAL: Unknown server.frontend '" + frontEnd + "' (allowed: blocking, nio). Server cannot start.");
+            shutdownServerComponents();
+            System.exit(1);
+        }
+
+        // W trybie bounded domyślny limit sesji równa się liczbie wątków, aby sesje nie czekały w kolejce bez obsługi.
+        // Front-end NIO nie zajmuje wątku na sesję, więc tam limit domyślnie nie obowiązuje.
+        String defaultMaxSessions = !nio && SessionExecutors.MODE_BOUNDED.equalsIgnoreCase(executorMode.trim()) ? String.valueOf(boundedThreads) : "0";
+        int maxSessions = Integer.parseInt(config.getProperty("server.maxSessions", defaultMaxSessions));
+        if (maxSessions > 0) {
+            sessionPermits = new Semaphore(maxSessions);
+            logger.info("Concurrent session limit: " + maxSessions);
+        }
 
         logger.info("Attempting to start server on port " + port + "...");
+        if (nio) {
+            int eventLoops = Integer.parseInt(config.getProperty("server.nio.eventLoops",
+                    String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+            runNioFrontEnd(port, eventLoops);
+        } else {
+            runBlockingFrontEnd(port);
+        }
+        logger.info("BankServer application finished.");
+    }
+
+    private static void runBlockingFrontEnd(int port) {
         try (ServerSocket serverSocket = new ServerSocket(port)) {
             logger.info("BankServer started successfully on port " + port + ". Waiting for client connections...");
 
@@ -47,9 +102,27 @@ public class BankServer {
                 try {
                     Socket clientSocket = serverSocket.accept(); // Blokuje do momentu połączenia
                     logger.info("Accepted connection from: " + clientSocket.getRemoteSocketAddress());
+                    if (sessionPermits != null && !sessionPermits.tryAcquire()) {
+                        rejectBusy(clientSocket);
+                        continue;
+                    }
                     // Przekaż współdzielony DBManager i logger do każdego nowego ClientHandler
                     // ClientHandler teraz zawiera więcej logiki, ale sposób tworzenia pozostaje ten sam
-                    clientExecutor.submit(new ClientHandler(clientSocket, dbManager, logger));
+                    ClientHandler handler = new ClientHandler(clientSocket, storage, logger);
+                    try {
+                        clientExecutor.submit(() -> {
+                            try {
+                                handler.run();
+                            } finally {
+                                if (sessionPermits != null) sessionPermits.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Wykonawca zamykany lub przepełniony - handler nie ruszy, więc zwalniamy zezwolenie i gniazdo tutaj
+                        if (sessionPermits != null) sessionPermits.release();
+                        logger.warning("Client executor rejected connection from: " + clientSocket.getRemoteSocketAddress() + ", closing it.");
+                        closeQuietly(clientSocket);
+                    }
                 } catch (IOException e) {
                     if (serverSocket.isClosed() || Thread.currentThread().isInterrupted()) {
                         logger.info("Server socket closed or thread interrupted, stopping accept loop.");
@@ -71,27 +144,121 @@ public class BankServer {
             if (clientExecutor != null && !clientExecutor.isTerminated() && !clientExecutor.isShutdown()) {
                 shutdownClientExecutor();
             }
-            // dbManager jest zamykany przez hook lub jawnie w przypadku błędu
+            // storage jest zamykany przez hook lub jawnie w przypadku błędu
         }
-        logger.info("BankServer application finished.");
     }
 
-    private static void setupLogger() {
+    private static void runNioFrontEnd(int port, int eventLoops) {
+        try {
+            nioServer = new NioServer(port, eventLoops, clientExecutor, storage, logger, sessionPermits);
+            nioServer.serve(); // Blokuje do zamknięcia serwera
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "FATAL: Could not start NIO server on port " + port + ". " +
+                    "Possible reasons: port already in use, insufficient permissions.", e);
+            shutdownServerComponents();
+            System.exit(1);
+        } finally {
+            logger.info("BankServer main loop has exited.");
+        }
+    }
+
+    // Zamyka gniazdo, którego handler nie został uruchomiony
+    private static void closeQuietly(Socket clientSocket) {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while closing rejected connection", e);
+        }
+    }
+
+    // Odrzuca połączenie ponad limitem sesji: krótka odpowiedź błędu zamiast wiszącego połączenia
+    private static void rejectBusy(Socket clientSocket) {
+        logger.warning("Session limit reached, rejecting connection from: " + clientSocket.getRemoteSocketAddress());
+        try (Socket s = clientSocket;
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            out.println(Protocol.buildMessage(Protocol.RES_ERROR, Protocol.ERR_SERVER_BUSY, "Too many concurrent sessions. Try again later."));
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while rejecting busy connection", e);
+        }
+    }
+
+    // Logi serwera (konsola + plik) i dziennik dostępu; przy logging.async=true zapis odbywa się w wątkach w tle
+    private static void setupLogger(Properties config) {
         logger.setUseParentHandlers(false); // Zapobiegaj podwójnemu logowaniu do konsoli
-        logger.setLevel(Level.INFO);
+        Level level = Level.parse(config.getProperty("logging.level", "INFO").trim());
+        logger.setLevel(level);
+
+        boolean async = Boolean.parseBoolean(config.getProperty("logging.async", "true"));
+        int bufferSize = Integer.parseInt(config.getProperty("logging.async.bufferSize", "8192"));
+        AsyncLogHandler.OverflowPolicy overflow = AsyncLogHandler.OverflowPolicy.parse(
+                config.getProperty("logging.async.overflowPolicy", "drop"));
+        Level inferCallerLevel = Level.parse(config.getProperty("logging.async.inferCallerLevel", "WARNING").trim());
+        // Rotacja według rozmiaru: przy count > 1 FileHandler dodaje numer generacji (BankServer.log.0, .1, ...)
+        int maxBytes = Integer.parseInt(config.getProperty("logging.file.maxBytes", "10485760"));
+        int fileCount = Integer.parseInt(config.getProperty("logging.file.count", "5"));
 
         ConsoleHandler consoleHandler = new ConsoleHandler();
         consoleHandler.setFormatter(new SimpleFormatter());
-        consoleHandler.setLevel(Level.INFO);
-        logger.addHandler(consoleHandler);
-
+        consoleHandler.setLevel(level);
+        FileHandler fileHandler = null;
         try {
-            FileHandler fileHandler = new FileHandler("BankServer.log", true); // Dopisywanie do istniejącego logu
+            fileHandler = new FileHandler(config.getProperty("logging.file.pattern", "BankServer.log"), maxBytes, fileCount, true); // Dopisywanie do istniejącego logu
             fileHandler.setFormatter(new SimpleFormatter());
-            fileHandler.setLevel(Level.INFO);
-            logger.addHandler(fileHandler);
+            fileHandler.setLevel(level);
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "Could not initialize file logger. File logging will be unavailable.", e);
+            System.err.println("Could not initialize file logger. File logging will be unavailable: " + e.getMessage());
+        }
+        if (async) {
+            serverLogHandler = fileHandler != null
+                    ? new AsyncLogHandler("server", bufferSize, overflow, inferCallerLevel, consoleHandler, fileHandler)
+                    : new AsyncLogHandler("server", bufferSize, overflow, inferCallerLevel, consoleHandler);
+            logger.addHandler(serverLogHandler);
+        } else {
+            logger.addHandler(consoleHandler);
+            if (fileHandler != null) logger.addHandler(fileHandler);
+        }
+
+        if (Boolean.parseBoolean(config.getProperty("logging.access.enabled", "true"))) {
+            try {
+                FileHandler accessFile = new FileHandler(config.getProperty("logging.access.pattern", "BankServer-access.log"), maxBytes, fileCount, true);
+                accessFile.setFormatter(AccessLog.formatter());
+                if (async) {
+                    accessLogHandler = new AsyncLogHandler("access", bufferSize, overflow, accessFile);
+                    AccessLog.install(accessLogHandler);
+                } else {
+                    AccessLog.install(accessFile);
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not initialize access log. Access logging will be unavailable.", e);
+            }
+        }
+        logger.info("Logging configured (level=" + level + ", async=" + async +
+                (async ? ", bufferSize=" + bufferSize + ", overflowPolicy=" + overflow : "") +
+                ", rotation=" + maxBytes + " bytes x " + fileCount + " file(s), accessLog=" + AccessLog.isEnabled() + ").");
+        if (fileHandler == null) {
+            logger.severe("Could not initialize file logger. File logging will be unavailable.");
+        }
+    }
+
+    // Zapisuje statystyki i opróżnia bufory logów asynchronicznych - ostatni krok zamykania serwera
+    private static void closeLogHandlers() {
+        if (serverLogHandler != null) {
+            logger.info("Server log statistics at shutdown: " + serverLogHandler.statsSummary());
+            if (accessLogHandler != null) {
+                logger.info("Access log statistics at shutdown: " + accessLogHandler.statsSummary());
+                accessLogHandler.close();
+            }
+            serverLogHandler.close();
+        }
+    }
+
+    // Metryki w JMX (JConsole/VisualVM); niepowodzenie nie blokuje startu - ADMIN;STATS działa niezależnie
+    private static void registerMetricsMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(storage.getMetrics(), new ObjectName(ServerMetrics.OBJECT_NAME));
+            logger.info("Server metrics registered in JMX as " + ServerMetrics.OBJECT_NAME + ".");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not register server metrics MBean. Metrics remain available via ADMIN;STATS.", e);
         }
     }
 
@@ -113,6 +280,57 @@ public class BankServer {
         }
     }
 
+    // Wybór magazynu danych: jdbc (baza relacyjna, domyślnie), memory (wszystko w pamięci, bez trwałości)
+    // lub journal (w pamięci z dziennikiem zapisu i migawkami na dysku)
+    private static boolean initializeStorage(Properties config) {
+        String engine = config.getProperty("storage.engine", STORAGE_JDBC).trim().toLowerCase();
+        if (STORAGE_JOURNAL.equals(engine)) return initializeJournaledStorage(config);
+        if (STORAGE_MEMORY.equals(engine)) {
+            try {
+                String bankCode = config.getProperty("accounts.bankCode", AccountNumberAllocator.DEFAULT_BANK_CODE).trim();
+                int lockStripes = Integer.parseInt(config.getProperty("storage.memory.lockStripes", String.valueOf(AccountLockTable.DEFAULT_STRIPES)));
+                storage = new InMemoryStorage(bankCode, lockStripes);
+                logger.warning("In-memory storage selected (lockStripes=" + lockStripes + "). Data will be lost when the server stops.");
+                return true;
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.SEVERE, "FATAL: Invalid in-memory storage configuration. Server cannot start.", e);
+                System.exit(1);
+                return false;
+            }
+        }
+        if (!STORAGE_JDBC.equals(engine)) {
+            logger.severe("FATAL: Unknown storage.engine '" + engine + "' (allowed: jdbc, memory, journal). Server cannot start.");
+            System.exit(1);
+            return false;
+        }
+        if (!initializeDBManager(config)) return false;
+        storage = dbManager;
+        return true;
+    }
+
+    private static boolean initializeJournaledStorage(Properties config) {
+        try {
+            String bankCode = config.getProperty("accounts.bankCode", AccountNumberAllocator.DEFAULT_BANK_CODE).trim();
+            int lockStripes = Integer.parseInt(config.getProperty("storage.memory.lockStripes", String.valueOf(AccountLockTable.DEFAULT_STRIPES)));
+            Path dir = Paths.get(config.getProperty("journal.dir", "journal").trim());
+            boolean fsync = Boolean.parseBoolean(config.getProperty("journal.fsync", "true").trim());
+            long groupCommitDelayMicros = Long.parseLong(config.getProperty("journal.groupCommitDelayMicros", "0").trim());
+            long snapshotEveryRecords = Long.parseLong(config.getProperty("journal.snapshotEveryRecords", "100000").trim());
+            LedgerJournal journal = new LedgerJournal(dir, fsync, groupCommitDelayMicros, logger);
+            storage = InMemoryStorage.openJournaled(bankCode, lockStripes, journal, snapshotEveryRecords, logger);
+            logger.info("Journaled in-memory storage selected (dir=" + dir.toAbsolutePath() + ", fsync=" + fsync +
+                    ", groupCommitDelayMicros=" + groupCommitDelayMicros + ", snapshotEveryRecords=" + snapshotEveryRecords + ").");
+            if (!fsync) logger.warning("journal.fsync=false: changes acknowledged before reaching the disk may be lost on power failure.");
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "FATAL: Invalid journal storage configuration. Server cannot start.", e);
+        } catch (IOException | SQLException e) {
+            logger.log(Level.SEVERE, "FATAL: Could not recover journaled storage: " + e.getMessage() + ". Server cannot start.", e);
+        }
+        System.exit(1);
+        return false;
+    }
+
     private static boolean initializeDBManager(Properties config) {
         try {
             String dbUrl = config.getProperty("db.url");
@@ -124,9 +342,78 @@ public class BankServer {
                 System.exit(1);
                 return false;
             }
-            // Zakładamy, że DBManager w konstruktorze obsługuje Class.forName()
-            dbManager = new DBManager(dbUrl, dbUser, dbPassword);
-            logger.info("Database Manager initialized successfully.");
+            int poolMin = Integer.parseInt(config.getProperty("db.pool.minSize", "2"));
+            int poolMax = Integer.parseInt(config.getProperty("db.pool.maxSize", "10"));
+            long borrowTimeoutMs = Long.parseLong(config.getProperty("db.pool.borrowTimeoutMs", "5000"));
+            int validationTimeoutSec = Integer.parseInt(config.getProperty("db.pool.validationTimeoutSec", "2"));
+            // Sterowniki JDBC 4 rejestrują się same; db.driver potrzebny tylko dla starszych sterowników
+            String driver = config.getProperty("db.driver", "").trim();
+            if (!driver.isEmpty()) Class.forName(driver);
+            boolean serverSidePrepare = Boolean.parseBoolean(config.getProperty("db.statements.serverSide", "false"));
+            if (serverSidePrepare) {
+                if (ConnectionPool.supportsServerSidePrepare(dbUrl)) {
+                    dbUrl = ConnectionPool.withServerSidePrepare(dbUrl);
+                    logger.info("Server-side prepared statements enabled (useServerPrepStmts=true).");
+                } else {
+                    logger.warning("db.statements.serverSide=true ignored: supported only for MySQL/MariaDB URLs.");
+                }
+            }
+            dbManager = new DBManager(dbUrl, dbUser, dbPassword, poolMin, poolMax, borrowTimeoutMs, validationTimeoutSec);
+            if (Boolean.parseBoolean(config.getProperty("db.statements.cache", "true"))) {
+                dbManager.enableStatementCache();
+                logger.info("Prepared statement cache enabled (" + SqlCatalog.values().length + " catalog queries per connection).");
+            }
+            String replicaUrls = config.getProperty("db.replicas.urls", "").trim();
+            if (!replicaUrls.isEmpty()) {
+                String replicaUser = config.getProperty("db.replicas.user", dbUser);
+                String replicaPassword = config.getProperty("db.replicas.password", dbPassword);
+                long readYourWritesMs = Long.parseLong(config.getProperty("db.replicas.readYourWritesMs", "1000"));
+                List<ConnectionPool> replicas = new ArrayList<>();
+                for (String replicaUrl : replicaUrls.split(",")) {
+                    String url = replicaUrl.trim();
+                    if (url.isEmpty()) continue;
+                    if (serverSidePrepare) url = ConnectionPool.withServerSidePrepare(url);
+                    // Bez wstępnie otwartych połączeń - niedostępna replika nie blokuje startu, router czyta wtedy z bazy głównej
+                    replicas.add(new ConnectionPool(url, replicaUser, replicaPassword, 0, poolMax, borrowTimeoutMs, validationTimeoutSec));
+                }
+                dbManager.enableReadReplicas(replicas, readYourWritesMs);
+                logger.info("Read replicas enabled (count=" + replicas.size() + ", readYourWritesMs=" + readYourWritesMs + ").");
+            }
+            int transferAttempts = Integer.parseInt(config.getProperty("db.transfer.maxAttempts", "5"));
+            long transferBackoffMs = Long.parseLong(config.getProperty("db.transfer.backoffBaseMs", "5"));
+            dbManager.getTransferEngine().setRetryPolicy(transferAttempts, transferBackoffMs);
+            dbManager.getAccountNumberAllocator().configure(
+                    config.getProperty("accounts.bankCode", AccountNumberAllocator.DEFAULT_BANK_CODE).trim(),
+                    Integer.parseInt(config.getProperty("accounts.numberBlockSize", String.valueOf(AccountNumberAllocator.DEFAULT_BLOCK_SIZE))));
+            if (Boolean.parseBoolean(config.getProperty("db.ledger.enabled", "false"))) {
+                int fetchSize = Integer.parseInt(config.getProperty("db.ledger.fetchSize", String.valueOf(AccountLedger.DEFAULT_FETCH_SIZE)));
+                dbManager.enableLedger(fetchSize);
+                logger.info("Transaction history ledger enabled (fetchSize=" + fetchSize + ").");
+            }
+            int lockStripes = Integer.parseInt(config.getProperty("db.accountLocks.stripes", "0"));
+            if (lockStripes > 0) {
+                dbManager.enableAccountLocks(lockStripes);
+                logger.info("Account locks enabled (stripes=" + dbManager.getAccountLocks().getStripeCount() + ").");
+            }
+            if (Boolean.parseBoolean(config.getProperty("db.batching.enabled", "false"))) {
+                int maxBatch = Integer.parseInt(config.getProperty("db.batching.maxBatch", "64"));
+                long maxDelayMicros = Long.parseLong(config.getProperty("db.batching.maxDelayMicros", "500"));
+                dbManager.enableWriteBatching(maxBatch, maxDelayMicros, logger);
+                logger.info("Balance write batching enabled (maxBatch=" + maxBatch + ", maxDelayMicros=" + maxDelayMicros + ").");
+            }
+            if (Boolean.parseBoolean(config.getProperty("cache.accounts.enabled", "true"))) {
+                int maxAccounts = Integer.parseInt(config.getProperty("cache.accounts.maxEntries", "10000"));
+                int maxClientIndexes = Integer.parseInt(config.getProperty("cache.clientIndex.maxEntries", "10000"));
+                dbManager.enableAccountCache(maxAccounts, maxClientIndexes);
+                logger.info("Account cache enabled (maxEntries=" + maxAccounts + ", clientIndex.maxEntries=" + maxClientIndexes + ").");
+            }
+            if (Boolean.parseBoolean(config.getProperty("cache.clients.enabled", "true"))) {
+                int maxClients = Integer.parseInt(config.getProperty("cache.clients.maxEntries", "10000"));
+                long clientTtlSec = Long.parseLong(config.getProperty("cache.clients.ttlSeconds", "300"));
+                dbManager.enableClientCache(maxClients, clientTtlSec * 1000);
+                logger.info("Client profile cache enabled (maxEntries=" + maxClients + ", ttl=" + clientTtlSec + "s).");
+            }
+            logger.info("Database Manager initialized successfully with connection pool (min=" + poolMin + ", max=" + poolMax + ").");
             return true;
         } catch (Exception e) { // Łapanie szerszych wyjątków z konstruktora DBManager (np. ClassNotFoundException)
             logger.log(Level.SEVERE, "FATAL: Failed to initialize DBManager. Server cannot start.", e);
@@ -159,11 +446,45 @@ public class BankServer {
         }
     }
 
+    private static void closeStorage() {
+        if (storage == null) return;
+        logger.info("Request metrics at shutdown: " + storage.getMetrics().statsSummary());
+        if (storage instanceof InMemoryStorage) {
+            InMemoryStorage memory = (InMemoryStorage) storage;
+            logger.info("In-memory storage statistics at shutdown: " + memory.statsSummary());
+            memory.close();
+        } else {
+            closeDBManager();
+        }
+    }
+
     private static void closeDBManager() {
         if (dbManager != null) {
+            logger.info("Connection pool statistics at shutdown: " + dbManager.getPool().statsSummary());
+            logger.info("Transfer engine statistics at shutdown: " + dbManager.getTransferEngine().statsSummary());
+            logger.info("Bulk import statistics at shutdown: " + dbManager.getBulkImporter().statsSummary());
+            logger.info("Account number allocator at shutdown: " + dbManager.getAccountNumberAllocator().statsSummary());
+            if (dbManager.getAccountCache() != null) {
+                logger.info("Account cache statistics at shutdown: " + dbManager.getAccountCache().statsSummary());
+            }
+            if (dbManager.getClientCache() != null) {
+                logger.info("Client cache statistics at shutdown: " + dbManager.getClientCache().statsSummary());
+            }
+            if (dbManager.getLedger() != null) {
+                logger.info("Ledger at shutdown: " + dbManager.getLedger().statsSummary());
+            }
+            if (dbManager.getAccountLocks() != null) {
+                logger.info("Account locks at shutdown: " + dbManager.getAccountLocks().statsSummary());
+            }
+            if (dbManager.getWriteBatcher() != null) {
+                logger.info("Balance write batching at shutdown: " + dbManager.getWriteBatcher().statsSummary());
+            }
+            if (dbManager.getReadReplicas() != null) {
+                logger.info("Read replicas at shutdown: " + dbManager.getReadReplicas().statsSummary());
+            }
             try {
                 dbManager.close(); // DBManager implementuje AutoCloseable
-                logger.info("Database connection closed successfully via DBManager.close().");
+                logger.info("Database connection pool closed successfully via DBManager.close().");
             } catch (Exception e) { // Łapanie ogólnego Exception z dbManager.close()
                 logger.log(Level.SEVERE, "Error closing database connection during shutdown.", e);
             }
@@ -172,8 +493,9 @@ public class BankServer {
 
     private static void shutdownServerComponents() {
         logger.info("Initiating shutdown of server components...");
+        if (nioServer != null) nioServer.close(); // Przestań przyjmować i obsługiwać połączenia NIO
         shutdownClientExecutor(); // Najpierw zakończ obsługę klientów
-        closeDBManager();         // Następnie zamknij połączenie z bazą
+        closeStorage();           // Następnie zamknij magazyn danych (połączenia z bazą)
         logger.info("Server components shutdown process completed.");
     }
 
@@ -182,6 +504,7 @@ public class BankServer {
             logger.info("Shutdown hook triggered: Closing server resources...");
             shutdownServerComponents();
             logger.info("Server shutdown hook finished execution.");
+            closeLogHandlers();
         }, "BankServer-ShutdownHook"));
     }
 }
\ No newline at end of file
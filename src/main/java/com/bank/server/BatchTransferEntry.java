@@ -0,0 +1,57 @@
+// File: src/main/java/com/bank/server/BatchTransferEntry.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Jeden przelew paczki (BATCH_TRANSFER, {@link Storage#transferBatch}). Format pól sprawdza sesja.
+ */
+public final class BatchTransferEntry {
+    private final String fromAccountNumber;
+    private final String toAccountNumber;
+    private final BigDecimal amount;
+
+    public BatchTransferEntry(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+    }
+
+    public String getFromAccountNumber() { return fromAccountNumber; }
+    public String getToAccountNumber() { return toAccountNumber; }
+    public BigDecimal getAmount() { return amount; }
+
+    /** Różne konta paczki w porządku numerów - kolejność blokowania wspólna dla wszystkich transakcji. */
+    public static Set<String> accountNumbers(List<BatchTransferEntry> entries) {
+        Set<String> numbers = new TreeSet<>();
+        for (BatchTransferEntry entry : entries) {
+            numbers.add(entry.fromAccountNumber);
+            numbers.add(entry.toAccountNumber);
+        }
+        return numbers;
+    }
+
+    // Te same warunki wejściowe co pojedynczy przelew (TransferEngine.transfer)
+    static void validate(List<BatchTransferEntry> entries) {
+        for (BatchTransferEntry entry : entries) {
+            if (entry.fromAccountNumber.equals(entry.toAccountNumber)) {
+                throw new IllegalArgumentException("Nie można wykonać przelewu na to samo konto: " + entry.fromAccountNumber);
+            }
+            if (entry.amount.signum() <= 0) {
+                throw new IllegalArgumentException("Kwota przelewu musi być dodatnia: " + entry.amount);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchTransferEntry{" +
+                "from='" + fromAccountNumber + '\'' +
+                ", to='" + toAccountNumber + '\'' +
+                ", amount=" + amount +
+                '}';
+    }
+}
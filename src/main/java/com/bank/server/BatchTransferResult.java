@@ -0,0 +1,60 @@
+// File: src/main/java/com/bank/server/BatchTransferResult.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Wynik paczki przelewów: status każdego przelewu (jak {@link TransferResult.Status}) oraz informacja,
+ * czy transakcja paczki została zatwierdzona. W trybie "wszystko albo nic" jeden nieudany przelew wycofuje
+ * całą paczkę - przelewy ze statusem OK nie zostały wtedy wykonane.
+ */
+public final class BatchTransferResult {
+    private final TransferResult.Status[] statuses;
+    private final boolean committed;
+    private final int retries;
+    private final Map<String, BigDecimal> balances; // Salda kont zmienionych przez paczkę (puste bez zatwierdzenia)
+
+    BatchTransferResult(TransferResult.Status[] statuses, boolean committed, int retries, Map<String, BigDecimal> balances) {
+        this.statuses = statuses;
+        this.committed = committed;
+        this.retries = retries;
+        this.balances = balances != null ? balances : Collections.emptyMap();
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public TransferResult.Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    /** @return true, jeśli przelew o tym indeksie został wykonany i zatwierdzony. */
+    public boolean isApplied(int index) {
+        return committed && statuses[index] == TransferResult.Status.OK;
+    }
+
+    public int getAppliedCount() {
+        if (!committed) return 0;
+        int applied = 0;
+        for (TransferResult.Status status : statuses) {
+            if (status == TransferResult.Status.OK) applied++;
+        }
+        return applied;
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    /** Salda po paczce kont, które zmieniła (tylko po zatwierdzeniu). */
+    public Map<String, BigDecimal> getBalances() {
+        return balances;
+    }
+}
@@ -0,0 +1,306 @@
+// File: src/main/java/com/bank/server/BoundedCache.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ograniczona pamięć podręczna LRU z wersjonowaniem wpisów, bezpieczna przy równoległych odczytach i zapisach.
+ * <p>
+ * Problem klasycznego cache przed bazą: odczyt z bazy, który rozpoczął się przed zapisem, może włożyć
+ * do cache starą wartość już po zapisie. Dlatego każda zmiana dostaje numer z globalnego licznika, a odczyt
+ * pobiera epokę ({@link #readEpoch()}) przed zapytaniem do bazy - {@link #putIfUnchanged} przyjmuje wartość
+ * tylko wtedy, gdy od tej epoki klucz nie był modyfikowany. Zapis (write-through) otacza operację w bazie
+ * parą {@link #beginWrite}/{@link #endWrite}; jeśli dwa zapisy tego samego klucza się nakładają,
+ * wpis jest unieważniany zamiast ustawiany w niepewnej kolejności. Unieważnione wpisy pozostają jako puste
+ * znaczniki wersji i są wypierane przez LRU jak zwykłe wpisy.
+ * <p>
+ * Klucze rozdzielane są po skrócie na segmenty z własnym monitorem i własną listą LRU, więc operacje na różnych
+ * kluczach zwykle nie czekają na siebie. Limit wpisów dzielony jest równo między segmenty - wypierany jest
+ * najdawniej używany wpis segmentu, nie całego cache. Licznik wersji jest wspólny (atomowy), a sprawdzenia
+ * epoki i wersji wypartych slotów wykonywane są w segmencie klucza.
+ * <p>
+ * Opcjonalnie wpisy mają czas życia (TTL) - po jego upływie odczyt traktowany jest jak chybienie,
+ * co ogranicza czas widoczności zmian wykonanych w bazie z pominięciem cache.
+ */
+public class BoundedCache<K, V> {
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos; // 0 = wpisy nie wygasają
+    private final Segment<K, V>[] segments;
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    public BoundedCache(String name, int maxEntries) {
+        this(name, maxEntries, 0);
+    }
+
+    /**
+     * @param ttlMillis Czas życia wpisu od zapamiętania; 0 oznacza brak wygasania.
+     */
+    public BoundedCache(String name, int maxEntries, long ttlMillis) {
+        this(name, maxEntries, ttlMillis, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param segmentCount Liczba segmentów (ograniczana do maxEntries, aby każdy segment mieścił co najmniej jeden wpis).
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(String name, int maxEntries, long ttlMillis, int segmentCount) {
+        if (maxEntries < 1) throw new IllegalArgumentException("Rozmiar cache musi być dodatni: " + maxEntries);
+        if (ttlMillis < 0) throw new IllegalArgumentException("Czas życia wpisu nie może być ujemny: " + ttlMillis);
+        if (segmentCount < 1) throw new IllegalArgumentException("Liczba segmentów musi być dodatnia: " + segmentCount);
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        int count = Math.min(segmentCount, maxEntries);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Reszta z dzielenia trafia do pierwszych segmentów - suma limitów równa się maxEntries
+            segments[i] = new Segment<>(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        return segments[Math.floorMod(h ^ (h >>> 16), segments.length)];
+    }
+
+    /** Zwraca wartość z cache lub null (chybienie). */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot != null && expireIfStale(slot)) segment.expirations++;
+            if (slot != null && slot.value != null && slot.writers == 0) {
+                segment.hits++;
+                return slot.value;
+            }
+            segment.misses++;
+            return null;
+        }
+    }
+
+    /** Zwraca wartość z cache bez liczenia statystyk trafień (do wewnętrznego użytku przy zapisach). */
+    public V peek(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot != null && expireIfStale(slot)) segment.expirations++;
+            return (slot != null && slot.writers == 0) ? slot.value : null;
+        }
+    }
+
+    /** Epoka do pobrania przed odczytem z bazy, którego wynik ma trafić do cache. */
+    public long readEpoch() {
+        return versionCounter.get();
+    }
+
+    /**
+     * Wstawia wartość odczytaną z bazy, o ile klucz nie był zmieniany od podanej epoki i nie trwa jego zapis.
+     * @return true, jeśli wartość została zapamiętana.
+     */
+    public boolean putIfUnchanged(K key, V value, long epoch) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot == null) {
+                if (epoch < segment.maxDroppedVersion) { // Slot mógł zostać zmieniony i usunięty po rozpoczęciu odczytu
+                    segment.rejectedPuts++;
+                    return false;
+                }
+                slot = new Slot<>();
+                slot.version = versionCounter.incrementAndGet();
+                slot.value = value;
+                slot.storedAt = System.nanoTime();
+                segment.map.put(key, slot);
+                segment.puts++;
+                return true;
+            }
+            if (slot.writers > 0 || slot.version > epoch) { // Zapis w toku lub klucz zmieniony po rozpoczęciu odczytu
+                segment.rejectedPuts++;
+                return false;
+            }
+            slot.value = value;
+            slot.storedAt = System.nanoTime();
+            segment.puts++;
+            return true;
+        }
+    }
+
+    /** Rozpoczyna zapis klucza (przed operacją w bazie). Zwrócony token należy przekazać do endWrite. */
+    public long beginWrite(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot == null) {
+                slot = new Slot<>();
+                segment.map.put(key, slot);
+            }
+            slot.writers++;
+            slot.value = null; // W trakcie zapisu wartość jest niepewna
+            slot.version = versionCounter.incrementAndGet();
+            return slot.version;
+        }
+    }
+
+    /**
+     * Kończy zapis klucza. Nowa wartość jest zapamiętywana tylko, gdy żaden inny zapis tego klucza
+     * nie rozpoczął się w międzyczasie; w przeciwnym razie (lub gdy newValue == null) wpis jest unieważniany.
+     */
+    public void endWrite(K key, long token, V newValue) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot == null) return; // Nie powinno się zdarzyć - sloty z aktywnymi zapisami nie są usuwane
+            slot.writers = Math.max(0, slot.writers - 1);
+            boolean exclusive = slot.version == token && slot.writers == 0;
+            slot.version = versionCounter.incrementAndGet();
+            if (exclusive && newValue != null) {
+                slot.value = newValue;
+                slot.storedAt = System.nanoTime();
+                segment.puts++;
+            } else {
+                slot.value = null; // Slot zostaje jako znacznik wersji, aby spóźnione odczyty nie wstawiły starej wartości
+                segment.invalidations++;
+            }
+        }
+    }
+
+    /** Unieważnia wpis (np. po zmianie w bazie, której nowej wartości nie znamy). */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Slot<V> slot = segment.map.get(key);
+            if (slot == null) {
+                // Pusty slot-znacznik: trwające odczyty tego klucza nie wstawią starej wartości
+                slot = new Slot<>();
+                segment.map.put(key, slot);
+            } else if (slot.value != null) {
+                segment.invalidations++;
+            }
+            slot.value = null;
+            slot.version = versionCounter.incrementAndGet();
+        }
+    }
+
+    /** Unieważnia wszystkie wpisy, których wartość spełnia warunek (operacja O(n), dla rzadkich zmian administracyjnych). */
+    public int invalidateIf(Predicate<V> condition) {
+        int removed = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                Iterator<Map.Entry<K, Slot<V>>> it = segment.map.entrySet().iterator();
+                while (it.hasNext()) {
+                    Slot<V> slot = it.next().getValue();
+                    if (slot.value != null && condition.test(slot.value)) {
+                        slot.value = null; // Slot zostaje jako znacznik wersji
+                        slot.version = versionCounter.incrementAndGet();
+                        segment.invalidations++;
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.maxDroppedVersion = versionCounter.incrementAndGet();
+                segment.map.clear();
+            }
+        }
+    }
+
+    // Wygasły wpis zostaje jako znacznik wersji - jego wersja się nie zmienia, bo wartość w bazie nie musiała się zmienić
+    private boolean expireIfStale(Slot<V> slot) {
+        if (ttlNanos == 0 || slot.value == null || System.nanoTime() - slot.storedAt < ttlNanos) return false;
+        slot.value = null;
+        return true;
+    }
+
+    // --- Statystyki ---
+
+    public String getName() { return name; }
+    public int getMaxEntries() { return maxEntries; }
+    public int getSegmentCount() { return segments.length; }
+    public long getTtlMillis() { return TimeUnit.NANOSECONDS.toMillis(ttlNanos); }
+    public long getHits() { return sum(segment -> segment.hits); }
+    public long getMisses() { return sum(segment -> segment.misses); }
+    public long getEvictions() { return sum(segment -> segment.evictions); }
+    public long getInvalidations() { return sum(segment -> segment.invalidations); }
+    public long getExpirations() { return sum(segment -> segment.expirations); }
+    public int size() { return (int) sum(segment -> segment.map.size()); }
+
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public String statsSummary() {
+        long hits = getHits();
+        long misses = getMisses();
+        return String.format("%s[size=%d/%d, segments=%d, hits=%d, misses=%d, hitRatio=%.1f%%, puts=%d, rejectedPuts=%d, evictions=%d, invalidations=%d, expirations=%d]",
+                name, size(), maxEntries, segments.length, hits, misses, (hits + misses == 0) ? 0.0 : hits * 100.0 / (hits + misses),
+                sum(segment -> segment.puts), sum(segment -> segment.rejectedPuts), getEvictions(), getInvalidations(), getExpirations());
+    }
+
+    // Suma licznika po segmentach, każdy odczytany pod swoim monitorem
+    private long sum(ToLongFunction<Segment<K, V>> counter) {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                total += counter.applyAsLong(segment);
+            }
+        }
+        return total;
+    }
+
+    // Segment: własna lista LRU, wersja wypartych slotów i statystyki, chronione monitorem segmentu
+    private static final class Segment<K, V> {
+        final LinkedHashMap<K, Slot<V>> map;
+        long maxDroppedVersion = 0; // Najwyższa wersja wypartego slotu - chroni przed wstawieniem starej wartości
+        long hits;
+        long misses;
+        long evictions;
+        long puts;
+        long rejectedPuts;
+        long invalidations;
+        long expirations;
+
+        Segment(int maxEntries) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) { // accessOrder = true -> LRU
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+                    if (size() <= maxEntries) return false;
+                    // Sloty z trwającym zapisem nie są wypierane - usuwamy najstarsze wolne, aż segment wróci do limitu
+                    Iterator<Slot<V>> it = values().iterator();
+                    while (size() > maxEntries && it.hasNext()) {
+                        Slot<V> slot = it.next();
+                        if (slot.writers == 0) {
+                            it.remove();
+                            evictions++;
+                            maxDroppedVersion = Math.max(maxDroppedVersion, slot.version);
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class Slot<V> {
+        V value;         // null = brak wartości (miejsce zarezerwowane dla trwającego zapisu)
+        long version;    // Numer ostatniej zmiany z globalnego licznika
+        int writers;     // Liczba trwających zapisów tego klucza
+        long storedAt;   // System.nanoTime() zapamiętania wartości (dla TTL)
+    }
+}
@@ -0,0 +1,231 @@
+// File: src/main/java/com/bank/server/BulkImporter.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Import zbiorczy klientów z pierwszymi kontami (ADMIN;BULK_IMPORT). Cała porcja wierszy to jedna transakcja
+ * i stała liczba poleceń, niezależnie od liczby wierszy:
+ * <ul>
+ *   <li>duplikaty PESEL sprawdzane są jednym zapytaniem WHERE pesel IN (...) dla całej porcji
+ *       (wcześniejszy wiersz porcji z tym samym PESEL-em wygrywa),</li>
+ *   <li>klienci i konta wstawiani są batchami JDBC, a ID nowych klientów i kont odczytywane są z powrotem
+ *       jednym zapytaniem po PESEL-ach / ID klientów (bez polegania na kluczach generowanych przez batch),</li>
+ *   <li>numery kont pochodzą z {@link AccountNumberAllocator} - bez sprawdzania kandydatów w bazie; są rezerwowane
+ *       dla wszystkich wierszy porcji przed otwarciem transakcji (rezerwacja bloku wypożycza osobne połączenie,
+ *       więc nie może czekać na pulę, trzymając już połączenie importu). Numery wierszy odrzuconych zostają lukami,</li>
+ *   <li>przy włączonej historii ({@link AccountLedger}) wpisy OPEN dopisywane są jednym batchem w tej samej transakcji.</li>
+ * </ul>
+ * Konflikt z równoległym dodaniem klienta (naruszenie unikalności PESEL między sprawdzeniem a wstawieniem)
+ * wycofuje całą porcję - DBManager importuje ją wtedy ponownie jako porcje jednowierszowe
+ * ({@link #isIntegrityViolation}).
+ */
+public class BulkImporter {
+
+    private final ConnectionPool pool;
+    private final AccountNumberAllocator accountNumbers;
+    private volatile AccountLedger ledger; // null = bez historii operacji
+
+    // --- Statystyki ---
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rolledBack = new LongAdder(); // Porcje wycofane (import ponawiany wiersz po wierszu)
+
+    public BulkImporter(ConnectionPool pool, AccountNumberAllocator accountNumbers) {
+        this.pool = pool;
+        this.accountNumbers = accountNumbers;
+    }
+
+    /** Włącza dopisywanie wpisów OPEN historii w transakcji importu. */
+    public void setLedger(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Importuje porcję wierszy w jednej transakcji.
+     * @param created Odbiorca kont założonych po zatwierdzeniu transakcji (np. aktualizacja cache); może być null.
+     * @return Wyniki w kolejności wierszy.
+     * @throws SQLException Gdy transakcja została wycofana - żaden wiersz porcji nie został zapisany.
+     */
+    public List<ClientImportResult> importChunk(List<ClientImportRow> rows, List<Account> created) throws SQLException {
+        chunks.increment();
+        ClientImportResult[] results = new ClientImportResult[rows.size()];
+        AccountLedger ledger = this.ledger;
+        List<String> accountNumbers = this.accountNumbers.nextAccountNumbers(rows.size());
+        List<Account> accounts;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+            try {
+                List<ClientImportRow> accepted = acceptNewPesels(conn, rows, results);
+                accounts = insertAll(lease, accepted, accountNumbers, ledger);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException exRollback) {
+                    e.addSuppressed(exRollback);
+                }
+                rolledBack.increment();
+                throw e;
+            }
+        }
+        // Konta wracają w kolejności przyjętych wierszy - uzupełniamy nimi puste miejsca wyników
+        int next = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                Account account = accounts.get(next++);
+                results[i] = ClientImportResult.imported(account.getClientId(), account.getAccountNumber());
+            }
+        }
+        if (created != null) created.addAll(accounts);
+        imported.add(accounts.size());
+        rejected.add(results.length - accounts.size());
+        return List.of(results);
+    }
+
+    // Odrzuca (PESEL_EXISTS) wiersze z PESEL-em już obecnym w bazie lub powtórzonym w porcji
+    private static List<ClientImportRow> acceptNewPesels(Connection conn, List<ClientImportRow> rows,
+                                                         ClientImportResult[] results) throws SQLException {
+        Set<String> taken = existingPesels(conn, rows);
+        List<ClientImportRow> accepted = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ClientImportRow row = rows.get(i);
+            if (taken.add(row.getPesel())) {
+                accepted.add(row);
+            } else {
+                results[i] = ClientImportResult.peselExists();
+            }
+        }
+        return accepted;
+    }
+
+    private static Set<String> existingPesels(Connection conn, List<ClientImportRow> rows) throws SQLException {
+        if (rows.isEmpty()) return new HashSet<>();
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement st = conn.prepareStatement("SELECT pesel FROM clients WHERE pesel IN (" + placeholders(rows.size()) + ")")) {
+            for (int i = 0; i < rows.size(); i++) st.setString(i + 1, rows.get(i).getPesel());
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) existing.add(rs.getString(1));
+            }
+        }
+        return existing;
+    }
+
+    // Wstawia klientów i ich pierwsze konta (numery z accountNumbers po kolei); zwraca konta w kolejności wierszy
+    private static List<Account> insertAll(ConnectionPool.Lease lease, List<ClientImportRow> rows, List<String> accountNumbers,
+                                           AccountLedger ledger) throws SQLException {
+        if (rows.isEmpty()) return Collections.emptyList();
+        Connection conn = lease.connection();
+        PreparedStatement insertClient = lease.prepare(SqlCatalog.ADD_CLIENT);
+        for (ClientImportRow row : rows) {
+            insertClient.setString(1, row.getFirstName());
+            insertClient.setString(2, row.getLastName());
+            insertClient.setString(3, row.getPesel());
+            insertClient.setString(4, row.getPassword()); // Przechowywanie jawnego hasła zgodnie z zakresem projektu
+            insertClient.addBatch();
+        }
+        insertClient.executeBatch();
+        Map<String, Integer> clientIds = clientIdsByPesel(conn, rows);
+
+        List<Account> accounts = new ArrayList<>(rows.size());
+        PreparedStatement insertAccount = lease.prepare(SqlCatalog.ADD_ACCOUNT);
+        for (int i = 0; i < rows.size(); i++) {
+            ClientImportRow row = rows.get(i);
+            Integer clientId = clientIds.get(row.getPesel());
+            if (clientId == null) throw new SQLException("Import zbiorczy: nie odczytano ID klienta o PESEL " + row.getPesel() + ".");
+            String accountNumber = accountNumbers.get(i);
+            insertAccount.setInt(1, clientId);
+            insertAccount.setString(2, accountNumber);
+            insertAccount.setBigDecimal(3, row.getInitialBalance());
+            insertAccount.addBatch();
+            accounts.add(new Account(0, clientId, accountNumber, row.getInitialBalance()));
+        }
+        insertAccount.executeBatch();
+        Map<Integer, Integer> accountIds = accountIdsByClient(conn, clientIds);
+        for (int i = 0; i < accounts.size(); i++) {
+            Account pending = accounts.get(i);
+            Integer accountId = accountIds.get(pending.getClientId());
+            if (accountId == null) throw new SQLException("Import zbiorczy: nie odczytano ID konta " + pending.getAccountNumber() + ".");
+            accounts.set(i, new Account(accountId, pending.getClientId(), pending.getAccountNumber(), pending.getBalance()));
+        }
+
+        if (ledger != null) {
+            List<LedgerEntry> entries = new ArrayList<>(accounts.size());
+            for (Account account : accounts) {
+                entries.add(LedgerEntry.of(account.getAccountNumber(), LedgerEntry.Type.OPEN, account.getBalance(), account.getBalance(), null));
+            }
+            ledger.append(lease, entries);
+        }
+        return accounts;
+    }
+
+    private static Map<String, Integer> clientIdsByPesel(Connection conn, List<ClientImportRow> rows) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>(rows.size() * 2);
+        try (PreparedStatement st = conn.prepareStatement("SELECT id, pesel FROM clients WHERE pesel IN (" + placeholders(rows.size()) + ")")) {
+            for (int i = 0; i < rows.size(); i++) st.setString(i + 1, rows.get(i).getPesel());
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) ids.put(rs.getString("pesel"), rs.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
+    // Nowy klient ma w tej transakcji dokładnie jedno konto - właśnie założone
+    private static Map<Integer, Integer> accountIdsByClient(Connection conn, Map<String, Integer> clientIds) throws SQLException {
+        Map<Integer, Integer> ids = new HashMap<>(clientIds.size() * 2);
+        try (PreparedStatement st = conn.prepareStatement("SELECT id, client_id FROM accounts WHERE client_id IN (" + placeholders(clientIds.size()) + ")")) {
+            int index = 1;
+            for (Integer clientId : clientIds.values()) st.setInt(index++, clientId);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) ids.put(rs.getInt("client_id"), rs.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * true, jeśli błąd (lub błąd w nim zagnieżdżony - sterowniki zgłaszają błąd wiersza batcha jako
+     * BatchUpdateException z przyczyną / kolejnym wyjątkiem) to naruszenie ograniczenia integralności (SQLSTATE 23xxx).
+     */
+    static boolean isIntegrityViolation(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLIntegrityConstraintViolationException) return true;
+            if (t instanceof SQLException) {
+                SQLException sql = (SQLException) t;
+                if (sql.getSQLState() != null && sql.getSQLState().startsWith("23")) return true;
+                SQLException nextEx = sql.getNextException();
+                if (nextEx != null && nextEx != t.getCause() && isIntegrityViolation(nextEx)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) sb.append(i == 0 ? "?" : ",?");
+        return sb.toString();
+    }
+
+    // --- Statystyki ---
+
+    public String statsSummary() {
+        return "bulkImport[chunks=" + chunks.sum() + ", imported=" + imported.sum() + ", rejected=" + rejected.sum() +
+                ", rolledBack=" + rolledBack.sum() + "]";
+    }
+}
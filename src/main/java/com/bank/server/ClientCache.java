@@ -0,0 +1,95 @@
+// File: src/main/java/com/bank/server/ClientCache.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Client;
+
+/**
+ * Pamięć podręczna profili klientów: wiersze tabeli 'clients' według ID oraz indeks PESEL -> ID.
+ * Używana przy logowaniu (authenticateClient) i operacjach administracyjnych, które wielokrotnie
+ * pobierają ten sam wiersz klienta. Wpisy wygasają po ustalonym czasie (TTL).
+ * <p>
+ * Indeks PESEL nie musi być unieważniany przy zmianie danych klienta: trafienie w indeksie jest
+ * przyjmowane tylko wtedy, gdy profil w cache ma ten sam PESEL.
+ */
+public class ClientCache {
+    private final BoundedCache<Integer, Entry> byId;
+    private final BoundedCache<String, Integer> idByPesel;
+
+    public ClientCache(int maxEntries, long ttlMillis) {
+        this.byId = new BoundedCache<>("clientCache", maxEntries, ttlMillis);
+        this.idByPesel = new BoundedCache<>("clientPeselIndex", maxEntries, ttlMillis);
+    }
+
+    /** Wpis cache: dane klienta (bez hasła) oraz hasło zapisane w bazie, potrzebne do uwierzytelniania. */
+    static final class Entry {
+        final int id;
+        final String firstName;
+        final String lastName;
+        final String pesel;
+        final String storedPassword;
+
+        Entry(int id, String firstName, String lastName, String pesel, String storedPassword) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.pesel = pesel;
+            this.storedPassword = storedPassword;
+        }
+
+        Client toClient() {
+            return new Client(id, firstName, lastName, pesel, null); // Hasło nigdy nie opuszcza cache
+        }
+    }
+
+    // --- Odczyt ---
+
+    Entry get(int clientId) {
+        return byId.get(clientId);
+    }
+
+    Entry getByPesel(String pesel) {
+        Integer id = idByPesel.get(pesel);
+        if (id == null) return null;
+        Entry entry = byId.get(id);
+        return (entry != null && entry.pesel.equals(pesel)) ? entry : null;
+    }
+
+    long readEpoch() {
+        return byId.readEpoch();
+    }
+
+    long peselReadEpoch() {
+        return idByPesel.readEpoch();
+    }
+
+    /** Zapamiętuje wiersz odczytany z bazy, o ile klient nie był zmieniany od epoki odczytu. */
+    void put(Entry entry, long epoch, long peselEpoch) {
+        if (byId.putIfUnchanged(entry.id, entry, epoch)) {
+            idByPesel.putIfUnchanged(entry.pesel, entry.id, peselEpoch);
+        }
+    }
+
+    // --- Zmiany ---
+
+    /** Rozpoczyna zmianę danych klienta; token należy przekazać do {@link #endUpdate}. */
+    long beginUpdate(int clientId) {
+        return byId.beginWrite(clientId);
+    }
+
+    /** Kończy zmianę lub usunięcie klienta - wpis jest unieważniany, kolejny odczyt pobierze go z bazy. */
+    void endUpdate(int clientId, long token) {
+        byId.endWrite(clientId, token, null);
+    }
+
+    public BoundedCache<Integer, ?> getProfileCache() {
+        return byId;
+    }
+
+    public BoundedCache<String, Integer> getPeselIndexCache() {
+        return idByPesel;
+    }
+
+    public String statsSummary() {
+        return byId.statsSummary() + " " + idByPesel.statsSummary();
+    }
+}
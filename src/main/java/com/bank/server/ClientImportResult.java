@@ -0,0 +1,50 @@
+// File: src/main/java/com/bank/server/ClientImportResult.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+/**
+ * Wynik jednego wiersza importu zbiorczego: ID nowego klienta i numer jego pierwszego konta
+ * albo powód odrzucenia wiersza.
+ */
+public final class ClientImportResult {
+
+    public enum Status {
+        IMPORTED,
+        PESEL_EXISTS // PESEL jest już w bazie albo powtarza się we wcześniejszym wierszu tej samej porcji
+    }
+
+    private static final ClientImportResult PESEL_EXISTS = new ClientImportResult(Status.PESEL_EXISTS, 0, null);
+
+    private final Status status;
+    private final int clientId;
+    private final String accountNumber;
+
+    private ClientImportResult(Status status, int clientId, String accountNumber) {
+        this.status = status;
+        this.clientId = clientId;
+        this.accountNumber = accountNumber;
+    }
+
+    public static ClientImportResult imported(int clientId, String accountNumber) {
+        return new ClientImportResult(Status.IMPORTED, clientId, accountNumber);
+    }
+
+    public static ClientImportResult peselExists() {
+        return PESEL_EXISTS;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isImported() {
+        return status == Status.IMPORTED;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+}
@@ -0,0 +1,40 @@
+// File: src/main/java/com/bank/server/ClientImportRow.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+
+/**
+ * Jeden wiersz importu zbiorczego (ADMIN;BULK_IMPORT): nowy klient i saldo początkowe jego pierwszego konta.
+ * Format pól sprawdza sesja przed przekazaniem wiersza do magazynu ({@link Storage#importClients}).
+ */
+public final class ClientImportRow {
+    private final String firstName;
+    private final String lastName;
+    private final String pesel;
+    private final BigDecimal initialBalance;
+    private final String password;
+
+    public ClientImportRow(String firstName, String lastName, String pesel, BigDecimal initialBalance, String password) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.pesel = pesel;
+        this.initialBalance = initialBalance;
+        this.password = password;
+    }
+
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public String getPesel() { return pesel; }
+    public BigDecimal getInitialBalance() { return initialBalance; }
+    public String getPassword() { return password; }
+
+    @Override
+    public String toString() {
+        return "ClientImportRow{" +
+                "firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", pesel='" + pesel + '\'' +
+                ", initialBalance=" + initialBalance +
+                '}'; // Hasło celowo pominięte
+    }
+}
@@ -0,0 +1,827 @@
+// File: src/main/java/com/bank/server/ClientSession.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+import com.bank.common.BinaryProtocol;
+import com.bank.common.Client;
+import com.bank.common.Protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stan sesji i przetwarzanie poleceń protokołu, niezależne od sposobu transportu.
+ * Jedna instancja odpowiada jednemu połączeniu klienta; sterują nią zarówno blokujący ClientHandler,
+ * jak i nieblokujący NioServer. Instancja nie jest bezpieczna wątkowo - front-end musi gwarantować,
+ * że żądania jednej sesji są przetwarzane kolejno.
+ */
+public class ClientSession {
+    // Polecenia rozpoznawane przez dekoder bez tworzenia obiektu String (switch działa na zwróconej stałej)
+    private static final String[] COMMANDS = {
+            Protocol.CMD_LOGIN, Protocol.CMD_LOGOUT, Protocol.CMD_BALANCE, Protocol.CMD_DEPOSIT,
+            Protocol.CMD_WITHDRAW, Protocol.CMD_TRANSFER, Protocol.CMD_LIST_MY_ACCOUNTS, Protocol.CMD_HISTORY,
+            Protocol.CMD_BATCH_TRANSFER, Protocol.CMD_ADMIN
+    };
+    private static final String[] BATCH_MODES = {Protocol.BATCH_MODE_ATOMIC, Protocol.BATCH_MODE_BEST_EFFORT};
+    private static final String[] ADMIN_SUBCOMMANDS = {
+            Protocol.SUB_CMD_ADD_CLIENT, Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT, Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID,
+            Protocol.SUB_CMD_GET_ACCOUNT_DETAILS, Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID,
+            Protocol.SUB_CMD_DELETE_CLIENT, Protocol.SUB_CMD_DELETE_ACCOUNT, Protocol.SUB_CMD_STATS,
+            Protocol.SUB_CMD_BULK_IMPORT
+    };
+
+    private static final String ACCESS_LOG_UNKNOWN = "?"; // Nieznane lub puste polecenie w dzienniku dostępu
+
+    private final Storage storage;
+    private final ServerMetrics metrics;
+    private final Logger logger;
+    private final String clientAddress;
+
+    // Bufory wielokrotnego użytku - bieżące żądanie i odpowiedź
+    private final RequestDecoder request = new RequestDecoder();
+    private final ResponseEncoder response = new ResponseEncoder();
+    // Wpisy HISTORY zapisywane wprost do kodera w trakcie odczytu z magazynu
+    private final LedgerEntry.Sink historySink = this::appendHistoryEntry;
+    private int historyEntries;
+    private long historyLastId;
+    // Odpowiedzi strumieniowe: linie przed znacznikiem końca idą prosto do strumienia front-endu
+    private final AccountSink accountStreamSink = new AccountStreamSink();
+    private OutputStream streamOut;  // null = front-end bez odpowiedzi strumieniowych
+    private boolean binaryRequest;   // Bieżące żądanie przyszło jako ramka binarna
+    private Client streamedClient;   // CLIENT_INFO w nagłówku strumienia; null - MY_ACCOUNTS
+    // Chwila ostatniego zapisu sesji - odczyty tuż po nim omijają repliki bazy (ReadReplicaRouter)
+    private final ReadAffinity readAffinity = new ReadAffinity();
+
+    private Client loggedInClient; // Stan sesji: zalogowany klient
+    private String logPrefix;      // Zmienia się tylko przy logowaniu/wylogowaniu
+    private String command;        // Rozpoznane polecenie bieżącego żądania (dla dziennika dostępu)
+    private String subCommand;     // Rozpoznane podpolecenie ADMIN
+    private boolean closed;
+
+    public ClientSession(Storage storage, Logger logger, String clientAddress) {
+        this.storage = storage;
+        this.metrics = storage.getMetrics();
+        this.logger = logger;
+        this.clientAddress = clientAddress;
+        setLoggedInClient(null); // Początkowo nikt nie jest zalogowany
+        metrics.sessionOpened();
+    }
+
+    public Client getLoggedInClient() {
+        return loggedInClient;
+    }
+
+    private void setLoggedInClient(Client client) {
+        if (loggedInClient == null && client != null) metrics.sessionLoggedIn();
+        else if (loggedInClient != null && client == null) metrics.sessionLoggedOut();
+        loggedInClient = client;
+        logPrefix = (client != null) ?
+                "[User:" + client.getId() + "@" + clientAddress + "]" :
+                "[" + clientAddress + "]";
+    }
+
+    /**
+     * Włącza odpowiedzi strumieniowe (żądania list z Protocol.STREAM_MARKER): nagłówek i pozycje listy są zapisywane
+     * do podanego strumienia w trakcie obsługi żądania, w formacie bieżącego żądania (linie lub ramki binarne),
+     * a znacznik końca wraca jak zwykła odpowiedź. Front-end musi więc zapisać odpowiedź do tego samego strumienia
+     * (lub za danymi z niego). Po ostatniej pozycji strumień jest opróżniany przez flush().
+     */
+    public void setStreamOutput(OutputStream out) {
+        this.streamOut = out;
+    }
+
+    /**
+     * Przetwarza jedną linię żądania i zwraca linię odpowiedzi (bez znaku nowej linii).
+     * Wszystkie błędy są mapowane na odpowiedzi RES_ERROR - metoda nie rzuca wyjątków.
+     */
+    public String handleLine(String requestLine) {
+        request.decode(requestLine);
+        binaryRequest = false;
+        handle();
+        return response.line();
+    }
+
+    /**
+     * Przetwarza linię żądania zakodowaną w UTF-8 (bez znaku nowej linii) prosto z bufora wejściowego.
+     * Zwrócony koder zawiera odpowiedź i jest ponownie używany przy następnym żądaniu tej sesji,
+     * więc odpowiedź trzeba zapisać (lub skopiować) przed kolejnym wywołaniem.
+     */
+    public ResponseEncoder handleLine(byte[] line, int offset, int length) {
+        request.decode(line, offset, length);
+        binaryRequest = false;
+        handle();
+        return response;
+    }
+
+    /**
+     * Przetwarza żądanie w postaci binarnej ramki (bez prefiksu długości) i zwraca pełną ramkę odpowiedzi.
+     * Uszkodzona ramka daje odpowiedź RES_ERROR typu FORMAT - granice ramek są znane, więc połączenie trwa dalej.
+     * Odpowiedź, która nie mieści się w jednej ramce, zastępowana jest błędem ERR_RESPONSE_TOO_LARGE.
+     */
+    public byte[] handleFrame(byte[] payload, int offset, int length) {
+        String[] requestParts;
+        try {
+            requestParts = BinaryProtocol.decodePayload(payload, offset, length);
+        } catch (IllegalArgumentException e) {
+            logger.warning(logPrefix + " Malformed binary frame: " + e.getMessage());
+            metrics.recordError(Protocol.ERR_TYPE_FORMAT);
+            return BinaryProtocol.encodeFrame(Protocol.RES_ERROR, Protocol.ERR_TYPE_FORMAT, "Malformed frame: " + e.getMessage());
+        }
+        request.decode(requestParts);
+        binaryRequest = true;
+        handle();
+        try {
+            return BinaryProtocol.encodeFrame(response.toParts());
+        } catch (IllegalArgumentException e) { // Ponad MAX_FRAME_LENGTH bajtów lub zbyt wiele pól (np. lista tysięcy kont)
+            logger.warning(logPrefix + " Response does not fit in a binary frame (" + e.getMessage() + "): " + request.line());
+            return BinaryProtocol.encodeFrame(Protocol.RES_ERROR, Protocol.ERR_RESPONSE_TOO_LARGE,
+                    "Response too large for one frame. Repeat the request with " + Protocol.STREAM_MARKER + " as the last field.");
+        }
+    }
+
+    // Przetwarza żądanie z dekodera; odpowiedź trafia do kodera
+    private void handle() {
+        long start = System.nanoTime();
+        long dbStart = metrics.threadDbNanos();
+        String prefix = logPrefix; // Odpowiedź logujemy z prefiksem sprzed ewentualnego logowania
+        // Pełny ruch tylko na poziomie FINE; formatowanie odroczone do handlera, linia kopiowana tylko przy włączonym poziomie
+        boolean logTraffic = logger.isLoggable(Level.FINE);
+        if (logTraffic) logger.log(Level.FINE, "{0} Received: {1}", new Object[]{prefix, request.line()});
+        command = null;
+        subCommand = null;
+
+        if (request.isEmpty(0)) {
+            response.message(Protocol.RES_ERROR).field("EMPTY_COMMAND").field("Empty command received.");
+            logger.warning(prefix + " Empty command received.");
+        } else {
+            ReadAffinity.bind(readAffinity);
+            try {
+                processRequest();
+            } catch (IllegalArgumentException e) { // Używamy IllegalArgumentException zamiast ParameterException
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_TYPE_PARAM).field(e.getMessage().replace(Protocol.SEPARATOR, ","));
+                logger.log(Level.WARNING, prefix + " Parameter/Argument error: " + request.line(), e);
+                metrics.recordError(Protocol.ERR_TYPE_PARAM);
+            } catch (UncheckedIOException e) { // Zapis odpowiedzi strumieniowej - klient się rozłączył
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_TYPE_UNEXPECTED).field("Stream interrupted.");
+                logger.info(prefix + " Client connection ended during streamed response: " + e.getCause().getMessage());
+            } catch (SQLException e) {
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_TYPE_DB).field("Database error: " + e.getMessage().replace(Protocol.SEPARATOR, ","));
+                logger.log(Level.SEVERE, prefix + " Database error: " + request.line(), e);
+                metrics.recordError(Protocol.ERR_TYPE_DB);
+            } catch (Exception e) { // Ogólny
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_TYPE_UNEXPECTED).field("Unexpected server error: " + String.valueOf(e.getMessage()).replace(Protocol.SEPARATOR, ","));
+                logger.log(Level.SEVERE, prefix + " Unexpected error: " + request.line(), e);
+                metrics.recordError(Protocol.ERR_TYPE_UNEXPECTED);
+            } finally {
+                ReadAffinity.unbind();
+            }
+        }
+        if (logTraffic) logger.log(Level.FINE, "{0} Sent: {1}", new Object[]{prefix, response.line()});
+        long latency = System.nanoTime() - start;
+        metrics.recordRequest(command, subCommand, latency, metrics.threadDbNanos() - dbStart, isErrorResponse());
+        if (AccessLog.isEnabled()) {
+            String status = response.getField(0);
+            boolean hasDetail = Protocol.RES_OK.equals(status) || Protocol.RES_ERROR.equals(status) || Protocol.RES_INFO.equals(status);
+            AccessLog.record(clientAddress, loggedInClient != null ? loggedInClient.getId() : 0,
+                    command != null ? command : ACCESS_LOG_UNKNOWN, subCommand, status,
+                    hasDetail ? response.getField(1) : null, latency);
+        }
+    }
+
+    // Błąd to RES_ERROR albo jeden z kodów błędów wysyłanych bezpośrednio jako status
+    private boolean isErrorResponse() {
+        return response.fieldEquals(0, Protocol.RES_ERROR)
+                || response.fieldEquals(0, Protocol.ERR_ACCOUNT_NOT_FOUND)
+                || response.fieldEquals(0, Protocol.ERR_CLIENT_NOT_FOUND)
+                || response.fieldEquals(0, Protocol.ERR_INSUFFICIENT_FUNDS);
+    }
+
+    /** Kończy sesję (rozłączenie klienta) i czyści jej stan. */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        logger.info("Session finished for client: " + clientAddress +
+                (loggedInClient != null ? " (User: " + loggedInClient.getId() + ")" : " (Not logged in)"));
+        setLoggedInClient(null); // Wyczyść stan sesji
+        metrics.sessionClosed();
+    }
+
+    // Główna metoda przetwarzająca żądanie - zastępuje CommandDispatcher i indywidualne Command.execute()
+    private void processRequest() throws SQLException, IllegalArgumentException {
+        command = request.match(0, COMMANDS); // null = nieznane polecenie
+
+        // Sprawdzenie autoryzacji dla większości komend
+        if (loggedInClient == null &&
+                !Protocol.CMD_LOGIN.equals(command) &&
+                !Protocol.CMD_ADMIN.equals(command)) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_AUTH_REQUIRED).field("Please login first.");
+            return;
+        }
+        if (command == null) {
+            String unknown = request.rawField(0);
+            logger.warning("Unknown command: " + unknown);
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_UNKNOWN_COMMAND).field("Unknown command: " + unknown);
+            return;
+        }
+
+        switch (command) {
+            // Komendy klienta
+            case Protocol.CMD_LOGIN:    handleLogin(); break;
+            case Protocol.CMD_LOGOUT:   handleLogout(); break;
+            case Protocol.CMD_BALANCE:  handleBalance(); break;
+            case Protocol.CMD_DEPOSIT:  handleDeposit(); break;
+            case Protocol.CMD_WITHDRAW: handleWithdraw(); break;
+            case Protocol.CMD_TRANSFER: handleTransfer(); break;
+            case Protocol.CMD_LIST_MY_ACCOUNTS: handleListMyAccounts(); break;
+            case Protocol.CMD_HISTORY:  handleHistory(); break;
+            case Protocol.CMD_BATCH_TRANSFER: handleBatchTransfer(); break;
+
+            // Komendy admina (dispatch na podstawie drugiego tokenu)
+            default: // Protocol.CMD_ADMIN
+                if (request.isEmpty(1)) {
+                    response.message(Protocol.RES_ERROR).field(Protocol.ERR_UNKNOWN_ADMIN_SUBCOMMAND).field("Missing admin subcommand.");
+                    return;
+                }
+                subCommand = request.match(1, ADMIN_SUBCOMMANDS);
+                if (subCommand == null) {
+                    String unknown = request.rawField(1);
+                    logger.warning("Unknown admin subcommand: " + unknown);
+                    response.message(Protocol.RES_ERROR).field(Protocol.ERR_UNKNOWN_ADMIN_SUBCOMMAND).field("Unknown admin action: " + unknown);
+                    return;
+                }
+                switch (subCommand) {
+                    case Protocol.SUB_CMD_ADD_CLIENT:                adminAddClient(); break;
+                    case Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT:     adminAddAccountToClient(); break;
+                    case Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID:     adminGetClientInfoById(); break;
+                    case Protocol.SUB_CMD_GET_ACCOUNT_DETAILS:       adminGetAccountDetails(); break;
+                    case Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID:  adminUpdateClientInfoById(); break;
+                    case Protocol.SUB_CMD_DELETE_CLIENT:             adminDeleteClient(); break;
+                    case Protocol.SUB_CMD_STATS:                     metrics.writeStats(response); break;
+                    case Protocol.SUB_CMD_BULK_IMPORT:               adminBulkImport(); break;
+                    default:                                         adminDeleteAccount(); break; // SUB_CMD_DELETE_ACCOUNT
+                }
+        }
+    }
+
+    // --- Metody pomocnicze do parsowania parametrów (uproszczony RequestParser, bez alokacji dla liczb i numerów kont) ---
+    private void requirePart(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        if (request.isBlank(index)) {
+            throw new IllegalArgumentException(commandName + ": Missing required parameter '" + fieldName + "' at index " + index + ".");
+        }
+    }
+
+    private String getRequiredPart(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        return request.field(index);
+    }
+
+    private int getRequiredInt(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        try {
+            return request.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(commandName + ": Invalid integer for '" + fieldName + "' (value: " + request.field(index) + ").");
+        }
+    }
+
+    private long getRequiredPositiveLong(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        long val;
+        try {
+            val = request.parseLong(index);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(commandName + ": Invalid integer for '" + fieldName + "' (value: " + request.field(index) + ").");
+        }
+        if (val <= 0) {
+            throw new IllegalArgumentException(commandName + ": Parameter '" + fieldName + "' must be positive (value: " + val + ").");
+        }
+        return val;
+    }
+
+    private BigDecimal getRequiredBigDecimal(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        try {
+            return request.parseDecimal(index);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(commandName + ": Invalid decimal for '" + fieldName + "' (value: " + request.field(index) + ").");
+        }
+    }
+
+    private BigDecimal getRequiredPositiveBigDecimal(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        BigDecimal val = getRequiredBigDecimal(index, fieldName, commandName);
+        if (val.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException(commandName + ": Parameter '" + fieldName + "' must be positive (value: " + val + ").");
+        }
+        return val;
+    }
+
+    private String getRequiredPesel(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        if (!request.isPesel(index)) {
+            throw new IllegalArgumentException(commandName + ": Invalid PESEL for '" + fieldName + "'. Must be 11 digits.");
+        }
+        return request.field(index);
+    }
+
+    private String getRequiredAccountNumber(int index, String fieldName, String commandName) throws IllegalArgumentException {
+        requirePart(index, fieldName, commandName);
+        if (!request.isAccountNumber(index)) {
+            throw new IllegalArgumentException(commandName + ": Invalid Account Number for '" + fieldName + "'. Expected PL + 26 digits.");
+        }
+        return request.accountNumber(index);
+    }
+
+    // Pole z listą kont "numer:saldo,numer:saldo" - zapis wprost do kodera zamiast strumienia i Collectors.joining
+    private void appendAccounts(List<Account> accounts) {
+        for (int i = 0; i < accounts.size(); i++) {
+            Account a = accounts.get(i);
+            if (i == 0) response.field(a.getAccountNumber());
+            else response.append(",").append(a.getAccountNumber());
+            response.append(":").append(a.getBalance());
+        }
+    }
+
+    // Wpis historii "id:TYP:kwota:saldoPo:drugieKonto:czasMs"; wpisy strony rozdzielone przecinkami w jednym polu
+    private void appendHistoryEntry(LedgerEntry entry) {
+        if (historyEntries++ == 0) response.field(entry.getId());
+        else response.append(",").append(entry.getId());
+        response.append(":").append(entry.getType().name())
+                .append(":").append(entry.getAmount())
+                .append(":").append(entry.getBalanceAfter())
+                .append(":").append(entry.getCounterparty() != null ? entry.getCounterparty() : "")
+                .append(":").append(entry.getTimestampMillis());
+        historyLastId = entry.getId();
+    }
+
+    // Opcjonalne pole STREAM_MARKER żądania listy
+    private boolean isStreamRequested(int index, String commandName) throws IllegalArgumentException {
+        if (request.isBlank(index)) return false;
+        if (!request.fieldEquals(index, Protocol.STREAM_MARKER)) {
+            throw new IllegalArgumentException(commandName + ": Unexpected parameter at index " + index + " (expected " + Protocol.STREAM_MARKER + ").");
+        }
+        if (streamOut == null) {
+            throw new IllegalArgumentException(commandName + ": Streamed responses are not supported on this connection.");
+        }
+        return true;
+    }
+
+    // Nagłówek i pozycje idą do strumienia w trakcie odczytu z magazynu; znacznik końca zostaje w koderze jako odpowiedź
+    private void streamAccounts(int clientId, Client header) throws SQLException {
+        streamedClient = header;
+        int sent;
+        try {
+            sent = storage.streamAccountsByClientId(clientId, accountStreamSink);
+        } finally {
+            streamedClient = null;
+            // Wysłane pozycje przed znacznikiem końca lub linią błędu - front-end może je zapisać innym torem (NIO)
+            try {
+                streamOut.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        response.message(Protocol.RES_STREAM_END).field(sent);
+    }
+
+    // Linia strumienia z bieżącej zawartości kodera, w formacie żądania
+    private void writeStreamLine() {
+        try {
+            if (binaryRequest) streamOut.write(BinaryProtocol.encodeFrame(response.toParts()));
+            else response.writeLineTo(streamOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // AccountSink nie deklaruje wyjątków - obsługa w handle()
+        }
+    }
+
+    private final class AccountStreamSink implements AccountSink {
+        @Override
+        public void begin(int count) {
+            Client c = streamedClient;
+            if (c == null) {
+                response.message(Protocol.RES_MY_ACCOUNTS).field(Protocol.STREAM_MARKER).field(count);
+            } else {
+                response.message(Protocol.RES_CLIENT_INFO).field(Protocol.STREAM_MARKER).field(count)
+                        .field(c.getId()).field(c.getFirstName()).field(c.getLastName()).field(c.getPesel());
+            }
+            writeStreamLine();
+        }
+
+        @Override
+        public void accept(Account account) {
+            response.message(Protocol.RES_STREAM_ITEM).field(account.getAccountNumber()).field(account.getBalance());
+            writeStreamLine();
+        }
+    }
+
+    // --- Implementacje logiki poleceń ---
+
+    // LOGIN;clientId;password
+    private void handleLogin() throws SQLException, IllegalArgumentException {
+        if (loggedInClient != null) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_ALREADY_LOGGED_IN).field("Client ID ").append(loggedInClient.getId());
+            return;
+        }
+        int clientId = getRequiredInt(1, "clientId", Protocol.CMD_LOGIN);
+        String password = getRequiredPart(2, "password", Protocol.CMD_LOGIN);
+
+        Optional<Client> clientOpt = storage.authenticateClient(clientId, password);
+        if (clientOpt.isPresent()) {
+            setLoggedInClient(clientOpt.get());
+            logger.info("Client ID " + loggedInClient.getId() + " successfully logged in.");
+            response.message(Protocol.RES_OK).field(Protocol.OK_LOGIN_SUCCESSFUL).field(loggedInClient.getFirstName()).field(loggedInClient.getId());
+        } else {
+            logger.warning("Login failed for client ID " + clientId);
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_LOGIN_FAILED).field("Invalid Client ID or password.");
+        }
+    }
+
+    // LOGOUT
+    private void handleLogout() {
+        if (loggedInClient == null) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_NOT_LOGGED_IN);
+            return;
+        }
+        logger.info("Client ID " + loggedInClient.getId() + " logged out.");
+        String clientName = loggedInClient.getFirstName();
+        setLoggedInClient(null);
+        response.message(Protocol.RES_OK).field(Protocol.OK_LOGOUT_SUCCESSFUL).field("Goodbye ").append(clientName).append("!");
+    }
+
+    // BALANCE;accountNumber
+    private void handleBalance() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(1, "accountNumber", Protocol.CMD_BALANCE);
+        Optional<Account> accOpt = storage.findAccountByNumber(accNum);
+        if (!accOpt.isPresent()) {
+            response.message(Protocol.ERR_ACCOUNT_NOT_FOUND);
+            return;
+        }
+        Account acc = accOpt.get();
+        if (acc.getClientId() != loggedInClient.getId()) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_ACCESS_DENIED).field("Account does not belong to you.");
+            return;
+        }
+        response.message(Protocol.RES_BALANCE_IS).field(acc.getBalance());
+    }
+
+    // DEPOSIT;accountNumber;amount
+    private void handleDeposit() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(1, "accountNumber", Protocol.CMD_DEPOSIT);
+        BigDecimal amount = getRequiredPositiveBigDecimal(2, "amount", Protocol.CMD_DEPOSIT);
+        // W tej wersji pozwalamy na wpłatę na dowolne konto, jeśli klient jest zalogowany
+        BalanceUpdateResult result = storage.deposit(accNum, amount);
+        if (!result.isOk()) {
+            response.message(Protocol.ERR_ACCOUNT_NOT_FOUND);
+            return;
+        }
+        logger.info("User " + loggedInClient.getId() + " deposited " + amount + " to " + accNum);
+        response.message(Protocol.RES_OK).field(Protocol.OK_DEPOSIT_SUCCESSFUL).field(result.getNewBalance());
+    }
+
+    // WITHDRAW;accountNumber;amount
+    private void handleWithdraw() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(1, "accountNumber", Protocol.CMD_WITHDRAW);
+        BigDecimal amount = getRequiredPositiveBigDecimal(2, "amount", Protocol.CMD_WITHDRAW);
+        BalanceUpdateResult result = storage.withdraw(accNum, loggedInClient.getId(), amount);
+        switch (result.getStatus()) {
+            case ACCOUNT_NOT_FOUND:
+                response.message(Protocol.ERR_ACCOUNT_NOT_FOUND);
+                break;
+            case ACCESS_DENIED:
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_ACCESS_DENIED).field("Account does not belong to you.");
+                break;
+            case INSUFFICIENT_FUNDS:
+                response.message(Protocol.ERR_INSUFFICIENT_FUNDS);
+                break;
+            default:
+                logger.info("User " + loggedInClient.getId() + " withdrew " + amount + " from " + accNum);
+                response.message(Protocol.RES_OK).field(Protocol.OK_WITHDRAWAL_SUCCESSFUL).field(result.getNewBalance());
+        }
+    }
+
+    // TRANSFER;fromAccountNumber;toAccountNumber;amount
+    private void handleTransfer() throws SQLException, IllegalArgumentException {
+        String fromAccNum = getRequiredAccountNumber(1, "fromAccountNumber", Protocol.CMD_TRANSFER);
+        String toAccNum = getRequiredAccountNumber(2, "toAccountNumber", Protocol.CMD_TRANSFER);
+        BigDecimal amount = getRequiredPositiveBigDecimal(3, "amount", Protocol.CMD_TRANSFER);
+
+        if (fromAccNum.equals(toAccNum)) throw new IllegalArgumentException("TRANSFER: Cannot transfer to the same account.");
+
+        // Odczyt kont, sprawdzenie środków i zmiana sald odbywają się w jednej transakcji na zablokowanych wierszach
+        TransferResult result = storage.transfer(fromAccNum, toAccNum, loggedInClient.getId(), amount);
+        switch (result.getStatus()) {
+            case SOURCE_ACCOUNT_NOT_FOUND:
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_SOURCE_ACCOUNT_NOT_FOUND);
+                break;
+            case DESTINATION_ACCOUNT_NOT_FOUND:
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_DESTINATION_ACCOUNT_NOT_FOUND);
+                break;
+            case ACCESS_DENIED:
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_ACCESS_DENIED).field("Source account does not belong to you.");
+                break;
+            case INSUFFICIENT_FUNDS:
+                response.message(Protocol.ERR_INSUFFICIENT_FUNDS);
+                break;
+            default:
+                logger.info("User " + loggedInClient.getId() + " transferred " + amount + " from " + fromAccNum + " to " + toAccNum +
+                        (result.getRetries() > 0 ? " after " + result.getRetries() + " retr" + (result.getRetries() == 1 ? "y" : "ies") : ""));
+                response.message(Protocol.RES_OK).field(Protocol.OK_TRANSFER_SUCCESSFUL);
+        }
+    }
+
+    // BATCH_TRANSFER;mode;from,to,amount;... - przelewy z błędnym formatem dostają INVALID_ENTRY; w trybie ATOMIC
+    // taki przelew odrzuca całą paczkę bez odwołania do magazynu
+    private void handleBatchTransfer() throws SQLException, IllegalArgumentException {
+        requirePart(1, "mode", Protocol.CMD_BATCH_TRANSFER);
+        String mode = request.match(1, BATCH_MODES);
+        if (mode == null) {
+            throw new IllegalArgumentException(Protocol.CMD_BATCH_TRANSFER + ": Parameter 'mode' must be " +
+                    Protocol.BATCH_MODE_ATOMIC + " or " + Protocol.BATCH_MODE_BEST_EFFORT + " (value: " + request.field(1) + ").");
+        }
+        boolean atomic = Protocol.BATCH_MODE_ATOMIC.equals(mode);
+        int entryCount = request.fieldCount() - 2;
+        if (entryCount < 1 || request.isBlank(2)) {
+            throw new IllegalArgumentException(Protocol.CMD_BATCH_TRANSFER + ": Missing transfers.");
+        }
+        if (entryCount > Protocol.BATCH_TRANSFER_MAX_ENTRIES) {
+            throw new IllegalArgumentException(Protocol.CMD_BATCH_TRANSFER + ": At most " + Protocol.BATCH_TRANSFER_MAX_ENTRIES +
+                    " transfers per request (got " + entryCount + ").");
+        }
+        BatchTransferEntry[] parsed = new BatchTransferEntry[entryCount];
+        List<BatchTransferEntry> valid = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            parsed[i] = parseBatchEntry(request.field(i + 2));
+            if (parsed[i] != null) valid.add(parsed[i]);
+        }
+        BatchTransferResult result = (valid.isEmpty() || (atomic && valid.size() < entryCount))
+                ? null
+                : storage.transferBatch(valid, loggedInClient.getId(), atomic);
+
+        int applied = result != null ? result.getAppliedCount() : 0;
+        response.message(Protocol.RES_BATCH_TRANSFER).field(mode).field(applied).field(entryCount - applied);
+        int next = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (i == 0) response.field("");
+            else response.append(Protocol.BATCH_ENTRY_SEPARATOR);
+            if (parsed[i] == null) {
+                response.append(Protocol.ERR_INVALID_ENTRY);
+                continue;
+            }
+            if (result == null) {
+                response.append(Protocol.BATCH_SKIPPED_MARKER);
+                continue;
+            }
+            int index = next++;
+            switch (result.getStatus(index)) {
+                case SOURCE_ACCOUNT_NOT_FOUND:      response.append(Protocol.ERR_SOURCE_ACCOUNT_NOT_FOUND); break;
+                case DESTINATION_ACCOUNT_NOT_FOUND: response.append(Protocol.ERR_DESTINATION_ACCOUNT_NOT_FOUND); break;
+                case ACCESS_DENIED:                 response.append(Protocol.ERR_ACCESS_DENIED); break;
+                case INSUFFICIENT_FUNDS:            response.append(Protocol.ERR_INSUFFICIENT_FUNDS); break;
+                default: response.append(result.isApplied(index) ? Protocol.RES_OK : Protocol.BATCH_SKIPPED_MARKER);
+            }
+        }
+        logger.info("User " + loggedInClient.getId() + " executed " + mode + " batch: " + applied + " of " + entryCount + " transfer(s) applied" +
+                (result != null && result.getRetries() > 0 ? " after " + result.getRetries() + " retr" + (result.getRetries() == 1 ? "y" : "ies") : ""));
+    }
+
+    // Przelew paczki kontoŹródłowe,kontoDocelowe,kwota; null - błędny format, to samo konto lub kwota niedodatnia
+    private static BatchTransferEntry parseBatchEntry(String entry) {
+        String[] cols = entry.split(Protocol.BATCH_ENTRY_SEPARATOR, -1);
+        if (cols.length != 3) return null;
+        String from = cols[0].trim().toUpperCase();
+        String to = cols[1].trim().toUpperCase();
+        if (!Protocol.isValidAccountNumber(from) || !Protocol.isValidAccountNumber(to) || from.equals(to)) return null;
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(cols[2].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (amount.signum() <= 0) return null;
+        return new BatchTransferEntry(from, to, amount);
+    }
+
+    // LIST_MY_ACCOUNTS[;STREAM]
+    private void handleListMyAccounts() throws SQLException, IllegalArgumentException {
+        if (isStreamRequested(1, Protocol.CMD_LIST_MY_ACCOUNTS)) {
+            streamAccounts(loggedInClient.getId(), null);
+            return;
+        }
+        List<Account> accounts = storage.findAllAccountsByClientId(loggedInClient.getId());
+        if (accounts.isEmpty()) {
+            response.message(Protocol.RES_INFO).field(Protocol.INFO_NO_ACCOUNTS_FOUND).field("You have no active accounts.");
+            return;
+        }
+        response.message(Protocol.RES_MY_ACCOUNTS);
+        appendAccounts(accounts);
+    }
+
+    // HISTORY;accountNumber[;beforeEntryId[;pageSize]]
+    private void handleHistory() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(1, "accountNumber", Protocol.CMD_HISTORY);
+        long before = request.isBlank(2) ? Long.MAX_VALUE : getRequiredPositiveLong(2, "beforeEntryId", Protocol.CMD_HISTORY);
+        int pageSize = request.isBlank(3) ? Protocol.HISTORY_DEFAULT_PAGE_SIZE : getRequiredInt(3, "pageSize", Protocol.CMD_HISTORY);
+        if (pageSize < 1 || pageSize > Protocol.HISTORY_MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(Protocol.CMD_HISTORY + ": Parameter 'pageSize' must be between 1 and " +
+                    Protocol.HISTORY_MAX_PAGE_SIZE + " (value: " + pageSize + ").");
+        }
+        Optional<Account> accOpt = storage.findAccountByNumber(accNum);
+        if (!accOpt.isPresent()) {
+            response.message(Protocol.ERR_ACCOUNT_NOT_FOUND);
+            return;
+        }
+        if (accOpt.get().getClientId() != loggedInClient.getId()) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_ACCESS_DENIED).field("Account does not belong to you.");
+            return;
+        }
+        response.message(Protocol.RES_HISTORY).field(accNum);
+        historyEntries = 0;
+        boolean more = storage.readHistory(accNum, before, pageSize, historySink);
+        if (historyEntries == 0) response.field(Protocol.NO_HISTORY_MARKER);
+        response.field(more ? historyLastId : 0);
+    }
+
+    // --- Implementacje logiki poleceń Admina ---
+    // ADMIN;ADD_CLIENT;firstName;lastName;pesel;password
+    private void adminAddClient() throws SQLException, IllegalArgumentException {
+        String fn = getRequiredPart(2, "firstName", Protocol.SUB_CMD_ADD_CLIENT);
+        String ln = getRequiredPart(3, "lastName", Protocol.SUB_CMD_ADD_CLIENT);
+        String pesel = getRequiredPesel(4, "pesel", Protocol.SUB_CMD_ADD_CLIENT);
+        String pass = getRequiredPart(5, "password", Protocol.SUB_CMD_ADD_CLIENT);
+
+        if (storage.findClientByPesel(pesel).isPresent()) {
+            response.message(Protocol.RES_ERROR).field(Protocol.ERR_PESEL_EXISTS).field("Client with this PESEL already exists.");
+            return;
+        }
+        int newClientId = storage.addClient(fn, ln, pesel, pass);
+        Account firstAcc = storage.addAccountToClient(newClientId, BigDecimal.ZERO);
+        logger.info("Admin added client ID " + newClientId + " with account " + firstAcc.getAccountNumber());
+        response.message(Protocol.RES_OK).field(Protocol.OK_CLIENT_ADDED).field(newClientId).field(firstAcc.getAccountNumber());
+    }
+
+    // ADMIN;ADD_ACCOUNT_TO_CLIENT;clientId;initialBalance
+    private void adminAddAccountToClient() throws SQLException, IllegalArgumentException {
+        int clientId = getRequiredInt(2, "clientId", Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT);
+        BigDecimal balance = getRequiredBigDecimal(3, "initialBalance", Protocol.SUB_CMD_ADD_ACCOUNT_TO_CLIENT);
+        if (balance.compareTo(BigDecimal.ZERO) < 0) throw new IllegalArgumentException("Initial balance cannot be negative.");
+        if (!storage.findClientById(clientId).isPresent()) {
+            response.message(Protocol.ERR_CLIENT_NOT_FOUND);
+            return;
+        }
+
+        Account newAcc = storage.addAccountToClient(clientId, balance);
+        logger.info("Admin added account " + newAcc.getAccountNumber() + " for client " + clientId);
+        response.message(Protocol.RES_OK).field(Protocol.OK_ACCOUNT_ADDED_TO_CLIENT).field(newAcc.getAccountNumber());
+    }
+
+    // ADMIN;BULK_IMPORT;imię,nazwisko,pesel,saldo,hasło;... - wiersze z błędnym formatem dostają INVALID_ROW,
+    // poprawne idą do magazynu jedną listą (jedna transakcja na żądanie w magazynie jdbc)
+    private void adminBulkImport() throws SQLException, IllegalArgumentException {
+        int rowCount = request.fieldCount() - 2;
+        if (rowCount < 1 || request.isBlank(2)) {
+            throw new IllegalArgumentException(Protocol.SUB_CMD_BULK_IMPORT + ": Missing rows.");
+        }
+        if (rowCount > Protocol.BULK_IMPORT_MAX_ROWS) {
+            throw new IllegalArgumentException(Protocol.SUB_CMD_BULK_IMPORT + ": At most " + Protocol.BULK_IMPORT_MAX_ROWS +
+                    " rows per request (got " + rowCount + ").");
+        }
+        ClientImportRow[] parsed = new ClientImportRow[rowCount];
+        List<ClientImportRow> valid = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            parsed[i] = parseImportRow(request.field(i + 2));
+            if (parsed[i] != null) valid.add(parsed[i]);
+        }
+        List<ClientImportResult> results = valid.isEmpty() ? Collections.emptyList() : storage.importClients(valid);
+
+        int imported = 0;
+        for (ClientImportResult result : results) {
+            if (result.isImported()) imported++;
+        }
+        response.message(Protocol.RES_OK).field(Protocol.OK_BULK_IMPORTED).field(imported).field(rowCount - imported);
+        int next = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (i == 0) response.field("");
+            else response.append(Protocol.BULK_IMPORT_FIELD_SEPARATOR);
+            if (parsed[i] == null) {
+                response.append(Protocol.ERR_INVALID_ROW);
+                continue;
+            }
+            ClientImportResult result = results.get(next++);
+            if (result.isImported()) response.append(result.getClientId()).append(":").append(result.getAccountNumber());
+            else response.append(Protocol.ERR_PESEL_EXISTS);
+        }
+        logger.info("Admin bulk-imported " + imported + " of " + rowCount + " client(s)");
+    }
+
+    // Rekord CSV imię,nazwisko,pesel,saldo,hasło; null - błędny format
+    private static ClientImportRow parseImportRow(String record) {
+        String[] cols = record.split(Protocol.BULK_IMPORT_FIELD_SEPARATOR, 5);
+        if (cols.length < 5) return null;
+        String firstName = cols[0].trim();
+        String lastName = cols[1].trim();
+        String pesel = cols[2].trim();
+        String password = cols[4];
+        if (firstName.isEmpty() || lastName.isEmpty() || password.isEmpty() || !Protocol.isValidPesel(pesel)) return null;
+        BigDecimal balance;
+        try {
+            balance = new BigDecimal(cols[3].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (balance.signum() < 0) return null;
+        return new ClientImportRow(firstName, lastName, pesel, balance, password);
+    }
+
+    // ADMIN;GET_CLIENT_INFO_BY_ID;clientId[;STREAM]
+    private void adminGetClientInfoById() throws SQLException, IllegalArgumentException {
+        int clientId = getRequiredInt(2, "clientId", Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID);
+        boolean stream = isStreamRequested(3, Protocol.SUB_CMD_GET_CLIENT_INFO_BY_ID);
+        Optional<Client> clientOpt = storage.findClientById(clientId);
+        if (!clientOpt.isPresent()) {
+            response.message(Protocol.ERR_CLIENT_NOT_FOUND);
+            return;
+        }
+        Client c = clientOpt.get();
+        if (stream) {
+            streamAccounts(c.getId(), c);
+            return;
+        }
+        List<Account> accounts = storage.findAllAccountsByClientId(c.getId());
+        response.message(Protocol.RES_CLIENT_INFO).field(c.getId()).field(c.getFirstName()).field(c.getLastName()).field(c.getPesel());
+        if (accounts.isEmpty()) response.field(Protocol.NO_ACCOUNTS_MARKER);
+        else appendAccounts(accounts);
+    }
+
+    // ADMIN;GET_ACCOUNT_DETAILS;accountNumber
+    private void adminGetAccountDetails() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(2, "accountNumber", Protocol.SUB_CMD_GET_ACCOUNT_DETAILS);
+        Optional<Account> accOpt = storage.findAccountByNumber(accNum);
+        if (!accOpt.isPresent()) {
+            response.message(Protocol.ERR_ACCOUNT_NOT_FOUND);
+            return;
+        }
+        Account acc = accOpt.get();
+        Client owner = storage.findClientById(acc.getClientId()).orElse(new Client(acc.getClientId(),"N/A","N/A","N/A",null));
+        response.message(Protocol.RES_ACCOUNT_DETAILS).field(acc.getId()).field(acc.getAccountNumber())
+                .field(acc.getBalance()).field(owner.getId()).field(owner.getFirstName())
+                .field(owner.getLastName()).field(owner.getPesel());
+    }
+
+    // ADMIN;UPDATE_CLIENT_INFO_BY_ID;clientId;newFirstName;newLastName;newPesel
+    private void adminUpdateClientInfoById() throws SQLException, IllegalArgumentException {
+        int clientId = getRequiredInt(2, "clientId", Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID);
+        String fn = getRequiredPart(3, "newFirstName", Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID);
+        String ln = getRequiredPart(4, "newLastName", Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID);
+        String pesel = getRequiredPesel(5, "newPesel", Protocol.SUB_CMD_UPDATE_CLIENT_INFO_BY_ID);
+
+        Optional<Client> currentOpt = storage.findClientById(clientId);
+        if(!currentOpt.isPresent()) {
+            response.message(Protocol.ERR_CLIENT_NOT_FOUND);
+            return;
+        }
+        if(!currentOpt.get().getPesel().equals(pesel)){ // PESEL is changing
+            Optional<Client> existingWithNewPesel = storage.findClientByPesel(pesel);
+            if(existingWithNewPesel.isPresent() && existingWithNewPesel.get().getId() != clientId){
+                response.message(Protocol.RES_ERROR).field(Protocol.ERR_PESEL_EXISTS_OTHER).field("New PESEL belongs to another client.");
+                return;
+            }
+        }
+        boolean updated = storage.updateClientInfo(clientId, fn, ln, pesel);
+        if(updated){
+            logger.info("Admin updated info for client " + clientId);
+            response.message(Protocol.RES_OK).field(Protocol.OK_CLIENT_INFO_UPDATED);
+            return;
+        }
+        response.message(Protocol.RES_ERROR).field(Protocol.ERR_UPDATE_FAILED_GENERIC).field("Update failed or no changes made.");
+    }
+
+    // ADMIN;DELETE_CLIENT;clientId
+    private void adminDeleteClient() throws SQLException, IllegalArgumentException {
+        int clientId = getRequiredInt(2, "clientId", Protocol.SUB_CMD_DELETE_CLIENT);
+        if (storage.deleteClientById(clientId)) {
+            logger.info("Admin deleted client " + clientId);
+            response.message(Protocol.RES_OK).field(Protocol.OK_CLIENT_DELETED).field(clientId);
+            return;
+        }
+        response.message(Protocol.RES_ERROR).field(Protocol.ERR_CLIENT_DELETION_FAILED).field(clientId);
+    }
+
+    // ADMIN;DELETE_ACCOUNT;accountNumber
+    private void adminDeleteAccount() throws SQLException, IllegalArgumentException {
+        String accNum = getRequiredAccountNumber(2, "accountNumber", Protocol.SUB_CMD_DELETE_ACCOUNT);
+        if (storage.deleteAccountByNumber(accNum)) {
+            logger.info("Admin deleted account " + accNum);
+            response.message(Protocol.RES_OK).field(Protocol.OK_ACCOUNT_DELETED).field(accNum);
+            return;
+        }
+        response.message(Protocol.RES_ERROR).field(Protocol.ERR_ACCOUNT_DELETION_FAILED).field(accNum);
+    }
+}
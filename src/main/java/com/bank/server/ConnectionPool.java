@@ -0,0 +1,333 @@
+// File: src/main/java/com/bank/server/ConnectionPool.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ograniczona pula połączeń JDBC używana przez DBManager.
+ * Każde żądanie wypożycza połączenie (lease) na czas jednej operacji i oddaje je po zakończeniu,
+ * dzięki czemu równoległe sesje nie współdzielą jednego połączenia ani jego stanu auto-commit.
+ * <p>
+ * Zapytania ze stałego katalogu ({@link SqlCatalog}) przygotowuje {@link Lease#prepare}. Przy włączonym cache
+ * poleceń ({@link #setStatementCaching}) każde fizyczne połączenie trzyma własny zestaw przygotowanych poleceń
+ * i oddaje je kolejnym wypożyczeniom - parsowanie (a przy poleceniach po stronie serwera także runda do bazy)
+ * odbywa się raz na połączenie, a nie przy każdym wywołaniu.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>(); // LIFO - najcieplejsze połączenie na górze
+    private final Semaphore permits; // Ogranicza liczbę jednocześnie wypożyczonych połączeń do maxSize
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger activeLeases = new AtomicInteger();
+    private volatile boolean closed = false;
+    private volatile boolean statementCaching = false;
+
+    // --- Liczniki statystyk ---
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final AtomicInteger peakActiveLeases = new AtomicInteger();
+    private final LongAdder statementHits = new LongAdder();     // Polecenie z cache połączenia
+    private final LongAdder statementPrepares = new LongAdder(); // Przygotowanie polecenia z katalogu (chybienie lub cache wyłączony)
+
+    public ConnectionPool(String url, String user, String pass, int minSize, int maxSize,
+                          long borrowTimeoutMillis, int validationTimeoutSeconds) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Nieprawidłowy rozmiar puli: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Wstępne otwarcie minimalnej liczby połączeń, aby pierwsze żądania nie płaciły za nawiązanie połączenia
+        for (int i = 0; i < minSize; i++) {
+            idle.offerFirst(openConnection());
+        }
+    }
+
+    /**
+     * Włącza lub wyłącza przechowywanie przygotowanych poleceń katalogu na połączeniach. Polecenia już
+     * przechowywane są używane ponownie dopiero po ponownym włączeniu i zamykane razem z połączeniem.
+     */
+    public void setStatementCaching(boolean enabled) {
+        this.statementCaching = enabled;
+    }
+
+    public boolean isStatementCaching() {
+        return statementCaching;
+    }
+
+    /**
+     * Dopisuje do URL-a MySQL/MariaDB opcję useServerPrepStmts=true: polecenia przygotowywane są wtedy przez serwer
+     * bazy (plan zapytania raz na polecenie, parametry przesyłane binarnie). Ma sens razem z cache poleceń - bez niego
+     * każde przygotowanie kosztuje dodatkową rundę do bazy. Inne URL-e (np. H2, który zawsze parsuje przy
+     * przygotowaniu) i URL-e z już ustawioną opcją zwracane są bez zmian.
+     */
+    public static String withServerSidePrepare(String url) {
+        if (!supportsServerSidePrepare(url) || url.contains("useServerPrepStmts=")) return url;
+        return url + (url.indexOf('?') < 0 ? "?" : "&") + "useServerPrepStmts=true";
+    }
+
+    public static boolean supportsServerSidePrepare(String url) {
+        return url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:");
+    }
+
+    /**
+     * Wypożycza połączenie z puli. Blokuje maksymalnie borrowTimeoutMillis, jeśli wszystkie połączenia są zajęte.
+     * @return Lease, który należy zamknąć (try-with-resources), aby oddać połączenie do puli.
+     * @throws SQLException gdy upłynie limit czasu oczekiwania lub nie można otworzyć połączenia.
+     */
+    public Lease lease() throws SQLException {
+        if (closed) throw new SQLException("Pula połączeń jest zamknięta.");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Przekroczono czas oczekiwania (" + borrowTimeoutMillis + " ms) na połączenie z puli " +
+                        "(aktywne: " + activeLeases.get() + "/" + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Przerwano oczekiwanie na połączenie z puli.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection conn = takeValidConnection();
+            int active = activeLeases.incrementAndGet();
+            peakActiveLeases.accumulateAndGet(active, Math::max);
+            leaseCount.increment();
+            return new Lease(conn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            if (isValid(conn)) return conn;
+            validationFailures.increment();
+            discard(conn);
+        }
+        return openConnection(); // Brak wolnych połączeń, a semafor gwarantuje, że nie przekroczymy maxSize
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            Connection conn = pooled.conn;
+            return !conn.isClosed() && conn.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(url, user, pass);
+        openConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(conn);
+    }
+
+    private void release(PooledConnection pooled) {
+        activeLeases.decrementAndGet();
+        Connection conn = pooled.conn;
+        try {
+            if (closed || conn.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                // Połączenie wróciło w trakcie transakcji (np. po błędzie) - wycofaj i przywróć domyślny stan
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Discarding pooled connection that could not be reset: " + e.getMessage(), e);
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        try {
+            pooled.conn.close(); // Zamyka też przechowywane polecenia
+        } catch (SQLException e) {
+            // Połączenie i tak jest porzucane
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // --- Statystyki ---
+
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public int getOpenConnections() { return openConnections.get(); }
+    public int getActiveConnections() { return activeLeases.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getPeakActiveConnections() { return peakActiveLeases.get(); }
+    public long getLeaseCount() { return leaseCount.sum(); }
+    public long getTimeoutCount() { return timeoutCount.sum(); }
+    public long getValidationFailures() { return validationFailures.sum(); }
+    public long getCreatedCount() { return createdCount.sum(); }
+    public long getStatementHits() { return statementHits.sum(); }
+    public long getStatementPrepares() { return statementPrepares.sum(); }
+
+    /** Udział użyć poleceń katalogu obsłużonych bez przygotowania (0.0 - 1.0). */
+    public double getStatementHitRate() {
+        long hits = statementHits.sum();
+        long total = hits + statementPrepares.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public double getAverageWaitMillis() {
+        long leases = leaseCount.sum();
+        return leases == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / leases;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /** Utylizacja puli: stosunek aktualnie wypożyczonych połączeń do maksymalnego rozmiaru (0.0 - 1.0). */
+    public double getUtilisation() {
+        return (double) activeLeases.get() / maxSize;
+    }
+
+    public String statsSummary() {
+        return String.format("pool[open=%d, active=%d, idle=%d, max=%d, peakActive=%d, leases=%d, avgWait=%.3fms, maxWait=%.3fms, " +
+                        "timeouts=%d, validationFailures=%d, created=%d, utilisation=%.0f%%, " +
+                        "statementCache=%s, statementHits=%d, statementPrepares=%d, statementHitRate=%.1f%%]",
+                getOpenConnections(), getActiveConnections(), getIdleConnections(), maxSize, getPeakActiveConnections(),
+                getLeaseCount(), getAverageWaitMillis(), getMaxWaitMillis(), getTimeoutCount(), getValidationFailures(),
+                getCreatedCount(), getUtilisation() * 100, statementCaching ? "on" : "off", getStatementHits(),
+                getStatementPrepares(), getStatementHitRate() * 100);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            discard(conn);
+        }
+        // Wypożyczone połączenia zostaną zamknięte przy zwrocie (release sprawdza flagę closed)
+    }
+
+    // Fizyczne połączenie z poleceniami katalogu przygotowanymi na nim (indeks = ordinal zapytania)
+    private static final class PooledConnection {
+        final Connection conn;
+        final PreparedStatement[] statements = new PreparedStatement[SqlCatalog.values().length];
+
+        PooledConnection(Connection conn) {
+            this.conn = conn;
+        }
+    }
+
+    /**
+     * Wypożyczenie połączenia. Zamknięcie Lease zwraca połączenie do puli (nie zamyka fizycznego połączenia).
+     */
+    public final class Lease implements AutoCloseable {
+        private PooledConnection pooled;
+        private List<PreparedStatement> leaseStatements; // Polecenia przygotowane bez cache - zamykane przy zwrocie
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        public Connection connection() {
+            if (pooled == null) throw new IllegalStateException("Połączenie zostało już zwrócone do puli.");
+            return pooled.conn;
+        }
+
+        /**
+         * Polecenie zapytania z katalogu na tym połączeniu. Wywołujący NIE zamyka polecenia (zamyka tylko ResultSet) -
+         * polecenie żyje do zwrotu połączenia (cache wyłączony) albo razem z połączeniem (cache włączony).
+         * Parametry trzeba ustawić wszystkie przy każdym użyciu; niewykonany batch poprzedniego użycia jest czyszczony.
+         */
+        public PreparedStatement prepare(SqlCatalog query) throws SQLException {
+            Connection conn = connection();
+            if (!statementCaching) {
+                statementPrepares.increment();
+                PreparedStatement st = query.prepare(conn);
+                if (leaseStatements == null) leaseStatements = new ArrayList<>(4);
+                leaseStatements.add(st);
+                return st;
+            }
+            PreparedStatement st = pooled.statements[query.ordinal()];
+            if (st != null && !st.isClosed()) {
+                st.clearBatch(); // Np. po wyjątku w trakcie addBatch poprzedniego użycia
+                statementHits.increment();
+                return st;
+            }
+            statementPrepares.increment();
+            st = query.prepare(conn);
+            pooled.statements[query.ordinal()] = st;
+            return st;
+        }
+
+        @Override
+        public void close() {
+            if (pooled != null) {
+                PooledConnection toRelease = pooled;
+                pooled = null; // Chroni przed podwójnym zwrotem
+                closeLeaseStatements();
+                release(toRelease);
+            }
+        }
+
+        private void closeLeaseStatements() {
+            if (leaseStatements == null) return;
+            for (PreparedStatement st : leaseStatements) {
+                try {
+                    st.close();
+                } catch (SQLException e) {
+                    // Polecenie i tak jest porzucane; połączenie sprawdzi release
+                }
+            }
+            leaseStatements = null;
+        }
+    }
+}
@@ -3,56 +3,258 @@ package com.bank.server; // Zgodnie z uproszczoną strukturą
 
 import com.bank.common.Account;
 import com.bank.common.Client;
+import com.bank.server.ServerMetrics.DbOperation;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 
-public class DBManager implements AutoCloseable {
-    private Connection conn;
-    private final Random rand = new Random();
+/**
+ * Magazyn danych na bazie relacyjnej przez JDBC ({@link Storage}). Działa z dowolnym sterownikiem JDBC 4
+ * dostępnym w classpath (MySQL, także baza wbudowana, np. H2) - sterownik wybierany jest po URL-u.
+ * Schemat bazy: setup_bankdb.sql.
+ * <p>
+ * Z włączonymi replikami ({@link #enableReadReplicas}) czyste odczyty kont i klientów (BALANCE, LIST_MY_ACCOUNTS,
+ * GET_CLIENT_INFO_BY_ID, GET_ACCOUNT_DETAILS) idą do replik. Zapisy, transakcje, logowanie, sprawdzenia przed zapisem
+ * i odczyty uzupełniające cache (write-through - nie może przyjąć wartości sprzed zapisu) zostają na bazie głównej.
+ */
+public class DBManager implements Storage {
+    // Domyślne parametry puli, gdy DBManager jest tworzony bez jawnej konfiguracji
+    private static final int DEFAULT_POOL_MIN = 2;
+    private static final int DEFAULT_POOL_MAX = 10;
+    private static final long DEFAULT_BORROW_TIMEOUT_MS = 5000;
+    private static final int DEFAULT_VALIDATION_TIMEOUT_SEC = 2;
+    private static final int MAX_ACCOUNT_NUMBER_ATTEMPTS = 3;
+    // Porcja wierszy odczytu strumieniowego: jedna strona zapytania po kluczu, połączenie oddawane przed wysłaniem porcji
+    private static final int STREAM_PAGE_SIZE = 500;
 
-    public DBManager(String url, String user, String pass) throws SQLException, ClassNotFoundException {
-        // Jawne załadowanie sterownika, chociaż nowoczesne JDBC może tego nie wymagać
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        conn = DriverManager.getConnection(url, user, pass);
-        // Domyślnie auto-commit jest włączony (true). Zarządzamy nim jawnie dla transakcji.
+    private final ConnectionPool pool;
+    private final TransferEngine transferEngine;
+    private final AccountNumberAllocator accountNumbers;
+    private final BulkImporter bulkImporter;
+    private volatile AccountCache accountCache; // null = cache wyłączony
+    private volatile ClientCache clientCache;   // null = cache wyłączony
+    private volatile BalanceWriteBatcher writeBatcher; // null = każda wpłata/wypłata we własnej transakcji
+    private volatile AccountLockTable accountLocks;    // null = operacje na tym samym koncie czekają na blokady wierszy
+    private volatile AccountLedger ledger;             // null = zmiany sald bez historii operacji
+    private volatile ReadReplicaRouter readReplicas;   // null = wszystkie odczyty z bazy głównej
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final BalanceReadBack balanceReadBack;
+
+    public DBManager(String url, String user, String pass) throws SQLException {
+        this(url, user, pass, DEFAULT_POOL_MIN, DEFAULT_POOL_MAX, DEFAULT_BORROW_TIMEOUT_MS, DEFAULT_VALIDATION_TIMEOUT_SEC);
+    }
+
+    public DBManager(String url, String user, String pass, int poolMin, int poolMax,
+                     long borrowTimeoutMillis, int validationTimeoutSeconds) throws SQLException {
+        this(new ConnectionPool(url, user, pass, poolMin, poolMax, borrowTimeoutMillis, validationTimeoutSeconds));
+    }
+
+    public DBManager(ConnectionPool pool) {
+        // Każda operacja wypożycza własne połączenie z puli. Auto-commit jest domyślnie włączony,
+        // transakcje zarządzają nim jawnie na wypożyczonym połączeniu.
+        this.pool = pool;
+        this.transferEngine = new TransferEngine(pool);
+        this.accountNumbers = new AccountNumberAllocator(pool);
+        this.bulkImporter = new BulkImporter(pool, accountNumbers);
+        this.balanceReadBack = BalanceReadBack.forUrl(pool.getUrl());
+    }
+
+    /** Sposób odczytu nowego salda po wpłacie / wypłacie, zależny od dialektu bazy. */
+    private enum BalanceReadBack {
+        DELTA_TABLE,      // H2: SELECT ... FROM FINAL TABLE (UPDATE ...) - jedno polecenie
+        SESSION_VARIABLE, // MySQL/MariaDB: UPDATE zapisuje saldo w zmiennej sesji, SELECT @new_balance na tym samym połączeniu
+        SEPARATE_SELECT;  // Inne bazy: UPDATE i SELECT w jednej transakcji
+
+        static BalanceReadBack forUrl(String url) {
+            if (url.startsWith("jdbc:h2:")) return DELTA_TABLE;
+            if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) return SESSION_VARIABLE;
+            return SEPARATE_SELECT;
+        }
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public TransferEngine getTransferEngine() {
+        return transferEngine;
+    }
+
+    public AccountNumberAllocator getAccountNumberAllocator() {
+        return accountNumbers;
+    }
+
+    public BulkImporter getBulkImporter() {
+        return bulkImporter;
+    }
+
+    /** Metryki serwera; każde publiczne wywołanie na bazie jest mierzone (patrz {@link ServerMetrics#timeDbCall}). */
+    @Override
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Włącza pamięć podręczną kont (write-through) dla odczytów BALANCE / LIST_MY_ACCOUNTS itp.
+     * Cache jest poprawny tylko wtedy, gdy wszystkie zmiany kont przechodzą przez ten DBManager.
+     */
+    public void enableAccountCache(int maxAccounts, int maxClientIndexes) {
+        this.accountCache = new AccountCache(maxAccounts, maxClientIndexes);
+    }
+
+    public AccountCache getAccountCache() {
+        return accountCache;
+    }
+
+    /**
+     * Włącza pamięć podręczną profili klientów (logowanie, wyszukiwanie po ID i PESEL).
+     * @param ttlMillis Czas życia wpisu; ogranicza widoczność zmian wykonanych w bazie poza tym serwerem.
+     */
+    public void enableClientCache(int maxEntries, long ttlMillis) {
+        this.clientCache = new ClientCache(maxEntries, ttlMillis);
+    }
+
+    public ClientCache getClientCache() {
+        return clientCache;
+    }
+
+    /**
+     * Włącza grupowanie wpłat i wypłat z wielu sesji w jedną transakcję ({@link BalanceWriteBatcher}).
+     * @param maxBatch       Maksymalna liczba operacji w jednej transakcji.
+     * @param maxDelayMicros Jak długo okno czeka na kolejne operacje.
+     */
+    public void enableWriteBatching(int maxBatch, long maxDelayMicros, Logger logger) {
+        BalanceWriteBatcher batcher = new BalanceWriteBatcher(pool, maxBatch, maxDelayMicros,
+                (accountNumber, clientId, amount, deposit) -> deposit
+                        ? depositInDb(accountNumber, amount)
+                        : withdrawInDb(accountNumber, clientId, amount),
+                logger);
+        batcher.setLedger(ledger);
+        this.writeBatcher = batcher;
+    }
+
+    public BalanceWriteBatcher getWriteBatcher() {
+        return writeBatcher;
+    }
+
+    /**
+     * Włącza blokady kont w pamięci ({@link AccountLockTable}) przed operacjami na saldach: operacje na tym samym
+     * koncie czekają w kolejce w serwerze, a do bazy trafia najwyżej jedna naraz na pasek, więc nie walczą
+     * o blokady wierszy. Poprawne tylko wtedy, gdy wszystkie zmiany sald przechodzą przez ten DBManager -
+     * tak jak cache kont. Wywołać przed przyjęciem pierwszego połączenia.
+     */
+    public void enableAccountLocks(int stripes) {
+        AccountLockTable locks = new AccountLockTable(stripes);
+        this.accountLocks = locks;
+        metrics.setAccountLocks(locks);
+    }
+
+    public AccountLockTable getAccountLocks() {
+        return accountLocks;
+    }
+
+    /**
+     * Włącza historię operacji ({@link AccountLedger}): każda zmiana salda dopisuje wpis do tabeli account_ledger
+     * w tej samej transakcji, a polecenie HISTORY czyta ją stronami. Wpłaty i wypłaty wykonywane są wtedy
+     * w jawnej transakcji (UPDATE + INSERT) zamiast w trybie auto-commit. Wywołać przed przyjęciem pierwszego połączenia.
+     * @param fetchSize Liczba wierszy pobieranych z bazy naraz przy odczycie historii.
+     */
+    public void enableLedger(int fetchSize) {
+        AccountLedger created = new AccountLedger(pool, fetchSize);
+        this.ledger = created;
+        transferEngine.setLedger(created);
+        bulkImporter.setLedger(created);
+        BalanceWriteBatcher batcher = writeBatcher;
+        if (batcher != null) batcher.setLedger(created);
+    }
+
+    public AccountLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Włącza cache przygotowanych poleceń: zapytania katalogu ({@link SqlCatalog}) przygotowywane są raz na fizyczne
+     * połączenie puli i używane ponownie przez kolejne wypożyczenia. Statystyki trafień: {@link ConnectionPool#statsSummary}.
+     * Przy MySQL/MariaDB warto połączyć z poleceniami po stronie serwera ({@link ConnectionPool#withServerSidePrepare}).
+     */
+    public void enableStatementCache() {
+        pool.setStatementCaching(true);
+        ReadReplicaRouter router = readReplicas;
+        if (router != null) router.getReplicas().forEach(replica -> replica.setStatementCaching(true));
+    }
+
+    /**
+     * Włącza odczyty z replik ({@link ReadReplicaRouter}). Sesja, która zmieniała dane, czyta z bazy głównej przez
+     * readYourWritesMillis od ostatniego zapisu - okno powinno przekraczać typowe opóźnienie replikacji.
+     * Cache poleceń replik ustawiany jest jak na bazie głównej. Wywołać przed przyjęciem pierwszego połączenia.
+     * @param replicas Pule połączeń do replik; zamykane razem z DBManager.
+     */
+    public void enableReadReplicas(List<ConnectionPool> replicas, long readYourWritesMillis) {
+        for (ConnectionPool replica : replicas) replica.setStatementCaching(pool.isStatementCaching());
+        this.readReplicas = new ReadReplicaRouter(pool, replicas, readYourWritesMillis);
+    }
+
+    public ReadReplicaRouter getReadReplicas() {
+        return readReplicas;
+    }
+
+    // Odczyt, który może iść do repliki (replicaAllowed); pozostałe odczyty wypożyczają połączenie bazy głównej
+    private ConnectionPool.Lease readLease(boolean replicaAllowed) throws SQLException {
+        ReadReplicaRouter router = readReplicas;
+        return (replicaAllowed && router != null) ? router.leaseForRead() : pool.lease();
+    }
+
+    // Wywołanie zmieniające dane: po nim odczyty bieżącej sesji idą do bazy głównej (także po błędzie - zmiana mogła się udać)
+    private <T> T timeWrite(DbOperation op, ServerMetrics.SqlCall<T> call) throws SQLException {
+        try {
+            return metrics.timeDbCall(op, call);
+        } finally {
+            ReadReplicaRouter router = readReplicas;
+            if (router != null) router.recordWrite();
+        }
     }
 
     // --- Metody Zarządzania Klientami ---
 
+    @Override
     public int addClient(String firstName, String lastName, String pesel, String password) throws SQLException {
-        String sql = "INSERT INTO clients(first_name, last_name, pesel, password) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement st = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            st.setString(1, firstName);
-            st.setString(2, lastName);
-            st.setString(3, pesel);
-            st.setString(4, password); // Przechowywanie jawnego hasła zgodnie z zakresem projektu
-            int affectedRows = st.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Tworzenie klienta nie powiodło się, nie zmodyfikowano żadnych wierszy.");
-            }
-            try (ResultSet generatedKeys = st.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
-                } else {
-                    throw new SQLException("Tworzenie klienta nie powiodło się, nie uzyskano ID.");
+        return timeWrite(DbOperation.ADD_CLIENT, () -> {
+            try (ConnectionPool.Lease lease = pool.lease()) {
+                PreparedStatement st = lease.prepare(SqlCatalog.ADD_CLIENT);
+                st.setString(1, firstName);
+                st.setString(2, lastName);
+                st.setString(3, pesel);
+                st.setString(4, password); // Przechowywanie jawnego hasła zgodnie z zakresem projektu
+                int affectedRows = st.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Tworzenie klienta nie powiodło się, nie zmodyfikowano żadnych wierszy.");
+                }
+                try (ResultSet generatedKeys = st.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        return generatedKeys.getInt(1);
+                    } else {
+                        throw new SQLException("Tworzenie klienta nie powiodło się, nie uzyskano ID.");
+                    }
                 }
             }
-        }
+        });
     }
 
-    public Optional<Client> authenticateClient(int clientId, String password) throws SQLException {
-        String sql = "SELECT id, first_name, last_name, pesel, password AS stored_password FROM clients WHERE id = ?";
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+    private Optional<Client> authenticateClientInDb(int clientId, String password) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.AUTHENTICATE_CLIENT);
             st.setInt(1, clientId);
             try (ResultSet rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -72,10 +274,10 @@ public class DBManager implements AutoCloseable {
         return Optional.empty();
     }
 
-    public Optional<Client> findClientById(int clientId) throws SQLException {
-        String sql = "SELECT id, first_name, last_name, pesel FROM clients WHERE id = ?";
+    private Optional<Client> findClientByIdInDb(int clientId, boolean replicaAllowed) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = readLease(replicaAllowed)) {
+            PreparedStatement st = lease.prepare(SqlCatalog.FIND_CLIENT_BY_ID);
             st.setInt(1, clientId);
             try (ResultSet rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -86,10 +288,10 @@ public class DBManager implements AutoCloseable {
         return Optional.empty();
     }
 
-    public Optional<Client> findClientByPesel(String pesel) throws SQLException {
-        String sql = "SELECT id, first_name, last_name, pesel FROM clients WHERE pesel = ?";
+    private Optional<Client> findClientByPeselInDb(String pesel) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.FIND_CLIENT_BY_PESEL);
             st.setString(1, pesel);
             try (ResultSet rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -100,10 +302,10 @@ public class DBManager implements AutoCloseable {
         return Optional.empty();
     }
 
-    public boolean updateClientInfo(int clientId, String newFirstName, String newLastName, String newPesel) throws SQLException {
-        String sql = "UPDATE clients SET first_name = ?, last_name = ?, pesel = ? WHERE id = ?";
+    private boolean updateClientInfoInDb(int clientId, String newFirstName, String newLastName, String newPesel) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.UPDATE_CLIENT);
             st.setString(1, newFirstName);
             st.setString(2, newLastName);
             st.setString(3, newPesel);
@@ -113,59 +315,152 @@ public class DBManager implements AutoCloseable {
         }
     }
 
-    public boolean deleteClientById(int clientId) throws SQLException {
-        String sql = "DELETE FROM clients WHERE id = ?";
+    private boolean deleteClientByIdInDb(int clientId) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.DELETE_CLIENT);
             st.setInt(1, clientId);
             int affectedRows = st.executeUpdate();
             return affectedRows > 0;
         }
     }
 
-    // --- Metody Zarządzania Kontami ---
+    // query: CLIENT_ENTRY_BY_ID albo CLIENT_ENTRY_BY_PESEL
+    private Optional<ClientCache.Entry> selectClientEntry(SqlCatalog query, Object value) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(query);
+            st.setObject(1, value);
+            try (ResultSet rs = st.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new ClientCache.Entry(rs.getInt("id"), rs.getString("first_name"),
+                            rs.getString("last_name"), rs.getString("pesel"), rs.getString("password")));
+                }
+            }
+        }
+        return Optional.empty();
+    }
 
-    private String generateAccountNumber() throws SQLException {
-        String accountNumber;
-        boolean unique;
-        do {
-            unique = false;
-            StringBuilder sb = new StringBuilder("PL");
-            for (int i = 0; i < 26; i++) sb.append(rand.nextInt(10));
-            accountNumber = sb.toString();
-            if (!findAccountByNumber(accountNumber).isPresent()) {
-                unique = true;
+    private Optional<ClientCache.Entry> cachedClientById(ClientCache cache, int clientId) throws SQLException {
+        ClientCache.Entry cached = cache.get(clientId);
+        if (cached != null) return Optional.of(cached);
+        long epoch = cache.readEpoch();
+        long peselEpoch = cache.peselReadEpoch();
+        Optional<ClientCache.Entry> fromDb = selectClientEntry(SqlCatalog.CLIENT_ENTRY_BY_ID, clientId);
+        fromDb.ifPresent(e -> cache.put(e, epoch, peselEpoch));
+        return fromDb;
+    }
+
+    @Override
+    public Optional<Client> authenticateClient(int clientId, String password) throws SQLException {
+        return metrics.timeDbCall(DbOperation.AUTHENTICATE_CLIENT, () -> {
+            ClientCache cache = clientCache;
+            if (cache == null) return authenticateClientInDb(clientId, password);
+            Optional<ClientCache.Entry> entry = cachedClientById(cache, clientId);
+            if (entry.isPresent() && password.equals(entry.get().storedPassword)) {
+                return Optional.of(entry.get().toClient());
             }
-        } while (!unique);
-        return accountNumber;
+            return Optional.empty();
+        });
     }
 
+    @Override
+    public Optional<Client> findClientById(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_CLIENT_BY_ID, () -> {
+            ClientCache cache = clientCache;
+            if (cache == null) return findClientByIdInDb(clientId, true);
+            return cachedClientById(cache, clientId).map(ClientCache.Entry::toClient);
+        });
+    }
+
+    @Override
+    public Optional<Client> findClientByPesel(String pesel) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_CLIENT_BY_PESEL, () -> {
+            ClientCache cache = clientCache;
+            if (cache == null) return findClientByPeselInDb(pesel);
+            ClientCache.Entry cached = cache.getByPesel(pesel);
+            if (cached != null) return Optional.of(cached.toClient());
+            long epoch = cache.readEpoch();
+            long peselEpoch = cache.peselReadEpoch();
+            Optional<ClientCache.Entry> fromDb = selectClientEntry(SqlCatalog.CLIENT_ENTRY_BY_PESEL, pesel);
+            fromDb.ifPresent(e -> cache.put(e, epoch, peselEpoch));
+            return fromDb.map(ClientCache.Entry::toClient);
+        });
+    }
+
+    @Override
+    public boolean updateClientInfo(int clientId, String newFirstName, String newLastName, String newPesel) throws SQLException {
+        return timeWrite(DbOperation.UPDATE_CLIENT, () -> {
+            ClientCache cache = clientCache;
+            if (cache == null) return updateClientInfoInDb(clientId, newFirstName, newLastName, newPesel);
+            long token = cache.beginUpdate(clientId);
+            try {
+                return updateClientInfoInDb(clientId, newFirstName, newLastName, newPesel);
+            } finally {
+                cache.endUpdate(clientId, token);
+            }
+        });
+    }
+
+    // --- Metody Zarządzania Kontami ---
+
+    @Override
     public Account addAccountToClient(int clientId, BigDecimal initialBalance) throws SQLException {
-        if (!findClientById(clientId).isPresent()) {
-            throw new SQLException("Nie można dodać konta: Klient o ID " + clientId + " nie został znaleziony.");
-        }
-        String accountNumber = generateAccountNumber();
-        String sql = "INSERT INTO accounts(client_id, account_number, balance) VALUES (?, ?, ?)";
-        // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            st.setInt(1, clientId);
-            st.setString(2, accountNumber);
-            st.setBigDecimal(3, initialBalance);
-            int affectedRows = st.executeUpdate();
-            if (affectedRows == 0) throw new SQLException("Tworzenie konta nie powiodło się, nie zmodyfikowano żadnych wierszy.");
-            try (ResultSet generatedKeys = st.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int accountId = generatedKeys.getInt(1);
-                    return new Account(accountId, clientId, accountNumber, initialBalance);
-                } else throw new SQLException("Tworzenie konta nie powiodło się, nie uzyskano ID konta.");
+        return timeWrite(DbOperation.ADD_ACCOUNT, () -> {
+            if (!clientExistsOnPrimary(clientId)) {
+                throw new SQLException("Nie można dodać konta: Klient o ID " + clientId + " nie został znaleziony.");
             }
+            Account created = null;
+            for (int attempt = 1; created == null; attempt++) {
+                try {
+                    created = insertAccount(clientId, accountNumbers.nextAccountNumber(), initialBalance);
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Numer z sekwencji może kolidować tylko z kontem założonym poza alokatorem (np. starym numerem losowym)
+                    if (attempt >= MAX_ACCOUNT_NUMBER_ATTEMPTS) throw e;
+                }
+            }
+            AccountCache cache = accountCache;
+            if (cache != null) cache.accountAdded(created);
+            return created;
+        });
+    }
+
+    // Sprawdzenie przed zapisem: z cache klientów albo z bazy głównej - replika mogłaby jeszcze nie znać klienta
+    private boolean clientExistsOnPrimary(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_CLIENT_BY_ID, () -> {
+            ClientCache cache = clientCache;
+            return cache != null ? cachedClientById(cache, clientId).isPresent() : findClientByIdInDb(clientId, false).isPresent();
+        });
+    }
+
+    private Account insertAccount(int clientId, String accountNumber, BigDecimal initialBalance) throws SQLException {
+        AccountLedger ledger = this.ledger;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            return inLedgerTransaction(lease.connection(), ledger, () -> {
+                Account created;
+                PreparedStatement st = lease.prepare(SqlCatalog.ADD_ACCOUNT);
+                st.setInt(1, clientId);
+                st.setString(2, accountNumber);
+                st.setBigDecimal(3, initialBalance);
+                int affectedRows = st.executeUpdate();
+                if (affectedRows == 0) throw new SQLException("Tworzenie konta nie powiodło się, nie zmodyfikowano żadnych wierszy.");
+                try (ResultSet generatedKeys = st.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        int accountId = generatedKeys.getInt(1);
+                        created = new Account(accountId, clientId, accountNumber, initialBalance);
+                    } else throw new SQLException("Tworzenie konta nie powiodło się, nie uzyskano ID konta.");
+                }
+                if (ledger != null) {
+                    ledger.append(lease, LedgerEntry.of(accountNumber, LedgerEntry.Type.OPEN, initialBalance, initialBalance, null));
+                }
+                return created;
+            });
         }
     }
 
-    public Optional<Account> findAccountByNumber(String accountNumber) throws SQLException {
-        String sql = "SELECT id, client_id, account_number, balance FROM accounts WHERE account_number = ?";
+    private Optional<Account> findAccountByNumberInDb(String accountNumber, boolean replicaAllowed) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = readLease(replicaAllowed)) {
+            PreparedStatement st = lease.prepare(SqlCatalog.FIND_ACCOUNT);
             st.setString(1, accountNumber);
             try (ResultSet rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -176,11 +471,11 @@ public class DBManager implements AutoCloseable {
         return Optional.empty();
     }
 
-    public List<Account> findAllAccountsByClientId(int clientId) throws SQLException {
+    private List<Account> findAllAccountsByClientIdInDb(int clientId, boolean replicaAllowed) throws SQLException {
         List<Account> clientAccounts = new ArrayList<>();
-        String sql = "SELECT id, client_id, account_number, balance FROM accounts WHERE client_id = ?";
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = readLease(replicaAllowed)) {
+            PreparedStatement st = lease.prepare(SqlCatalog.LIST_ACCOUNTS);
             st.setInt(1, clientId);
             try (ResultSet rs = st.executeQuery()) {
                 while (rs.next()) {
@@ -191,88 +486,539 @@ public class DBManager implements AutoCloseable {
         return clientAccounts;
     }
 
-    private void updateAccountBalanceInTransaction(String accountNumber, BigDecimal newBalance, Connection activeConnection) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ? WHERE account_number = ?";
-        // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = activeConnection.prepareStatement(sql)) {
-            st.setBigDecimal(1, newBalance);
-            st.setString(2, accountNumber);
-            int affectedRows = st.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Aktualizacja salda nie powiodła się dla konta " + accountNumber + " w ramach transakcji.");
+    /**
+     * Przelew z blokowaniem obu kont w stałej kolejności, względną zmianą sald i ponowieniem przy zakleszczeniu.
+     * Środki i właściciel konta źródłowego są sprawdzane na zablokowanych wierszach.
+     * @param ownerClientId ID klienta, do którego musi należeć konto źródłowe (&lt;= 0 - bez sprawdzenia).
+     */
+    @Override
+    public TransferResult transfer(String fromAccountNumber, String toAccountNumber, int ownerClientId, BigDecimal amount) throws SQLException {
+        return timeWrite(DbOperation.TRANSFER, () -> {
+            AccountLockTable locks = accountLocks;
+            if (locks == null || fromAccountNumber.equals(toAccountNumber)) {
+                return transferInDb(fromAccountNumber, toAccountNumber, ownerClientId, amount); // To samo konto: odrzuca TransferEngine
             }
+            locks.lockPair(fromAccountNumber, toAccountNumber);
+            try {
+                return transferInDb(fromAccountNumber, toAccountNumber, ownerClientId, amount);
+            } finally {
+                locks.unlockPair(fromAccountNumber, toAccountNumber);
+            }
+        });
+    }
+
+    private TransferResult transferInDb(String fromAccountNumber, String toAccountNumber, int ownerClientId, BigDecimal amount) throws SQLException {
+        AccountCache cache = accountCache;
+        if (cache == null) return transferEngine.transfer(fromAccountNumber, toAccountNumber, ownerClientId, amount);
+
+        Account knownFrom = cache.peekAccount(fromAccountNumber);
+        Account knownTo = cache.peekAccount(toAccountNumber);
+        long fromToken = cache.beginBalanceWrite(fromAccountNumber);
+        long toToken = cache.beginBalanceWrite(toAccountNumber);
+        TransferResult result = null;
+        try {
+            result = transferEngine.transfer(fromAccountNumber, toAccountNumber, ownerClientId, amount);
+            return result;
+        } finally {
+            boolean ok = result != null && result.isOk();
+            // Nieudany przelew nie zmienił sald - znane wartości wracają do cache bez zmian
+            cache.endBalanceWrite(fromAccountNumber, fromToken, knownFrom,
+                    ok ? result.getSourceBalance() : (result != null && knownFrom != null ? knownFrom.getBalance() : null));
+            cache.endBalanceWrite(toAccountNumber, toToken, knownTo,
+                    ok ? result.getDestinationBalance() : (result != null && knownTo != null ? knownTo.getBalance() : null));
         }
     }
 
-    public void executeTransferTransaction(Account fromAccount, Account toAccount, BigDecimal amount) throws SQLException {
-        // Sprawdzenie warunku wstępnego (choć powinno być też w logice wywołującej)
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new SQLException("Niewystarczające środki do przelewu. Konto źródłowe: " + fromAccount.getAccountNumber() +
-                    ", Żądane: " + amount + ", Dostępne: " + fromAccount.getBalance());
+    /**
+     * Paczka przelewów w jednej transakcji ({@link TransferEngine#transferBatch}); przy włączonych blokadach kont
+     * bierze paski wszystkich kont paczki, a cache kont dostaje salda po paczce.
+     */
+    @Override
+    public BatchTransferResult transferBatch(List<BatchTransferEntry> entries, int ownerClientId, boolean atomic) throws SQLException {
+        return timeWrite(DbOperation.BATCH_TRANSFER, () -> {
+            Set<String> numbers = BatchTransferEntry.accountNumbers(entries);
+            AccountLockTable locks = accountLocks;
+            int[] stripes = locks != null ? locks.lockAccounts(numbers) : null;
+            try {
+                return transferBatchInDb(entries, numbers, ownerClientId, atomic);
+            } finally {
+                if (stripes != null) locks.unlockStripes(stripes);
+            }
+        });
+    }
+
+    private BatchTransferResult transferBatchInDb(List<BatchTransferEntry> entries, Set<String> numbers, int ownerClientId,
+                                                  boolean atomic) throws SQLException {
+        AccountCache cache = accountCache;
+        if (cache == null) return transferEngine.transferBatch(entries, ownerClientId, atomic);
+
+        Map<String, Account> known = new HashMap<>(numbers.size() * 2);
+        Map<String, Long> tokens = new HashMap<>(numbers.size() * 2);
+        for (String number : numbers) {
+            known.put(number, cache.peekAccount(number));
+            tokens.put(number, cache.beginBalanceWrite(number));
         }
-        boolean originalAutoCommitState = false;
+        BatchTransferResult result = null;
         try {
-            originalAutoCommitState = conn.getAutoCommit();
-            if (originalAutoCommitState) {
-                conn.setAutoCommit(false); // Rozpocznij transakcję
+            result = transferEngine.transferBatch(entries, ownerClientId, atomic);
+            return result;
+        } finally {
+            // Konta niezmienione przez paczkę wracają do cache ze znanym saldem; po błędzie - unieważnione
+            for (String number : numbers) {
+                Account knownAccount = known.get(number);
+                BigDecimal balance = null;
+                if (result != null) {
+                    balance = result.getBalances().get(number);
+                    if (balance == null && knownAccount != null) balance = knownAccount.getBalance();
+                }
+                cache.endBalanceWrite(number, tokens.get(number), knownAccount, balance);
             }
+        }
+    }
 
-            BigDecimal newFromBalance = fromAccount.getBalance().subtract(amount);
-            BigDecimal newToBalance = toAccount.getBalance().add(amount);
+    /**
+     * Zachowane dla zgodności: przelew między kontami opisanymi migawkami. Salda z migawek nie są już używane -
+     * o wyniku decyduje stan zablokowanych wierszy w transakcji TransferEngine.
+     */
+    public void executeTransferTransaction(Account fromAccount, Account toAccount, BigDecimal amount) throws SQLException {
+        TransferResult result = transfer(fromAccount.getAccountNumber(), toAccount.getAccountNumber(), 0, amount);
+        if (!result.isOk()) {
+            throw new SQLException("Przelew nie powiódł się (" + result.getStatus() + "). Konto źródłowe: " + fromAccount.getAccountNumber() +
+                    ", Żądane: " + amount);
+        }
+    }
 
-            updateAccountBalanceInTransaction(fromAccount.getAccountNumber(), newFromBalance, conn);
-            updateAccountBalanceInTransaction(toAccount.getAccountNumber(), newToBalance, conn);
+    private void updateAccountBalanceInDb(String accountNumber, BigDecimal newBalance) throws SQLException {
+        AccountLedger ledger = this.ledger;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            inLedgerTransaction(lease.connection(), ledger, () -> {
+                // Wpis historii niesie różnicę, więc poprzednie saldo czytamy z zablokowanego wiersza
+                BigDecimal previous = (ledger != null) ? lockedBalance(lease, accountNumber) : null;
+                PreparedStatement st = lease.prepare(SqlCatalog.SET_BALANCE);
+                st.setBigDecimal(1, newBalance);
+                st.setString(2, accountNumber);
+                int affectedRows = st.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Aktualizacja salda nie powiodła się dla konta " + accountNumber + ". Konto nie znalezione lub saldo niezmienione.");
+                }
+                if (ledger != null) {
+                    BigDecimal stored = readBalance(lease, accountNumber);
+                    ledger.append(lease, LedgerEntry.of(accountNumber, LedgerEntry.Type.ADJUST, stored.subtract(previous), stored, null));
+                }
+                return null;
+            });
+        }
+    }
 
-            if (originalAutoCommitState) {
-                conn.commit(); // Zatwierdź transakcję
-            }
-        } catch (SQLException e) {
-            if (conn != null && originalAutoCommitState) {
-                try {
-                    conn.rollback();
-                } catch (SQLException exRollback) {
-                    e.addSuppressed(exRollback); // Dodaj błąd rollbacku jako stłumiony
+    private BalanceUpdateResult depositInDb(String accountNumber, BigDecimal amount) throws SQLException {
+        AccountLedger ledger = this.ledger;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            return inReadBackTransaction(lease.connection(), ledger, () -> {
+                BigDecimal balance = updateReturningBalance(lease, true, accountNumber, 0, amount);
+                if (balance == null) {
+                    return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+                }
+                if (ledger != null) {
+                    ledger.append(lease, LedgerEntry.of(accountNumber, LedgerEntry.Type.DEPOSIT, amount, balance, null));
+                }
+                return BalanceUpdateResult.ok(balance);
+            });
+        }
+    }
+
+    private BalanceUpdateResult withdrawInDb(String accountNumber, int clientId, BigDecimal amount) throws SQLException {
+        AccountLedger ledger = this.ledger;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            return inReadBackTransaction(lease.connection(), ledger, () -> {
+                BigDecimal balance = updateReturningBalance(lease, false, accountNumber, clientId, amount);
+                if (balance == null) {
+                    return BalanceUpdateResult.failure(diagnoseWithdrawFailure(lease, accountNumber, clientId));
+                }
+                if (ledger != null) {
+                    ledger.append(lease, LedgerEntry.of(accountNumber, LedgerEntry.Type.WITHDRAW, amount.negate(), balance, null));
+                }
+                return BalanceUpdateResult.ok(balance);
+            });
+        }
+    }
+
+    /**
+     * Względna zmiana salda (wypłata z warunkiem właściciela i środków) zwracająca nowe saldo; null - żaden wiersz
+     * nie został zmieniony. Saldo pochodzi z samego polecenia zmiany, więc nie zawiera zmian innych sesji.
+     */
+    private BigDecimal updateReturningBalance(ConnectionPool.Lease lease, boolean deposit, String accountNumber,
+                                              int clientId, BigDecimal amount) throws SQLException {
+        switch (balanceReadBack) {
+            case DELTA_TABLE: {
+                PreparedStatement st = lease.prepare(deposit ? SqlCatalog.DEPOSIT_RETURNING : SqlCatalog.WITHDRAW_RETURNING);
+                bindBalanceChange(st, deposit, accountNumber, clientId, amount);
+                try (ResultSet rs = st.executeQuery()) {
+                    return rs.next() ? rs.getBigDecimal(1) : null;
                 }
             }
-            throw e; // Rzuć oryginalny wyjątek
-        } finally {
-            if (conn != null && originalAutoCommitState) {
-                try {
-                    conn.setAutoCommit(originalAutoCommitState); // Przywróć oryginalny stan auto-commit
-                } catch (SQLException exRestore) {
-                    // Loguj ten błąd, ale jest mniej krytyczny
+            case SESSION_VARIABLE: {
+                PreparedStatement st = lease.prepare(deposit ? SqlCatalog.DEPOSIT_CAPTURE : SqlCatalog.WITHDRAW_CAPTURE);
+                bindBalanceChange(st, deposit, accountNumber, clientId, amount);
+                if (st.executeUpdate() == 0) return null; // Zmienna nie została ustawiona - może mieć wartość z poprzedniej operacji
+                try (ResultSet rs = lease.prepare(SqlCatalog.CAPTURED_BALANCE).executeQuery()) {
+                    if (rs.next()) return rs.getBigDecimal(1);
                 }
+                throw new SQLException("Nie odczytano salda konta " + accountNumber + " po zmianie.");
+            }
+            default: {
+                PreparedStatement st = lease.prepare(deposit ? SqlCatalog.ADD_TO_BALANCE : SqlCatalog.WITHDRAW);
+                bindBalanceChange(st, deposit, accountNumber, clientId, amount);
+                return st.executeUpdate() == 0 ? null : readBalance(lease, accountNumber);
             }
         }
     }
 
-    public void updateAccountBalance(String accountNumber, BigDecimal newBalance) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ? WHERE account_number = ?";
-        // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
-            st.setBigDecimal(1, newBalance);
-            st.setString(2, accountNumber);
-            int affectedRows = st.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Aktualizacja salda nie powiodła się dla konta " + accountNumber + ". Konto nie znalezione lub saldo niezmienione.");
+    // Wspólna kolejność parametrów poleceń wpłaty i wypłaty z katalogu
+    private static void bindBalanceChange(PreparedStatement st, boolean deposit, String accountNumber, int clientId,
+                                          BigDecimal amount) throws SQLException {
+        st.setBigDecimal(1, amount);
+        st.setString(2, accountNumber);
+        if (!deposit) {
+            st.setInt(3, clientId);
+            st.setBigDecimal(4, amount);
+        }
+    }
+
+    // Bez historii transakcja potrzebna jest tylko wtedy, gdy saldo odczytujemy osobnym SELECT-em (wiersz zablokowany przez UPDATE)
+    private <T> T inReadBackTransaction(Connection conn, AccountLedger ledger, ServerMetrics.SqlCall<T> body) throws SQLException {
+        return (balanceReadBack == BalanceReadBack.SEPARATE_SELECT) ? inTransaction(conn, body) : inLedgerTransaction(conn, ledger, body);
+    }
+
+    // Zmiana salda i jej wpis historii w jednej transakcji; bez historii - pojedyncze polecenia w auto-commit jak dotąd
+    private static <T> T inLedgerTransaction(Connection conn, AccountLedger ledger, ServerMetrics.SqlCall<T> body) throws SQLException {
+        if (ledger == null) return body.call();
+        return inTransaction(conn, body);
+    }
+
+    private static <T> T inTransaction(Connection conn, ServerMetrics.SqlCall<T> body) throws SQLException {
+        conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+        try {
+            T result = body.call();
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException exRollback) {
+                e.addSuppressed(exRollback);
             }
+            throw e;
         }
     }
 
-    public boolean deleteAccountByNumber(String accountNumber) throws SQLException {
-        String sql = "DELETE FROM accounts WHERE account_number = ?";
+    private BalanceUpdateResult applyDeposit(String accountNumber, BigDecimal amount) throws SQLException {
+        BalanceWriteBatcher batcher = writeBatcher;
+        return batcher != null ? batcher.deposit(accountNumber, amount) : depositInDb(accountNumber, amount);
+    }
+
+    private BalanceUpdateResult applyWithdraw(String accountNumber, int clientId, BigDecimal amount) throws SQLException {
+        BalanceWriteBatcher batcher = writeBatcher;
+        return batcher != null ? batcher.withdraw(accountNumber, clientId, amount) : withdrawInDb(accountNumber, clientId, amount);
+    }
+
+    // Operacja na jednym koncie pod jego paskiem blokad (gdy włączone)
+    private <T> T underAccountLock(String accountNumber, ServerMetrics.SqlCall<T> call) throws SQLException {
+        AccountLockTable locks = accountLocks;
+        if (locks == null) return call.call();
+        ReentrantLock lock = locks.lock(accountNumber);
+        try {
+            return call.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Saldo odczytane w transakcji, która właśnie zmieniła (i zablokowała) wiersz
+    private static BigDecimal readBalance(ConnectionPool.Lease lease, String accountNumber) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.READ_BALANCE);
+        st.setString(1, accountNumber);
+        try (ResultSet rs = st.executeQuery()) {
+            if (rs.next()) return rs.getBigDecimal("balance");
+        }
+        throw new SQLException("Konto " + accountNumber + " zniknęło w trakcie operacji na saldzie.");
+    }
+
+    // Saldo z blokadą wiersza do końca transakcji; null - brak konta
+    private static BigDecimal lockedBalance(ConnectionPool.Lease lease, String accountNumber) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.LOCK_BALANCE);
+        st.setString(1, accountNumber);
+        try (ResultSet rs = st.executeQuery()) {
+            return rs.next() ? rs.getBigDecimal("balance") : null;
+        }
+    }
+
+    // Wspólne z BalanceWriteBatcher - wywoływane na połączeniu, które wykonało nieudaną wypłatę
+    static BalanceUpdateResult.Status diagnoseWithdrawFailure(ConnectionPool.Lease lease, String accountNumber, int clientId) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.ACCOUNT_OWNER);
+        st.setString(1, accountNumber);
+        try (ResultSet rs = st.executeQuery()) {
+            if (!rs.next()) return BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND;
+            if (rs.getInt("client_id") != clientId) return BalanceUpdateResult.Status.ACCESS_DENIED;
+            return BalanceUpdateResult.Status.INSUFFICIENT_FUNDS;
+        }
+    }
+
+    private boolean deleteAccountByNumberInDb(String accountNumber) throws SQLException {
         // Implementacja jak w poprzedniej wersji...
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement st = lease.prepare(SqlCatalog.DELETE_ACCOUNT);
             st.setString(1, accountNumber);
             int affectedRows = st.executeUpdate();
             return affectedRows > 0;
         }
     }
 
+    // --- Operacje na kontach z obsługą pamięci podręcznej ---
+
     @Override
-    public void close() throws SQLException {
-        if (conn != null && !conn.isClosed()) {
-            conn.close();
+    public Optional<Account> findAccountByNumber(String accountNumber) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_ACCOUNT, () -> {
+            AccountCache cache = accountCache;
+            if (cache == null) return findAccountByNumberInDb(accountNumber, true);
+            Account cached = cache.getAccount(accountNumber);
+            if (cached != null) return Optional.of(cached);
+            long epoch = cache.readEpoch(); // Przed odczytem z bazy - chroni przed wstawieniem starej wartości
+            Optional<Account> fromDb = findAccountByNumberInDb(accountNumber, false);
+            fromDb.ifPresent(acc -> cache.putAccount(acc, epoch));
+            return fromDb;
+        });
+    }
+
+    @Override
+    public List<Account> findAllAccountsByClientId(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.LIST_ACCOUNTS, () -> {
+            AccountCache cache = accountCache;
+            if (cache == null) return findAllAccountsByClientIdInDb(clientId, true);
+            List<Account> cached = cache.getClientAccounts(clientId);
+            if (cached != null) return cached;
+            long accountEpoch = cache.readEpoch();
+            long indexEpoch = cache.indexReadEpoch();
+            List<Account> fromDb = findAllAccountsByClientIdInDb(clientId, false);
+            cache.putClientAccounts(clientId, fromDb, accountEpoch, indexEpoch);
+            return fromDb;
+        });
+    }
+
+    /**
+     * Konta klienta do odbiorcy w trakcie odczytu. Lista z cache (jeśli jest w nim w całości) idzie bez zapytań;
+     * inaczej konta czytane są stronami po STREAM_PAGE_SIZE (po kluczu id), a połączenie wraca do puli przed
+     * przekazaniem każdej strony odbiorcy - wolny klient nie trzyma połączenia z puli. Cache nie jest wtedy
+     * uzupełniany, bo wymagałoby to zbudowania całej listy.
+     */
+    @Override
+    public int streamAccountsByClientId(int clientId, AccountSink sink) throws SQLException {
+        return metrics.timeDbCall(DbOperation.STREAM_ACCOUNTS, () -> {
+            AccountCache cache = accountCache;
+            List<Account> cached = cache != null ? cache.getClientAccounts(clientId) : null;
+            if (cached != null) {
+                sink.begin(cached.size());
+                for (Account acc : cached) sink.accept(acc);
+                return cached.size();
+            }
+            return streamAccountsByClientIdFromDb(clientId, sink);
+        });
+    }
+
+    // Strony nie są jednym migawkowym odczytem: konto dodane lub usunięte w trakcie może się pojawić lub nie
+    private int streamAccountsByClientIdFromDb(int clientId, AccountSink sink) throws SQLException {
+        int count;
+        try (ConnectionPool.Lease lease = readLease(true)) { // Odczyt strumieniowy nie uzupełnia cache
+            PreparedStatement st = lease.prepare(SqlCatalog.COUNT_ACCOUNTS);
+            st.setInt(1, clientId);
+            try (ResultSet rs = st.executeQuery()) {
+                count = rs.next() ? rs.getInt(1) : 0;
+            }
         }
+        sink.begin(count);
+        int delivered = 0;
+        int afterId = 0;
+        List<Account> page;
+        do {
+            page = readAccountPage(clientId, afterId);
+            for (Account acc : page) sink.accept(acc);
+            delivered += page.size();
+            if (!page.isEmpty()) afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+        return delivered;
+    }
+
+    private List<Account> readAccountPage(int clientId, int afterId) throws SQLException {
+        List<Account> page = new ArrayList<>(STREAM_PAGE_SIZE);
+        try (ConnectionPool.Lease lease = readLease(true)) {
+            PreparedStatement st = lease.prepare(SqlCatalog.STREAM_ACCOUNTS);
+            st.setInt(1, clientId);
+            st.setInt(2, afterId);
+            st.setInt(3, STREAM_PAGE_SIZE);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new Account(rs.getInt("id"), rs.getInt("client_id"), rs.getString("account_number"), rs.getBigDecimal("balance")));
+                }
+            }
+        }
+        return page;
+    }
+
+    public void updateAccountBalance(String accountNumber, BigDecimal newBalance) throws SQLException {
+        timeWrite(DbOperation.UPDATE_BALANCE, () -> underAccountLock(accountNumber, () -> {
+            AccountCache cache = accountCache;
+            if (cache == null) {
+                updateAccountBalanceInDb(accountNumber, newBalance);
+                return null;
+            }
+            Account known = cache.peekAccount(accountNumber);
+            long token = cache.beginBalanceWrite(accountNumber);
+            boolean ok = false;
+            try {
+                updateAccountBalanceInDb(accountNumber, newBalance);
+                ok = true;
+            } finally {
+                cache.endBalanceWrite(accountNumber, token, known, ok ? newBalance : null);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Atomowa wpłata: względna aktualizacja salda jednym poleceniem UPDATE (bez wcześniejszego odczytu konta),
+     * więc równoległe operacje na tym samym koncie nie gubią zmian.
+     * @return Wynik z nowym saldem lub ACCOUNT_NOT_FOUND.
+     */
+    @Override
+    public BalanceUpdateResult deposit(String accountNumber, BigDecimal amount) throws SQLException {
+        return timeWrite(DbOperation.DEPOSIT, () -> underAccountLock(accountNumber, () -> {
+            AccountCache cache = accountCache;
+            if (cache == null) return applyDeposit(accountNumber, amount);
+            Account known = cache.peekAccount(accountNumber);
+            long token = cache.beginBalanceWrite(accountNumber);
+            BalanceUpdateResult result = null;
+            try {
+                result = applyDeposit(accountNumber, amount);
+                return result;
+            } finally {
+                cache.endBalanceWrite(accountNumber, token, known, result != null ? result.getNewBalance() : null);
+            }
+        }));
+    }
+
+    /**
+     * Atomowa wypłata: właściciel konta i wystarczające środki sprawdzane są w klauzuli WHERE tego samego
+     * polecenia UPDATE, które zmienia saldo. Przyczyna niepowodzenia ustalana jest dodatkowym odczytem
+     * tylko wtedy, gdy żaden wiersz nie został zmieniony.
+     * @return Wynik z nowym saldem lub ACCOUNT_NOT_FOUND / ACCESS_DENIED / INSUFFICIENT_FUNDS.
+     */
+    @Override
+    public BalanceUpdateResult withdraw(String accountNumber, int clientId, BigDecimal amount) throws SQLException {
+        return timeWrite(DbOperation.WITHDRAW, () -> underAccountLock(accountNumber, () -> {
+            AccountCache cache = accountCache;
+            if (cache == null) return applyWithdraw(accountNumber, clientId, amount);
+            Account known = cache.peekAccount(accountNumber);
+            long token = cache.beginBalanceWrite(accountNumber);
+            BalanceUpdateResult result = null;
+            try {
+                result = applyWithdraw(accountNumber, clientId, amount);
+                return result;
+            } finally {
+                // Nieudana wypłata nie zmieniła salda - znana wartość wraca do cache
+                BigDecimal balance = result == null ? null : result.isOk() ? result.getNewBalance() : (known != null ? known.getBalance() : null);
+                cache.endBalanceWrite(accountNumber, token, known, balance);
+            }
+        }));
+    }
+
+    @Override
+    public boolean deleteAccountByNumber(String accountNumber) throws SQLException {
+        return timeWrite(DbOperation.DELETE_ACCOUNT, () -> underAccountLock(accountNumber, () -> {
+            AccountCache cache = accountCache;
+            Account known = (cache != null) ? cache.peekAccount(accountNumber) : null;
+            boolean deleted = deleteAccountByNumberInDb(accountNumber);
+            if (cache != null) cache.accountDeleted(accountNumber, known != null ? known.getClientId() : null);
+            return deleted;
+        }));
+    }
+
+    @Override
+    public boolean deleteClientById(int clientId) throws SQLException {
+        return timeWrite(DbOperation.DELETE_CLIENT, () -> {
+            ClientCache clients = clientCache;
+            long token = (clients != null) ? clients.beginUpdate(clientId) : 0;
+            boolean deleted;
+            try {
+                deleted = deleteClientByIdInDb(clientId);
+            } finally {
+                if (clients != null) clients.endUpdate(clientId, token);
+            }
+            AccountCache cache = accountCache;
+            if (cache != null) cache.clientDeleted(clientId); // ON DELETE CASCADE usunął też konta klienta
+            return deleted;
+        });
+    }
+
+    // --- Import zbiorczy ---
+
+    /**
+     * Import porcji klientów z pierwszymi kontami jedną transakcją ({@link BulkImporter}). Jeśli transakcja zostanie
+     * wycofana z powodu naruszenia ograniczenia (np. równoległe dodanie klienta z tym samym PESEL-em), porcja importowana
+     * jest ponownie wiersz po wierszu - każdy wiersz (klient i jego konto) we własnej transakcji - więc jeden konflikt
+     * nie odrzuca pozostałych wierszy. Inne błędy (połączenie, limit czasu) są przekazywane dalej bez ponawiania.
+     */
+    @Override
+    public List<ClientImportResult> importClients(List<ClientImportRow> rows) throws SQLException {
+        return timeWrite(DbOperation.BULK_IMPORT, () -> {
+            List<Account> created = new ArrayList<>(rows.size());
+            try {
+                try {
+                    return bulkImporter.importChunk(rows, created);
+                } catch (SQLException e) {
+                    if (!BulkImporter.isIntegrityViolation(e)) throw e;
+                    // Nic z porcji nie zostało zapisane (licznik rolledBack w statystykach importera)
+                }
+                List<ClientImportResult> results = new ArrayList<>(rows.size());
+                for (ClientImportRow row : rows) results.add(importSingleRow(row, created));
+                return results;
+            } finally {
+                // Konta z zatwierdzonych transakcji trafiają do cache także wtedy, gdy dalszy wiersz zakończył się błędem
+                AccountCache cache = accountCache;
+                if (cache != null) {
+                    for (Account account : created) cache.accountAdded(account);
+                }
+            }
+        });
+    }
+
+    // Jednowierszowa porcja: klient i jego konto zapisywane są razem albo wcale
+    private ClientImportResult importSingleRow(ClientImportRow row, List<Account> created) throws SQLException {
+        try {
+            return bulkImporter.importChunk(List.of(row), created).get(0);
+        } catch (SQLException e) {
+            if (!BulkImporter.isIntegrityViolation(e)) throw e;
+            return ClientImportResult.peselExists();
+        }
+    }
+
+    /**
+     * Strona historii konta z tabeli account_ledger (stronicowanie po kluczu, odczyt porcjami fetchSize).
+     * Wymaga włączonej historii ({@link #enableLedger}).
+     */
+    @Override
+    public boolean readHistory(String accountNumber, long beforeEntryId, int limit, LedgerEntry.Sink sink) throws SQLException {
+        return metrics.timeDbCall(DbOperation.READ_HISTORY, () -> {
+            AccountLedger current = ledger;
+            if (current == null) throw new SQLException("Historia operacji jest wyłączona (db.ledger.enabled=false).");
+            return current.readPage(accountNumber, beforeEntryId, limit, sink);
+        });
+    }
+
+    @Override
+    public void close() throws SQLException {
+        BalanceWriteBatcher batcher = writeBatcher;
+        if (batcher != null) batcher.close(); // Oczekujące operacje przed zamknięciem puli
+        ReadReplicaRouter router = readReplicas;
+        if (router != null) router.close();
+        pool.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,835 @@
+// File: src/main/java/com/bank/server/InMemoryStorage.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+import com.bank.common.Client;
+import com.bank.server.ServerMetrics.DbOperation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Magazyn danych w całości w pamięci procesu ({@link Storage}). Działa w dwóch trybach:
+ * <ul>
+ *   <li>bez trwałości (storage.engine=memory) - stan znika po zatrzymaniu serwera; dla wdrożeń brzegowych
+ *       i testowych oraz jako deterministyczny zamiennik bazy w benchmarkach,</li>
+ *   <li>z dziennikiem (storage.engine=journal, {@link #openJournaled}) - każda zmiana zapisywana jest do
+ *       {@link LedgerJournal} przed potwierdzeniem, a stan odtwarzany przy starcie z migawki i dziennika.</li>
+ * </ul>
+ * Budowa:
+ * <ul>
+ *   <li>klienci i konta przechowywani są w mapach współbieżnych; odczyty (BALANCE, LIST_MY_ACCOUNTS,
+ *       logowanie) nie biorą żadnych blokad,</li>
+ *   <li>zmiany sald chronione są blokadami paskowymi ({@link AccountLockTable}): konto trafia do jednego
+ *       z N pasków według skrótu numeru, a przelew blokuje oba paski w stałej kolejności indeksów, więc nie może
+ *       się zakleszczyć; operacje na kontach z różnych pasków wykonują się równolegle,</li>
+ *   <li>rzadkie operacje administracyjne na klientach (dodanie, zmiana, usunięcie, nowe konto) są
+ *       serializowane jedną blokadą, co upraszcza unikalność PESEL i kaskadowe usuwanie kont.</li>
+ * </ul>
+ * Salda mają dwa miejsca po przecinku i co najwyżej 19 cyfr, jak kolumna DECIMAL(19,2) w bazie.
+ * <p>
+ * W trybie z dziennikiem zmiana wyliczana jest w całości przed dopisaniem rekordu (błąd dziennika zostawia
+ * pamięć bez zmian), rekord dopisywany jest pod tą samą blokadą co zmiana w pamięci, a oczekiwanie na zapis
+ * na dysk następuje po zwolnieniu blokad - fsync jednej zmiany nie wstrzymuje kolejnych i obejmuje też ich
+ * rekordy (group commit). Rekordy niosą salda bezwzględne, więc odtworzenie konta zależy tylko od kolejności
+ * jego własnych rekordów.
+ */
+public class InMemoryStorage implements Storage {
+    private static final int MAX_BALANCE_PRECISION = 19;
+
+    // Typy rekordów dziennika
+    private static final byte REC_CLIENT_ADD = 1;
+    private static final byte REC_CLIENT_UPDATE = 2;
+    private static final byte REC_CLIENT_DELETE = 3;
+    private static final byte REC_ACCOUNT_ADD = 4;
+    private static final byte REC_ACCOUNT_DELETE = 5;
+    private static final byte REC_BALANCE = 6;
+    private static final byte REC_TRANSFER = 7;
+    private static final byte REC_BALANCES = 8; // Salda wielu kont jednej operacji (paczka przelewów)
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final String bankCode;
+
+    private final Map<Integer, ClientRecord> clients = new ConcurrentHashMap<>();
+    private final Map<String, Integer> clientIdsByPesel = new ConcurrentHashMap<>();
+    private final Map<String, AccountRecord> accounts = new ConcurrentHashMap<>();
+    // Konta klienta według ID konta - kolejność zakładania, jak ORDER BY id w bazie
+    private final Map<Integer, Map<Integer, AccountRecord>> accountsByClient = new ConcurrentHashMap<>();
+
+    private final Object clientsLock = new Object(); // Zmiany klientów i przypisanie kont do klientów
+    private final AccountLockTable locks;
+
+    private final AtomicInteger nextClientId = new AtomicInteger(1);
+    private final AtomicInteger nextAccountId = new AtomicInteger(1);
+    private final AtomicLong nextAccountSequence = new AtomicLong(1);
+
+    // --- Dziennik (null - tryb bez trwałości) ---
+    private LedgerJournal journal;
+    private long snapshotEveryRecords;
+    private ScheduledExecutorService snapshotScheduler;
+    private Logger logger;
+
+    public InMemoryStorage() {
+        this(AccountNumberAllocator.DEFAULT_BANK_CODE, AccountLockTable.DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param bankCode    8 cyfr numeru rozliczeniowego banku w numerach kont (jak accounts.bankCode).
+     * @param lockStripes Liczba pasków blokad; zaokrąglana w górę do potęgi dwójki.
+     */
+    public InMemoryStorage(String bankCode, int lockStripes) {
+        if (bankCode == null || !bankCode.matches("\\d{8}")) {
+            throw new IllegalArgumentException("Numer rozliczeniowy banku musi mieć 8 cyfr: " + bankCode);
+        }
+        this.bankCode = bankCode;
+        this.locks = new AccountLockTable(lockStripes);
+        metrics.setAccountLocks(locks);
+    }
+
+    /**
+     * Tworzy magazyn z dziennikiem: odtwarza stan z migawki i dziennika, zapisuje nową migawkę (skracając
+     * dziennik) i uruchamia zapis dziennika oraz okresowe migawki. Magazyn przejmuje dziennik i zamyka go w {@link #close()}.
+     *
+     * @param snapshotEveryRecords Migawka po tylu rekordach dziennika (&lt;= 0 - tylko przy starcie i zamknięciu).
+     */
+    public static InMemoryStorage openJournaled(String bankCode, int lockStripes, LedgerJournal journal,
+                                                long snapshotEveryRecords, Logger logger) throws IOException, SQLException {
+        InMemoryStorage storage = new InMemoryStorage(bankCode, lockStripes);
+        journal.recover(storage::readSnapshot, storage::replay);
+        journal.start();
+        storage.journal = journal;
+        storage.snapshotEveryRecords = snapshotEveryRecords;
+        storage.logger = logger;
+        storage.snapshot(); // Odtworzone rekordy trafiają do migawki - kolejny start nie musi ich powtarzać
+        if (snapshotEveryRecords > 0) {
+            storage.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "BankServer-LedgerSnapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            storage.snapshotScheduler.scheduleWithFixedDelay(storage::snapshotIfDue, 1, 1, TimeUnit.SECONDS);
+        }
+        return storage;
+    }
+
+    @Override
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Niezmienny wiersz klienta - zmiana danych podmienia cały rekord
+    private static final class ClientRecord {
+        final int id;
+        final String firstName;
+        final String lastName;
+        final String pesel;
+        final String password;
+
+        ClientRecord(int id, String firstName, String lastName, String pesel, String password) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.pesel = pesel;
+            this.password = password;
+        }
+
+        Client toClient() {
+            return new Client(id, firstName, lastName, pesel, null); // Hasło nie opuszcza magazynu
+        }
+    }
+
+    // Saldo i znacznik usunięcia zmieniane są tylko pod blokadą paska; odczyt bez blokady widzi ostatni zapis
+    private static final class AccountRecord {
+        final int id;
+        final int clientId;
+        final String accountNumber;
+        volatile BigDecimal balance;
+        volatile boolean deleted;
+
+        AccountRecord(int id, int clientId, String accountNumber, BigDecimal balance) {
+            this.id = id;
+            this.clientId = clientId;
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+        }
+
+        Account toAccount() {
+            return new Account(id, clientId, accountNumber, balance);
+        }
+    }
+
+    // --- Klienci ---
+
+    @Override
+    public int addClient(String firstName, String lastName, String pesel, String password) throws SQLException {
+        return metrics.timeDbCall(DbOperation.ADD_CLIENT, () -> {
+            ClientRecord record;
+            long lsn;
+            synchronized (clientsLock) {
+                if (clientIdsByPesel.containsKey(pesel)) throw duplicatePesel(pesel);
+                record = new ClientRecord(nextClientId.get(), firstName, lastName, pesel, password);
+                lsn = log(out -> {
+                    out.writeByte(REC_CLIENT_ADD);
+                    writeClient(out, record);
+                });
+                nextClientId.incrementAndGet();
+                putClient(record);
+            }
+            awaitDurable(lsn);
+            return record.id;
+        });
+    }
+
+    @Override
+    public Optional<Client> authenticateClient(int clientId, String password) throws SQLException {
+        return metrics.timeDbCall(DbOperation.AUTHENTICATE_CLIENT, () -> {
+            ClientRecord record = clients.get(clientId);
+            if (record != null && record.password.equals(password)) return Optional.of(record.toClient());
+            return Optional.empty();
+        });
+    }
+
+    @Override
+    public Optional<Client> findClientById(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_CLIENT_BY_ID, () -> {
+            ClientRecord record = clients.get(clientId);
+            return record != null ? Optional.of(record.toClient()) : Optional.empty();
+        });
+    }
+
+    @Override
+    public Optional<Client> findClientByPesel(String pesel) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_CLIENT_BY_PESEL, () -> {
+            Integer id = clientIdsByPesel.get(pesel);
+            ClientRecord record = id != null ? clients.get(id) : null;
+            // Indeks i rekord zmieniane są razem pod clientsLock; sprawdzenie chroni przed odczytem w trakcie zmiany
+            return record != null && record.pesel.equals(pesel) ? Optional.of(record.toClient()) : Optional.empty();
+        });
+    }
+
+    @Override
+    public boolean updateClientInfo(int clientId, String newFirstName, String newLastName, String newPesel) throws SQLException {
+        return metrics.timeDbCall(DbOperation.UPDATE_CLIENT, () -> {
+            long lsn;
+            synchronized (clientsLock) {
+                ClientRecord current = clients.get(clientId);
+                if (current == null) return false;
+                Integer owner = clientIdsByPesel.get(newPesel);
+                if (owner != null && owner != clientId) throw duplicatePesel(newPesel);
+                ClientRecord updated = new ClientRecord(clientId, newFirstName, newLastName, newPesel, current.password);
+                lsn = log(out -> {
+                    out.writeByte(REC_CLIENT_UPDATE);
+                    writeClient(out, updated);
+                });
+                replaceClient(current, updated);
+            }
+            awaitDurable(lsn);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteClientById(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.DELETE_CLIENT, () -> {
+            long lsn;
+            synchronized (clientsLock) {
+                if (!clients.containsKey(clientId)) return false;
+                lsn = log(out -> {
+                    out.writeByte(REC_CLIENT_DELETE);
+                    out.writeInt(clientId);
+                });
+                removeClient(clientId);
+            }
+            awaitDurable(lsn);
+            return true;
+        });
+    }
+
+    // Wywoływane pod clientsLock (lub przy odtwarzaniu)
+    private void putClient(ClientRecord record) {
+        clients.put(record.id, record);
+        clientIdsByPesel.put(record.pesel, record.id);
+        accountsByClient.put(record.id, new ConcurrentSkipListMap<>());
+    }
+
+    private void replaceClient(ClientRecord current, ClientRecord updated) {
+        clients.put(updated.id, updated);
+        if (!current.pesel.equals(updated.pesel)) {
+            clientIdsByPesel.remove(current.pesel);
+            clientIdsByPesel.put(updated.pesel, updated.id);
+        }
+    }
+
+    private void removeClient(int clientId) {
+        ClientRecord removed = clients.remove(clientId);
+        if (removed == null) return;
+        clientIdsByPesel.remove(removed.pesel);
+        // Odpowiednik ON DELETE CASCADE
+        Map<Integer, AccountRecord> owned = accountsByClient.remove(clientId);
+        if (owned != null) {
+            for (AccountRecord account : owned.values()) {
+                removeAccount(account);
+            }
+        }
+    }
+
+    private static SQLIntegrityConstraintViolationException duplicatePesel(String pesel) {
+        return new SQLIntegrityConstraintViolationException("Duplicate entry '" + pesel + "' for key 'clients.pesel'");
+    }
+
+    // Cała porcja pod jedną blokadą klientów; na trwałość w dzienniku czekamy raz, po ostatnim rekordzie
+    @Override
+    public List<ClientImportResult> importClients(List<ClientImportRow> rows) throws SQLException {
+        return metrics.timeDbCall(DbOperation.BULK_IMPORT, () -> {
+            BigDecimal[] balances = new BigDecimal[rows.size()];
+            for (int i = 0; i < balances.length; i++) balances[i] = toMoney(rows.get(i).getInitialBalance());
+            List<ClientImportResult> results = new ArrayList<>(rows.size());
+            long lsn = 0;
+            synchronized (clientsLock) {
+                for (int i = 0; i < balances.length; i++) {
+                    ClientImportRow row = rows.get(i);
+                    if (clientIdsByPesel.containsKey(row.getPesel())) {
+                        results.add(ClientImportResult.peselExists());
+                        continue;
+                    }
+                    ClientRecord client = new ClientRecord(nextClientId.get(), row.getFirstName(), row.getLastName(),
+                            row.getPesel(), row.getPassword());
+                    long sequence = nextAccountSequence.get();
+                    AccountRecord account = new AccountRecord(nextAccountId.get(), client.id,
+                            AccountNumberAllocator.format(bankCode, sequence), balances[i]);
+                    log(out -> {
+                        out.writeByte(REC_CLIENT_ADD);
+                        writeClient(out, client);
+                    });
+                    lsn = log(out -> {
+                        out.writeByte(REC_ACCOUNT_ADD);
+                        writeAccount(out, account);
+                        out.writeLong(sequence);
+                    });
+                    nextClientId.incrementAndGet();
+                    nextAccountSequence.incrementAndGet();
+                    nextAccountId.incrementAndGet();
+                    putClient(client);
+                    accounts.put(account.accountNumber, account);
+                    accountsByClient.get(client.id).put(account.id, account);
+                    results.add(ClientImportResult.imported(client.id, account.accountNumber));
+                }
+            }
+            awaitDurable(lsn);
+            return results;
+        });
+    }
+
+    // --- Konta ---
+
+    @Override
+    public Account addAccountToClient(int clientId, BigDecimal initialBalance) throws SQLException {
+        return metrics.timeDbCall(DbOperation.ADD_ACCOUNT, () -> {
+            BigDecimal balance = toMoney(initialBalance);
+            AccountRecord account;
+            long lsn;
+            synchronized (clientsLock) {
+                Map<Integer, AccountRecord> owned = accountsByClient.get(clientId);
+                if (owned == null) {
+                    throw new SQLException("Nie można dodać konta: Klient o ID " + clientId + " nie został znaleziony.");
+                }
+                long sequence = nextAccountSequence.get();
+                account = new AccountRecord(nextAccountId.get(), clientId, AccountNumberAllocator.format(bankCode, sequence), balance);
+                lsn = log(out -> {
+                    out.writeByte(REC_ACCOUNT_ADD);
+                    writeAccount(out, account);
+                    out.writeLong(sequence);
+                });
+                nextAccountSequence.incrementAndGet();
+                nextAccountId.incrementAndGet();
+                accounts.put(account.accountNumber, account);
+                owned.put(account.id, account);
+            }
+            awaitDurable(lsn);
+            return account.toAccount();
+        });
+    }
+
+    @Override
+    public Optional<Account> findAccountByNumber(String accountNumber) throws SQLException {
+        return metrics.timeDbCall(DbOperation.FIND_ACCOUNT, () -> {
+            AccountRecord account = accounts.get(accountNumber);
+            return account != null ? Optional.of(account.toAccount()) : Optional.empty();
+        });
+    }
+
+    @Override
+    public List<Account> findAllAccountsByClientId(int clientId) throws SQLException {
+        return metrics.timeDbCall(DbOperation.LIST_ACCOUNTS, () -> {
+            Map<Integer, AccountRecord> owned = accountsByClient.get(clientId);
+            List<Account> result = new ArrayList<>(owned != null ? owned.size() : 0);
+            if (owned != null) {
+                for (AccountRecord account : owned.values()) {
+                    result.add(account.toAccount());
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public int streamAccountsByClientId(int clientId, AccountSink sink) throws SQLException {
+        return metrics.timeDbCall(DbOperation.STREAM_ACCOUNTS, () -> {
+            Map<Integer, AccountRecord> owned = accountsByClient.get(clientId);
+            // Migawka samych referencji - liczba w nagłówku zgadza się z przekazanymi kontami
+            AccountRecord[] snapshot = owned != null ? owned.values().toArray(new AccountRecord[0]) : new AccountRecord[0];
+            sink.begin(snapshot.length);
+            for (AccountRecord account : snapshot) {
+                sink.accept(account.toAccount());
+            }
+            return snapshot.length;
+        });
+    }
+
+    @Override
+    public BalanceUpdateResult deposit(String accountNumber, BigDecimal amount) throws SQLException {
+        return metrics.timeDbCall(DbOperation.DEPOSIT, () -> {
+            AccountRecord account = accounts.get(accountNumber);
+            if (account == null) return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+            BigDecimal newBalance;
+            long lsn;
+            ReentrantLock lock = locks.lock(accountNumber);
+            try {
+                if (account.deleted) return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+                newBalance = toMoney(account.balance.add(amount));
+                lsn = logBalance(account, newBalance);
+                account.balance = newBalance;
+            } finally {
+                lock.unlock();
+            }
+            awaitDurable(lsn);
+            return BalanceUpdateResult.ok(newBalance);
+        });
+    }
+
+    @Override
+    public BalanceUpdateResult withdraw(String accountNumber, int clientId, BigDecimal amount) throws SQLException {
+        return metrics.timeDbCall(DbOperation.WITHDRAW, () -> {
+            AccountRecord account = accounts.get(accountNumber);
+            if (account == null) return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+            BigDecimal newBalance;
+            long lsn;
+            ReentrantLock lock = locks.lock(accountNumber);
+            try {
+                if (account.deleted) return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND);
+                if (account.clientId != clientId) return BalanceUpdateResult.failure(BalanceUpdateResult.Status.ACCESS_DENIED);
+                if (account.balance.compareTo(amount) < 0) {
+                    return BalanceUpdateResult.failure(BalanceUpdateResult.Status.INSUFFICIENT_FUNDS);
+                }
+                newBalance = toMoney(account.balance.subtract(amount));
+                lsn = logBalance(account, newBalance);
+                account.balance = newBalance;
+            } finally {
+                lock.unlock();
+            }
+            awaitDurable(lsn);
+            return BalanceUpdateResult.ok(newBalance);
+        });
+    }
+
+    @Override
+    public TransferResult transfer(String fromAccountNumber, String toAccountNumber, int ownerClientId, BigDecimal amount) throws SQLException {
+        return metrics.timeDbCall(DbOperation.TRANSFER, () -> {
+            // Te same warunki wejściowe co TransferEngine
+            if (fromAccountNumber.equals(toAccountNumber)) {
+                throw new IllegalArgumentException("Nie można wykonać przelewu na to samo konto.");
+            }
+            if (amount.signum() <= 0) {
+                throw new IllegalArgumentException("Kwota przelewu musi być dodatnia: " + amount);
+            }
+            AccountRecord from = accounts.get(fromAccountNumber);
+            AccountRecord to = accounts.get(toAccountNumber);
+            if (from == null) return new TransferResult(TransferResult.Status.SOURCE_ACCOUNT_NOT_FOUND, 0, null, null);
+            if (to == null) return new TransferResult(TransferResult.Status.DESTINATION_ACCOUNT_NOT_FOUND, 0, null, null);
+
+            // Paski blokowane w kolejności indeksów - dwa przeciwne przelewy nie mogą się zakleszczyć
+            locks.lockPair(fromAccountNumber, toAccountNumber);
+            BigDecimal debited;
+            BigDecimal credited;
+            long lsn;
+            try {
+                TransferResult.Status status;
+                if (from.deleted) status = TransferResult.Status.SOURCE_ACCOUNT_NOT_FOUND;
+                else if (to.deleted) status = TransferResult.Status.DESTINATION_ACCOUNT_NOT_FOUND;
+                else if (ownerClientId > 0 && from.clientId != ownerClientId) status = TransferResult.Status.ACCESS_DENIED;
+                else if (from.balance.compareTo(amount) < 0) status = TransferResult.Status.INSUFFICIENT_FUNDS;
+                else status = TransferResult.Status.OK;
+                if (status != TransferResult.Status.OK) return new TransferResult(status, 0, null, null);
+
+                // Oba salda wyliczone przed zmianą - przepełnienie nie zostawia połowy przelewu
+                credited = toMoney(to.balance.add(amount));
+                debited = toMoney(from.balance.subtract(amount));
+                lsn = log(out -> {
+                    out.writeByte(REC_TRANSFER);
+                    out.writeUTF(fromAccountNumber);
+                    out.writeUTF(debited.toPlainString());
+                    out.writeUTF(toAccountNumber);
+                    out.writeUTF(credited.toPlainString());
+                });
+                from.balance = debited;
+                to.balance = credited;
+            } finally {
+                locks.unlockPair(fromAccountNumber, toAccountNumber);
+            }
+            awaitDurable(lsn);
+            return new TransferResult(TransferResult.Status.OK, 0, debited, credited);
+        });
+    }
+
+    // Paski wszystkich kont paczki rosnąco; zmiany trafiają do dziennika jednym rekordem sald, więc odtworzenie
+    // po awarii nigdy nie widzi części paczki
+    @Override
+    public BatchTransferResult transferBatch(List<BatchTransferEntry> entries, int ownerClientId, boolean atomic) throws SQLException {
+        return metrics.timeDbCall(DbOperation.BATCH_TRANSFER, () -> {
+            BatchTransferEntry.validate(entries);
+            Set<String> numbers = BatchTransferEntry.accountNumbers(entries);
+            TransferResult.Status[] statuses = new TransferResult.Status[entries.size()];
+            Map<String, BigDecimal> changed = new TreeMap<>();
+            long lsn;
+            int[] stripes = locks.lockAccounts(numbers);
+            try {
+                Map<String, AccountRecord> rows = new HashMap<>(numbers.size() * 2);
+                for (String number : numbers) {
+                    AccountRecord account = accounts.get(number);
+                    if (account != null && !account.deleted) rows.put(number, account);
+                }
+                int applied = 0;
+                for (int i = 0; i < statuses.length; i++) {
+                    BatchTransferEntry entry = entries.get(i);
+                    AccountRecord from = rows.get(entry.getFromAccountNumber());
+                    AccountRecord to = rows.get(entry.getToAccountNumber());
+                    BigDecimal amount = entry.getAmount();
+                    BigDecimal fromBalance = from != null ? changed.getOrDefault(from.accountNumber, from.balance) : null;
+                    if (from == null) statuses[i] = TransferResult.Status.SOURCE_ACCOUNT_NOT_FOUND;
+                    else if (to == null) statuses[i] = TransferResult.Status.DESTINATION_ACCOUNT_NOT_FOUND;
+                    else if (ownerClientId > 0 && from.clientId != ownerClientId) statuses[i] = TransferResult.Status.ACCESS_DENIED;
+                    else if (fromBalance.compareTo(amount) < 0) statuses[i] = TransferResult.Status.INSUFFICIENT_FUNDS;
+                    else statuses[i] = TransferResult.Status.OK;
+                    if (statuses[i] != TransferResult.Status.OK) continue;
+
+                    BigDecimal toBalance = changed.getOrDefault(to.accountNumber, to.balance);
+                    changed.put(to.accountNumber, toMoney(toBalance.add(amount)));
+                    changed.put(from.accountNumber, toMoney(fromBalance.subtract(amount)));
+                    applied++;
+                }
+                if (applied == 0 || (atomic && applied < statuses.length)) {
+                    return new BatchTransferResult(statuses, false, 0, null);
+                }
+                lsn = log(out -> {
+                    out.writeByte(REC_BALANCES);
+                    out.writeInt(changed.size());
+                    for (Map.Entry<String, BigDecimal> balance : changed.entrySet()) {
+                        out.writeUTF(balance.getKey());
+                        out.writeUTF(balance.getValue().toPlainString());
+                    }
+                });
+                changed.forEach((number, balance) -> rows.get(number).balance = balance);
+            } finally {
+                locks.unlockStripes(stripes);
+            }
+            awaitDurable(lsn);
+            return new BatchTransferResult(statuses, true, 0, changed);
+        });
+    }
+
+    @Override
+    public boolean deleteAccountByNumber(String accountNumber) throws SQLException {
+        return metrics.timeDbCall(DbOperation.DELETE_ACCOUNT, () -> {
+            long lsn;
+            synchronized (clientsLock) {
+                AccountRecord account = accounts.get(accountNumber);
+                if (account == null) return false;
+                lsn = log(out -> {
+                    out.writeByte(REC_ACCOUNT_DELETE);
+                    out.writeUTF(accountNumber);
+                });
+                Map<Integer, AccountRecord> owned = accountsByClient.get(account.clientId);
+                if (owned != null) owned.remove(account.id);
+                removeAccount(account);
+            }
+            awaitDurable(lsn);
+            return true;
+        });
+    }
+
+    // Historia operacji rosłaby w pamięci (i w migawkach dziennika) bez ograniczeń - tylko magazyn jdbc
+    @Override
+    public boolean readHistory(String accountNumber, long beforeEntryId, int limit, LedgerEntry.Sink sink) throws SQLException {
+        return metrics.timeDbCall(DbOperation.READ_HISTORY, () -> {
+            throw new SQLFeatureNotSupportedException("Historia operacji wymaga magazynu bazodanowego (storage.engine=jdbc).");
+        });
+    }
+
+    // Wywoływane pod clientsLock; znacznik ustawiony pod blokadą paska zatrzymuje operacje, które już pobrały rekord
+    private void removeAccount(AccountRecord account) {
+        ReentrantLock lock = locks.lock(account.accountNumber);
+        try {
+            account.deleted = true;
+            accounts.remove(account.accountNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Zaokrąglenie i zakres jak przy zapisie do kolumny DECIMAL(19,2)
+    private static BigDecimal toMoney(BigDecimal value) throws SQLDataException {
+        BigDecimal money = value.setScale(2, RoundingMode.HALF_UP);
+        if (money.precision() > MAX_BALANCE_PRECISION) {
+            throw new SQLDataException("Saldo poza zakresem DECIMAL(19,2): " + money.toPlainString());
+        }
+        return money;
+    }
+
+    // --- Dziennik ---
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Dopisuje rekord do dziennika (pod blokadą zmiany); 0 - magazyn bez dziennika
+    private long log(RecordWriter writer) throws SQLException {
+        if (journal == null) return 0;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Zapis do tablicy w pamięci nie zgłasza IOException
+        }
+        return journal.append(bytes.toByteArray());
+    }
+
+    private long logBalance(AccountRecord account, BigDecimal newBalance) throws SQLException {
+        return log(out -> {
+            out.writeByte(REC_BALANCE);
+            out.writeUTF(account.accountNumber);
+            out.writeUTF(newBalance.toPlainString());
+        });
+    }
+
+    // Wywoływane po zwolnieniu blokad - oczekiwanie na fsync nie wstrzymuje innych zmian
+    private void awaitDurable(long lsn) throws SQLException {
+        if (lsn > 0) journal.awaitDurable(lsn);
+    }
+
+    private static void writeClient(DataOutputStream out, ClientRecord client) throws IOException {
+        out.writeInt(client.id);
+        out.writeUTF(client.firstName);
+        out.writeUTF(client.lastName);
+        out.writeUTF(client.pesel);
+        out.writeUTF(client.password);
+    }
+
+    private static ClientRecord readClient(DataInputStream in) throws IOException {
+        return new ClientRecord(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+    }
+
+    private static void writeAccount(DataOutputStream out, AccountRecord account) throws IOException {
+        out.writeInt(account.id);
+        out.writeInt(account.clientId);
+        out.writeUTF(account.accountNumber);
+        out.writeUTF(account.balance.toPlainString());
+    }
+
+    private static AccountRecord readAccount(DataInputStream in) throws IOException {
+        return new AccountRecord(in.readInt(), in.readInt(), in.readUTF(), new BigDecimal(in.readUTF()));
+    }
+
+    // Odtwarzanie jednego rekordu - jeden wątek przed przyjęciem połączeń
+    private void replay(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case REC_CLIENT_ADD: {
+                ClientRecord client = readClient(in);
+                putClient(client);
+                nextClientId.accumulateAndGet(client.id + 1, Math::max);
+                break;
+            }
+            case REC_CLIENT_UPDATE: {
+                ClientRecord updated = readClient(in);
+                ClientRecord current = clients.get(updated.id);
+                if (current != null) replaceClient(current, updated);
+                break;
+            }
+            case REC_CLIENT_DELETE:
+                removeClient(in.readInt());
+                break;
+            case REC_ACCOUNT_ADD: {
+                AccountRecord account = readAccount(in);
+                long sequence = in.readLong();
+                Map<Integer, AccountRecord> owned = accountsByClient.get(account.clientId);
+                if (owned != null) {
+                    accounts.put(account.accountNumber, account);
+                    owned.put(account.id, account);
+                }
+                nextAccountId.accumulateAndGet(account.id + 1, Math::max);
+                nextAccountSequence.accumulateAndGet(sequence + 1, Math::max);
+                break;
+            }
+            case REC_ACCOUNT_DELETE: {
+                AccountRecord account = accounts.get(in.readUTF());
+                if (account != null) {
+                    Map<Integer, AccountRecord> owned = accountsByClient.get(account.clientId);
+                    if (owned != null) owned.remove(account.id);
+                    removeAccount(account);
+                }
+                break;
+            }
+            case REC_BALANCE:
+                setBalance(in.readUTF(), new BigDecimal(in.readUTF()));
+                break;
+            case REC_TRANSFER:
+                setBalance(in.readUTF(), new BigDecimal(in.readUTF()));
+                setBalance(in.readUTF(), new BigDecimal(in.readUTF()));
+                break;
+            case REC_BALANCES:
+                for (int count = in.readInt(); count > 0; count--) {
+                    setBalance(in.readUTF(), new BigDecimal(in.readUTF()));
+                }
+                break;
+            default:
+                throw new IOException("Nieznany typ rekordu dziennika: " + type);
+        }
+    }
+
+    // Rekord usunięcia konta dopisywany jest przed blokadą paska, więc równoległa zmiana salda może trafić
+    // do dziennika po nim - saldo nieistniejącego konta jest pomijane
+    private void setBalance(String accountNumber, BigDecimal balance) {
+        AccountRecord account = accounts.get(accountNumber);
+        if (account != null) account.balance = balance;
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        nextClientId.set(in.readInt());
+        nextAccountId.set(in.readInt());
+        nextAccountSequence.set(in.readLong());
+        int clientCount = in.readInt();
+        for (int i = 0; i < clientCount; i++) {
+            putClient(readClient(in));
+        }
+        int accountCount = in.readInt();
+        for (int i = 0; i < accountCount; i++) {
+            AccountRecord account = readAccount(in);
+            accounts.put(account.accountNumber, account);
+            accountsByClient.get(account.clientId).put(account.id, account);
+        }
+    }
+
+    /**
+     * Zapisuje migawkę stanu i usuwa zawarte w niej segmenty dziennika. Zmiany wstrzymywane są tylko na czas
+     * zmiany segmentu i skopiowania stanu; plik migawki zapisywany jest już bez blokad. Bez dziennika nic nie robi.
+     */
+    public void snapshot() throws SQLException {
+        if (journal == null) return;
+        int firstSegment;
+        int clientIdCounter;
+        int accountIdCounter;
+        long sequenceCounter;
+        List<ClientRecord> clientCopy;
+        List<AccountRecord> accountCopy;
+        synchronized (clientsLock) {
+            locks.lockAll(); // Kolejność blokad jak w zmianach: clientsLock, potem paski rosnąco
+            try {
+                firstSegment = journal.rotate();
+                clientIdCounter = nextClientId.get();
+                accountIdCounter = nextAccountId.get();
+                sequenceCounter = nextAccountSequence.get();
+                clientCopy = new ArrayList<>(clients.values());
+                accountCopy = new ArrayList<>(accounts.size());
+                for (AccountRecord account : accounts.values()) {
+                    // Saldo rekordu jest zmienne - kopia zamraża wartość z chwili migawki
+                    accountCopy.add(new AccountRecord(account.id, account.clientId, account.accountNumber, account.balance));
+                }
+            } finally {
+                locks.unlockAll();
+            }
+        }
+        try {
+            journal.writeSnapshot(firstSegment, out -> {
+                out.writeInt(clientIdCounter);
+                out.writeInt(accountIdCounter);
+                out.writeLong(sequenceCounter);
+                out.writeInt(clientCopy.size());
+                for (ClientRecord client : clientCopy) {
+                    writeClient(out, client);
+                }
+                out.writeInt(accountCopy.size());
+                for (AccountRecord account : accountCopy) {
+                    writeAccount(out, account);
+                }
+            });
+        } catch (IOException e) {
+            // Dziennik pozostaje kompletny - segmenty usuwane są dopiero po zapisaniu migawki
+            throw new SQLException("Nie udało się zapisać migawki magazynu: " + e.getMessage(), e);
+        }
+    }
+
+    private void snapshotIfDue() {
+        if (journal.getRecordsSinceRotate() < snapshotEveryRecords) return;
+        try {
+            snapshot();
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "Periodic ledger snapshot failed: " + e.getMessage(), e);
+        }
+    }
+
+    public AccountLockTable getAccountLocks() {
+        return locks;
+    }
+
+    public String statsSummary() {
+        return "inMemoryStorage[clients=" + clients.size() + ", accounts=" + accounts.size() + "] " + locks.statsSummary() +
+                (journal != null ? " " + journal.statsSummary() : "");
+    }
+
+    /** Z dziennikiem zapisuje końcową migawkę i zamyka dziennik; bez dziennika dane znikają razem z obiektem. */
+    @Override
+    public void close() {
+        if (journal == null) return;
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            try {
+                snapshotScheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            snapshot();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Final ledger snapshot failed - state will be recovered from the journal: " + e.getMessage(), e);
+        }
+        journal.close();
+    }
+}
@@ -0,0 +1,108 @@
+// File: src/main/java/com/bank/server/LatencyHistogram.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram czasów (w nanosekundach) o kubełkach logarytmiczno-liniowych: każda potęga dwójki jest podzielona
+ * na 16 równych pod-kubełków, więc błąd względny odczytanego percentyla nie przekracza 1/16 (ok. 6%)
+ * niezależnie od skali - od pojedynczych mikrosekund (odczyt z cache) po sekundy (zablokowana transakcja).
+ * <p>
+ * Zapis jest bez blokad (jedna operacja atomowa na kubełek i liczniki LongAdder), więc histogram może być
+ * współdzielony przez wszystkie sesje. Odczyt ({@link #snapshot()}) kopiuje kubełki bez zatrzymywania zapisu -
+ * migawka nie jest ściśle spójna, co dla statystyk jest wystarczające.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // 2^41 ns to ok. 36 minut - dłuższe wartości trafiają do ostatniego kubełka
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0; // nanoTime jest monotoniczny, ale zabezpieczamy indeks
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Ponów, jeśli inny wątek zaktualizował maksimum
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value; // Wartości 0..15 mają własne kubełki
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS - 1 + SUB_BUCKET_BITS;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long bucketWidth(int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    /** Migawka histogramu - niezmienna, można z niej odczytać dowolną liczbę percentyli. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Wartość percentyla (np. 0.99) - środek kubełka, w którym wypada szukana pozycja,
+         * ograniczony z góry przez zaobserwowane maksimum.
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketLowerBound(i) + bucketWidth(i) / 2, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
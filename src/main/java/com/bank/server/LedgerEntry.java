@@ -0,0 +1,71 @@
+// File: src/main/java/com/bank/server/LedgerEntry.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+
+/**
+ * Wpis historii operacji konta (tabela account_ledger, {@link AccountLedger}). Kwota jest ze znakiem:
+ * dodatnia dla uznań (wpłata, przelew przychodzący), ujemna dla obciążeń (wypłata, przelew wychodzący).
+ */
+public final class LedgerEntry {
+
+    public enum Type {
+        OPEN,          // Założenie konta z saldem początkowym
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER_IN,
+        TRANSFER_OUT,
+        ADJUST         // Bezwzględne ustawienie salda (DBManager.updateAccountBalance)
+    }
+
+    /** Odbiorca wpisów czytanych strona po stronie ({@link Storage#readHistory}). */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(LedgerEntry entry);
+    }
+
+    private final long id;
+    private final String accountNumber;
+    private final Type type;
+    private final BigDecimal amount;
+    private final BigDecimal balanceAfter;
+    private final String counterparty; // Drugie konto przelewu, inaczej null
+    private final long timestampMillis;
+
+    public LedgerEntry(long id, String accountNumber, Type type, BigDecimal amount, BigDecimal balanceAfter,
+                       String counterparty, long timestampMillis) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.amount = amount;
+        this.balanceAfter = balanceAfter;
+        this.counterparty = counterparty;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /** Nowy wpis do zapisania - ID nada baza. */
+    public static LedgerEntry of(String accountNumber, Type type, BigDecimal amount, BigDecimal balanceAfter, String counterparty) {
+        return new LedgerEntry(0, accountNumber, type, amount, balanceAfter, counterparty, System.currentTimeMillis());
+    }
+
+    public long getId() { return id; }
+    public String getAccountNumber() { return accountNumber; }
+    public Type getType() { return type; }
+    public BigDecimal getAmount() { return amount; }
+    public BigDecimal getBalanceAfter() { return balanceAfter; }
+    public String getCounterparty() { return counterparty; }
+    public long getTimestampMillis() { return timestampMillis; }
+
+    @Override
+    public String toString() {
+        return "LedgerEntry{" +
+                "id=" + id +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", type=" + type +
+                ", amount=" + amount +
+                ", balanceAfter=" + balanceAfter +
+                (counterparty != null ? ", counterparty='" + counterparty + '\'' : "") +
+                ", timestampMillis=" + timestampMillis +
+                '}';
+    }
+}
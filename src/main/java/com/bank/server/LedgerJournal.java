@@ -0,0 +1,462 @@
+// File: src/main/java/com/bank/server/LedgerJournal.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Dziennik zapisu z wyprzedzeniem (write-ahead journal) dla {@link InMemoryStorage}: rekordy zmian dopisywane są
+ * do plików segmentów journal-NNNNNNNN.log przez {@link FileChannel}, a stan odtwarzany jest z ostatniej migawki
+ * (snapshot.dat) i rekordów kolejnych segmentów.
+ * <ul>
+ *   <li>{@link #append} tylko kopiuje rekord do bufora w pamięci i nadaje mu numer (LSN) - wywoływane pod
+ *       blokadami magazynu, więc kolejność rekordów jednego konta w pliku odpowiada kolejności zmian,</li>
+ *   <li>osobny wątek zapisuje zebrane rekordy jednym write i jednym fsync (group commit): w czasie jednego
+ *       fsync kolejne żądania odkładają rekordy do bufora, więc przy dużym ruchu jedna synchronizacja
+ *       dysku obejmuje wiele zmian,</li>
+ *   <li>{@link #awaitDurable} czeka, aż rekord trafi na dysk - sesja odpowiada klientowi dopiero potem,</li>
+ *   <li>{@link #rotate} zamyka bieżący segment przy migawce; po zapisaniu migawki starsze segmenty są usuwane.</li>
+ * </ul>
+ * Rekord w pliku: długość (int), CRC32 treści (int), treść. Odtwarzanie kończy się na pierwszym niepełnym
+ * lub uszkodzonym rekordzie (zapis przerwany awarią) - taki rekord nigdy nie został potwierdzony klientowi.
+ * Błąd zapisu przełącza dziennik w stan awarii: kolejne zmiany są odrzucane, a serwer trzeba zrestartować.
+ */
+public class LedgerJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SNAPSHOT_TMP_FILE = "snapshot.tmp";
+    private static final long SNAPSHOT_MAGIC = 0x42414e4b534e4150L; // "BANKSNAP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    /** Odtwarza stan z migawki. */
+    @FunctionalInterface
+    public interface SnapshotReader {
+        void read(DataInputStream in) throws IOException;
+    }
+
+    /** Zapisuje stan do migawki. */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Stosuje jeden rekord dziennika podczas odtwarzania. */
+    @FunctionalInterface
+    public interface RecordReplayer {
+        void apply(DataInputStream record) throws IOException;
+    }
+
+    private final Path dir;
+    private final boolean fsync;
+    private final long groupCommitDelayNanos;
+    private final Logger logger;
+
+    // Bufor rekordów oczekujących na zapis - chroniony appendLock
+    private final Object appendLock = new Object();
+    private byte[] pending = new byte[INITIAL_BUFFER_BYTES];
+    private int pendingBytes;
+    private long lastAppendedLsn;
+    private byte[] spare = new byte[INITIAL_BUFFER_BYTES]; // Drugi bufor - zapisywany, gdy pending się zapełnia
+
+    // Kanał bieżącego segmentu - zapis i zmiana segmentu pod channelLock (zawsze przed appendLock)
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private int segment;
+
+    private final Object durableMonitor = new Object();
+    private volatile long durableLsn;
+    private volatile IOException failure; // != null - dziennik w stanie awarii
+    private volatile boolean closed;
+    private Thread writer;
+
+    // --- Statystyki ---
+    private final LongAdder appendedRecords = new LongAdder();
+    private final LongAdder appendedBytes = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder recordsSinceRotate = new LongAdder();
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+    private final LongAdder snapshots = new LongAdder();
+    private volatile long replayedRecords;
+
+    /**
+     * @param dir                     Katalog dziennika i migawek (tworzony w razie potrzeby).
+     * @param fsync                   true - zmiana potwierdzana po fsync; false - po zapisie do pamięci podręcznej systemu.
+     * @param groupCommitDelayMicros  Dodatkowe oczekiwanie na kolejne rekordy przed zapisem (0 - bez czekania).
+     */
+    public LedgerJournal(Path dir, boolean fsync, long groupCommitDelayMicros, Logger logger) throws IOException {
+        if (groupCommitDelayMicros < 0) throw new IllegalArgumentException("Opóźnienie group commit nie może być ujemne: " + groupCommitDelayMicros);
+        this.dir = dir;
+        this.fsync = fsync;
+        this.groupCommitDelayNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitDelayMicros);
+        this.logger = logger;
+        Files.createDirectories(dir);
+    }
+
+    // --- Odtwarzanie ---
+
+    /**
+     * Wczytuje migawkę (jeśli istnieje) i odtwarza rekordy segmentów od segmentu zapisanego w migawce.
+     * Musi być wywołane przed {@link #start()}, na jednym wątku.
+     * @return Liczba odtworzonych rekordów.
+     */
+    public long recover(SnapshotReader snapshotReader, RecordReplayer replayer) throws IOException {
+        int firstSegment = 0;
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            firstSegment = readSnapshot(snapshot, snapshotReader);
+        }
+        long replayed = 0;
+        int lastSegment = firstSegment - 1;
+        for (int seg : listSegments()) {
+            if (seg < firstSegment) continue; // Pozostałość po przerwanym usuwaniu - zawarta w migawce
+            replayed += replaySegment(segmentPath(seg), replayer);
+            lastSegment = seg;
+        }
+        this.segment = lastSegment; // start() otworzy kolejny, pusty segment
+        this.replayedRecords = replayed;
+        logger.info("Ledger journal recovered from " + dir + ": snapshot=" + Files.exists(snapshot) +
+                ", replayed " + replayed + " record(s), next segment " + (lastSegment + 1) + ".");
+        return replayed;
+    }
+
+    private int readSnapshot(Path file, SnapshotReader snapshotReader) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream buffered = new BufferedInputStream(Files.newInputStream(file));
+             DataInputStream in = new DataInputStream(new CheckedInputStream(buffered, crc))) {
+            if (in.readLong() != SNAPSHOT_MAGIC) throw new IOException("Plik " + file + " nie jest migawką magazynu.");
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) throw new IOException("Nieobsługiwana wersja migawki: " + version);
+            int firstSegment = in.readInt();
+            snapshotReader.read(in);
+            long expected = crc.getValue();
+            // Suma kontrolna zapisana jest poza obszarem liczonym - czytamy ją bezpośrednio ze strumienia
+            long stored = new DataInputStream(buffered).readLong();
+            if (stored != expected) throw new IOException("Uszkodzona migawka " + file + " (CRC32 nie zgadza się).");
+            return firstSegment;
+        }
+    }
+
+    private long replaySegment(Path file, RecordReplayer replayer) throws IOException {
+        long count = 0;
+        long validBytes = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch)));
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break; // Koniec pliku lub rekord przerwany w połowie
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+                replayer.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                count++;
+                validBytes += 8 + length;
+            }
+            if (ch.size() > validBytes) {
+                logger.warning("Ledger journal segment " + file.getFileName() + " has " + (ch.size() - validBytes) +
+                        " trailing byte(s) of an incomplete record; truncating.");
+                ch.truncate(validBytes);
+                ch.force(true);
+            }
+        }
+        return count;
+    }
+
+    // --- Zapis ---
+
+    /** Otwiera nowy segment i uruchamia wątek zapisu. */
+    public void start() throws IOException {
+        synchronized (channelLock) {
+            openSegment(segment + 1);
+        }
+        writer = new Thread(this::writeLoop, "BankServer-LedgerJournal");
+        writer.setDaemon(true); // close() zapisuje resztę bufora
+        writer.start();
+    }
+
+    private void openSegment(int newSegment) throws IOException {
+        channel = FileChannel.open(segmentPath(newSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segment = newSegment;
+        if (fsync) forceDirectory(); // Nowy plik musi przetrwać awarię razem z wpisem w katalogu
+    }
+
+    /**
+     * Dopisuje rekord do bufora; zapis na dysk wykonuje wątek dziennika.
+     * @return Numer rekordu (LSN) do przekazania do {@link #awaitDurable}.
+     * @throws SQLException gdy dziennik jest w stanie awarii lub zamknięty - zmiana nie może zostać zastosowana.
+     */
+    public long append(byte[] record) throws SQLException {
+        checkUsable();
+        if (record.length > MAX_RECORD_BYTES) throw new SQLException("Rekord dziennika zbyt duży: " + record.length + " B.");
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        long lsn;
+        synchronized (appendLock) {
+            int needed = pendingBytes + 8 + record.length;
+            if (needed > pending.length) pending = Arrays.copyOf(pending, Math.max(needed, pending.length * 2));
+            ByteBuffer.wrap(pending, pendingBytes, 8).putInt(record.length).putInt((int) crc.getValue());
+            System.arraycopy(record, 0, pending, pendingBytes + 8, record.length);
+            pendingBytes = needed;
+            lsn = ++lastAppendedLsn;
+            appendLock.notify(); // Budzi wątek zapisu
+        }
+        appendedRecords.increment();
+        appendedBytes.add(8 + record.length);
+        recordsSinceRotate.increment();
+        return lsn;
+    }
+
+    /** Czeka, aż rekord o podanym LSN zostanie zapisany (i zsynchronizowany przy fsync=true). */
+    public void awaitDurable(long lsn) throws SQLException {
+        if (durableLsn >= lsn) return;
+        synchronized (durableMonitor) {
+            while (durableLsn < lsn) {
+                if (failure != null) throw new SQLException("Zapis dziennika nie powiódł się: " + failure.getMessage(), failure);
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientException("Przerwano oczekiwanie na zapis dziennika.", e);
+                }
+            }
+        }
+    }
+
+    private void checkUsable() throws SQLException {
+        IOException f = failure;
+        if (f != null) throw new SQLException("Dziennik magazynu w stanie awarii - zmiany są odrzucane do restartu serwera: " + f.getMessage(), f);
+        if (closed) throw new SQLException("Dziennik magazynu jest zamknięty.");
+    }
+
+    private void writeLoop() {
+        while (true) {
+            synchronized (appendLock) {
+                while (pendingBytes == 0 && !closed) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingBytes == 0) return; // Zamknięty i pusty
+            }
+            if (groupCommitDelayNanos > 0) {
+                LockSupport.parkNanos(groupCommitDelayNanos); // Zbieramy kolejne rekordy
+            }
+            try {
+                synchronized (channelLock) {
+                    flushPending();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    // Zapisuje bufor do bieżącego segmentu; wywoływane pod channelLock
+    private void flushPending() throws IOException {
+        byte[] batch;
+        int length;
+        long lastLsn;
+        synchronized (appendLock) {
+            if (pendingBytes == 0) return;
+            batch = pending;
+            length = pendingBytes;
+            lastLsn = lastAppendedLsn;
+            pending = spare;       // Nowe rekordy trafiają do drugiego bufora w trakcie zapisu
+            pendingBytes = 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            long start = System.nanoTime();
+            channel.force(false);
+            syncLatency.record(System.nanoTime() - start);
+        }
+        syncs.increment();
+        synchronized (appendLock) {
+            spare = batch; // Zwolniony bufor wraca do obiegu
+        }
+        synchronized (durableMonitor) {
+            durableLsn = lastLsn;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void fail(IOException e) {
+        logger.log(Level.SEVERE, "Ledger journal write failed - storage rejects further changes until restart.", e);
+        synchronized (durableMonitor) {
+            failure = e;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    // --- Migawki ---
+
+    /**
+     * Zamyka bieżący segment (zapisując oczekujące rekordy) i otwiera nowy. Wywoływane przez magazyn
+     * przy wstrzymanych zmianach, więc wszystkie rekordy sprzed migawki są w segmentach &lt; wyniku.
+     * @return Numer nowego segmentu - pierwszego, który trzeba odtworzyć po wczytaniu tej migawki.
+     */
+    public int rotate() throws SQLException {
+        checkUsable();
+        synchronized (channelLock) {
+            try {
+                flushPending();
+                channel.close();
+                openSegment(segment + 1);
+            } catch (IOException e) {
+                fail(e);
+                throw new SQLException("Nie udało się zmienić segmentu dziennika: " + e.getMessage(), e);
+            }
+            recordsSinceRotate.reset();
+            return segment;
+        }
+    }
+
+    /**
+     * Zapisuje migawkę atomowo (plik tymczasowy, fsync, zmiana nazwy) i usuwa segmenty w niej zawarte.
+     * @param firstSegment Wynik {@link #rotate()} z chwili wykonania kopii stanu.
+     */
+    public void writeSnapshot(int firstSegment, SnapshotWriter snapshotWriter) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_TMP_FILE);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream raw = Channels.newOutputStream(ch);
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(raw, 64 * 1024), crc));
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(firstSegment);
+            snapshotWriter.write(out);
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+        for (int seg : listSegments()) {
+            if (seg < firstSegment) Files.deleteIfExists(segmentPath(seg));
+        }
+        snapshots.increment();
+    }
+
+    /** Liczba rekordów dopisanych od ostatniej zmiany segmentu - podstawa decyzji o kolejnej migawce. */
+    public long getRecordsSinceRotate() {
+        return recordsSinceRotate.sum();
+    }
+
+    // --- Pliki ---
+
+    private Path segmentPath(int seg) {
+        return dir.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, seg, SEGMENT_SUFFIX));
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                try {
+                    segments.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected file in ledger journal directory: " + name);
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    // Synchronizacja wpisów katalogu (nowy segment, zmiana nazwy migawki); nie wszędzie wspierana
+    private void forceDirectory() {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Directory fsync not supported for " + dir, e);
+        }
+    }
+
+    public String statsSummary() {
+        LatencyHistogram.Snapshot sync = syncLatency.snapshot();
+        long records = appendedRecords.sum();
+        long batches = syncs.sum();
+        return "ledgerJournal[dir=" + dir + ", segment=" + segment + ", fsync=" + fsync + ", replayed=" + replayedRecords +
+                ", records=" + records + ", bytes=" + appendedBytes.sum() + ", writes=" + batches +
+                String.format(", recordsPerWrite=%.1f", batches == 0 ? 0.0 : (double) records / batches) +
+                (fsync ? String.format(", fsyncP50=%.1fus, fsyncP99=%.1fus", sync.valueAt(0.50) / 1000.0, sync.valueAt(0.99) / 1000.0) : "") +
+                ", snapshots=" + snapshots.sum() + ", failed=" + (failure != null) + "]";
+    }
+
+    /** Zapisuje pozostałe rekordy i zamyka segment. */
+    @Override
+    public void close() {
+        if (closed) return;
+        synchronized (appendLock) {
+            closed = true;
+            appendLock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (channelLock) {
+            try {
+                if (channel != null) {
+                    if (failure == null) flushPending();
+                    channel.close();
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+}
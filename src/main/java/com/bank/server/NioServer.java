@@ -0,0 +1,525 @@
+// File: src/main/java/com/bank/server/NioServer.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.BinaryProtocol;
+import com.bank.common.Protocol;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Nieblokujący front-end oparty na Selector/SocketChannel.
+ * Kilka pętli zdarzeń obsługuje wszystkie połączenia (odczyt, ramkowanie linii, kolejki zapisu),
+ * a polecenia wykonywane są na puli wątków roboczych, ponieważ magazyn danych (DBManager) używa blokującego JDBC.
+ * Bezczynne połączenie kosztuje tylko bufor i obiekt sesji, bez własnego wątku.
+ * Każde połączenie przy pierwszym bajcie wybiera ramkowanie: linie tekstowe lub ramki {@link BinaryProtocol}.
+ * Odpowiedzi strumieniowe trafiają do kolejki zapisu porcjami; wątek roboczy czeka, gdy gniazdo nie nadąża,
+ * więc wolny klient nie powoduje zbuforowania całej listy w pamięci serwera.
+ */
+public class NioServer implements AutoCloseable {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    static final int MAX_LINE_LENGTH = 64 * 1024;           // Ochrona przed nieograniczonym wzrostem bufora linii
+    private static final int MAX_PENDING_REQUESTS = 256;    // Powyżej tej liczby wstrzymujemy odczyt z połączenia
+    private static final int STREAM_CHUNK_SIZE = 8 * 1024;  // Porcja odpowiedzi strumieniowej w kolejce zapisu
+    private static final long MAX_QUEUED_BYTES = 256 * 1024; // Powyżej tej liczby niewysłanych bajtów strumień czeka
+
+    private final int port;
+    private final Storage storage;
+    private final Logger logger;
+    private final ExecutorService workers;
+    private final Semaphore sessionPermits; // null = brak limitu
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    public NioServer(int port, int eventLoops, ExecutorService workers, Storage storage, Logger logger,
+                     Semaphore sessionPermits) throws IOException {
+        if (eventLoops < 1) throw new IllegalArgumentException("Liczba pętli zdarzeń musi być dodatnia: " + eventLoops);
+        this.port = port;
+        this.storage = storage;
+        this.logger = logger;
+        this.workers = workers;
+        this.sessionPermits = sessionPermits;
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+
+    /**
+     * Uruchamia pętle zdarzeń i blokuje wątek wywołujący w pętli akceptowania połączeń,
+     * dopóki serwer nie zostanie zamknięty.
+     */
+    public void serve() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        for (EventLoop loop : loops) {
+            Thread t = new Thread(loop, "BankNio-EventLoop-" + loop.index);
+            loop.started = true;
+            t.start();
+        }
+        logger.info("BankServer (NIO) started successfully on port " + port + " with " + loops.length + " event loop(s).");
+
+        int next = 0;
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept(); // Blokujący accept - jeden wątek akceptora wystarcza
+            } catch (IOException e) {
+                if (!running || !serverChannel.isOpen()) break;
+                logger.log(Level.WARNING, "Error accepting client connection: " + e.getMessage(), e);
+                continue;
+            }
+            if (sessionPermits != null && !sessionPermits.tryAcquire()) {
+                rejectBusy(channel);
+                continue;
+            }
+            logger.info("Accepted connection from: " + channel.getRemoteAddress());
+            loops[next].register(channel);
+            next = (next + 1) % loops.length;
+        }
+        logger.info("NIO accept loop has exited.");
+    }
+
+    private void rejectBusy(SocketChannel channel) {
+        try (SocketChannel ch = channel) {
+            logger.warning("Session limit reached, rejecting connection from: " + ch.getRemoteAddress());
+            String msg = Protocol.buildMessage(Protocol.RES_ERROR, Protocol.ERR_SERVER_BUSY, "Too many concurrent sessions. Try again later.") + "\n";
+            ch.write(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error while rejecting busy connection", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error closing NIO server channel", e);
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    // --- Pętla zdarzeń: jeden Selector, zadania zlecane z innych wątków przez kolejkę ---
+    private final class EventLoop implements Runnable {
+        private final int index;
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private volatile boolean started = false;
+
+        EventLoop(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            execute(() -> {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+                    Connection conn = new Connection(this, channel);
+                    conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not register channel with event loop " + index, e);
+                    closeQuietly(channel);
+                    if (sessionPermits != null) sessionPermits.release();
+                }
+            });
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        // Uruchomiona pętla sama zamyka połączenia i selektor po wyjściu (running == false); nieuruchomiona - tutaj
+        void shutdown() {
+            if (started) {
+                selector.wakeup();
+            } else {
+                closeSelector();
+            }
+        }
+
+        private void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error closing selector of event loop " + index, e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running && selector.isOpen()) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Connection conn = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) conn.onReadable();
+                            if (key.isValid() && key.isWritable()) conn.flush();
+                        } catch (CancelledKeyException e) {
+                            conn.close();
+                        } catch (IOException e) {
+                            logger.info("[" + conn.address + "] Client connection ended abruptly: " + e.getMessage());
+                            conn.close();
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                // Serwer jest zamykany
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Event loop " + index + " failed", e);
+            } finally {
+                closeConnections();
+            }
+        }
+
+        // Zamyka sesje wszystkich połączeń pętli (także tych, których rejestracja czeka w kolejce zadań), potem selektor
+        private void closeConnections() {
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                if (selector.isOpen()) {
+                    for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+            } finally {
+                closeSelector();
+            }
+        }
+    }
+
+    // Tryb ramkowania połączenia, ustalany przez pierwszy bajt od klienta
+    private static final int MODE_UNDECIDED = 0;
+    private static final int MODE_HANDSHAKE = 1;
+    private static final int MODE_TEXT = 2;
+    private static final int MODE_BINARY = 3;
+
+    // --- Pojedyncze połączenie: ramkowanie linii lub ramek binarnych, kolejka żądań i kolejka zapisu ---
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final String address;
+        private final ClientSession session;
+        private SelectionKey key;
+
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private byte[] lineBuffer = new byte[256];
+        private int lineLength = 0;
+        private int mode = MODE_UNDECIDED; // Tylko wątek pętli zdarzeń
+        private volatile boolean binary = false;
+
+        // Żądania (linia bez '\n' lub zawartość ramki binarnej) oczekujące na wykonanie; dostęp synchronizowany na samej kolejce
+        private final ArrayDeque<byte[]> pendingRequests = new ArrayDeque<>();
+        private boolean processing = false;
+
+        // Odpowiedzi czekające na zapis (wypełniane przez wątki robocze, opróżniane przez pętlę zdarzeń)
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> unwritten = new ArrayDeque<>(); // Tylko wątek pętli zdarzeń
+        private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // Bajty w kolejkach zapisu, których gniazdo jeszcze nie przyjęło; odpowiedź strumieniowa czeka na "drained"
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final Object drained = new Object();
+        private volatile boolean streamWaiting = false;
+
+        Connection(EventLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.address = String.valueOf(channel.getRemoteAddress());
+            this.session = new ClientSession(storage, logger, address);
+            this.session.setStreamOutput(new StreamOutput());
+        }
+
+        void onReadable() throws IOException {
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (mode == MODE_UNDECIDED) {
+                    mode = (b == BinaryProtocol.HANDSHAKE[0]) ? MODE_HANDSHAKE : MODE_TEXT;
+                }
+                boolean ok;
+                if (mode == MODE_TEXT) ok = onTextByte(b);
+                else if (mode == MODE_BINARY) ok = onBinaryByte(b);
+                else ok = onHandshakeByte(b);
+                if (!ok) {
+                    close();
+                    return;
+                }
+            }
+            readBuffer.clear();
+        }
+
+        private boolean onTextByte(byte b) {
+            if (b == '\n') {
+                int len = (lineLength > 0 && lineBuffer[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+                enqueueRequest(Arrays.copyOf(lineBuffer, len));
+                lineLength = 0;
+                return true;
+            }
+            if (lineLength == MAX_LINE_LENGTH) {
+                logger.warning("[" + address + "] Request line exceeds " + MAX_LINE_LENGTH + " bytes, closing connection.");
+                return false;
+            }
+            append(b, MAX_LINE_LENGTH);
+            return true;
+        }
+
+        private boolean onHandshakeByte(byte b) throws IOException {
+            if (b != BinaryProtocol.HANDSHAKE[lineLength]) {
+                logger.warning("[" + address + "] Unsupported binary protocol handshake, closing connection.");
+                return false;
+            }
+            if (++lineLength == BinaryProtocol.HANDSHAKE.length) {
+                lineLength = 0;
+                mode = MODE_BINARY;
+                binary = true;
+                logger.info("[" + address + "] Binary protocol v" + BinaryProtocol.VERSION + " negotiated.");
+                enqueueWrite(BinaryProtocol.HANDSHAKE.clone());
+                flush(); // Jesteśmy na pętli zdarzeń - potwierdzenie wyprzedza wszystkie odpowiedzi
+            }
+            return true;
+        }
+
+        // Ramka: 2 bajty długości, potem zawartość - do kolejki trafia sama zawartość
+        private boolean onBinaryByte(byte b) {
+            append(b, BinaryProtocol.MAX_FRAME_LENGTH + 2);
+            if (lineLength >= 2) {
+                int frameLength = ((lineBuffer[0] & 0xFF) << 8) | (lineBuffer[1] & 0xFF);
+                if (lineLength == frameLength + 2) {
+                    enqueueRequest(Arrays.copyOfRange(lineBuffer, 2, lineLength));
+                    lineLength = 0;
+                }
+            }
+            return true;
+        }
+
+        private void append(byte b, int maxLength) {
+            if (lineLength == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.min(lineBuffer.length * 2, maxLength));
+            }
+            lineBuffer[lineLength++] = b;
+        }
+
+        private void enqueueRequest(byte[] request) {
+            boolean startWorker;
+            synchronized (pendingRequests) {
+                pendingRequests.add(request);
+                startWorker = !processing;
+                processing = true;
+                if (pendingRequests.size() >= MAX_PENDING_REQUESTS && key.isValid()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ); // Backpressure
+                }
+            }
+            if (startWorker) {
+                workers.execute(this::drainRequests);
+            }
+        }
+
+        // Wykonywane na wątku roboczym: żądania jednej sesji zawsze kolejno i w kolejności nadejścia
+        private void drainRequests() {
+            while (true) {
+                byte[] request;
+                synchronized (pendingRequests) {
+                    request = pendingRequests.poll();
+                    if (request == null) {
+                        processing = false;
+                        return;
+                    }
+                    if (pendingRequests.size() == MAX_PENDING_REQUESTS / 2) {
+                        loop.execute(this::resumeReading);
+                    }
+                }
+                if (closed.get()) continue; // Połączenie zamknięte - porzucamy pozostałe żądania
+                byte[] response;
+                try {
+                    response = binary
+                            ? session.handleFrame(request, 0, request.length)
+                            : session.handleLine(request, 0, request.length).toLineBytes(); // Kopia - koder sesji obsłuży kolejne żądanie
+                } catch (RuntimeException | Error e) {
+                    // Bez odpowiedzi kolejność potoku jest zerwana - zamykamy połączenie i zwalniamy znacznik processing
+                    logger.log(Level.SEVERE, "[" + address + "] Request processing failed, closing connection.", e);
+                    synchronized (pendingRequests) {
+                        pendingRequests.clear();
+                        processing = false;
+                    }
+                    loop.execute(this::close);
+                    if (e instanceof Error) throw (Error) e;
+                    return;
+                }
+                enqueueWrite(response);
+                scheduleFlush();
+            }
+        }
+
+        private void enqueueWrite(byte[] bytes) {
+            queuedBytes.addAndGet(bytes.length);
+            writeQueue.add(ByteBuffer.wrap(bytes));
+        }
+
+        // Jedno zlecenie flush na serię odpowiedzi z potoku - kolejne odpowiedzi dołączą do tego samego zapisu
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(this::flushQuietly);
+            }
+        }
+
+        // Wątek roboczy: czeka, aż pętla zdarzeń wyśle kolejkę poniżej limitu (lub połączenie zostanie zamknięte)
+        private void awaitDrained() throws IOException {
+            synchronized (drained) {
+                streamWaiting = true;
+                try {
+                    while (queuedBytes.get() > MAX_QUEUED_BYTES && !closed.get()) {
+                        drained.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while streaming response");
+                } finally {
+                    streamWaiting = false;
+                }
+            }
+            if (closed.get()) throw new IOException("Connection closed");
+        }
+
+        private void signalDrained() {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+
+        private void resumeReading() {
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+        }
+
+        private void flushQuietly() {
+            flushScheduled.set(false);
+            try {
+                flush();
+            } catch (IOException e) {
+                logger.info("[" + address + "] Client connection ended abruptly: " + e.getMessage());
+                close();
+            }
+        }
+
+        // Wykonywane na pętli zdarzeń: zapis zbiorczy (gathering write) wszystkich oczekujących odpowiedzi,
+        // reszta, której gniazdo nie przyjęło, czeka na OP_WRITE
+        void flush() throws IOException {
+            if (closed.get() || !key.isValid()) return;
+            ByteBuffer next;
+            while ((next = writeQueue.poll()) != null) {
+                unwritten.add(next);
+            }
+            if (!unwritten.isEmpty()) {
+                long written = channel.write(unwritten.toArray(new ByteBuffer[0]));
+                if (queuedBytes.addAndGet(-written) <= MAX_QUEUED_BYTES && streamWaiting) {
+                    signalDrained();
+                }
+                while (!unwritten.isEmpty() && !unwritten.peekFirst().hasRemaining()) {
+                    unwritten.pollFirst();
+                }
+            }
+            if (unwritten.isEmpty()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            if (key != null) key.cancel();
+            closeQuietly(channel);
+            session.close();
+            if (sessionPermits != null) sessionPermits.release();
+            signalDrained(); // Strumień czekający na wysyłkę kończy się błędem zapisu
+        }
+
+        // Odpowiedź strumieniowa sesji: porcje STREAM_CHUNK_SIZE do kolejki zapisu, z czekaniem na wolne gniazdo
+        private final class StreamOutput extends OutputStream {
+            private final byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+            private int used;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (used == chunk.length) flush();
+                chunk[used++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (used == chunk.length) flush();
+                    int n = Math.min(len, chunk.length - used);
+                    System.arraycopy(b, off, chunk, used, n);
+                    used += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (closed.get()) throw new IOException("Connection closed");
+                if (used == 0) return;
+                enqueueWrite(Arrays.copyOf(chunk, used));
+                used = 0;
+                scheduleFlush();
+                awaitDrained();
+            }
+        }
+    }
+
+    private void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Kanał i tak jest porzucany
+        }
+    }
+}
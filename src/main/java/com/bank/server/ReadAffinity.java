@@ -0,0 +1,41 @@
+// File: src/main/java/com/bank/server/ReadAffinity.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+/**
+ * Stan "czytaj własne zapisy" jednej sesji klienta. Sesja wiąże go z wątkiem na czas obsługi żądania
+ * ({@link #bind} / {@link #unbind}) - tak jak ServerMetrics liczy czas wywołań magazynu na bieżącym wątku - więc
+ * interfejs {@link Storage} nie musi przenosić tożsamości sesji. DBManager zapisuje chwilę każdej zmiany danych,
+ * a {@link ReadReplicaRouter} kieruje odczyty sesji do bazy głównej, dopóki od jej ostatniego zapisu nie minie okno
+ * opóźnienia replik.
+ */
+public final class ReadAffinity {
+    private static final ThreadLocal<ReadAffinity> CURRENT = new ThreadLocal<>();
+
+    // Żądania jednej sesji mogą trafiać na różne wątki (front-end NIO), stąd volatile
+    private volatile boolean written;
+    private volatile long lastWriteNanos;
+
+    /** Wiąże stan sesji z bieżącym wątkiem na czas obsługi jednego żądania. */
+    public static void bind(ReadAffinity affinity) {
+        CURRENT.set(affinity);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /** Stan sesji obsługiwanej przez bieżący wątek; null - wywołanie spoza sesji (np. import, benchmark). */
+    public static ReadAffinity current() {
+        return CURRENT.get();
+    }
+
+    void recordWrite() {
+        lastWriteNanos = System.nanoTime();
+        written = true;
+    }
+
+    /** true, jeśli sesja zmieniała dane w ciągu ostatnich windowNanos. */
+    boolean wroteWithin(long windowNanos) {
+        return written && System.nanoTime() - lastWriteNanos < windowNanos;
+    }
+}
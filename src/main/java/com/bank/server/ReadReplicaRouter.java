@@ -0,0 +1,123 @@
+// File: src/main/java/com/bank/server/ReadReplicaRouter.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kieruje odczyty DBManager do replik bazy (pule połączeń tylko do odczytu), a zapisy i transakcje zostawia
+ * na bazie głównej.
+ * <ul>
+ *   <li>repliki wybierane są po kolei (round-robin),</li>
+ *   <li>sesja, która zmieniała dane w ciągu ostatnich readYourWritesMillis ({@link ReadAffinity}), czyta z bazy
+ *       głównej - jej własne zapisy mogły jeszcze nie dotrzeć do repliki,</li>
+ *   <li>replika, z której nie udało się wypożyczyć połączenia, jest pomijana przez REPLICA_RETRY_MILLIS,
+ *       a odczyt idzie do kolejnej repliki albo do bazy głównej.</li>
+ * </ul>
+ * Gwarancja dotyczy tylko własnych zapisów sesji: odczyt z repliki może nie widzieć zmian innych sesji sprzed
+ * chwili (opóźnienie replikacji).
+ */
+public class ReadReplicaRouter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ReadReplicaRouter.class.getName());
+    private static final long REPLICA_RETRY_MILLIS = 5000;
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final long readYourWritesNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLongArray unavailableUntil; // System.nanoTime(), do którego replika jest pomijana; 0 = dostępna
+
+    // --- Statystyki ---
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder pinnedReads = new LongAdder();   // Odczyty na bazie głównej z powodu niedawnego zapisu sesji
+    private final LongAdder failoverReads = new LongAdder(); // Odczyty na bazie głównej, bo żadna replika nie była dostępna
+    private final LongAdder writesRecorded = new LongAdder();
+
+    /** @param readYourWritesMillis Jak długo po zapisie sesja czyta z bazy głównej (0 - bez przypinania). */
+    public ReadReplicaRouter(ConnectionPool primary, List<ConnectionPool> replicas, long readYourWritesMillis) {
+        if (replicas.isEmpty()) throw new IllegalArgumentException("Lista replik nie może być pusta.");
+        if (readYourWritesMillis < 0) throw new IllegalArgumentException("Okno odczytu własnych zapisów nie może być ujemne: " + readYourWritesMillis);
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+        this.unavailableUntil = new AtomicLongArray(replicas.size());
+    }
+
+    /** Zapis danych przez bieżącą sesję - jej odczyty idą do bazy głównej przez okno readYourWritesMillis. */
+    public void recordWrite() {
+        ReadAffinity affinity = ReadAffinity.current();
+        if (affinity != null) {
+            affinity.recordWrite();
+            writesRecorded.increment();
+        }
+    }
+
+    /**
+     * Wypożycza połączenie do odczytu: z repliki albo - po niedawnym zapisie sesji lub gdy żadna replika
+     * nie jest dostępna - z bazy głównej.
+     */
+    public ConnectionPool.Lease leaseForRead() throws SQLException {
+        ReadAffinity affinity = ReadAffinity.current();
+        if (affinity != null && affinity.wroteWithin(readYourWritesNanos)) {
+            pinnedReads.increment();
+            return primary.lease();
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            long until = unavailableUntil.get(index);
+            if (until != 0 && System.nanoTime() - until < 0) continue;
+            try {
+                ConnectionPool.Lease lease = replicas.get(index).lease();
+                if (until != 0) unavailableUntil.compareAndSet(index, until, 0);
+                replicaReads.increment();
+                return lease;
+            } catch (SQLException e) {
+                if (unavailableUntil.getAndSet(index, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLICA_RETRY_MILLIS)) == 0) {
+                    logger.log(Level.WARNING, "Read replica #" + index + " unavailable, reading from other replicas or the primary for "
+                            + REPLICA_RETRY_MILLIS + " ms: " + e.getMessage());
+                }
+            }
+        }
+        failoverReads.increment();
+        return primary.lease();
+    }
+
+    public List<ConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    public long getReadYourWritesMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readYourWritesNanos);
+    }
+
+    public long getReplicaReads() { return replicaReads.sum(); }
+    public long getPinnedReads() { return pinnedReads.sum(); }
+    public long getFailoverReads() { return failoverReads.sum(); }
+
+    public String statsSummary() {
+        StringBuilder sb = new StringBuilder("replicas[count=").append(replicas.size())
+                .append(", readYourWritesMs=").append(getReadYourWritesMillis())
+                .append(", replicaReads=").append(replicaReads.sum())
+                .append(", pinnedReads=").append(pinnedReads.sum())
+                .append(", failoverReads=").append(failoverReads.sum())
+                .append(", writesRecorded=").append(writesRecorded.sum()).append(']');
+        for (int i = 0; i < replicas.size(); i++) {
+            sb.append(" replica#").append(i).append(' ').append(replicas.get(i).statsSummary());
+        }
+        return sb.toString();
+    }
+
+    /** Zamyka pule replik (pulę bazy głównej zamyka DBManager). */
+    @Override
+    public void close() {
+        for (ConnectionPool replica : replicas) replica.close();
+    }
+}
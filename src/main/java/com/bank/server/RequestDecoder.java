@@ -0,0 +1,276 @@
+// File: src/main/java/com/bank/server/RequestDecoder.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Protocol;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dekoder linii żądania wielokrotnego użytku - jeden na połączenie (sesję).
+ * Linia jest kopiowana do własnego bufora znaków i dzielona na pola w miejscu: zamiast String.split
+ * zapamiętywane są tylko granice pól, a trim, porównania z poleceniami, parsowanie liczb i walidacja
+ * PESEL/numeru konta działają bezpośrednio na buforze. Semantyka odpowiada
+ * {@link Protocol#parseMessage(String)} (separator ';', puste pola na końcu są zachowywane)
+ * oraz dotychczasowym trim()/toUpperCase()/matches() w ClientSession.
+ * <p>
+ * W stanie ustalonym dekodowanie nie alokuje pamięci. Obiekty powstają tylko tam, gdzie wymaga ich
+ * dalsza logika: String dla haseł i imion, BigDecimal dla kwot. Numery kont są internowane w małej
+ * tablicy, więc kolejne żądania dotyczące tych samych kont zwracają ten sam obiekt String.
+ * Instancja nie jest bezpieczna wątkowo - tak jak ClientSession.
+ */
+public final class RequestDecoder {
+    private static final char SEPARATOR = Protocol.SEPARATOR.charAt(0);
+    private static final int ACCOUNT_INTERN_SLOTS = 64; // Potęga dwójki - indeks przez maskę
+
+    private char[] chars = new char[256];
+    private int length;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount;
+    private final String[] accountNumbers = new String[ACCOUNT_INTERN_SLOTS];
+
+    /** Dekoduje linię UTF-8 z bufora bajtów (bez znaku nowej linii). */
+    public RequestDecoder decode(byte[] line, int offset, int len) {
+        ensureCapacity(len); // Liczba znaków UTF-8 nigdy nie przekracza liczby bajtów
+        int n = 0;
+        int end = offset + len;
+        for (int i = offset; i < end; i++) {
+            byte b = line[i];
+            if (b < 0) { // Znak spoza ASCII (np. polskie litery w nazwisku) - rzadkie, więc wolniejsza ścieżka
+                String rest = new String(line, i, end - i, StandardCharsets.UTF_8);
+                ensureCapacity(n + rest.length());
+                rest.getChars(0, rest.length(), chars, n);
+                n += rest.length();
+                break;
+            }
+            chars[n++] = (char) b;
+        }
+        length = n;
+        split();
+        return this;
+    }
+
+    /** Dekoduje linię tekstową (np. odczytaną przez BufferedReader). */
+    public RequestDecoder decode(String line) {
+        int len = line == null ? 0 : line.length();
+        ensureCapacity(len);
+        if (len > 0) line.getChars(0, len, chars, 0);
+        length = len;
+        split();
+        return this;
+    }
+
+    /** Wczytuje żądanie już podzielone na pola (np. zdekodowaną ramkę binarną). */
+    public RequestDecoder decode(String[] parts) {
+        int total = parts.length;
+        for (String part : parts) total += part.length();
+        ensureCapacity(total);
+        fieldCount = 0;
+        int n = 0;
+        for (String part : parts) {
+            part.getChars(0, part.length(), chars, n);
+            addField(n, n + part.length());
+            n += part.length();
+            chars[n++] = SEPARATOR; // Tylko dla line(); granice pól są już znane
+        }
+        length = Math.max(0, n - 1);
+        if (parts.length == 0) addField(0, 0);
+        return this;
+    }
+
+    private void split() {
+        fieldCount = 0;
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == SEPARATOR) {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, length);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (chars.length < needed) {
+            chars = new char[Math.max(needed, chars.length * 2)];
+        }
+    }
+
+    // --- Dostęp do pól ---
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** Czy pole (bez trim, jak parts[i].isEmpty()) jest puste lub nie istnieje. */
+    public boolean isEmpty(int index) {
+        return index >= fieldCount || starts[index] == ends[index];
+    }
+
+    /** Czy pole nie istnieje albo po trim jest puste - odpowiednik warunku brakującego parametru. */
+    public boolean isBlank(int index) {
+        return index < 0 || index >= fieldCount || trimmedStart(index) == trimmedEnd(index);
+    }
+
+    /** Porównanie pola (bez trim) ze stałą protokołu, jak parts[i].equals(value). */
+    public boolean fieldEquals(int index, String value) {
+        if (index >= fieldCount) return false;
+        int start = starts[index];
+        int len = ends[index] - start;
+        if (len != value.length()) return false;
+        for (int i = 0; i < len; i++) {
+            if (chars[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Stała z {@code candidates} równa polu (bez trim) albo null - pozwala na switch bez tworzenia obiektu String. */
+    public String match(int index, String[] candidates) {
+        for (String candidate : candidates) {
+            if (fieldEquals(index, candidate)) return candidate;
+        }
+        return null;
+    }
+
+    /** Pole bez trim jako String (dla komunikatów o nieznanym poleceniu). */
+    public String rawField(int index) {
+        return index < fieldCount ? new String(chars, starts[index], ends[index] - starts[index]) : "";
+    }
+
+    /** Pole po trim jako nowy String. */
+    public String field(int index) {
+        int start = trimmedStart(index);
+        return new String(chars, start, trimmedEnd(index) - start);
+    }
+
+    /** Odpowiednik Integer.parseInt(pole.trim()) - bez tworzenia obiektu String. */
+    public int parseInt(int index) {
+        int pos = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (pos == end) throw new NumberFormatException("Empty value");
+        boolean negative = false;
+        char first = chars[pos];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++pos == end) throw new NumberFormatException("Sign without digits");
+        }
+        // Akumulacja na wartościach ujemnych, jak w Integer.parseInt - obsługuje Integer.MIN_VALUE
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; pos < end; pos++) {
+            int digit = Character.digit(chars[pos], 10);
+            if (digit < 0 || result < limit / 10) throw new NumberFormatException("Not an integer");
+            result *= 10;
+            if (result < limit + digit) throw new NumberFormatException("Integer overflow");
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /** Odpowiednik Long.parseLong(pole.trim()) - bez tworzenia obiektu String. */
+    public long parseLong(int index) {
+        int pos = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (pos == end) throw new NumberFormatException("Empty value");
+        boolean negative = false;
+        char first = chars[pos];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++pos == end) throw new NumberFormatException("Sign without digits");
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; pos < end; pos++) {
+            int digit = Character.digit(chars[pos], 10);
+            if (digit < 0 || result < limit / 10) throw new NumberFormatException("Not an integer");
+            result *= 10;
+            if (result < limit + digit) throw new NumberFormatException("Long overflow");
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /** Odpowiednik new BigDecimal(pole.trim()) - parsowanie wprost z bufora znaków. */
+    public BigDecimal parseDecimal(int index) {
+        int start = trimmedStart(index);
+        return new BigDecimal(chars, start, trimmedEnd(index) - start);
+    }
+
+    /** Czy pole po trim to 11 cyfr. */
+    public boolean isPesel(int index) {
+        return Protocol.isValidPesel(chars, trimmedStart(index), trimmedEnd(index));
+    }
+
+    /** Czy pole po trim to "PL" (dowolna wielkość liter) i 26 cyfr. */
+    public boolean isAccountNumber(int index) {
+        return Protocol.isValidAccountNumber(chars, trimmedStart(index), trimmedEnd(index));
+    }
+
+    /**
+     * Numer konta z pola (po trim, z prefiksem wielkimi literami). Pole musi przejść {@link #isAccountNumber(int)}.
+     * Powtarzające się numery zwracane są z tablicy internowania bez alokacji.
+     */
+    public String accountNumber(int index) {
+        int start = trimmedStart(index);
+        chars[start] = 'P';
+        chars[start + 1] = 'L';
+        int hash = 0;
+        for (int i = start + 2; i < start + Protocol.ACCOUNT_NUMBER_LENGTH; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (ACCOUNT_INTERN_SLOTS - 1);
+        String cached = accountNumbers[slot];
+        if (cached != null && regionEquals(start, cached)) {
+            return cached;
+        }
+        String number = new String(chars, start, Protocol.ACCOUNT_NUMBER_LENGTH);
+        accountNumbers[slot] = number;
+        return number;
+    }
+
+    /** Cała linia żądania - tylko do logów i komunikatów błędów, alokuje String. */
+    public String line() {
+        return new String(chars, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return line();
+    }
+
+    private boolean regionEquals(int start, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (chars[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Granice pola po trim (usuwane znaki <= ' ', jak String.trim); pole spoza zakresu jest puste
+    private int trimmedStart(int index) {
+        if (index >= fieldCount) return 0;
+        int pos = starts[index];
+        int end = ends[index];
+        while (pos < end && chars[pos] <= ' ') pos++;
+        return pos;
+    }
+
+    private int trimmedEnd(int index) {
+        if (index >= fieldCount) return 0;
+        int start = starts[index];
+        int end = ends[index];
+        while (end > start && chars[end - 1] <= ' ') end--;
+        return end;
+    }
+}
@@ -0,0 +1,221 @@
+// File: src/main/java/com/bank/server/ResponseEncoder.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Koder linii odpowiedzi wielokrotnego użytku - jeden na połączenie (sesję).
+ * Pola są zapisywane od razu jako UTF-8 do własnego bufora bajtów, z separatorem ';' między nimi,
+ * więc zbudowanie odpowiedzi nie wymaga String.join, tablicy varargs ani pośrednich obiektów String.
+ * Liczby (w tym kwoty BigDecimal) są formatowane bezpośrednio do bufora.
+ * Gotową linię zapisuje się do strumienia przez {@link #writeLineTo(OutputStream)}.
+ * Instancja nie jest bezpieczna wątkowo.
+ */
+public final class ResponseEncoder {
+    private static final byte SEPARATOR = (byte) Protocol.SEPARATOR.charAt(0);
+
+    private byte[] bytes = new byte[256];
+    private int length;
+    private int[] fieldStarts = new int[8];
+    private int fieldCount;
+    private final char[] digits = new char[20]; // Long.MIN_VALUE ma 19 cyfr i znak
+
+    /** Rozpoczyna nową odpowiedź od pierwszego pola (statusu). */
+    public ResponseEncoder message(String status) {
+        length = 0;
+        fieldCount = 0;
+        return field(status);
+    }
+
+    /** Dodaje kolejne pole (separator + wartość). */
+    public ResponseEncoder field(String value) {
+        startField();
+        return append(value);
+    }
+
+    public ResponseEncoder field(long value) {
+        startField();
+        return append(value);
+    }
+
+    /** Kwota w postaci BigDecimal.toPlainString(). */
+    public ResponseEncoder field(BigDecimal value) {
+        startField();
+        return append(value);
+    }
+
+    /** Dopisuje tekst do bieżącego pola (bez separatora). */
+    public ResponseEncoder append(String value) {
+        int len = value.length();
+        ensureCapacity(length + len);
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else {
+                i = appendNonAscii(value, i); // Zwraca indeks ostatniego zużytego znaku
+            }
+        }
+        return this;
+    }
+
+    /** Dopisuje liczbę całkowitą do bieżącego pola (bez separatora). */
+    public ResponseEncoder append(long value) {
+        ensureCapacity(length + digits.length);
+        if (value < 0) {
+            bytes[length++] = '-';
+        }
+        // Cyfry liczone na wartości ujemnej, aby obsłużyć Long.MIN_VALUE
+        long rest = value < 0 ? value : -value;
+        int n = 0;
+        do {
+            digits[n++] = (char) ('0' - (rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        while (n > 0) {
+            bytes[length++] = (byte) digits[--n];
+        }
+        return this;
+    }
+
+    /** Dopisuje kwotę do bieżącego pola w formacie BigDecimal.toPlainString(). */
+    public ResponseEncoder append(BigDecimal value) {
+        int scale = value.scale();
+        if (scale < 0 || scale > 18 || value.precision() > 18) { // Poza zakresem long - rzadkie, zwykła ścieżka
+            return append(value.toPlainString());
+        }
+        long unscaled = value.unscaledValue().longValue(); // Dla kwot z bazy (DECIMAL(19,2)) zawsze mieści się w long
+        if (scale == 0) {
+            return append(unscaled);
+        }
+        if (unscaled < 0) {
+            ensureCapacity(length + 1);
+            bytes[length++] = '-';
+            unscaled = -unscaled; // precision <= 18, więc bez przepełnienia
+        }
+        int start = length;
+        append(unscaled);
+        int written = length - start;
+        int pad = scale + 1 - written; // Zera wiodące dla wartości < 1, np. 5 przy skali 2 -> 0.05
+        ensureCapacity(length + Math.max(pad, 0) + 1);
+        if (pad > 0) {
+            System.arraycopy(bytes, start, bytes, start + pad, written);
+            Arrays.fill(bytes, start, start + pad, (byte) '0');
+            length += pad;
+            written += pad;
+        }
+        int point = start + written - scale;
+        System.arraycopy(bytes, point, bytes, point + 1, scale);
+        bytes[point] = '.';
+        length++;
+        return this;
+    }
+
+    private void startField() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+        }
+        if (fieldCount > 0) {
+            ensureCapacity(length + 1);
+            bytes[length++] = SEPARATOR;
+        }
+        fieldStarts[fieldCount++] = length;
+    }
+
+    // Kodowanie UTF-8 jednego znaku (lub pary surogatów) spoza ASCII; zwraca indeks ostatniego zużytego znaku
+    private int appendNonAscii(String value, int i) {
+        ensureCapacity(length + 4);
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            bytes[length++] = (byte) (0xC0 | (c >> 6));
+            bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            return i;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, value.charAt(i + 1));
+            bytes[length++] = (byte) (0xF0 | (cp >> 18));
+            bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (cp & 0x3F));
+            return i + 1;
+        }
+        if (Character.isSurrogate(c)) { // Niesparowany surogat - jak String.getBytes(UTF_8)
+            bytes[length++] = '?';
+            return i;
+        }
+        bytes[length++] = (byte) (0xE0 | (c >> 12));
+        bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        return i;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (bytes.length < needed) {
+            bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length * 2));
+        }
+    }
+
+    // --- Odczyt gotowej odpowiedzi ---
+
+    /** Zapisuje odpowiedź zakończoną znakiem nowej linii - bez kopiowania bufora. */
+    public void writeLineTo(OutputStream out) throws IOException {
+        ensureCapacity(length + 1);
+        bytes[length] = '\n';
+        out.write(bytes, 0, length + 1);
+    }
+
+    /** Kopia odpowiedzi z nową linią (gdy bajty muszą przeżyć kolejne żądanie, np. w kolejce zapisu NIO). */
+    public byte[] toLineBytes() {
+        byte[] line = Arrays.copyOf(bytes, length + 1);
+        line[length] = '\n';
+        return line;
+    }
+
+    /** Odpowiedź jako linia tekstowa (bez nowej linii). */
+    public String line() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** Pola odpowiedzi, np. do zakodowania ramki binarnej. */
+    public String[] toParts() {
+        String[] parts = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            parts[i] = getField(i);
+        }
+        return parts;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** Pojedyncze pole odpowiedzi jako String (null, gdy nie istnieje). */
+    public String getField(int index) {
+        if (index < 0 || index >= fieldCount) return null;
+        int end = index + 1 < fieldCount ? fieldStarts[index + 1] - 1 : length;
+        return new String(bytes, fieldStarts[index], end - fieldStarts[index], StandardCharsets.UTF_8);
+    }
+
+    /** Porównanie pola ze stałą ASCII (np. statusem z Protocol) bez tworzenia obiektu String. */
+    public boolean fieldEquals(int index, String value) {
+        if (index < 0 || index >= fieldCount) return false;
+        int start = fieldStarts[index];
+        int end = index + 1 < fieldCount ? fieldStarts[index + 1] - 1 : length;
+        if (end - start != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (bytes[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return line();
+    }
+}
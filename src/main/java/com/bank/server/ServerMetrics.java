@@ -0,0 +1,342 @@
+// File: src/main/java/com/bank/server/ServerMetrics.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Protocol;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metryki serwera: liczba i czas obsługi żądań per polecenie (w tym czas spędzony w wywołaniach magazynu danych),
+ * czasy poszczególnych wywołań magazynu danych, błędy według typu ERR_TYPE_*, liczba aktywnych sesji oraz
+ * oczekiwanie na blokady kont ({@link AccountLockTable}), jeśli magazyn ich używa.
+ * <p>
+ * Wszystkie liczniki są bez blokad (LongAdder, AtomicInteger, {@link LatencyHistogram}), więc zapis z wielu sesji
+ * nie serializuje obsługi żądań. Odczyt: polecenie ADMIN;STATS ({@link #writeStats(ResponseEncoder)}) oraz JMX
+ * ({@link ServerMetricsMXBean}). Jedna instancja na magazyn danych ({@link Storage}) - współdzielona przez wszystkie sesje.
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+    public static final String OBJECT_NAME = "com.bank.server:type=ServerMetrics";
+    public static final String UNKNOWN_COMMAND = "UNKNOWN";
+    private static final String ADMIN_PREFIX = Protocol.CMD_ADMIN + "/";
+
+    private static final String[] ERROR_TYPES = {
+            Protocol.ERR_TYPE_PARAM, Protocol.ERR_TYPE_DB, Protocol.ERR_TYPE_FORMAT,
+            Protocol.ERR_TYPE_ARG, Protocol.ERR_TYPE_UNEXPECTED
+    };
+
+    /** Mierzone wywołania magazynu danych ({@link Storage}). */
+    public enum DbOperation {
+        ADD_CLIENT, AUTHENTICATE_CLIENT, FIND_CLIENT_BY_ID, FIND_CLIENT_BY_PESEL, UPDATE_CLIENT, DELETE_CLIENT,
+        ADD_ACCOUNT, FIND_ACCOUNT, LIST_ACCOUNTS, UPDATE_BALANCE, DEPOSIT, WITHDRAW, TRANSFER, DELETE_ACCOUNT,
+        READ_HISTORY, BULK_IMPORT, BATCH_TRANSFER, STREAM_ACCOUNTS
+    }
+
+    /** Wywołanie mierzone przez {@link #timeDbCall(DbOperation, SqlCall)}. */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    // Liczniki jednego rodzaju operacji
+    private static final class OperationStats {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder dbNanos = new LongAdder(); // Tylko polecenia: łączny czas wywołań magazynu danych
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+    }
+
+    // Czas wywołań magazynu danych na bieżącym wątku; depth > 0 oznacza wywołanie zagnieżdżone (liczone tylko raz)
+    private static final class DbClock {
+        long nanos;
+        int depth;
+    }
+
+    private final long startMillis = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, OperationStats> commands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, OperationStats> adminCommands = new ConcurrentHashMap<>();
+    private final OperationStats unknownCommand = new OperationStats(UNKNOWN_COMMAND);
+    private final OperationStats[] dbOperations = new OperationStats[DbOperation.values().length];
+    private final LongAdder[] errorsByType = new LongAdder[ERROR_TYPES.length];
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicInteger loggedInSessions = new AtomicInteger();
+    private final LongAdder totalSessions = new LongAdder();
+    private final ThreadLocal<DbClock> dbClock = ThreadLocal.withInitial(DbClock::new);
+    private volatile AccountLockTable accountLocks; // null = magazyn bez blokad kont
+
+    public ServerMetrics() {
+        for (DbOperation op : DbOperation.values()) {
+            dbOperations[op.ordinal()] = new OperationStats(op.name());
+        }
+        for (int i = 0; i < errorsByType.length; i++) {
+            errorsByType[i] = new LongAdder();
+        }
+    }
+
+    // --- Zapis ---
+
+    public void sessionOpened() {
+        activeSessions.incrementAndGet();
+        totalSessions.increment();
+    }
+
+    public void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    public void sessionLoggedIn() {
+        loggedInSessions.incrementAndGet();
+    }
+
+    public void sessionLoggedOut() {
+        loggedInSessions.decrementAndGet();
+    }
+
+    /**
+     * Rejestruje obsłużone żądanie.
+     * @param command    Rozpoznane polecenie (stała z Protocol) lub null dla nieznanego.
+     * @param subCommand Podpolecenie ADMIN lub null.
+     * @param dbNanos    Część czasu spędzona w wywołaniach magazynu danych (patrz {@link #threadDbNanos()}).
+     * @param error      Czy odpowiedź była błędem.
+     */
+    public void recordRequest(String command, String subCommand, long latencyNanos, long dbNanos, boolean error) {
+        OperationStats stats = commandStats(command, subCommand);
+        stats.latency.record(latencyNanos);
+        stats.dbNanos.add(dbNanos);
+        if (error) stats.errors.increment();
+    }
+
+    private OperationStats commandStats(String command, String subCommand) {
+        if (command == null) return unknownCommand;
+        // Klucze to stałe z Protocol, więc zbiór wpisów jest mały i stały; get jest bez blokad
+        ConcurrentHashMap<String, OperationStats> map = subCommand != null ? adminCommands : commands;
+        String key = subCommand != null ? subCommand : command;
+        OperationStats stats = map.get(key);
+        if (stats == null) {
+            stats = map.computeIfAbsent(key, k -> new OperationStats(subCommand != null ? ADMIN_PREFIX + k : k));
+        }
+        return stats;
+    }
+
+    /** Rejestruje błąd typu ERR_TYPE_* (np. wyjątek zamieniony na odpowiedź RES_ERROR). */
+    public void recordError(String errorType) {
+        for (int i = 0; i < ERROR_TYPES.length; i++) {
+            if (ERROR_TYPES[i].equals(errorType)) {
+                errorsByType[i].increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wykonuje i mierzy wywołanie magazynu danych. Czas trafia do histogramu operacji oraz do licznika bieżącego
+     * wątku ({@link #threadDbNanos()}); wywołania zagnieżdżone (np. wyszukanie klienta przy dodawaniu konta)
+     * mają własny histogram, ale do licznika wątku wlicza się tylko wywołanie zewnętrzne.
+     */
+    public <T> T timeDbCall(DbOperation operation, SqlCall<T> call) throws SQLException {
+        DbClock clock = dbClock.get();
+        clock.depth++;
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            OperationStats stats = dbOperations[operation.ordinal()];
+            stats.latency.record(elapsed);
+            if (failed) stats.errors.increment();
+            if (--clock.depth == 0) clock.nanos += elapsed;
+        }
+    }
+
+    /** Rejestruje tablicę blokad kont magazynu - jej statystyki trafiają do ADMIN;STATS i JMX. */
+    public void setAccountLocks(AccountLockTable accountLocks) {
+        this.accountLocks = accountLocks;
+    }
+
+    /** Łączny czas wywołań magazynu danych na bieżącym wątku - różnica dwóch odczytów daje czas bazy w żądaniu. */
+    public long threadDbNanos() {
+        return dbClock.get().nanos;
+    }
+
+    // --- Odczyt ---
+
+    /** Odczyt polecenia lub wywołania bazy: liczba, błędy i czasy w mikrosekundach. */
+    public static final class OperationSnapshot {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+        private final double dbMeanMicros;
+
+        OperationSnapshot(OperationStats stats, boolean withDbTime) {
+            LatencyHistogram.Snapshot s = stats.latency.snapshot();
+            this.name = stats.name;
+            this.count = s.getCount();
+            this.errors = stats.errors.sum();
+            this.meanMicros = s.getMeanNanos() / 1e3;
+            this.p50Micros = s.valueAt(0.50) / 1e3;
+            this.p99Micros = s.valueAt(0.99) / 1e3;
+            this.p999Micros = s.valueAt(0.999) / 1e3;
+            this.maxMicros = s.getMaxNanos() / 1e3;
+            this.dbMeanMicros = withDbTime && count > 0 ? stats.dbNanos.sum() / 1e3 / count : 0;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public double getMeanMicros() { return meanMicros; }
+        public double getP50Micros() { return p50Micros; }
+        public double getP99Micros() { return p99Micros; }
+        public double getP999Micros() { return p999Micros; }
+        public double getMaxMicros() { return maxMicros; }
+        /** Średni czas wywołań magazynu danych w żądaniu (0 dla statystyk samych wywołań bazy). */
+        public double getDbMeanMicros() { return dbMeanMicros; }
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    @Override
+    public long getTotalRequests() {
+        long total = unknownCommand.latency.snapshot().getCount();
+        for (OperationStats stats : commands.values()) total += stats.latency.snapshot().getCount();
+        for (OperationStats stats : adminCommands.values()) total += stats.latency.snapshot().getCount();
+        return total;
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public int getLoggedInSessions() {
+        return loggedInSessions.get();
+    }
+
+    @Override
+    public long getTotalSessions() {
+        return totalSessions.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (int i = 0; i < ERROR_TYPES.length; i++) {
+            errors.put(ERROR_TYPES[i], errorsByType[i].sum());
+        }
+        return errors;
+    }
+
+    @Override
+    public List<OperationSnapshot> getCommandStats() {
+        TreeMap<String, OperationSnapshot> sorted = new TreeMap<>();
+        for (OperationStats stats : commands.values()) sorted.put(stats.name, new OperationSnapshot(stats, true));
+        for (OperationStats stats : adminCommands.values()) sorted.put(stats.name, new OperationSnapshot(stats, true));
+        OperationSnapshot unknown = new OperationSnapshot(unknownCommand, true);
+        if (unknown.getCount() > 0) sorted.put(unknown.getName(), unknown);
+        return new ArrayList<>(sorted.values());
+    }
+
+    @Override
+    public AccountLockTable.Snapshot getAccountLockStats() {
+        AccountLockTable locks = accountLocks;
+        return locks != null ? locks.snapshot() : null;
+    }
+
+    @Override
+    public List<OperationSnapshot> getDbCallStats() {
+        List<OperationSnapshot> list = new ArrayList<>();
+        for (OperationStats stats : dbOperations) {
+            OperationSnapshot snapshot = new OperationSnapshot(stats, false);
+            if (snapshot.getCount() > 0) list.add(snapshot);
+        }
+        return list;
+    }
+
+    /**
+     * Zapisuje odpowiedź ADMIN;STATS (format opisany przy {@link Protocol#RES_STATS}).
+     * Pomijane są polecenia i wywołania bazy, które jeszcze nie wystąpiły.
+     */
+    public void writeStats(ResponseEncoder response) {
+        List<OperationSnapshot> commandStats = getCommandStats();
+        long requests = 0;
+        for (OperationSnapshot s : commandStats) requests += s.getCount();
+
+        response.message(Protocol.RES_STATS)
+                .field("uptimeMs=").append(getUptimeMillis())
+                .field("requests=").append(requests)
+                .field("sessions.active=").append(getActiveSessions())
+                .field("sessions.loggedIn=").append(getLoggedInSessions())
+                .field("sessions.total=").append(getTotalSessions());
+        for (Map.Entry<String, Long> e : getErrorsByType().entrySet()) {
+            response.field(Protocol.STATS_ERROR_PREFIX).append(e.getKey()).append("=").append(e.getValue());
+        }
+        for (OperationSnapshot s : commandStats) {
+            writeOperation(response, Protocol.STATS_COMMAND_PREFIX, s).append(",").append(micros(s.getDbMeanMicros()));
+        }
+        for (OperationSnapshot s : getDbCallStats()) {
+            writeOperation(response, Protocol.STATS_DB_PREFIX, s);
+        }
+        AccountLockTable.Snapshot locks = getAccountLockStats();
+        if (locks != null) {
+            response.field(Protocol.STATS_LOCKS).append("=").append(locks.getStripes())
+                    .append(",").append(locks.getAcquisitions())
+                    .append(",").append(locks.getContended())
+                    .append(",").append(micros(locks.getWaitMeanMicros()))
+                    .append(",").append(micros(locks.getWaitP99Micros()))
+                    .append(",").append(micros(locks.getWaitMaxMicros()));
+        }
+    }
+
+    private static ResponseEncoder writeOperation(ResponseEncoder response, String prefix, OperationSnapshot s) {
+        return response.field(prefix).append(s.getName()).append("=").append(s.getCount())
+                .append(",").append(s.getErrors())
+                .append(",").append(micros(s.getMeanMicros()))
+                .append(",").append(micros(s.getP50Micros()))
+                .append(",").append(micros(s.getP99Micros()))
+                .append(",").append(micros(s.getP999Micros()))
+                .append(",").append(micros(s.getMaxMicros()));
+    }
+
+    private static BigDecimal micros(double value) {
+        return BigDecimal.valueOf(Math.round(value * 10), 1); // Jedno miejsce po przecinku
+    }
+
+    public String statsSummary() {
+        List<OperationSnapshot> commandStats = getCommandStats();
+        StringBuilder sb = new StringBuilder("metrics[uptimeMs=").append(getUptimeMillis())
+                .append(", sessions.total=").append(getTotalSessions())
+                .append(", errors=").append(getErrorsByType());
+        for (OperationSnapshot s : commandStats) {
+            sb.append(String.format(", %s: n=%d p50=%.1fus p99=%.1fus db=%.1fus",
+                    s.getName(), s.getCount(), s.getP50Micros(), s.getP99Micros(), s.getDbMeanMicros()));
+        }
+        AccountLockTable.Snapshot locks = getAccountLockStats();
+        if (locks != null) {
+            sb.append(String.format(", locks: contended=%d/%d waitP99=%.1fus", locks.getContended(), locks.getAcquisitions(), locks.getWaitP99Micros()));
+        }
+        return sb.append(']').toString();
+    }
+}
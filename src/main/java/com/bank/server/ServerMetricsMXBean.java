@@ -0,0 +1,33 @@
+// File: src/main/java/com/bank/server/ServerMetricsMXBean.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interfejs JMX metryk serwera (np. w JConsole/VisualVM pod nazwą {@link ServerMetrics#OBJECT_NAME}).
+ * Te same dane zwraca polecenie protokołu ADMIN;STATS. Czasy są podawane w mikrosekundach.
+ */
+public interface ServerMetricsMXBean {
+    long getUptimeMillis();
+
+    long getTotalRequests();
+
+    int getActiveSessions();
+
+    int getLoggedInSessions();
+
+    long getTotalSessions();
+
+    /** Liczba błędów według typu ERR_TYPE_* (PARAM, DB, FORMAT, ARG, UNEXPECTED). */
+    Map<String, Long> getErrorsByType();
+
+    /** Statystyki poleceń protokołu (podpolecenia administracyjne jako ADMIN/...). */
+    List<ServerMetrics.OperationSnapshot> getCommandStats();
+
+    /** Statystyki wywołań magazynu danych. */
+    List<ServerMetrics.OperationSnapshot> getDbCallStats();
+
+    /** Blokady kont: pobrania, oczekiwania i czas oczekiwania na zajęty pasek (null, gdy magazyn ich nie używa). */
+    AccountLockTable.Snapshot getAccountLockStats();
+}
@@ -0,0 +1,92 @@
+// File: src/main/java/com/bank/server/SessionExecutors.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Fabryka wykonawców sesji klienckich wybieranych przez {@code server.executor} w config.properties.
+ * <ul>
+ *   <li>{@code platform} - jeden wątek platformowy na połączenie (dotychczasowe zachowanie),</li>
+ *   <li>{@code bounded} - stała pula wątków platformowych,</li>
+ *   <li>{@code virtual} - jeden wątek wirtualny na połączenie (wymaga JDK 21+).</li>
+ * </ul>
+ */
+public final class SessionExecutors {
+
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_BOUNDED = "bounded";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private SessionExecutors() {
+        throw new UnsupportedOperationException("Ta klasa jest klasą narzędziową i nie można tworzyć jej instancji.");
+    }
+
+    /**
+     * Tworzy wykonawcę sesji dla podanego trybu.
+     * @param mode Tryb wykonania (platform, bounded, virtual).
+     * @param boundedThreads Liczba wątków w trybie bounded.
+     * @param logger Logger do zgłaszania wybranego trybu i ewentualnego powrotu do wątków platformowych.
+     */
+    public static ExecutorService create(String mode, int boundedThreads, Logger logger) {
+        String normalized = (mode == null) ? MODE_PLATFORM : mode.trim().toLowerCase(Locale.ROOT);
+        switch (normalized) {
+            case MODE_VIRTUAL:
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual != null) {
+                    logger.info("Session executor: virtual threads (one virtual thread per connection).");
+                    return virtual;
+                }
+                logger.warning("Virtual threads are not available on Java " + Runtime.version().feature() +
+                        " (requires 21+). Falling back to platform threads.");
+                return newPlatformExecutor();
+            case MODE_BOUNDED:
+                if (boundedThreads < 1) throw new IllegalArgumentException("server.executor.threads musi być dodatnie: " + boundedThreads);
+                logger.info("Session executor: bounded pool of " + boundedThreads + " platform threads.");
+                return Executors.newFixedThreadPool(boundedThreads, namedFactory("BankSession-"));
+            case MODE_PLATFORM:
+                logger.info("Session executor: platform threads (one platform thread per connection).");
+                return newPlatformExecutor();
+            default:
+                throw new IllegalArgumentException("Nieznany tryb server.executor: " + mode + " (dozwolone: platform, bounded, virtual).");
+        }
+    }
+
+    /** Czy bieżące JDK udostępnia wątki wirtualne. */
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor() {
+        return Executors.newCachedThreadPool(namedFactory("BankSession-"));
+    }
+
+    // Projekt kompilowany jest pod Javę 17, więc API wątków wirtualnych wywołujemy refleksyjnie
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,88 @@
+// File: src/main/java/com/bank/server/SqlCatalog.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Stały katalog zapytań magazynu JDBC (DBManager, {@link TransferEngine}, {@link BalanceWriteBatcher},
+ * {@link AccountLedger}, {@link AccountNumberAllocator}, {@link BulkImporter}). Zapytania z katalogu przygotowywane
+ * są przez {@link ConnectionPool.Lease#prepare} - przy włączonym cache poleceń raz na fizyczne połączenie.
+ * Zapytania budowane dynamicznie (listy IN (...) o zmiennej długości) nie należą do katalogu i są przygotowywane
+ * przy każdym użyciu.
+ */
+public enum SqlCatalog {
+    // --- Klienci ---
+    ADD_CLIENT("INSERT INTO clients(first_name, last_name, pesel, password) VALUES (?, ?, ?, ?)", true),
+    AUTHENTICATE_CLIENT("SELECT id, first_name, last_name, pesel, password AS stored_password FROM clients WHERE id = ?"),
+    FIND_CLIENT_BY_ID("SELECT id, first_name, last_name, pesel FROM clients WHERE id = ?"),
+    FIND_CLIENT_BY_PESEL("SELECT id, first_name, last_name, pesel FROM clients WHERE pesel = ?"),
+    CLIENT_ENTRY_BY_ID("SELECT id, first_name, last_name, pesel, password FROM clients WHERE id = ?"),
+    CLIENT_ENTRY_BY_PESEL("SELECT id, first_name, last_name, pesel, password FROM clients WHERE pesel = ?"),
+    UPDATE_CLIENT("UPDATE clients SET first_name = ?, last_name = ?, pesel = ? WHERE id = ?"),
+    DELETE_CLIENT("DELETE FROM clients WHERE id = ?"),
+
+    // --- Konta ---
+    ADD_ACCOUNT("INSERT INTO accounts(client_id, account_number, balance) VALUES (?, ?, ?)", true),
+    FIND_ACCOUNT("SELECT id, client_id, account_number, balance FROM accounts WHERE account_number = ?"),
+    LIST_ACCOUNTS("SELECT id, client_id, account_number, balance FROM accounts WHERE client_id = ?"),
+    COUNT_ACCOUNTS("SELECT COUNT(*) FROM accounts WHERE client_id = ?"),
+    STREAM_ACCOUNTS("SELECT id, client_id, account_number, balance FROM accounts WHERE client_id = ? AND id > ? ORDER BY client_id, id LIMIT ?"),
+    DELETE_ACCOUNT("DELETE FROM accounts WHERE account_number = ?"),
+
+    // --- Salda ---
+    SET_BALANCE("UPDATE accounts SET balance = ? WHERE account_number = ?"),
+    ADD_TO_BALANCE("UPDATE accounts SET balance = balance + ? WHERE account_number = ?"), // Wpłata, uznanie, zmiana ze znakiem
+    SUBTRACT_FROM_BALANCE("UPDATE accounts SET balance = balance - ? WHERE account_number = ?"),
+    WITHDRAW("UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND client_id = ? AND balance >= ?"),
+    // BalanceWriteBatcher - jedno polecenie dla obu operacji: wpłata (flaga 1) bez warunków, wypłata z właścicielem i środkami w WHERE
+    BATCH_BALANCE_UPDATE("UPDATE accounts SET balance = balance + ? WHERE account_number = ? AND (? = 1 OR (client_id = ? AND balance >= ?))"),
+    // Wpłata / wypłata z odczytem nowego salda bez osobnej transakcji (DBManager.BalanceReadBack):
+    // H2 - jedno polecenie z tabelą zmian FINAL TABLE, MySQL/MariaDB - zmienna sesji ustawiana przez UPDATE
+    DEPOSIT_RETURNING("SELECT balance FROM FINAL TABLE (UPDATE accounts SET balance = balance + ? WHERE account_number = ?)"),
+    WITHDRAW_RETURNING("SELECT balance FROM FINAL TABLE (UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND client_id = ? AND balance >= ?)"),
+    DEPOSIT_CAPTURE("UPDATE accounts SET balance = (@new_balance := balance + ?) WHERE account_number = ?"),
+    WITHDRAW_CAPTURE("UPDATE accounts SET balance = (@new_balance := balance - ?) WHERE account_number = ? AND client_id = ? AND balance >= ?"),
+    CAPTURED_BALANCE("SELECT @new_balance"),
+    READ_BALANCE("SELECT balance FROM accounts WHERE account_number = ?"),
+    LOCK_BALANCE("SELECT balance FROM accounts WHERE account_number = ? FOR UPDATE"),
+    LOCK_ACCOUNT("SELECT client_id, balance FROM accounts WHERE account_number = ? FOR UPDATE"),
+    ACCOUNT_OWNER("SELECT client_id FROM accounts WHERE account_number = ?"),
+
+    // --- Historia operacji ---
+    LEDGER_INSERT("INSERT INTO account_ledger(account_number, entry_type, amount, balance_after, counterparty, created_at) VALUES (?, ?, ?, ?, ?, ?)"),
+    LEDGER_PAGE("SELECT id, entry_type, amount, balance_after, counterparty, created_at FROM account_ledger " +
+            "WHERE account_number = ? AND id < ? ORDER BY id DESC LIMIT ?"),
+
+    // --- Sekwencja numerów kont ---
+    SEQUENCE_LOCK("SELECT next_value FROM account_number_sequence WHERE name = ? FOR UPDATE"),
+    SEQUENCE_ADVANCE("UPDATE account_number_sequence SET next_value = ? WHERE name = ?"),
+    SEQUENCE_INIT("INSERT INTO account_number_sequence(name, next_value) VALUES (?, ?)");
+
+    private final String sql;
+    private final boolean generatedKeys;
+
+    SqlCatalog(String sql) {
+        this(sql, false);
+    }
+
+    SqlCatalog(String sql, boolean generatedKeys) {
+        this.sql = sql;
+        this.generatedKeys = generatedKeys;
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    /** true - polecenie przygotowywane z RETURN_GENERATED_KEYS (INSERT z kluczem AUTO_INCREMENT). */
+    public boolean returnsGeneratedKeys() {
+        return generatedKeys;
+    }
+
+    PreparedStatement prepare(Connection conn) throws SQLException {
+        return generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+    }
+}
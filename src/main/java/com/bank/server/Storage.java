@@ -0,0 +1,110 @@
+// File: src/main/java/com/bank/server/Storage.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import com.bank.common.Account;
+import com.bank.common.Client;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Magazyn danych banku używany przez sesje klientów (ClientSession, ClientHandler, NioServer).
+ * Implementacje:
+ * <ul>
+ *   <li>{@link DBManager} - baza relacyjna przez JDBC (dowolny sterownik, także baza wbudowana),</li>
+ *   <li>{@link InMemoryStorage} - dane wyłącznie w pamięci procesu, bez trwałości.</li>
+ * </ul>
+ * Silnik wybierany jest w config.properties kluczem storage.engine. Błędy magazynu zgłaszane są jako
+ * {@link SQLException} niezależnie od implementacji, więc obsługa błędów w sesji jest wspólna.
+ * Implementacje muszą być bezpieczne dla wątków - jedna instancja obsługuje wszystkie sesje.
+ */
+public interface Storage extends AutoCloseable {
+
+    /** Metryki serwera; implementacja mierzy każde publiczne wywołanie (patrz {@link ServerMetrics#timeDbCall}). */
+    ServerMetrics getMetrics();
+
+    // --- Klienci ---
+
+    /** @return ID nowego klienta. PESEL musi być unikalny. */
+    int addClient(String firstName, String lastName, String pesel, String password) throws SQLException;
+
+    /** @return Klient (bez hasła), jeśli ID istnieje i hasło się zgadza. */
+    Optional<Client> authenticateClient(int clientId, String password) throws SQLException;
+
+    Optional<Client> findClientById(int clientId) throws SQLException;
+
+    Optional<Client> findClientByPesel(String pesel) throws SQLException;
+
+    /** @return false, jeśli klient nie istnieje. */
+    boolean updateClientInfo(int clientId, String newFirstName, String newLastName, String newPesel) throws SQLException;
+
+    /** Usuwa klienta razem z jego kontami. */
+    boolean deleteClientById(int clientId) throws SQLException;
+
+    /**
+     * Import zbiorczy: każdy wiersz to nowy klient z pierwszym kontem. Wiersz z PESEL-em już istniejącym
+     * (lub powtórzonym we wcześniejszym wierszu tej samej listy) jest odrzucany bez przerywania pozostałych.
+     * @return Wyniki w kolejności wierszy.
+     */
+    List<ClientImportResult> importClients(List<ClientImportRow> rows) throws SQLException;
+
+    // --- Konta ---
+
+    /** Zakłada konto z nowym, unikalnym numerem. Brak klienta zgłaszany jest wyjątkiem. */
+    Account addAccountToClient(int clientId, BigDecimal initialBalance) throws SQLException;
+
+    Optional<Account> findAccountByNumber(String accountNumber) throws SQLException;
+
+    List<Account> findAllAccountsByClientId(int clientId) throws SQLException;
+
+    /**
+     * Konta klienta przekazywane do odbiorcy w trakcie odczytu (odpowiedzi strumieniowe) - pamięć nie rośnie
+     * z liczbą kont. Odbiorca może pisać prosto do gniazda, więc czas wywołania obejmuje też wysyłkę.
+     * @return Liczba przekazanych kont.
+     */
+    int streamAccountsByClientId(int clientId, AccountSink sink) throws SQLException;
+
+    /**
+     * Atomowa wpłata - równoległe operacje na tym samym koncie nie gubią zmian.
+     * @return Wynik z nowym saldem lub ACCOUNT_NOT_FOUND.
+     */
+    BalanceUpdateResult deposit(String accountNumber, BigDecimal amount) throws SQLException;
+
+    /**
+     * Atomowa wypłata: właściciel konta i wystarczające środki sprawdzane są razem ze zmianą salda.
+     * @return Wynik z nowym saldem lub ACCOUNT_NOT_FOUND / ACCESS_DENIED / INSUFFICIENT_FUNDS.
+     */
+    BalanceUpdateResult withdraw(String accountNumber, int clientId, BigDecimal amount) throws SQLException;
+
+    /**
+     * Atomowy przelew między dwoma kontami; środki i właściciel konta źródłowego sprawdzane są
+     * w tej samej operacji, która zmienia salda.
+     * @param ownerClientId ID klienta, do którego musi należeć konto źródłowe (&lt;= 0 - bez sprawdzenia).
+     */
+    TransferResult transfer(String fromAccountNumber, String toAccountNumber, int ownerClientId, BigDecimal amount) throws SQLException;
+
+    /**
+     * Paczka przelewów jako jedna operacja: przelewy sprawdzane są kolejno (każdy widzi salda po poprzednich),
+     * z tymi samymi warunkami co {@link #transfer}.
+     * @param atomic true - wszystko albo nic (jeden nieudany przelew wycofuje paczkę); false - nieudane przelewy
+     *               są pomijane, pozostałe wykonywane.
+     */
+    BatchTransferResult transferBatch(List<BatchTransferEntry> entries, int ownerClientId, boolean atomic) throws SQLException;
+
+    boolean deleteAccountByNumber(String accountNumber) throws SQLException;
+
+    // --- Historia operacji ---
+
+    /**
+     * Strona historii operacji konta od najnowszych wpisów: wpisy o ID mniejszym niż beforeEntryId.
+     * Kolejną stronę wyznacza ID ostatniego przekazanego wpisu (stronicowanie po kluczu, bez OFFSET).
+     * Wpisy przekazywane są do odbiorcy kolejno, w trakcie odczytu - bez budowania listy.
+     * @return true, jeśli za stroną są jeszcze starsze wpisy.
+     */
+    boolean readHistory(String accountNumber, long beforeEntryId, int limit, LedgerEntry.Sink sink) throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
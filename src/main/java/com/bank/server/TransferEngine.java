@@ -0,0 +1,342 @@
+// File: src/main/java/com/bank/server/TransferEngine.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Silnik przelewów odporny na współbieżność.
+ * <ul>
+ *   <li>oba wiersze kont blokowane są (SELECT ... FOR UPDATE) w stałej kolejności numerów kont,
+ *       więc dwa przeciwne przelewy na tej samej parze nie mogą się zakleszczyć na blokadach aplikacji,</li>
+ *   <li>salda zmieniane są względnie (balance = balance -/+ ?) w jednej transakcji,
+ *       a środki i właściciel sprawdzane są na zablokowanych wierszach, nie na wcześniejszych migawkach,</li>
+ *   <li>zakleszczenia i przekroczenia czasu oczekiwania na blokadę wykryte przez bazę
+ *       powodują ponowienie całej transakcji z wykładniczym opóźnieniem,</li>
+ *   <li>przy włączonej historii ({@link AccountLedger}) oba wpisy przelewu dopisywane są w tej samej transakcji,</li>
+ *   <li>paczka przelewów ({@link #transferBatch}) blokuje wszystkie swoje konta w tym samym porządku numerów,
+ *       więc nie zakleszcza się ani z innymi paczkami, ani z pojedynczymi przelewami.</li>
+ * </ul>
+ */
+public class TransferEngine {
+    private static final String LOCK_MANY_SQL_PREFIX = "SELECT account_number, client_id, balance FROM accounts WHERE account_number IN (";
+    private static final String LOCK_MANY_SQL_SUFFIX = ") ORDER BY account_number FOR UPDATE";
+
+    // Kody błędów MySQL: 1213 = deadlock, 1205 = lock wait timeout
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+    private final ConnectionPool pool;
+    private volatile int maxAttempts = 5;
+    private volatile long backoffBaseMillis = 5;
+    private volatile AccountLedger ledger; // null = bez historii operacji
+
+    // --- Statystyki ---
+    private final LongAdder transfers = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder(); // Przelewy, które wyczerpały limit prób
+    private final LongAdder batches = new LongAdder();   // Paczki przelewów (ich przelewy liczą się też w transfers)
+
+    public TransferEngine(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Ustawia politykę ponowień.
+     * @param maxAttempts Maksymalna liczba prób (co najmniej 1).
+     * @param backoffBaseMillis Bazowe opóźnienie; przed n-tą ponowną próbą czekamy losowo do base * 2^(n-1) ms.
+     */
+    public void setRetryPolicy(int maxAttempts, long backoffBaseMillis) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("Liczba prób musi być dodatnia: " + maxAttempts);
+        if (backoffBaseMillis < 0) throw new IllegalArgumentException("Opóźnienie nie może być ujemne: " + backoffBaseMillis);
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+    }
+
+    /** Przelewy dopisują wpisy historii obu kont w swojej transakcji (null - wyłącza). */
+    public void setLedger(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Wykonuje przelew w jednej transakcji, ponawiając ją przy zakleszczeniu lub przekroczeniu czasu blokady.
+     * @param ownerClientId ID klienta, do którego musi należeć konto źródłowe; wartość &lt;= 0 wyłącza sprawdzenie.
+     * @throws SQLException gdy transakcja nie powiedzie się (także po wyczerpaniu limitu prób).
+     */
+    public TransferResult transfer(String fromAccountNumber, String toAccountNumber, int ownerClientId, BigDecimal amount) throws SQLException {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Nie można wykonać przelewu na to samo konto.");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Kwota przelewu musi być dodatnia: " + amount);
+        }
+        transfers.increment();
+        TransferResult result = withRetries(retriesSoFar -> attemptTransfer(fromAccountNumber, toAccountNumber, ownerClientId, amount, retriesSoFar));
+        if (result.isOk()) committed.increment();
+        return result;
+    }
+
+    /**
+     * Wykonuje paczkę przelewów w jednej transakcji (z ponowieniem jak pojedynczy przelew):
+     * wszystkie konta paczki blokowane są jednym zapytaniem IN (...) w porządku numerów, przelewy sprawdzane
+     * kolejno na saldach w pamięci (każdy widzi skutki poprzednich), a salda zmieniane batchem - jedną
+     * sumaryczną zmianą na konto.
+     * @param atomic true - jeden nieudany przelew wycofuje paczkę; false - nieudane przelewy są pomijane.
+     */
+    public BatchTransferResult transferBatch(List<BatchTransferEntry> entries, int ownerClientId, boolean atomic) throws SQLException {
+        BatchTransferEntry.validate(entries);
+        batches.increment();
+        transfers.add(entries.size());
+        BatchTransferResult result = withRetries(retriesSoFar -> attemptBatch(entries, ownerClientId, atomic, retriesSoFar));
+        committed.add(result.getAppliedCount());
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Attempt<T> {
+        T run(int retriesSoFar) throws SQLException;
+    }
+
+    private <T> T withRetries(Attempt<T> body) throws SQLException {
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                return body.run(attempt - 1);
+            } catch (SQLException e) {
+                if (!isRetryable(e)) throw e;
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw new SQLException("Przelew nie powiódł się po " + attempt + " próbach (konflikt blokad): " + e.getMessage(),
+                            e.getSQLState(), e.getErrorCode(), e);
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private TransferResult attemptTransfer(String fromAcc, String toAcc, int ownerClientId, BigDecimal amount, int retriesSoFar) throws SQLException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+            try {
+                // Blokady zawsze w porządku leksykograficznym numerów kont - niezależnie od kierunku przelewu
+                boolean fromFirst = fromAcc.compareTo(toAcc) < 0;
+                LockedRow first = lockRow(lease, fromFirst ? fromAcc : toAcc);
+                LockedRow second = lockRow(lease, fromFirst ? toAcc : fromAcc);
+                LockedRow from = fromFirst ? first : second;
+                LockedRow to = fromFirst ? second : first;
+
+                TransferResult.Status status;
+                if (from == null) status = TransferResult.Status.SOURCE_ACCOUNT_NOT_FOUND;
+                else if (to == null) status = TransferResult.Status.DESTINATION_ACCOUNT_NOT_FOUND;
+                else if (ownerClientId > 0 && from.clientId != ownerClientId) status = TransferResult.Status.ACCESS_DENIED;
+                else if (from.balance.compareTo(amount) < 0) status = TransferResult.Status.INSUFFICIENT_FUNDS;
+                else status = TransferResult.Status.OK;
+
+                if (status != TransferResult.Status.OK) {
+                    conn.rollback(); // Zwolnij blokady bez zmian
+                    return new TransferResult(status, retriesSoFar, null, null);
+                }
+                applyDelta(lease, SqlCatalog.SUBTRACT_FROM_BALANCE, fromAcc, amount);
+                applyDelta(lease, SqlCatalog.ADD_TO_BALANCE, toAcc, amount);
+                // Wiersze były zablokowane, więc nowe salda wynikają wprost z odczytanych wartości
+                BigDecimal fromBalance = from.balance.subtract(amount);
+                BigDecimal toBalance = to.balance.add(amount);
+                AccountLedger currentLedger = ledger;
+                if (currentLedger != null) {
+                    currentLedger.append(lease, Arrays.asList(
+                            LedgerEntry.of(fromAcc, LedgerEntry.Type.TRANSFER_OUT, amount.negate(), fromBalance, toAcc),
+                            LedgerEntry.of(toAcc, LedgerEntry.Type.TRANSFER_IN, amount, toBalance, fromAcc)));
+                }
+                conn.commit();
+                return new TransferResult(status, retriesSoFar, fromBalance, toBalance);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException exRollback) {
+                    e.addSuppressed(exRollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private BatchTransferResult attemptBatch(List<BatchTransferEntry> entries, int ownerClientId, boolean atomic,
+                                             int retriesSoFar) throws SQLException {
+        Set<String> numbers = BatchTransferEntry.accountNumbers(entries);
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false); // Pula przywróci auto-commit przy zwrocie połączenia
+            try {
+                Map<String, LockedRow> rows = lockRows(conn, numbers);
+                Map<String, BigDecimal> balances = new HashMap<>(rows.size() * 2);
+                rows.forEach((number, row) -> balances.put(number, row.balance));
+                AccountLedger currentLedger = ledger;
+                List<LedgerEntry> ledgerEntries = currentLedger != null ? new ArrayList<>() : null;
+
+                TransferResult.Status[] statuses = new TransferResult.Status[entries.size()];
+                Map<String, BigDecimal> deltas = new TreeMap<>();
+                int applied = 0;
+                for (int i = 0; i < statuses.length; i++) {
+                    BatchTransferEntry entry = entries.get(i);
+                    String fromAcc = entry.getFromAccountNumber();
+                    String toAcc = entry.getToAccountNumber();
+                    BigDecimal amount = entry.getAmount();
+                    LockedRow from = rows.get(fromAcc);
+                    if (from == null) statuses[i] = TransferResult.Status.SOURCE_ACCOUNT_NOT_FOUND;
+                    else if (!rows.containsKey(toAcc)) statuses[i] = TransferResult.Status.DESTINATION_ACCOUNT_NOT_FOUND;
+                    else if (ownerClientId > 0 && from.clientId != ownerClientId) statuses[i] = TransferResult.Status.ACCESS_DENIED;
+                    else if (balances.get(fromAcc).compareTo(amount) < 0) statuses[i] = TransferResult.Status.INSUFFICIENT_FUNDS;
+                    else statuses[i] = TransferResult.Status.OK;
+                    if (statuses[i] != TransferResult.Status.OK) continue;
+
+                    BigDecimal fromBalance = balances.get(fromAcc).subtract(amount);
+                    BigDecimal toBalance = balances.get(toAcc).add(amount);
+                    balances.put(fromAcc, fromBalance);
+                    balances.put(toAcc, toBalance);
+                    deltas.merge(fromAcc, amount.negate(), BigDecimal::add);
+                    deltas.merge(toAcc, amount, BigDecimal::add);
+                    if (ledgerEntries != null) {
+                        ledgerEntries.add(LedgerEntry.of(fromAcc, LedgerEntry.Type.TRANSFER_OUT, amount.negate(), fromBalance, toAcc));
+                        ledgerEntries.add(LedgerEntry.of(toAcc, LedgerEntry.Type.TRANSFER_IN, amount, toBalance, fromAcc));
+                    }
+                    applied++;
+                }
+
+                if (applied == 0 || (atomic && applied < statuses.length)) {
+                    conn.rollback(); // Zwolnij blokady bez zmian
+                    return new BatchTransferResult(statuses, false, retriesSoFar, null);
+                }
+                applyDeltas(lease, deltas);
+                if (currentLedger != null) currentLedger.append(lease, ledgerEntries);
+                conn.commit();
+                Map<String, BigDecimal> changed = new HashMap<>(deltas.size() * 2);
+                for (String number : deltas.keySet()) changed.put(number, balances.get(number));
+                return new BatchTransferResult(statuses, true, retriesSoFar, changed);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException exRollback) {
+                    e.addSuppressed(exRollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Jedno zapytanie blokuje wszystkie konta paczki w porządku numerów (jak para kont pojedynczego przelewu)
+    private Map<String, LockedRow> lockRows(Connection conn, Set<String> numbers) throws SQLException {
+        StringBuilder sql = new StringBuilder(LOCK_MANY_SQL_PREFIX);
+        for (int i = 0; i < numbers.size(); i++) sql.append(i == 0 ? "?" : ",?");
+        sql.append(LOCK_MANY_SQL_SUFFIX);
+        Map<String, LockedRow> rows = new HashMap<>(numbers.size() * 2);
+        try (PreparedStatement st = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String number : numbers) st.setString(index++, number);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getString("account_number"), new LockedRow(rs.getInt("client_id"), rs.getBigDecimal("balance")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Sumaryczna zmiana salda każdego konta paczki - jedno polecenie w batchu na konto
+    // Zmiana ze znakiem (ADD_TO_BALANCE): ujemna obciąża konto
+    private void applyDeltas(ConnectionPool.Lease lease, Map<String, BigDecimal> deltas) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.ADD_TO_BALANCE);
+        for (Map.Entry<String, BigDecimal> delta : deltas.entrySet()) {
+            st.setBigDecimal(1, delta.getValue());
+            st.setString(2, delta.getKey());
+            st.addBatch();
+        }
+        int[] counts = st.executeBatch();
+        for (int count : counts) {
+            if (count == 0) throw new SQLException("Aktualizacja salda nie powiodła się w ramach paczki przelewów.");
+        }
+    }
+
+    private LockedRow lockRow(ConnectionPool.Lease lease, String accountNumber) throws SQLException {
+        PreparedStatement st = lease.prepare(SqlCatalog.LOCK_ACCOUNT);
+        st.setString(1, accountNumber);
+        try (ResultSet rs = st.executeQuery()) {
+            if (!rs.next()) return null;
+            return new LockedRow(rs.getInt("client_id"), rs.getBigDecimal("balance"));
+        }
+    }
+
+    // query: SUBTRACT_FROM_BALANCE (obciążenie) albo ADD_TO_BALANCE (uznanie)
+    private void applyDelta(ConnectionPool.Lease lease, SqlCatalog query, String accountNumber, BigDecimal amount) throws SQLException {
+        PreparedStatement st = lease.prepare(query);
+        st.setBigDecimal(1, amount);
+        st.setString(2, accountNumber);
+        if (st.executeUpdate() == 0) {
+            throw new SQLException("Aktualizacja salda nie powiodła się dla konta " + accountNumber + " w ramach transakcji.");
+        }
+    }
+
+    // Zakleszczenie / timeout blokady: SQLState klasy 40 (rollback transakcji), kody MySQL lub typ wyjątku JDBC
+    static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (!(t instanceof SQLException)) continue;
+            SQLException sql = (SQLException) t;
+            if (sql instanceof SQLTransactionRollbackException || sql instanceof SQLTimeoutException) return true;
+            if (sql.getErrorCode() == MYSQL_DEADLOCK || sql.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT) return true;
+            String state = sql.getSQLState();
+            if (state != null && (state.startsWith("40") || "HYT00".equals(state))) return true;
+        }
+        return false;
+    }
+
+    private void backoff(int attempt) throws SQLException {
+        long ceiling = backoffBaseMillis << Math.min(attempt - 1, 10);
+        long sleep = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1); // Pełny jitter
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Przerwano oczekiwanie przed ponowieniem przelewu.", ie);
+        }
+    }
+
+    // --- Statystyki ---
+
+    public long getTransferCount() { return transfers.sum(); }
+    public long getCommittedCount() { return committed.sum(); }
+    public long getRetryCount() { return retries.sum(); }
+    public long getExhaustedCount() { return exhausted.sum(); }
+    public long getBatchCount() { return batches.sum(); }
+
+    public String statsSummary() {
+        return "transfers[requested=" + getTransferCount() + ", committed=" + getCommittedCount() +
+                ", retries=" + getRetryCount() + ", exhaustedRetries=" + getExhaustedCount() + ", batches=" + getBatchCount() + "]";
+    }
+
+    private static final class LockedRow {
+        final int clientId;
+        final BigDecimal balance;
+
+        LockedRow(int clientId, BigDecimal balance) {
+            this.clientId = clientId;
+            this.balance = balance;
+        }
+    }
+}
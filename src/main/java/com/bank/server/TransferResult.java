@@ -0,0 +1,56 @@
+// File: src/main/java/com/bank/server/TransferResult.java
+package com.bank.server; // Zgodnie z uproszczoną strukturą
+
+import java.math.BigDecimal;
+
+/**
+ * Wynik przelewu wykonanego przez TransferEngine: status oraz liczba ponowień transakcji
+ * (po zakleszczeniu lub przekroczeniu czasu oczekiwania na blokadę).
+ */
+public final class TransferResult {
+
+    public enum Status {
+        OK,
+        SOURCE_ACCOUNT_NOT_FOUND,
+        DESTINATION_ACCOUNT_NOT_FOUND,
+        ACCESS_DENIED,      // Konto źródłowe nie należy do zlecającego klienta
+        INSUFFICIENT_FUNDS
+    }
+
+    private final Status status;
+    private final int retries;
+    private final BigDecimal sourceBalance;      // Saldo po przelewie (null, jeśli przelew nie został wykonany)
+    private final BigDecimal destinationBalance;
+
+    TransferResult(Status status, int retries, BigDecimal sourceBalance, BigDecimal destinationBalance) {
+        this.status = status;
+        this.retries = retries;
+        this.sourceBalance = sourceBalance;
+        this.destinationBalance = destinationBalance;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public BigDecimal getSourceBalance() {
+        return sourceBalance;
+    }
+
+    public BigDecimal getDestinationBalance() {
+        return destinationBalance;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{status=" + status + ", retries=" + retries + '}';
+    }
+}
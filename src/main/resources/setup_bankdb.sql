@@ -25,6 +25,8 @@ USE bankdb;
 --    'accounts' table must be dropped before 'clients' because 'accounts' references 'clients'.
 DROP TABLE IF EXISTS accounts;
 DROP TABLE IF EXISTS clients;
+DROP TABLE IF EXISTS account_number_sequence;
+DROP TABLE IF EXISTS account_ledger;
 
 -- 4. Create the 'clients' table
 --    This table stores personal information about the bank's clients.
@@ -67,8 +69,36 @@ CREATE TABLE accounts (
 
 -- Note: The UNIQUE constraint on 'account_number' automatically creates an index.
 -- Adding an explicit index on 'client_id' can improve performance when querying
--- for all accounts belonging to a specific client.
-CREATE INDEX idx_accounts_client_id ON accounts (client_id);
+-- for all accounts belonging to a specific client. The 'id' column lets a streamed
+-- account list read its pages (client_id = ? AND id > ?) straight from the index.
+CREATE INDEX idx_accounts_client_id ON accounts (client_id, id);
+
+-- 6. Create the 'account_number_sequence' table
+--    Each server instance reserves blocks of account numbers from this row (one row per bank code),
+--    so new account numbers are unique without checking every candidate against 'accounts'.
+CREATE TABLE account_number_sequence (
+                          name VARCHAR(32) PRIMARY KEY,               -- Bank routing code the sequence belongs to
+                          next_value BIGINT NOT NULL                  -- First account sequence value not yet reserved
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 7. Create the 'account_ledger' table
+--    Append-only transaction history: one row per balance change, written in the same
+--    transaction as the change itself (db.ledger.enabled=true). No foreign key to 'accounts',
+--    so history outlives deleted accounts and inserts do not take locks on the parent row.
+CREATE TABLE account_ledger (
+                          id BIGINT AUTO_INCREMENT PRIMARY KEY,       -- Monotonic entry id, also the HISTORY page cursor
+                          account_number VARCHAR(28) NOT NULL,        -- Account whose balance changed
+                          entry_type VARCHAR(16) NOT NULL,            -- OPEN, DEPOSIT, WITHDRAW, TRANSFER_IN, TRANSFER_OUT, ADJUST
+                          amount DECIMAL(19,2) NOT NULL,              -- Signed change: negative for debits
+                          balance_after DECIMAL(19,2) NOT NULL,       -- Balance right after this entry
+                          counterparty VARCHAR(28) NULL,              -- Other account of a transfer, otherwise NULL
+                          created_at DATETIME(3) NOT NULL             -- Time set by the server (millisecond precision)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- HISTORY reads pages newest-first with keyset pagination:
+--   WHERE account_number = ? AND id < ? ORDER BY id DESC LIMIT ?
+-- This index serves that query as a backward range scan, whatever the page depth.
+CREATE INDEX idx_ledger_account_id ON account_ledger (account_number, id);
 
 -- -----------------------------------------------------------------------------
 -- End of Database Setup Script